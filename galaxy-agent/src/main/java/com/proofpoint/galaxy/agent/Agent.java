@@ -36,6 +36,7 @@ import java.util.Map.Entry;
 import java.util.Properties;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -56,6 +57,20 @@ public class Agent
     private final Duration maxLockWait;
     private final URI internalUri;
     private final URI externalUri;
+    private final Object statusMonitor = new Object();
+
+    // number of slot changes, used to wake up requests waiting for a status change
+    // guarded by statusMonitor
+    private long statusChanges;
+
+    private final Runnable statusListener = new Runnable()
+    {
+        @Override
+        public void run()
+        {
+            statusChanged();
+        }
+    };
 
     @Inject
     public Agent(AgentConfig config,
@@ -106,6 +121,7 @@ public class Agent
         this.lifecycleManager = lifecycleManager;
 
         slots = new ConcurrentHashMap<String, Slot>();
+        lifecycleManager.addStateChangeListener(statusListener);
 
         this.slotsDir = new File(slotsDir);
         if (!this.slotsDir.isDirectory()) {
@@ -131,7 +147,7 @@ public class Agent
             else {
                 URI slotInternalUri = internalUri.resolve("/v1/agent/slot/").resolve(slotName);
                 URI slotExternalUri = externalUri.resolve("/v1/agent/slot/").resolve(slotName);
-                Slot slot = new DeploymentSlot(slotInternalUri, slotExternalUri, deploymentManager, lifecycleManager, maxLockWait);
+                Slot slot = new DeploymentSlot(slotInternalUri, slotExternalUri, deploymentManager, lifecycleManager, maxLockWait, statusListener);
                 slots.put(slotName, slot);
             }
         }
@@ -190,6 +206,45 @@ public class Agent
         return agentStatus;
     }
 
+    public AgentStatus waitForVersionChange(String version, Duration maxWait)
+            throws InterruptedException
+    {
+        Preconditions.checkNotNull(version, "version is null");
+        Preconditions.checkNotNull(maxWait, "maxWait is null");
+
+        // the status is only rebuilt after a slot reports a change
+        long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos((long) maxWait.toMillis());
+        while (true) {
+            long changes;
+            synchronized (statusMonitor) {
+                changes = statusChanges;
+            }
+
+            AgentStatus agentStatus = getAgentStatus();
+            if (!version.equals(agentStatus.getVersion())) {
+                return agentStatus;
+            }
+
+            synchronized (statusMonitor) {
+                while (statusChanges == changes) {
+                    long remaining = end - System.nanoTime();
+                    if (remaining <= 0) {
+                        return agentStatus;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(statusMonitor, remaining);
+                }
+            }
+        }
+    }
+
+    private void statusChanged()
+    {
+        synchronized (statusMonitor) {
+            statusChanges++;
+            statusMonitor.notifyAll();
+        }
+    }
+
     public Slot getSlot(String name)
     {
         Preconditions.checkNotNull(name, "name must not be null");
@@ -205,8 +260,9 @@ public class Agent
         String slotName = getNextSlotName(installation.getShortName());
         URI slotInternalUri = internalUri.resolve("/v1/agent/slot/").resolve(slotName);
         URI slotExternalUri = externalUri.resolve("/v1/agent/slot/").resolve(slotName);
-        Slot slot = new DeploymentSlot(slotInternalUri, slotExternalUri, deploymentManagerFactory.createDeploymentManager(slotName), lifecycleManager, installation, maxLockWait);
+        Slot slot = new DeploymentSlot(slotInternalUri, slotExternalUri, deploymentManagerFactory.createDeploymentManager(slotName), lifecycleManager, installation, maxLockWait, statusListener);
         slots.put(slotName, slot);
+        statusChanged();
 
         // return last slot status
         return slot.getLastSlotStatus();
@@ -224,6 +280,7 @@ public class Agent
         SlotStatus status = slot.terminate();
         if (status.getState() == TERMINATED) {
             slots.remove(name);
+            statusChanged();
         }
         return status;
     }
@@ -15,19 +15,28 @@ package com.proofpoint.galaxy.agent;
 
 import com.google.common.base.Preconditions;
 import com.proofpoint.configuration.Config;
+import com.proofpoint.configuration.ConfigDescription;
 import com.proofpoint.units.Duration;
 
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 import java.util.concurrent.TimeUnit;
 
 public class AgentConfig
 {
     private String slotsDir = "slots";
+    private String binaryCacheDir = "binary-cache";
+    private int binaryCacheMaxSizeMb = 2048;
+    private boolean binaryCacheLinkSlots;
+    private String configBundleCacheDir = "config-bundle-cache";
+    private int configBundleCacheMaxSizeMb = 256;
     private String resourcesFile = "etc/resources.properties";
     private Duration launcherTimeout = new Duration(1, TimeUnit.SECONDS);
     private Duration launcherStopTimeout = new Duration(10, TimeUnit.SECONDS);
     private Duration tarTimeout = new Duration(1, TimeUnit.MINUTES);
     private Duration maxLockWait = new Duration(1, TimeUnit.SECONDS);
+    private Duration statusRefreshInterval = new Duration(5, TimeUnit.SECONDS);
+    private int maxConcurrentStatusRefreshes = 4;
 
     @NotNull
     public String getSlotsDir()
@@ -42,6 +51,71 @@ public class AgentConfig
         return this;
     }
 
+    @NotNull
+    public String getBinaryCacheDir()
+    {
+        return binaryCacheDir;
+    }
+
+    @Config("agent.binary-cache-dir")
+    public AgentConfig setBinaryCacheDir(String binaryCacheDir)
+    {
+        this.binaryCacheDir = binaryCacheDir;
+        return this;
+    }
+
+    @Min(0)
+    public int getBinaryCacheMaxSizeMb()
+    {
+        return binaryCacheMaxSizeMb;
+    }
+
+    @Config("agent.binary-cache-max-size-mb")
+    public AgentConfig setBinaryCacheMaxSizeMb(int binaryCacheMaxSizeMb)
+    {
+        this.binaryCacheMaxSizeMb = binaryCacheMaxSizeMb;
+        return this;
+    }
+
+    public boolean isBinaryCacheLinkSlots()
+    {
+        return binaryCacheLinkSlots;
+    }
+
+    @Config("agent.binary-cache-link-slots")
+    @ConfigDescription("Clone binaries into slots with hard links to the binary cache instead of copying them; the binary files of a slot are then read-only and shared with the cache and every other slot, so slot binaries must be treated as immutable")
+    public AgentConfig setBinaryCacheLinkSlots(boolean binaryCacheLinkSlots)
+    {
+        this.binaryCacheLinkSlots = binaryCacheLinkSlots;
+        return this;
+    }
+
+    @NotNull
+    public String getConfigBundleCacheDir()
+    {
+        return configBundleCacheDir;
+    }
+
+    @Config("agent.config-bundle-cache-dir")
+    public AgentConfig setConfigBundleCacheDir(String configBundleCacheDir)
+    {
+        this.configBundleCacheDir = configBundleCacheDir;
+        return this;
+    }
+
+    @Min(0)
+    public int getConfigBundleCacheMaxSizeMb()
+    {
+        return configBundleCacheMaxSizeMb;
+    }
+
+    @Config("agent.config-bundle-cache-max-size-mb")
+    public AgentConfig setConfigBundleCacheMaxSizeMb(int configBundleCacheMaxSizeMb)
+    {
+        this.configBundleCacheMaxSizeMb = configBundleCacheMaxSizeMb;
+        return this;
+    }
+
     @NotNull
     public String getResourcesFile()
     {
@@ -110,4 +184,30 @@ public class AgentConfig
         this.maxLockWait = lockWait;
         return this;
     }
+
+    @NotNull
+    public Duration getStatusRefreshInterval()
+    {
+        return statusRefreshInterval;
+    }
+
+    @Config("agent.status-refresh-interval")
+    public AgentConfig setStatusRefreshInterval(Duration statusRefreshInterval)
+    {
+        this.statusRefreshInterval = statusRefreshInterval;
+        return this;
+    }
+
+    @Min(1)
+    public int getMaxConcurrentStatusRefreshes()
+    {
+        return maxConcurrentStatusRefreshes;
+    }
+
+    @Config("agent.max-concurrent-status-refreshes")
+    public AgentConfig setMaxConcurrentStatusRefreshes(int maxConcurrentStatusRefreshes)
+    {
+        this.maxConcurrentStatusRefreshes = maxConcurrentStatusRefreshes;
+        return this;
+    }
 }
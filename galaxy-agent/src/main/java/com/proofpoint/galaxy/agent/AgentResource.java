@@ -17,18 +17,27 @@ import com.google.common.base.Preconditions;
 import com.google.inject.Inject;
 import com.proofpoint.galaxy.shared.AgentStatus;
 import com.proofpoint.galaxy.shared.AgentStatusRepresentation;
+import com.proofpoint.units.Duration;
 
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import java.util.concurrent.TimeUnit;
 
+import static com.proofpoint.galaxy.shared.SmileCodec.APPLICATION_SMILE;
 import static com.proofpoint.galaxy.shared.VersionsUtil.GALAXY_AGENT_VERSION_HEADER;
 
 @Path("/v1/agent/")
 public class AgentResource
 {
+    private static final Duration MAX_WAIT = new Duration(5, TimeUnit.MINUTES);
+
     private final Agent agent;
 
     @Inject
@@ -40,13 +49,63 @@ public class AgentResource
     }
 
     @GET
-    @Produces(MediaType.APPLICATION_JSON)
-    public Response getAllSlotsStatus()
+    @Produces({MediaType.APPLICATION_JSON, APPLICATION_SMILE})
+    public Response getAllSlotsStatus(@HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch, @QueryParam("maxWait") Duration maxWait)
     {
-        AgentStatus agentStatus = agent.getAgentStatus();
+        AgentStatus agentStatus;
+        String currentVersion = parseEntityTag(ifNoneMatch);
+        if (currentVersion != null) {
+            agentStatus = waitForVersionChange(currentVersion, maxWait);
+            if (currentVersion.equals(agentStatus.getVersion())) {
+                return Response.notModified(new EntityTag(agentStatus.getVersion()))
+                        .header(GALAXY_AGENT_VERSION_HEADER, agentStatus.getVersion())
+                        .build();
+            }
+        }
+        else {
+            agentStatus = agent.getAgentStatus();
+        }
+
         AgentStatusRepresentation agentStatusRepresentation = AgentStatusRepresentation.from(agentStatus);
         return Response.ok(agentStatusRepresentation)
                 .header(GALAXY_AGENT_VERSION_HEADER, agentStatus.getVersion())
+                .tag(agentStatus.getVersion())
                 .build();
     }
+
+    private AgentStatus waitForVersionChange(String currentVersion, Duration maxWait)
+    {
+        if (maxWait == null) {
+            maxWait = new Duration(0, TimeUnit.MILLISECONDS);
+        }
+        else if (maxWait.toMillis() > MAX_WAIT.toMillis()) {
+            maxWait = MAX_WAIT;
+        }
+
+        try {
+            return agent.waitForVersionChange(currentVersion, maxWait);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return agent.getAgentStatus();
+        }
+    }
+
+    private static String parseEntityTag(String entityTag)
+    {
+        if (entityTag == null) {
+            return null;
+        }
+        entityTag = entityTag.trim();
+        if (entityTag.startsWith("W/")) {
+            entityTag = entityTag.substring(2);
+        }
+        if (entityTag.length() >= 2 && entityTag.startsWith("\"") && entityTag.endsWith("\"")) {
+            entityTag = entityTag.substring(1, entityTag.length() - 1);
+        }
+        if (entityTag.isEmpty()) {
+            return null;
+        }
+        return entityTag;
+    }
 }
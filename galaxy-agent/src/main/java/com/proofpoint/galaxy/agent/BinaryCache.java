@@ -0,0 +1,449 @@
+package com.proofpoint.galaxy.agent;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+import com.google.common.io.Resources;
+import com.proofpoint.galaxy.shared.DigestUtils;
+import com.proofpoint.log.Logger;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.proofpoint.galaxy.shared.FileUtils.createTempDir;
+import static com.proofpoint.galaxy.shared.FileUtils.deleteRecursively;
+import static com.proofpoint.galaxy.shared.FileUtils.extractTar;
+import static com.proofpoint.galaxy.shared.FileUtils.isSymbolicLink;
+import static com.proofpoint.galaxy.shared.FileUtils.listFiles;
+
+/**
+ * Binaries downloaded by the slots of an agent.  Each binary is stored once under the digest of
+ * its contents, and concurrent installs of the same binary share one download.  When the cache
+ * grows past its maximum size, the least recently used binaries that are not being installed
+ * are deleted.
+ * <p/>
+ * A binary with SNAPSHOT in its file name can change in place, so it is downloaded on every
+ * install.  Binaries on the local file system are used where they are.
+ * <p/>
+ * The extracted contents of a binary are also kept, so an install can copy the extracted tree
+ * instead of extracting the binary again.  When slots are linked, an install clones the tree
+ * with hard links instead, so every slot shares the files of the cache.  The files of a linked
+ * tree are read-only, and the binary of a slot must then be treated as immutable: a file that
+ * is changed in place, or whose permissions are changed, changes the cache and every slot.
+ */
+public class BinaryCache
+{
+    private static final Logger log = Logger.get(BinaryCache.class);
+    private static final String BINARY_SUFFIX = ".tar.gz";
+
+    private final File binaryDir;
+    private final File locationDir;
+    private final File extractedDir;
+    private final long maxSize;
+    private final boolean linkSlots;
+    private final ConcurrentMap<URI, FutureTask<String>> downloads = new ConcurrentHashMap<URI, FutureTask<String>>();
+    private final ConcurrentMap<String, FutureTask<File>> extractions = new ConcurrentHashMap<String, FutureTask<File>>();
+
+    // binaries by digest, least recently used first
+    // guarded by this
+    private final LinkedHashMap<String, CachedBinary> binaries = new LinkedHashMap<String, CachedBinary>(16, 0.75f, true);
+
+    // guarded by this
+    private long size;
+
+    public BinaryCache(File cacheDir, long maxSize)
+    {
+        this(cacheDir, maxSize, false);
+    }
+
+    public BinaryCache(File cacheDir, long maxSize, boolean linkSlots)
+    {
+        Preconditions.checkNotNull(cacheDir, "cacheDir is null");
+        Preconditions.checkArgument(maxSize >= 0, "maxSize is negative");
+
+        this.binaryDir = new File(cacheDir, "binaries");
+        this.locationDir = new File(cacheDir, "locations");
+        this.extractedDir = new File(cacheDir, "extracted");
+        this.maxSize = maxSize;
+        this.linkSlots = linkSlots;
+
+        binaryDir.mkdirs();
+        Preconditions.checkArgument(binaryDir.isDirectory(), "binaryDir is not a directory: " + binaryDir.getAbsolutePath());
+
+        // load the binaries downloaded before a restart, oldest first
+        List<File> files = newArrayList(listFiles(binaryDir));
+        Collections.sort(files, new Comparator<File>()
+        {
+            @Override
+            public int compare(File file1, File file2)
+            {
+                return Long.valueOf(file1.lastModified()).compareTo(file2.lastModified());
+            }
+        });
+        for (File file : files) {
+            String name = file.getName();
+            if (name.endsWith(BINARY_SUFFIX)) {
+                String digest = name.substring(0, name.length() - BINARY_SUFFIX.length());
+                binaries.put(digest, new CachedBinary(file));
+                size += file.length();
+            }
+            else {
+                // left over from an interrupted download
+                file.delete();
+            }
+        }
+
+        // extracted trees are renamed to the binary digest once complete, so anything else is left over
+        for (File file : listFiles(extractedDir)) {
+            if (!binaries.containsKey(file.getName())) {
+                deleteRecursively(file);
+            }
+        }
+    }
+
+    /**
+     * Gets a local copy of the binary, downloading it if necessary.  The returned file is not
+     * deleted until it is released.
+     */
+    public File acquire(final URI binaryUri)
+            throws IOException
+    {
+        Preconditions.checkNotNull(binaryUri, "binaryUri is null");
+
+        if ("file".equals(binaryUri.getScheme())) {
+            return new File(binaryUri);
+        }
+
+        while (true) {
+            String digest;
+            FutureTask<String> task = null;
+            if (isMutable(binaryUri)) {
+                digest = download(binaryUri);
+            }
+            else {
+                task = downloads.get(binaryUri);
+                if (task == null) {
+                    FutureTask<String> newTask = new FutureTask<String>(new Callable<String>()
+                    {
+                        @Override
+                        public String call()
+                                throws IOException
+                        {
+                            return load(binaryUri);
+                        }
+                    });
+                    task = downloads.putIfAbsent(binaryUri, newTask);
+                    if (task == null) {
+                        task = newTask;
+                        task.run();
+                    }
+                }
+                digest = getDigest(binaryUri, task);
+            }
+
+            synchronized (this) {
+                CachedBinary binary = binaries.get(digest);
+                if (binary != null) {
+                    binary.references++;
+                    evict();
+                    return binary.file;
+                }
+            }
+
+            // the binary was evicted before it could be acquired, so download it again
+            if (task != null) {
+                downloads.remove(binaryUri, task);
+            }
+        }
+    }
+
+    /**
+     * Releases a file returned from {@link #acquire}, allowing it to be evicted.
+     */
+    public synchronized void release(File file)
+    {
+        Preconditions.checkNotNull(file, "file is null");
+
+        String name = file.getName();
+        if (name.endsWith(BINARY_SUFFIX)) {
+            CachedBinary binary = binaries.get(name.substring(0, name.length() - BINARY_SUFFIX.length()));
+            if (binary != null && binary.file.equals(file) && binary.references > 0) {
+                binary.references--;
+            }
+        }
+        evict();
+    }
+
+    /**
+     * Checks if slots clone the extracted binaries with hard links instead of copying them.
+     */
+    public boolean isLinkSlots()
+    {
+        return linkSlots;
+    }
+
+    /**
+     * Gets the extracted contents of an acquired binary, extracting the binary the first time.
+     * The extracted tree belongs to the cache, so an install must copy it, or clone it with hard
+     * links if slots are linked.  Returns null if the binary is not stored in this cache or could
+     * not be extracted.
+     */
+    public File getExtractedBinary(final File binary)
+    {
+        Preconditions.checkNotNull(binary, "binary is null");
+
+        String name = binary.getName();
+        if (!name.endsWith(BINARY_SUFFIX)) {
+            return null;
+        }
+        final String digest = name.substring(0, name.length() - BINARY_SUFFIX.length());
+        synchronized (this) {
+            CachedBinary cachedBinary = binaries.get(digest);
+            if (cachedBinary == null || !cachedBinary.file.equals(binary)) {
+                return null;
+            }
+        }
+
+        FutureTask<File> task = extractions.get(digest);
+        if (task == null) {
+            FutureTask<File> newTask = new FutureTask<File>(new Callable<File>()
+            {
+                @Override
+                public File call()
+                        throws IOException
+                {
+                    return extract(binary, digest);
+                }
+            });
+            task = extractions.putIfAbsent(digest, newTask);
+            if (task == null) {
+                task = newTask;
+                task.run();
+            }
+        }
+
+        try {
+            return task.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        catch (ExecutionException e) {
+            extractions.remove(digest, task);
+            log.warn("Unable to extract binary %s: %s", binary.getAbsolutePath(), e.getCause().getMessage());
+            return null;
+        }
+    }
+
+    public synchronized long getSize()
+    {
+        return size;
+    }
+
+    private String getDigest(URI binaryUri, FutureTask<String> task)
+            throws IOException
+    {
+        try {
+            return task.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while downloading binary " + binaryUri);
+        }
+        catch (ExecutionException e) {
+            // do not cache the failure
+            downloads.remove(binaryUri, task);
+            Throwables.propagateIfInstanceOf(e.getCause(), IOException.class);
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    private String load(URI binaryUri)
+            throws IOException
+    {
+        // check for a binary downloaded before a restart
+        File locationFile = new File(locationDir, DigestUtils.md5Hex(binaryUri.toString()));
+        if (locationFile.canRead()) {
+            String digest = Files.toString(locationFile, Charsets.UTF_8).trim();
+            synchronized (this) {
+                if (binaries.containsKey(digest)) {
+                    return digest;
+                }
+            }
+        }
+
+        String digest = download(binaryUri);
+
+        locationDir.mkdirs();
+        File tempFile = File.createTempFile("location", ".tmp", locationDir);
+        try {
+            Files.write(digest, tempFile, Charsets.UTF_8);
+            if (!tempFile.renameTo(locationFile)) {
+                log.warn("Unable to save location of binary %s", binaryUri);
+            }
+        }
+        finally {
+            tempFile.delete();
+        }
+        return digest;
+    }
+
+    private String download(URI binaryUri)
+            throws IOException
+    {
+        File tempFile = File.createTempFile("download", ".tmp", binaryDir);
+        try {
+            MessageDigest messageDigest = newDigest();
+            InputStream in = new DigestInputStream(Resources.newInputStreamSupplier(binaryUri.toURL()).getInput(), messageDigest);
+            try {
+                OutputStream out = new FileOutputStream(tempFile);
+                try {
+                    ByteStreams.copy(in, out);
+                }
+                finally {
+                    out.close();
+                }
+            }
+            finally {
+                in.close();
+            }
+
+            String digest = DigestUtils.toHex(messageDigest.digest());
+            synchronized (this) {
+                if (!binaries.containsKey(digest)) {
+                    File file = new File(binaryDir, digest + BINARY_SUFFIX);
+                    if (!tempFile.renameTo(file)) {
+                        throw new IOException("Unable to save binary " + binaryUri + " to " + file);
+                    }
+                    binaries.put(digest, new CachedBinary(file));
+                    size += file.length();
+                }
+            }
+            return digest;
+        }
+        finally {
+            tempFile.delete();
+        }
+    }
+
+    private File extract(File binary, String digest)
+            throws IOException
+    {
+        File extracted = new File(extractedDir, digest);
+        if (extracted.isDirectory()) {
+            // extracted before a restart, possibly while slots were copied
+            if (linkSlots) {
+                makeFilesReadOnly(extracted);
+            }
+            return extracted;
+        }
+
+        extractedDir.mkdirs();
+        File tempDir = createTempDir(extractedDir, "tmp-extract");
+        boolean success = false;
+        try {
+            extractTar(binary, tempDir);
+            if (linkSlots) {
+                makeFilesReadOnly(tempDir);
+            }
+            if (!tempDir.renameTo(extracted)) {
+                throw new IllegalStateException("Unable to move extracted binary to " + extracted.getAbsolutePath());
+            }
+            success = true;
+            return extracted;
+        }
+        finally {
+            if (!success) {
+                deleteRecursively(tempDir);
+            }
+        }
+    }
+
+    private static void makeFilesReadOnly(File dir)
+    {
+        // directories stay writable so config can be added to the clones
+        for (File file : listFiles(dir)) {
+            if (isSymbolicLink(file)) {
+                continue;
+            }
+            if (file.isDirectory()) {
+                makeFilesReadOnly(file);
+            }
+            else {
+                file.setWritable(false, false);
+            }
+        }
+    }
+
+    // guarded by this
+    private void evict()
+    {
+        for (Iterator<CachedBinary> iterator = binaries.values().iterator(); size > maxSize && iterator.hasNext(); ) {
+            CachedBinary binary = iterator.next();
+            if (binary.references == 0) {
+                long length = binary.file.length();
+                if (binary.file.delete() || !binary.file.exists()) {
+                    iterator.remove();
+                    size -= length;
+
+                    String name = binary.file.getName();
+                    String digest = name.substring(0, name.length() - BINARY_SUFFIX.length());
+                    extractions.remove(digest);
+                    deleteRecursively(new File(extractedDir, digest));
+                }
+                else {
+                    log.warn("Unable to delete cached binary %s", binary.file.getAbsolutePath());
+                }
+            }
+        }
+    }
+
+    private static boolean isMutable(URI binaryUri)
+    {
+        String path = binaryUri.getPath();
+        return path == null || path.substring(path.lastIndexOf('/') + 1).contains("SNAPSHOT");
+    }
+
+    private static MessageDigest newDigest()
+    {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    private static class CachedBinary
+    {
+        private final File file;
+        private int references;
+
+        private CachedBinary(File file)
+        {
+            this.file = file;
+        }
+    }
+}
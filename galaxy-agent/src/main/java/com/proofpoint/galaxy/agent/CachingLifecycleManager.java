@@ -0,0 +1,324 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.proofpoint.galaxy.agent;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import com.proofpoint.galaxy.shared.SlotLifecycleState;
+import com.proofpoint.log.Logger;
+import com.proofpoint.units.Duration;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves slot status from a cache that is refreshed in the background, so
+ * polling the agent does not fork a launcher process per slot.
+ */
+public class CachingLifecycleManager implements LifecycleManager
+{
+    private static final Logger log = Logger.get(CachingLifecycleManager.class);
+
+    // entries not read in this many refresh intervals are dropped
+    private static final int EXPIRATION_INTERVALS = 10;
+
+    private final LifecycleManager delegate;
+    private final long refreshIntervalNanos;
+    private final ConcurrentMap<UUID, CachedStatus> statuses = new ConcurrentHashMap<UUID, CachedStatus>();
+    private final List<Runnable> stateChangeListeners = new CopyOnWriteArrayList<Runnable>();
+    private final ScheduledExecutorService refreshService;
+    private final ExecutorService statusExecutor;
+
+    @Inject
+    public CachingLifecycleManager(LauncherLifecycleManager delegate, AgentConfig config)
+    {
+        this(delegate, config.getStatusRefreshInterval(), config.getMaxConcurrentStatusRefreshes());
+    }
+
+    public CachingLifecycleManager(LifecycleManager delegate, Duration refreshInterval, int maxConcurrentRefreshes)
+    {
+        Preconditions.checkNotNull(delegate, "delegate is null");
+        Preconditions.checkNotNull(refreshInterval, "refreshInterval is null");
+        Preconditions.checkArgument(maxConcurrentRefreshes > 0, "maxConcurrentRefreshes must be at least 1");
+
+        this.delegate = delegate;
+        this.refreshIntervalNanos = TimeUnit.MILLISECONDS.toNanos((long) refreshInterval.toMillis());
+
+        refreshService = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("slot-status-refresh").build());
+        statusExecutor = Executors.newFixedThreadPool(maxConcurrentRefreshes, new ThreadFactoryBuilder().setDaemon(true).setNameFormat("slot-status-%s").build());
+    }
+
+    @PostConstruct
+    public void start()
+    {
+        refreshService.scheduleWithFixedDelay(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try {
+                    refreshAll();
+                }
+                catch (Throwable e) {
+                    log.error(e, "Unexpected exception refreshing slot status");
+                }
+            }
+        }, refreshIntervalNanos, refreshIntervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @PreDestroy
+    public void stop()
+    {
+        refreshService.shutdownNow();
+        statusExecutor.shutdownNow();
+    }
+
+    @Override
+    public SlotLifecycleState status(Deployment deployment)
+    {
+        return getCachedStatus(deployment).get(deployment);
+    }
+
+    @Override
+    public SlotLifecycleState start(Deployment deployment)
+    {
+        CachedStatus cachedStatus = getCachedStatus(deployment);
+        try {
+            return cachedStatus.set(deployment, delegate.start(deployment));
+        }
+        finally {
+            scheduleRefresh(cachedStatus);
+        }
+    }
+
+    @Override
+    public SlotLifecycleState restart(Deployment deployment)
+    {
+        CachedStatus cachedStatus = getCachedStatus(deployment);
+        try {
+            return cachedStatus.set(deployment, delegate.restart(deployment));
+        }
+        finally {
+            scheduleRefresh(cachedStatus);
+        }
+    }
+
+    @Override
+    public SlotLifecycleState stop(Deployment deployment)
+    {
+        CachedStatus cachedStatus = getCachedStatus(deployment);
+        try {
+            return cachedStatus.set(deployment, delegate.stop(deployment));
+        }
+        finally {
+            scheduleRefresh(cachedStatus);
+        }
+    }
+
+    @Override
+    public void updateNodeConfig(Deployment deployment)
+    {
+        delegate.updateNodeConfig(deployment);
+    }
+
+    @Override
+    public void addStateChangeListener(Runnable listener)
+    {
+        Preconditions.checkNotNull(listener, "listener is null");
+        stateChangeListeners.add(listener);
+    }
+
+    private void fireStateChanged()
+    {
+        for (Runnable listener : stateChangeListeners) {
+            try {
+                listener.run();
+            }
+            catch (RuntimeException e) {
+                log.error(e, "Unexpected exception notifying slot state change");
+            }
+        }
+    }
+
+    private CachedStatus getCachedStatus(Deployment deployment)
+    {
+        CachedStatus cachedStatus = statuses.get(deployment.getNodeId());
+        if (cachedStatus == null) {
+            cachedStatus = new CachedStatus(deployment);
+            CachedStatus existing = statuses.putIfAbsent(deployment.getNodeId(), cachedStatus);
+            if (existing != null) {
+                cachedStatus = existing;
+            }
+        }
+        return cachedStatus;
+    }
+
+    private void refreshAll()
+    {
+        long now = System.nanoTime();
+        for (Iterator<CachedStatus> iterator = statuses.values().iterator(); iterator.hasNext(); ) {
+            CachedStatus cachedStatus = iterator.next();
+            if (now - cachedStatus.getLastAccess() > EXPIRATION_INTERVALS * refreshIntervalNanos) {
+                iterator.remove();
+            }
+            else {
+                scheduleRefresh(cachedStatus);
+            }
+        }
+    }
+
+    private void scheduleRefresh(final CachedStatus cachedStatus)
+    {
+        if (!cachedStatus.startRefresh()) {
+            return;
+        }
+        try {
+            statusExecutor.execute(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    cachedStatus.refresh();
+                }
+            });
+        }
+        catch (RejectedExecutionException e) {
+            cachedStatus.refreshComplete();
+        }
+    }
+
+    /**
+     * The launcher is never run while the entry is locked, so reading a status never waits for
+     * a launcher started by another thread.  An operation replaces the state with its result,
+     * and a refresh or load that started before the operation is ignored.
+     */
+    private class CachedStatus
+    {
+        private Deployment deployment;
+        // null until the status of the deployment is loaded
+        private SlotLifecycleState state;
+        // changed by every operation and reassignment, so an older load is not applied
+        private long generation;
+        private boolean refreshing;
+        private volatile long lastAccess = System.nanoTime();
+
+        private CachedStatus(Deployment deployment)
+        {
+            this.deployment = deployment;
+        }
+
+        public long getLastAccess()
+        {
+            return lastAccess;
+        }
+
+        public SlotLifecycleState get(Deployment deployment)
+        {
+            lastAccess = System.nanoTime();
+            long loadGeneration;
+            synchronized (this) {
+                checkDeployment(deployment);
+                if (state != null) {
+                    // the last known state, even while an operation is in progress; the refresh after the operation replaces it
+                    return state;
+                }
+                loadGeneration = generation;
+            }
+
+            // the first status of a deployment is loaded by the caller, without holding the lock
+            SlotLifecycleState loaded = delegate.status(deployment);
+            synchronized (this) {
+                if (generation == loadGeneration) {
+                    state = loaded;
+                }
+                return loaded;
+            }
+        }
+
+        public synchronized SlotLifecycleState set(Deployment deployment, SlotLifecycleState state)
+        {
+            checkDeployment(deployment);
+            this.state = state;
+            generation++;
+            return state;
+        }
+
+        // guarded by this
+        private void checkDeployment(Deployment deployment)
+        {
+            if (this.deployment != deployment) {
+                // the slot was reassigned, so the cached state belongs to the old deployment
+                this.deployment = deployment;
+                state = null;
+                generation++;
+            }
+        }
+
+        public synchronized boolean startRefresh()
+        {
+            if (refreshing) {
+                return false;
+            }
+            refreshing = true;
+            return true;
+        }
+
+        public synchronized void refreshComplete()
+        {
+            refreshing = false;
+        }
+
+        public void refresh()
+        {
+            Deployment deployment;
+            long refreshGeneration;
+            synchronized (this) {
+                deployment = this.deployment;
+                refreshGeneration = generation;
+            }
+            try {
+                SlotLifecycleState state = delegate.status(deployment);
+                boolean changed = false;
+                synchronized (this) {
+                    // ignore the result if an operation completed or the slot was reassigned while the launcher was running
+                    if (generation == refreshGeneration) {
+                        changed = this.state != null && this.state != state;
+                        this.state = state;
+                    }
+                }
+                if (changed) {
+                    fireStateChanged();
+                }
+            }
+            catch (RuntimeException e) {
+                log.debug(e, "Unable to refresh status of %s", deployment.getSlotName());
+            }
+            finally {
+                refreshComplete();
+            }
+        }
+    }
+}
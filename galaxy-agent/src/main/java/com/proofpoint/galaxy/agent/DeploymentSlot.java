@@ -15,7 +15,6 @@ package com.proofpoint.galaxy.agent;
 
 import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
-import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.proofpoint.galaxy.shared.SlotLifecycleState;
 import com.proofpoint.galaxy.shared.SlotStatus;
@@ -24,13 +23,18 @@ import com.proofpoint.log.Logger;
 import com.proofpoint.units.Duration;
 
 import java.net.URI;
-import java.util.List;
+import java.util.EnumSet;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.ReentrantLock;
 
+import static com.proofpoint.galaxy.shared.SlotLifecycleState.INSTALLING;
+import static com.proofpoint.galaxy.shared.SlotLifecycleState.RESTARTING;
+import static com.proofpoint.galaxy.shared.SlotLifecycleState.STARTING;
 import static com.proofpoint.galaxy.shared.SlotLifecycleState.STOPPED;
+import static com.proofpoint.galaxy.shared.SlotLifecycleState.STOPPING;
 import static com.proofpoint.galaxy.shared.SlotLifecycleState.TERMINATED;
 import static com.proofpoint.galaxy.shared.SlotLifecycleState.UNKNOWN;
 import static com.proofpoint.galaxy.shared.SlotStatus.createSlotStatus;
@@ -39,6 +43,17 @@ public class DeploymentSlot implements Slot
 {
     private static final Logger log = Logger.get(DeploymentSlot.class);
 
+    // states published while an operation holds the lock
+    private static final Set<SlotLifecycleState> IN_PROGRESS_STATES = EnumSet.of(INSTALLING, STARTING, RESTARTING, STOPPING);
+
+    private static final Runnable NO_STATUS_LISTENER = new Runnable()
+    {
+        @Override
+        public void run()
+        {
+        }
+    };
+
     private final UUID id;
     private final String name;
     private final String location;
@@ -48,28 +63,43 @@ public class DeploymentSlot implements Slot
     private final DeploymentManager deploymentManager;
     private final LifecycleManager lifecycleManager;
     private final AtomicReference<SlotStatus> lastSlotStatus;
-    private boolean terminated;
+    private final Runnable statusListener;
+    private volatile boolean terminated;
 
     private final ReentrantLock lock = new ReentrantLock();
     private volatile Thread lockOwner;
-    private volatile List<StackTraceElement> lockAcquisitionLocation;
 
     public DeploymentSlot(URI self,
             URI externalUri,
             DeploymentManager deploymentManager,
             LifecycleManager lifecycleManager,
             Duration maxLockWait)
+    {
+        this(self, externalUri, deploymentManager, lifecycleManager, maxLockWait, NO_STATUS_LISTENER);
+    }
+
+    /**
+     * Loads an existing slot.  The status listener is called after each change of the slot state.
+     */
+    public DeploymentSlot(URI self,
+            URI externalUri,
+            DeploymentManager deploymentManager,
+            LifecycleManager lifecycleManager,
+            Duration maxLockWait,
+            Runnable statusListener)
     {
         Preconditions.checkNotNull(self, "self is null");
         Preconditions.checkNotNull(externalUri, "externalUri is null");
         Preconditions.checkNotNull(deploymentManager, "deploymentManager is null");
         Preconditions.checkNotNull(lifecycleManager, "lifecycleManager is null");
         Preconditions.checkNotNull(maxLockWait, "maxLockWait is null");
+        Preconditions.checkNotNull(statusListener, "statusListener is null");
 
         this.name = deploymentManager.getSlotName();
         this.location = deploymentManager.getLocation();
         this.deploymentManager = deploymentManager;
         this.lifecycleManager = lifecycleManager;
+        this.statusListener = statusListener;
 
         lockWait = maxLockWait;
         id = deploymentManager.getSlotId();
@@ -99,16 +129,32 @@ public class DeploymentSlot implements Slot
             LifecycleManager lifecycleManager,
             Installation installation,
             Duration maxLockWait)
+    {
+        this(self, externalUri, deploymentManager, lifecycleManager, installation, maxLockWait, NO_STATUS_LISTENER);
+    }
+
+    /**
+     * Installs a new slot.  The status listener is called after each change of the slot state.
+     */
+    public DeploymentSlot(URI self,
+            URI externalUri,
+            DeploymentManager deploymentManager,
+            LifecycleManager lifecycleManager,
+            Installation installation,
+            Duration maxLockWait,
+            Runnable statusListener)
     {
         Preconditions.checkNotNull(deploymentManager, "deploymentManager is null");
         Preconditions.checkNotNull(lifecycleManager, "lifecycleManager is null");
         Preconditions.checkNotNull(installation, "installation is null");
         Preconditions.checkNotNull(maxLockWait, "maxLockWait is null");
+        Preconditions.checkNotNull(statusListener, "statusListener is null");
 
         this.name = deploymentManager.getSlotName();
         this.location = deploymentManager.getLocation();
         this.deploymentManager = deploymentManager;
         this.lifecycleManager = lifecycleManager;
+        this.statusListener = statusListener;
 
         this.lockWait = maxLockWait;
         this.id = deploymentManager.getSlotId();
@@ -177,37 +223,43 @@ public class DeploymentSlot implements Slot
 
             log.info("Becoming %s with %s", installation.getAssignment().getBinary(), installation.getAssignment().getConfig());
 
-            // stop current server
-            Deployment oldDeployment = deploymentManager.getDeployment();
-            if (oldDeployment != null) {
-                SlotLifecycleState state = lifecycleManager.stop(oldDeployment);
-                if (state != STOPPED) {
-                    // todo error
+            SlotStatus inProgressStatus = publishInProgress(INSTALLING);
+            try {
+                // stop current server
+                Deployment oldDeployment = deploymentManager.getDeployment();
+                if (oldDeployment != null) {
+                    SlotLifecycleState state = lifecycleManager.stop(oldDeployment);
+                    if (state != STOPPED) {
+                        // todo error
+                    }
+
+                    // remove the deployment
+                    deploymentManager.clear();
                 }
 
-                // remove the deployment
-                deploymentManager.clear();
+                // deploy new server
+                Deployment deployment = deploymentManager.install(installation);
+
+                // create node config file
+                lifecycleManager.updateNodeConfig(deployment);
+
+                SlotStatus slotStatus = createSlotStatus(id,
+                        name,
+                        self,
+                        externalUri,
+                        null,
+                        location,
+                        STOPPED,
+                        installation.getAssignment(),
+                        deployment.getDataDir().getAbsolutePath(),
+                        deployment.getResources());
+
+                setLastSlotStatus(slotStatus);
+                return slotStatus;
+            }
+            finally {
+                clearInProgress(inProgressStatus);
             }
-
-            // deploy new server
-            Deployment deployment = deploymentManager.install(installation);
-
-            // create node config file
-            lifecycleManager.updateNodeConfig(deployment);
-
-            SlotStatus slotStatus = createSlotStatus(id,
-                    name,
-                    self,
-                    externalUri,
-                    null,
-                    location,
-                    STOPPED,
-                    installation.getAssignment(),
-                    deployment.getDataDir().getAbsolutePath(),
-                    deployment.getResources());
-
-            lastSlotStatus.set(slotStatus);
-            return slotStatus;
         }
         finally {
             unlock();
@@ -232,7 +284,7 @@ public class DeploymentSlot implements Slot
             }
 
             SlotStatus slotStatus = lastSlotStatus.get().changeState(TERMINATED);
-            lastSlotStatus.set(slotStatus);
+            setLastSlotStatus(slotStatus);
             return slotStatus;
         }
         finally {
@@ -249,32 +301,30 @@ public class DeploymentSlot implements Slot
     @Override
     public SlotStatus status()
     {
-        try {
-            lock();
+        // status never waits for the lock: while an operation is in progress it
+        // has published a state such as STOPPING, which is returned as is
+        SlotStatus lastStatus = lastSlotStatus.get();
+        if (terminated) {
+            return lastStatus.changeState(TERMINATED);
         }
-        catch (LockTimeoutException e) {
-            // could not get the lock because there is an operation in progress
-            // just return the last state we saw
-            // todo consider adding "in-process" states like starting
-            return lastSlotStatus.get();
+        if (IN_PROGRESS_STATES.contains(lastStatus.getState())) {
+            return lastStatus;
         }
-        try {
-            if (terminated) {
-                return lastSlotStatus.get().changeState(TERMINATED);
-            }
 
-            Deployment activeDeployment = deploymentManager.getDeployment();
-            if (activeDeployment == null) {
-                return lastSlotStatus.get().changeAssignment(UNKNOWN, null, ImmutableMap.<String, Integer>of());
-            }
+        Deployment activeDeployment = deploymentManager.getDeployment();
+        if (activeDeployment == null) {
+            return lastStatus.changeAssignment(UNKNOWN, null, ImmutableMap.<String, Integer>of());
+        }
 
-            SlotStatus slotStatus = lastSlotStatus.get().changeState(lifecycleManager.status(activeDeployment));
-            lastSlotStatus.set(slotStatus);
-            return slotStatus;
+        SlotStatus slotStatus = lastStatus.changeState(lifecycleManager.status(activeDeployment));
+        if (!lastSlotStatus.compareAndSet(lastStatus, slotStatus)) {
+            // an operation started while the state was checked, so the checked state may be stale
+            return lastSlotStatus.get();
         }
-        finally {
-            unlock();
+        if (slotStatus.getState() != lastStatus.getState()) {
+            statusListener.run();
         }
+        return slotStatus;
     }
 
     @Override
@@ -289,11 +339,17 @@ public class DeploymentSlot implements Slot
                 throw new IllegalStateException("Slot can not be started because the slot is not assigned");
             }
 
-            SlotLifecycleState state = lifecycleManager.start(activeDeployment);
+            SlotStatus inProgressStatus = publishInProgress(STARTING);
+            try {
+                SlotLifecycleState state = lifecycleManager.start(activeDeployment);
 
-            SlotStatus slotStatus = lastSlotStatus.get().changeState(state);
-            lastSlotStatus.set(slotStatus);
-            return slotStatus;
+                SlotStatus slotStatus = inProgressStatus.changeState(state);
+                setLastSlotStatus(slotStatus);
+                return slotStatus;
+            }
+            finally {
+                clearInProgress(inProgressStatus);
+            }
         }
         finally {
             unlock();
@@ -312,11 +368,17 @@ public class DeploymentSlot implements Slot
                 throw new IllegalStateException("Slot can not be restarted because the slot is not assigned");
             }
 
-            SlotLifecycleState state = lifecycleManager.restart(activeDeployment);
+            SlotStatus inProgressStatus = publishInProgress(RESTARTING);
+            try {
+                SlotLifecycleState state = lifecycleManager.restart(activeDeployment);
 
-            SlotStatus slotStatus = lastSlotStatus.get().changeState(state);
-            lastSlotStatus.set(slotStatus);
-            return slotStatus;
+                SlotStatus slotStatus = inProgressStatus.changeState(state);
+                setLastSlotStatus(slotStatus);
+                return slotStatus;
+            }
+            finally {
+                clearInProgress(inProgressStatus);
+            }
         }
         finally {
             unlock();
@@ -335,11 +397,17 @@ public class DeploymentSlot implements Slot
                 throw new IllegalStateException("Slot can not be stopped because the slot is not assigned");
             }
 
-            SlotLifecycleState state = lifecycleManager.stop(activeDeployment);
+            SlotStatus inProgressStatus = publishInProgress(STOPPING);
+            try {
+                SlotLifecycleState state = lifecycleManager.stop(activeDeployment);
 
-            SlotStatus slotStatus = lastSlotStatus.get().changeState(state);
-            lastSlotStatus.set(slotStatus);
-            return slotStatus;
+                SlotStatus slotStatus = inProgressStatus.changeState(state);
+                setLastSlotStatus(slotStatus);
+                return slotStatus;
+            }
+            finally {
+                clearInProgress(inProgressStatus);
+            }
         }
         finally {
             unlock();
@@ -347,15 +415,35 @@ public class DeploymentSlot implements Slot
     }
 
 
+    private void setLastSlotStatus(SlotStatus slotStatus)
+    {
+        lastSlotStatus.set(slotStatus);
+        statusListener.run();
+    }
+
+    private SlotStatus publishInProgress(SlotLifecycleState state)
+    {
+        SlotStatus slotStatus = lastSlotStatus.get().changeState(state);
+        setLastSlotStatus(slotStatus);
+        return slotStatus;
+    }
+
+    private void clearInProgress(SlotStatus inProgressStatus)
+    {
+        // the operation failed, so the state is unknown until the next status check
+        if (lastSlotStatus.compareAndSet(inProgressStatus, inProgressStatus.changeState(UNKNOWN))) {
+            statusListener.run();
+        }
+    }
+
     private void lock()
     {
         try {
             if (!lock.tryLock((long) lockWait.toMillis(), TimeUnit.MILLISECONDS)) {
-                throw new LockTimeoutException(lockOwner, lockWait, lockAcquisitionLocation);
+                // the stack of the owner is only captured when a wait times out
+                throw new LockTimeoutException(lockOwner, lockWait);
             }
-
-            // capture the location where the lock was acquired
-            lockAcquisitionLocation = ImmutableList.copyOf(new Exception("lock acquired HERE").fillInStackTrace().getStackTrace());
+            lockOwner = Thread.currentThread();
         }
         catch (InterruptedException e) {
             Thread.currentThread().interrupt();
@@ -363,11 +451,9 @@ public class DeploymentSlot implements Slot
         }
     }
 
-
     private void unlock()
     {
         lockOwner = null;
-        lockAcquisitionLocation = null;
         lock.unlock();
     }
 
@@ -2,7 +2,7 @@ package com.proofpoint.galaxy.agent;
 
 import com.google.common.base.Preconditions;
 import com.google.common.io.Files;
-import com.google.common.io.Resources;
+import com.proofpoint.galaxy.shared.ConfigBundleCache;
 import com.proofpoint.galaxy.shared.ConfigUtils;
 import com.proofpoint.json.JsonCodec;
 import com.proofpoint.galaxy.shared.Assignment;
@@ -13,16 +13,17 @@ import com.proofpoint.units.Duration;
 
 import java.io.File;
 import java.io.IOException;
-import java.net.URL;
 import java.util.List;
 import java.util.UUID;
 import java.util.prefs.Preferences;
 
 import static com.google.common.base.Charsets.UTF_8;
 import static com.proofpoint.json.JsonCodec.jsonCodec;
+import static com.proofpoint.galaxy.shared.FileUtils.copyTree;
 import static com.proofpoint.galaxy.shared.FileUtils.createTempDir;
 import static com.proofpoint.galaxy.shared.FileUtils.deleteRecursively;
 import static com.proofpoint.galaxy.shared.FileUtils.extractTar;
+import static com.proofpoint.galaxy.shared.FileUtils.linkTree;
 import static com.proofpoint.galaxy.shared.FileUtils.listFiles;
 
 public class DirectoryDeploymentManager implements DeploymentManager
@@ -34,19 +35,25 @@ public class DirectoryDeploymentManager implements DeploymentManager
     private final String slotName;
     private final String location;
     private final Duration tarTimeout;
+    private final BinaryCache binaryCache;
+    private final ConfigBundleCache configBundleCache;
 
     private final File baseDir;
     private final File deploymentFile;
-    private Deployment deployment;
+    private volatile Deployment deployment;
 
-    public DirectoryDeploymentManager(String slotName, File baseDir, String location, Duration tarTimeout)
+    public DirectoryDeploymentManager(String slotName, File baseDir, String location, Duration tarTimeout, BinaryCache binaryCache, ConfigBundleCache configBundleCache)
     {
         Preconditions.checkNotNull(slotName, "slotName is null");
         Preconditions.checkNotNull(location, "location is null");
         Preconditions.checkArgument(location.startsWith("/"), "location must start with /");
+        Preconditions.checkNotNull(binaryCache, "binaryCache is null");
+        Preconditions.checkNotNull(configBundleCache, "configBundleCache is null");
         this.slotName = slotName;
         this.location = location;
         this.tarTimeout = tarTimeout;
+        this.binaryCache = binaryCache;
+        this.configBundleCache = configBundleCache;
 
         Preconditions.checkNotNull(baseDir, "baseDir is null");
         baseDir.mkdirs();
@@ -140,24 +147,29 @@ public class DirectoryDeploymentManager implements DeploymentManager
         Deployment deployment = new Deployment("deployment", slotName, slotId, location, deploymentDir, dataDir, assignment, installation.getResources());
         File tempDir = createTempDir(baseDir, "tmp-install");
         try {
-            // download the binary
-            File binary = new File(tempDir, "galaxy-binary.tar.gz");
+            // get the binary from the cache, downloading it if necessary
+            File binary;
             try {
-                Files.copy(Resources.newInputStreamSupplier(installation.getBinaryFile().toURL()), binary);
+                binary = binaryCache.acquire(installation.getBinaryFile());
             }
             catch (IOException e) {
                 throw new RuntimeException("Unable to download binary " + assignment.getBinary() + " from " + installation.getBinaryFile(), e);
             }
 
-            // unpack the binary into a temp unpack dir
+            // clone the extracted binary into a temp unpack dir, or unpack the binary if that is not possible
             File unpackDir = new File(tempDir, "unpack");
-            unpackDir.mkdirs();
             try {
-                extractTar(binary, unpackDir, tarTimeout);
+                if (!cloneExtractedBinary(binary, unpackDir)) {
+                    unpackDir.mkdirs();
+                    extractTar(binary, unpackDir);
+                }
             }
-            catch (CommandFailedException e) {
+            catch (IOException e) {
                 throw new RuntimeException("Unable to extract tar file " + assignment.getBinary() + ": " + e.getMessage());
             }
+            finally {
+                binaryCache.release(binary);
+            }
 
             // find the archive root dir (it should be the only file in the temp unpack dir)
             List<File> files = listFiles(unpackDir);
@@ -168,8 +180,7 @@ public class DirectoryDeploymentManager implements DeploymentManager
 
             // unpack config bundle
             try {
-                URL url = installation.getConfigFile().toURL();
-                ConfigUtils.unpackConfig(Resources.newInputStreamSupplier(url), binaryRootDir);
+                ConfigUtils.unpackConfig(configBundleCache, installation.getConfigFile(), binaryRootDir);
             }
             catch (Exception e) {
                 throw new RuntimeException("Unable to extract config bundle " + assignment.getConfig() + ": " + e.getMessage());
@@ -201,6 +212,29 @@ public class DirectoryDeploymentManager implements DeploymentManager
         return deployment;
     }
 
+    private boolean cloneExtractedBinary(File binary, File unpackDir)
+    {
+        File extractedBinary = binaryCache.getExtractedBinary(binary);
+        if (extractedBinary == null) {
+            return false;
+        }
+
+        try {
+            if (binaryCache.isLinkSlots()) {
+                linkTree(extractedBinary, unpackDir, tarTimeout);
+            }
+            else {
+                copyTree(extractedBinary, unpackDir, tarTimeout);
+            }
+            return true;
+        }
+        catch (CommandFailedException e) {
+            log.warn("Unable to clone extracted binary %s: %s", extractedBinary.getAbsolutePath(), e.getMessage());
+            deleteRecursively(unpackDir);
+            return false;
+        }
+    }
+
     @Override
     public Deployment getDeployment()
     {
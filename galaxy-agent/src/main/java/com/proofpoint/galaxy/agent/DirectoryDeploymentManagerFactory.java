@@ -3,6 +3,7 @@ package com.proofpoint.galaxy.agent;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.inject.Inject;
+import com.proofpoint.galaxy.shared.ConfigBundleCache;
 import com.proofpoint.node.NodeInfo;
 import com.proofpoint.units.Duration;
 
@@ -16,21 +17,41 @@ public class DirectoryDeploymentManagerFactory implements DeploymentManagerFacto
     private final String location;
     private final Duration tarTimeout;
     private final File slotDir;
+    private final BinaryCache binaryCache;
+    private final ConfigBundleCache configBundleCache;
 
     @Inject
     public DirectoryDeploymentManagerFactory(NodeInfo nodeInfo, AgentConfig config)
     {
-        this(nodeInfo.getLocation(), config.getSlotsDir(), config.getTarTimeout());
+        this(nodeInfo.getLocation(),
+                config.getSlotsDir(),
+                config.getTarTimeout(),
+                new BinaryCache(new File(config.getBinaryCacheDir()), config.getBinaryCacheMaxSizeMb() * 1024L * 1024L, config.isBinaryCacheLinkSlots()),
+                new ConfigBundleCache(new File(config.getConfigBundleCacheDir()), config.getConfigBundleCacheMaxSizeMb() * 1024L * 1024L));
     }
 
     public DirectoryDeploymentManagerFactory(String location, String slotsDir, Duration tarTimeout)
+    {
+        // slots are only loaded from directories containing a slot id file, so the cache can live with the slots
+        this(location,
+                slotsDir,
+                tarTimeout,
+                new BinaryCache(new File(slotsDir, ".binary-cache"), new AgentConfig().getBinaryCacheMaxSizeMb() * 1024L * 1024L),
+                new ConfigBundleCache(new File(slotsDir, ".config-bundle-cache"), new AgentConfig().getConfigBundleCacheMaxSizeMb() * 1024L * 1024L));
+    }
+
+    public DirectoryDeploymentManagerFactory(String location, String slotsDir, Duration tarTimeout, BinaryCache binaryCache, ConfigBundleCache configBundleCache)
     {
         Preconditions.checkNotNull(location, "location is null");
         Preconditions.checkNotNull(slotsDir, "slotsDir is null");
         Preconditions.checkNotNull(tarTimeout, "tarTimeout is null");
+        Preconditions.checkNotNull(binaryCache, "binaryCache is null");
+        Preconditions.checkNotNull(configBundleCache, "configBundleCache is null");
 
         this.location = location;
         this.tarTimeout = tarTimeout;
+        this.binaryCache = binaryCache;
+        this.configBundleCache = configBundleCache;
 
         this.slotDir = new File(slotsDir);
 
@@ -55,6 +76,6 @@ public class DirectoryDeploymentManagerFactory implements DeploymentManagerFacto
     @Override
     public DirectoryDeploymentManager createDeploymentManager(String slotName)
     {
-        return new DirectoryDeploymentManager(slotName, new File(slotDir, slotName), location + "/" + slotName, tarTimeout);
+        return new DirectoryDeploymentManager(slotName, new File(slotDir, slotName), location + "/" + slotName, tarTimeout, binaryCache, configBundleCache);
     }
 }
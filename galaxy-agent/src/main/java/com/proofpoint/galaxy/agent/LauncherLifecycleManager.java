@@ -146,6 +146,12 @@ public class LauncherLifecycleManager implements LifecycleManager
         return command;
     }
 
+    @Override
+    public void addStateChangeListener(Runnable listener)
+    {
+        // the state is only checked when status is called, so there are no changes to report
+    }
+
     @Override
     public void updateNodeConfig(Deployment deployment)
     {
@@ -177,6 +183,8 @@ public class LauncherLifecycleManager implements LifecycleManager
         File nodeConfig = new File(deployment.getDeploymentDir(), "etc/node.properties");
         nodeConfig.getParentFile().mkdir();
 
+        // replace instead of overwriting, since deployment files may be hard links to the extracted binary
+        nodeConfig.delete();
         try {
             String data = Joiner.on("\n").withKeyValueSeparator("=").join(map.build()) + "\n";
             Files.write(data, nodeConfig, Charsets.UTF_8);
@@ -26,4 +26,10 @@ public interface LifecycleManager
     SlotLifecycleState stop(Deployment deployment);
 
     void updateNodeConfig(Deployment deployment);
+
+    /**
+     * Adds a listener that is called when a state change is noticed outside of start, restart
+     * and stop, such as a server that exited on its own.
+     */
+    void addStateChangeListener(Runnable listener);
 }
@@ -3,13 +3,20 @@ package com.proofpoint.galaxy.agent;
 import com.google.common.base.Joiner;
 import com.proofpoint.units.Duration;
 
-import java.util.List;
-
 public class LockTimeoutException extends RuntimeException
 {
-    public LockTimeoutException(Thread ownerThread, Duration lockWait, List<StackTraceElement> acquisitionLocation)
+    public LockTimeoutException(Thread ownerThread, Duration lockWait)
+    {
+        super(String.format("Could not obtain slot lock within %s held by %s thread is at \n%s\n", lockWait, ownerThread, getStackTrace(ownerThread)));
+    }
+
+    private static String getStackTrace(Thread ownerThread)
     {
-        super(String.format("Could not obtain slot lock within %s held by %s thread is at \n%s\n", lockWait, ownerThread, Joiner.on("\n  at ").join(acquisitionLocation)));
+        // the owner may have released the lock since the wait timed out
+        if (ownerThread == null) {
+            return "";
+        }
+        return Joiner.on("\n  at ").join(ownerThread.getStackTrace());
     }
 
 }
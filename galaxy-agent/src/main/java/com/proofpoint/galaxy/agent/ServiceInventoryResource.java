@@ -22,6 +22,7 @@ import com.proofpoint.node.NodeInfo;
 import javax.inject.Inject;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
@@ -30,6 +31,8 @@ import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 import java.util.concurrent.atomic.AtomicReference;
 
+import static com.proofpoint.galaxy.shared.SmileCodec.APPLICATION_SMILE;
+import static com.proofpoint.galaxy.shared.VersionsUtil.GALAXY_SERVICE_INVENTORY_VERSION_HEADER;
 import static java.lang.String.format;
 
 @Path("/v1/serviceInventory")
@@ -37,6 +40,7 @@ public class ServiceInventoryResource
 {
     private final String environment;
     private final AtomicReference<ServiceDescriptorsRepresentation> descriptor = new AtomicReference<ServiceDescriptorsRepresentation>();
+    private volatile String version;
 
     @Inject
     public ServiceInventoryResource(NodeInfo nodeInfo)
@@ -46,21 +50,26 @@ public class ServiceInventoryResource
     }
 
     @GET
-    @Produces(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, APPLICATION_SMILE})
     public Response getServiceInventory()
     {
         ServiceDescriptorsRepresentation descriptor = this.descriptor.get();
-        return Response.ok(descriptor).build();
+        String version = this.version;
+        if (version == null) {
+            return Response.ok(descriptor).build();
+        }
+        return Response.ok(descriptor).tag(version).build();
     }
 
     @PUT
-    @Consumes(MediaType.APPLICATION_JSON)
-    public Response setServiceInventory(ServiceDescriptorsRepresentation descriptor)
+    @Consumes({MediaType.APPLICATION_JSON, APPLICATION_SMILE})
+    public Response setServiceInventory(@HeaderParam(GALAXY_SERVICE_INVENTORY_VERSION_HEADER) String version, ServiceDescriptorsRepresentation descriptor)
     {
         if (!environment.equals(descriptor.getEnvironment())) {
             return Response.status(Status.BAD_REQUEST).entity(format("Expected environment to be %s, but was %s", environment, descriptor.getEnvironment())).build();
         }
         this.descriptor.set(descriptor);
+        this.version = version;
         return Response.ok().build();
     }
 
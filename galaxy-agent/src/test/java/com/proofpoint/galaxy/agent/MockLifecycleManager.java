@@ -62,6 +62,11 @@ public class MockLifecycleManager implements LifecycleManager
         nodeConfigUpdated.add(deployment.getDeploymentId());
     }
 
+    @Override
+    public void addStateChangeListener(Runnable listener)
+    {
+    }
+
     public Set<String> getNodeConfigUpdated()
     {
         return nodeConfigUpdated;
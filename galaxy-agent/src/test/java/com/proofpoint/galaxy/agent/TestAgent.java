@@ -1,16 +1,30 @@
 package com.proofpoint.galaxy.agent;
 
+import com.proofpoint.galaxy.shared.AgentStatus;
+import com.proofpoint.galaxy.shared.SlotStatus;
 import com.proofpoint.http.server.HttpServerConfig;
 import com.proofpoint.http.server.HttpServerInfo;
 import com.proofpoint.node.NodeInfo;
+import com.proofpoint.units.Duration;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import java.io.File;
 import java.net.InetAddress;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static com.proofpoint.galaxy.agent.ResourcesUtil.TEST_RESOURCES;
+import static com.proofpoint.galaxy.shared.InstallationHelper.APPLE_INSTALLATION;
+import static com.proofpoint.galaxy.shared.SlotLifecycleState.RUNNING;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
 
 public class TestAgent
 {
@@ -49,4 +63,38 @@ public class TestAgent
         assertEquals(agent.getResources(), TEST_RESOURCES);
     }
 
+    @Test
+    public void testWaitForVersionChange()
+            throws Exception
+    {
+        final SlotStatus slotStatus = agent.install(APPLE_INSTALLATION);
+        String version = agent.getAgentStatus().getVersion();
+
+        // nothing changes, so the wait times out
+        assertEquals(agent.waitForVersionChange(version, new Duration(10, MILLISECONDS)).getVersion(), version);
+
+        // a slot change wakes up the wait long before it times out
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<SlotStatus> started = executor.submit(new Callable<SlotStatus>()
+            {
+                @Override
+                public SlotStatus call()
+                        throws Exception
+                {
+                    Thread.sleep(100);
+                    return agent.getSlot(slotStatus.getName()).start();
+                }
+            });
+
+            long start = System.nanoTime();
+            AgentStatus agentStatus = agent.waitForVersionChange(version, new Duration(1, MINUTES));
+            assertFalse(agentStatus.getVersion().equals(version));
+            assertTrue(System.nanoTime() - start < SECONDS.toNanos(30));
+            assertEquals(started.get().getState(), RUNNING);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
 }
@@ -28,11 +28,18 @@ public class TestAgentConfig
     {
         ConfigAssertions.assertRecordedDefaults(ConfigAssertions.recordDefaults(AgentConfig.class)
                 .setSlotsDir("slots")
+                .setBinaryCacheDir("binary-cache")
+                .setBinaryCacheMaxSizeMb(2048)
+                .setBinaryCacheLinkSlots(false)
+                .setConfigBundleCacheDir("config-bundle-cache")
+                .setConfigBundleCacheMaxSizeMb(256)
                 .setResourcesFile("etc/resources.properties")
                 .setLauncherTimeout(new Duration(1, TimeUnit.SECONDS))
                 .setLauncherStopTimeout(new Duration(10, TimeUnit.SECONDS))
                 .setTarTimeout(new Duration(1, TimeUnit.MINUTES))
                 .setMaxLockWait(new Duration(1, TimeUnit.SECONDS))
+                .setStatusRefreshInterval(new Duration(5, TimeUnit.SECONDS))
+                .setMaxConcurrentStatusRefreshes(4)
         );
     }
 
@@ -41,20 +48,34 @@ public class TestAgentConfig
     {
         Map<String, String> properties = new ImmutableMap.Builder<String, String>()
                 .put("agent.slots-dir", "slots-dir")
+                .put("agent.binary-cache-dir", "binary-cache-dir")
+                .put("agent.binary-cache-max-size-mb", "100")
+                .put("agent.binary-cache-link-slots", "true")
+                .put("agent.config-bundle-cache-dir", "config-bundle-cache-dir")
+                .put("agent.config-bundle-cache-max-size-mb", "50")
                 .put("agent.resources-file", "resources-file")
                 .put("agent.launcher-timeout", "5m")
                 .put("agent.launcher-stop-timeout", "50m")
                 .put("agent.tar-timeout", "10m")
                 .put("agent.max-lock-wait", "1m")
+                .put("agent.status-refresh-interval", "1m")
+                .put("agent.max-concurrent-status-refreshes", "10")
                 .build();
 
         AgentConfig expected = new AgentConfig()
                 .setSlotsDir("slots-dir")
+                .setBinaryCacheDir("binary-cache-dir")
+                .setBinaryCacheMaxSizeMb(100)
+                .setBinaryCacheLinkSlots(true)
+                .setConfigBundleCacheDir("config-bundle-cache-dir")
+                .setConfigBundleCacheMaxSizeMb(50)
                 .setResourcesFile("resources-file")
                 .setLauncherTimeout(new Duration(5, TimeUnit.MINUTES))
                 .setLauncherStopTimeout(new Duration(50, TimeUnit.MINUTES))
                 .setTarTimeout(new Duration(10, TimeUnit.MINUTES))
-                .setMaxLockWait(new Duration(1, TimeUnit.MINUTES));
+                .setMaxLockWait(new Duration(1, TimeUnit.MINUTES))
+                .setStatusRefreshInterval(new Duration(1, TimeUnit.MINUTES))
+                .setMaxConcurrentStatusRefreshes(10);
 
         ConfigAssertions.assertFullMapping(properties, expected);
     }
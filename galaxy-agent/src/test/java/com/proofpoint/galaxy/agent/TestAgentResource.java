@@ -1,18 +1,27 @@
 package com.proofpoint.galaxy.agent;
 
 import com.proofpoint.galaxy.shared.AgentStatusRepresentation;
+import com.proofpoint.galaxy.shared.SlotStatus;
 import com.proofpoint.http.server.HttpServerConfig;
 import com.proofpoint.http.server.HttpServerInfo;
 import com.proofpoint.node.NodeInfo;
+import com.proofpoint.units.Duration;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import javax.ws.rs.core.Response;
 import java.io.File;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static com.proofpoint.galaxy.agent.ResourcesUtil.TEST_RESOURCES;
 import static com.proofpoint.galaxy.shared.AgentLifecycleState.ONLINE;
+import static com.proofpoint.galaxy.shared.InstallationHelper.APPLE_INSTALLATION;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
 
 public class TestAgentResource
 {
@@ -45,7 +54,8 @@ public class TestAgentResource
     @Test
     public void testGetAllSlotsStatus()
     {
-        Response response = agentResource.getAllSlotsStatus();
+        Response response = agentResource.getAllSlotsStatus(null, null);
+        assertEquals(response.getStatus(), Response.Status.OK.getStatusCode());
         AgentStatusRepresentation actual = (AgentStatusRepresentation) response.getEntity();
         assertEquals(actual.getAgentId(), agent.getAgentId());
         assertEquals(actual.getState(), ONLINE);
@@ -54,4 +64,52 @@ public class TestAgentResource
         assertEquals(actual.getLocation(), agent.getLocation());
     }
 
+    @Test
+    public void testNotModified()
+    {
+        String version = agent.getAgentStatus().getVersion();
+        Response response = agentResource.getAllSlotsStatus("\"" + version + "\"", null);
+        assertEquals(response.getStatus(), Response.Status.NOT_MODIFIED.getStatusCode());
+        assertNull(response.getEntity());
+    }
+
+    @Test
+    public void testModified()
+    {
+        Response response = agentResource.getAllSlotsStatus("\"old-version\"", new Duration(1, TimeUnit.MINUTES));
+        assertEquals(response.getStatus(), Response.Status.OK.getStatusCode());
+        AgentStatusRepresentation actual = (AgentStatusRepresentation) response.getEntity();
+        assertEquals(actual.getVersion(), agent.getAgentStatus().getVersion());
+    }
+
+    @Test
+    public void testWaitForChange()
+            throws Exception
+    {
+        final String version = agent.getAgentStatus().getVersion();
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Response> future = executor.submit(new Callable<Response>()
+            {
+                @Override
+                public Response call()
+                {
+                    return agentResource.getAllSlotsStatus("\"" + version + "\"", new Duration(1, TimeUnit.MINUTES));
+                }
+            });
+
+            SlotStatus slotStatus = agent.install(APPLE_INSTALLATION);
+
+            Response response = future.get(10, TimeUnit.SECONDS);
+            assertEquals(response.getStatus(), Response.Status.OK.getStatusCode());
+            AgentStatusRepresentation actual = (AgentStatusRepresentation) response.getEntity();
+            assertEquals(actual.getSlots().size(), 1);
+            assertEquals(actual.getSlots().get(0).getId(), slotStatus.getId());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
 }
@@ -0,0 +1,268 @@
+package com.proofpoint.galaxy.agent;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.proofpoint.units.Duration;
+import com.sun.net.httpserver.HttpServer;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static com.google.common.collect.Lists.newArrayList;
+import static com.proofpoint.galaxy.shared.FileUtils.copyTree;
+import static com.proofpoint.galaxy.shared.FileUtils.createTar;
+import static com.proofpoint.galaxy.shared.FileUtils.createTempDir;
+import static com.proofpoint.galaxy.shared.FileUtils.deleteRecursively;
+import static com.proofpoint.galaxy.shared.FileUtils.linkTree;
+import static com.proofpoint.galaxy.shared.FileUtils.newFile;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class TestBinaryCache
+{
+    private static final int BINARY_SIZE = 1000;
+
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile byte[] archive;
+    private ExecutorService serverExecutor;
+    private HttpServer server;
+    private File cacheDir;
+
+    @BeforeMethod
+    public void setUp()
+            throws Exception
+    {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.createContext("/", new HttpHandler()
+        {
+            @Override
+            public void handle(HttpExchange exchange)
+                    throws IOException
+            {
+                requests.incrementAndGet();
+
+                // each path has different content of the same size, unless a real archive is being served
+                byte[] binary = archive;
+                if (binary == null) {
+                    binary = new byte[BINARY_SIZE];
+                    byte[] path = exchange.getRequestURI().getPath().getBytes(UTF_8);
+                    System.arraycopy(path, 0, binary, 0, path.length);
+                }
+
+                exchange.sendResponseHeaders(200, binary.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(binary);
+                out.close();
+            }
+        });
+        server.start();
+
+        requests.set(0);
+        archive = null;
+        cacheDir = createTempDir("binary-cache");
+    }
+
+    @AfterMethod
+    public void tearDown()
+    {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+        deleteRecursively(cacheDir);
+    }
+
+    @Test
+    public void testConcurrentAcquireSharesDownload()
+            throws Exception
+    {
+        final BinaryCache cache = new BinaryCache(cacheDir, 10 * BINARY_SIZE);
+        final URI apple = binaryUri("apple-1.0.tar.gz");
+
+        ExecutorService executor = Executors.newFixedThreadPool(10);
+        try {
+            List<Future<File>> futures = newArrayList();
+            for (int i = 0; i < 10; i++) {
+                futures.add(executor.submit(new Callable<File>()
+                {
+                    @Override
+                    public File call()
+                            throws Exception
+                    {
+                        return cache.acquire(apple);
+                    }
+                }));
+            }
+
+            File binary = futures.get(0).get();
+            for (Future<File> future : futures) {
+                assertEquals(future.get(), binary);
+                cache.release(future.get());
+            }
+            assertEquals(Files.toByteArray(binary).length, BINARY_SIZE);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+        assertEquals(requests.get(), 1);
+
+        // a new cache in the same directory reuses the binary
+        BinaryCache restarted = new BinaryCache(cacheDir, 10 * BINARY_SIZE);
+        restarted.release(restarted.acquire(apple));
+        assertEquals(requests.get(), 1);
+        assertEquals(restarted.getSize(), BINARY_SIZE);
+    }
+
+    @Test
+    public void testEviction()
+            throws Exception
+    {
+        BinaryCache cache = new BinaryCache(cacheDir, 2 * BINARY_SIZE);
+
+        List<File> binaries = newArrayList();
+        for (String name : ImmutableList.of("apple-1.0.tar.gz", "apple-2.0.tar.gz", "banana-1.0.tar.gz")) {
+            File binary = cache.acquire(binaryUri(name));
+            cache.release(binary);
+            binaries.add(binary);
+        }
+
+        // the least recently used binary is evicted
+        assertEquals(cache.getSize(), 2 * BINARY_SIZE);
+        assertFalse(binaries.get(0).exists());
+        assertTrue(binaries.get(1).exists());
+        assertTrue(binaries.get(2).exists());
+
+        // an evicted binary is downloaded again
+        cache.release(cache.acquire(binaryUri("apple-1.0.tar.gz")));
+        assertEquals(requests.get(), 4);
+    }
+
+    @Test
+    public void testAcquiredBinaryIsNotEvicted()
+            throws Exception
+    {
+        BinaryCache cache = new BinaryCache(cacheDir, BINARY_SIZE);
+
+        File apple = cache.acquire(binaryUri("apple-1.0.tar.gz"));
+        File banana = cache.acquire(binaryUri("banana-1.0.tar.gz"));
+        assertTrue(apple.exists());
+        assertTrue(banana.exists());
+
+        cache.release(apple);
+        assertFalse(apple.exists());
+        cache.release(banana);
+        assertTrue(banana.exists());
+        assertEquals(cache.getSize(), BINARY_SIZE);
+    }
+
+    @Test
+    public void testSnapshotDownloadedEveryTime()
+            throws Exception
+    {
+        BinaryCache cache = new BinaryCache(cacheDir, 10 * BINARY_SIZE);
+        URI snapshot = binaryUri("apple-2.0-SNAPSHOT.tar.gz");
+
+        File first = cache.acquire(snapshot);
+        cache.release(first);
+        File second = cache.acquire(snapshot);
+        cache.release(second);
+
+        // identical contents are stored once
+        assertEquals(requests.get(), 2);
+        assertEquals(second, first);
+        assertEquals(cache.getSize(), BINARY_SIZE);
+    }
+
+    @Test
+    public void testExtractedBinary()
+            throws Exception
+    {
+        archive = createLauncherArchive();
+
+        BinaryCache cache = new BinaryCache(cacheDir, 0, true);
+        assertTrue(cache.isLinkSlots());
+        File binary = cache.acquire(binaryUri("apple-1.0.tar.gz"));
+        File extracted = cache.getExtractedBinary(binary);
+        assertNotNull(extracted);
+        assertEquals(cache.getExtractedBinary(binary), extracted);
+
+        assertEquals(Files.toString(newFile(extracted, "apple-1.0", "bin", "launcher"), UTF_8), "launcher");
+
+        // clones share the files but not the directories
+        File clone = new File(cacheDir, "clone");
+        linkTree(extracted, clone, new Duration(1, TimeUnit.MINUTES));
+        assertEquals(Files.toString(newFile(clone, "apple-1.0", "bin", "launcher"), UTF_8), "launcher");
+        assertTrue(newFile(clone, "apple-1.0", "bin").canWrite());
+
+        // the extracted tree is evicted with the binary
+        cache.release(binary);
+        assertFalse(binary.exists());
+        assertFalse(extracted.exists());
+        assertEquals(Files.toString(newFile(clone, "apple-1.0", "bin", "launcher"), UTF_8), "launcher");
+
+        // binaries from the local file system are extracted by the caller
+        assertNull(cache.getExtractedBinary(new File(cacheDir, "apple-1.0.tar.gz")));
+    }
+
+    @Test
+    public void testCopiedSlotsDoNotShareFiles()
+            throws Exception
+    {
+        archive = createLauncherArchive();
+
+        // slots are copied unless linking is enabled
+        BinaryCache cache = new BinaryCache(cacheDir, 10 * BINARY_SIZE);
+        assertFalse(cache.isLinkSlots());
+        File binary = cache.acquire(binaryUri("apple-1.0.tar.gz"));
+        File extracted = cache.getExtractedBinary(binary);
+        assertNotNull(extracted);
+
+        // a copy can be changed in place without changing the cache
+        File copy = new File(cacheDir, "copy");
+        copyTree(extracted, copy, new Duration(1, TimeUnit.MINUTES));
+        Files.write("changed", newFile(copy, "apple-1.0", "bin", "launcher"), UTF_8);
+        assertEquals(Files.toString(newFile(extracted, "apple-1.0", "bin", "launcher"), UTF_8), "launcher");
+        cache.release(binary);
+    }
+
+    private static byte[] createLauncherArchive()
+            throws Exception
+    {
+        File sourceDir = createTempDir("binary-source");
+        try {
+            File launcher = newFile(sourceDir, "apple-1.0", "bin", "launcher");
+            launcher.getParentFile().mkdirs();
+            Files.write("launcher", launcher, UTF_8);
+            File tarFile = new File(sourceDir, "apple-1.0.tar.gz");
+            createTar(new File(sourceDir, "apple-1.0"), tarFile);
+            return Files.toByteArray(tarFile);
+        }
+        finally {
+            deleteRecursively(sourceDir);
+        }
+    }
+
+    private URI binaryUri(String name)
+    {
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/food/fruit/" + name);
+    }
+}
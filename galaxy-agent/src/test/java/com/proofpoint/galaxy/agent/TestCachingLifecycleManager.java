@@ -0,0 +1,184 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.proofpoint.galaxy.agent;
+
+import com.google.common.collect.ImmutableMap;
+import com.proofpoint.galaxy.shared.SlotLifecycleState;
+import com.proofpoint.units.Duration;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.proofpoint.galaxy.shared.AssignmentHelper.APPLE_ASSIGNMENT;
+import static com.proofpoint.galaxy.shared.AssignmentHelper.BANANA_ASSIGNMENT;
+import static com.proofpoint.galaxy.shared.SlotLifecycleState.RUNNING;
+import static com.proofpoint.galaxy.shared.SlotLifecycleState.STOPPED;
+import static org.testng.Assert.assertEquals;
+
+public class TestCachingLifecycleManager extends AbstractLifecycleManagerTest
+{
+    private CountingLifecycleManager delegate;
+
+    @BeforeMethod
+    protected void setUp()
+            throws Exception
+    {
+        delegate = new CountingLifecycleManager();
+        manager = new CachingLifecycleManager(delegate, new Duration(1, TimeUnit.HOURS), 2);
+        appleDeployment = new Deployment("apple",
+                "slot",
+                UUID.randomUUID(),
+                "location/apple",
+                new File("apple"),
+                new File("apple-data"),
+                APPLE_ASSIGNMENT,
+                ImmutableMap.<String, Integer>of("memory", 512));
+        bananaDeployment = new Deployment("banana",
+                "slot",
+                UUID.randomUUID(),
+                "location/banana",
+                new File("banana"),
+                new File("banana-data"),
+                BANANA_ASSIGNMENT,
+                ImmutableMap.<String, Integer>of("cpu", 1));
+    }
+
+    @AfterMethod
+    public void tearDown()
+    {
+        ((CachingLifecycleManager) manager).stop();
+    }
+
+    @Test
+    public void testStatusIsCached()
+    {
+        assertEquals(manager.status(appleDeployment), STOPPED);
+        assertEquals(delegate.getStatusCount(), 1);
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(manager.status(appleDeployment), STOPPED);
+        }
+        assertEquals(delegate.getStatusCount(), 1);
+    }
+
+    @Test
+    public void testProcessChangeNotVisibleUntilRefresh()
+    {
+        assertEquals(manager.status(appleDeployment), STOPPED);
+
+        // process is started behind the back of the cache
+        delegate.start(appleDeployment);
+        assertEquals(manager.status(appleDeployment), STOPPED);
+
+        // an operation through the cache is visible immediately
+        assertEquals(manager.stop(appleDeployment), STOPPED);
+        assertEquals(manager.status(appleDeployment), STOPPED);
+        assertEquals(manager.start(appleDeployment), RUNNING);
+        assertEquals(manager.status(appleDeployment), RUNNING);
+    }
+
+    @Test
+    public void testStatusDuringOperation()
+            throws Exception
+    {
+        assertEquals(manager.status(appleDeployment), STOPPED);
+
+        final CountDownLatch release = new CountDownLatch(1);
+        delegate.blockOperations(release);
+        Thread operation = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                manager.start(appleDeployment);
+            }
+        });
+        operation.start();
+        delegate.awaitBlockedOperation();
+
+        // the last known state is returned without running the launcher
+        assertEquals(manager.status(appleDeployment), STOPPED);
+        assertEquals(delegate.getStatusCount(), 1);
+
+        release.countDown();
+        operation.join();
+        assertEquals(manager.status(appleDeployment), RUNNING);
+    }
+
+    private static class CountingLifecycleManager extends MockLifecycleManager
+    {
+        private int statusCount;
+        private final CountDownLatch operationBlocked = new CountDownLatch(1);
+        private volatile CountDownLatch operationRelease;
+
+        @Override
+        public synchronized SlotLifecycleState status(Deployment deployment)
+        {
+            statusCount++;
+            return super.status(deployment);
+        }
+
+        @Override
+        public SlotLifecycleState start(Deployment deployment)
+        {
+            // wait without holding the lock, so status is not blocked by the operation
+            CountDownLatch release = operationRelease;
+            if (release != null) {
+                operationBlocked.countDown();
+                try {
+                    release.await();
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            synchronized (this) {
+                return super.start(deployment);
+            }
+        }
+
+        @Override
+        public synchronized SlotLifecycleState restart(Deployment deployment)
+        {
+            return super.restart(deployment);
+        }
+
+        @Override
+        public synchronized SlotLifecycleState stop(Deployment deployment)
+        {
+            return super.stop(deployment);
+        }
+
+        public synchronized int getStatusCount()
+        {
+            return statusCount;
+        }
+
+        public void blockOperations(CountDownLatch release)
+        {
+            operationRelease = release;
+        }
+
+        public void awaitBlockedOperation()
+                throws InterruptedException
+        {
+            operationBlocked.await();
+        }
+    }
+}
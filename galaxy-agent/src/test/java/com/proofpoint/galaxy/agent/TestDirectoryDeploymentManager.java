@@ -14,6 +14,7 @@
 package com.proofpoint.galaxy.agent;
 
 import com.google.common.io.Files;
+import com.proofpoint.galaxy.shared.ConfigBundleCache;
 import com.proofpoint.galaxy.shared.InstallationHelper;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.AfterMethod;
@@ -33,6 +34,8 @@ public class TestDirectoryDeploymentManager extends AbstractDeploymentManagerTes
 {
     private File tempDir;
     private InstallationHelper installationHelper;
+    private BinaryCache binaryCache;
+    private ConfigBundleCache configBundleCache;
 
     @BeforeMethod
     public void setUp()
@@ -43,7 +46,9 @@ public class TestDirectoryDeploymentManager extends AbstractDeploymentManagerTes
         bananaInstallation = installationHelper.getBananaInstallation();
         tempDir = Files.createTempDir().getCanonicalFile();
         final AgentConfig config = new AgentConfig();
-        manager = new DirectoryDeploymentManager("slot", tempDir, "/location/test", config.getTarTimeout());
+        binaryCache = new BinaryCache(new File(tempDir, "binary-cache"), config.getBinaryCacheMaxSizeMb() * 1024L * 1024L);
+        configBundleCache = new ConfigBundleCache(new File(tempDir, "config-bundle-cache"), config.getConfigBundleCacheMaxSizeMb() * 1024L * 1024L);
+        manager = new DirectoryDeploymentManager("slot", tempDir, "/location/test", config.getTarTimeout(), binaryCache, configBundleCache);
     }
 
     @AfterMethod
@@ -66,7 +71,7 @@ public class TestDirectoryDeploymentManager extends AbstractDeploymentManagerTes
 
         // replace the deployment manager with a new one, which will cause the persistent data to reload
         final AgentConfig config = new AgentConfig();
-        manager = new DirectoryDeploymentManager(appleDeployment.getSlotName(), tempDir, appleDeployment.getLocation(), config.getTarTimeout());
+        manager = new DirectoryDeploymentManager(appleDeployment.getSlotName(), tempDir, appleDeployment.getLocation(), config.getTarTimeout(), binaryCache, configBundleCache);
 
         // active deployment should still be apple
         assertEquals(manager.getDeployment(), appleDeployment);
@@ -89,6 +89,7 @@ public class TestServer
                 .put("agent.id", UUID.randomUUID().toString())
                 .put("agent.coordinator-uri", "http://localhost:9999/")
                 .put("agent.slots-dir", tempDir.getAbsolutePath())
+                .put("agent.binary-cache-dir", new File(tempDir, "binary-cache").getAbsolutePath())
                 .put("discovery.uri", "fake://server")
                 .build();
 
@@ -13,11 +13,17 @@
  */
 package com.proofpoint.galaxy.agent;
 
+import com.proofpoint.galaxy.shared.SlotLifecycleState;
 import com.proofpoint.galaxy.shared.SlotStatus;
 import com.proofpoint.units.Duration;
 import org.testng.annotations.Test;
 
 import java.net.URI;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static com.proofpoint.galaxy.shared.AssignmentHelper.APPLE_ASSIGNMENT;
 import static com.proofpoint.galaxy.shared.InstallationHelper.APPLE_INSTALLATION;
@@ -25,9 +31,11 @@ import static com.proofpoint.galaxy.shared.AssignmentHelper.BANANA_ASSIGNMENT;
 import static com.proofpoint.galaxy.shared.InstallationHelper.BANANA_INSTALLATION;
 import static com.proofpoint.galaxy.shared.SlotLifecycleState.RUNNING;
 import static com.proofpoint.galaxy.shared.SlotLifecycleState.STOPPED;
+import static com.proofpoint.galaxy.shared.SlotLifecycleState.STOPPING;
 import static com.proofpoint.galaxy.shared.SlotLifecycleState.TERMINATED;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertTrue;
 
@@ -116,4 +124,60 @@ public class TestSlot
         assertEquals(slot.restart(), running);
         assertEquals(slot.status(), running);
     }
+
+    @Test
+    public void testStatusDoesNotWaitForOperation()
+            throws Exception
+    {
+        final CountDownLatch stopStarted = new CountDownLatch(1);
+        final CountDownLatch stopReleased = new CountDownLatch(1);
+        MockLifecycleManager lifecycleManager = new MockLifecycleManager()
+        {
+            @Override
+            public SlotLifecycleState stop(Deployment deployment)
+            {
+                stopStarted.countDown();
+                try {
+                    stopReleased.await();
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(e);
+                }
+                return super.stop(deployment);
+            }
+        };
+        final Slot slot = new DeploymentSlot(URI.create("fake://localhost"),
+                URI.create("fake://localhost"),
+                new MockDeploymentManager("slot"),
+                lifecycleManager,
+                APPLE_INSTALLATION,
+                new Duration(1, SECONDS));
+        assertEquals(slot.start().getState(), RUNNING);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<SlotStatus> stop = executor.submit(new Callable<SlotStatus>()
+            {
+                @Override
+                public SlotStatus call()
+                {
+                    return slot.stop();
+                }
+            });
+            assertTrue(stopStarted.await(10, SECONDS));
+
+            // status is served while the stop holds the slot lock
+            assertEquals(slot.status().getState(), STOPPING);
+            assertEquals(slot.getLastSlotStatus().getState(), STOPPING);
+            assertFalse(stop.isDone());
+
+            stopReleased.countDown();
+            assertEquals(stop.get(10, SECONDS).getState(), STOPPED);
+            assertEquals(slot.status().getState(), STOPPED);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
 }
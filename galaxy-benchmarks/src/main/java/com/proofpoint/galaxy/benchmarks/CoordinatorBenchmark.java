@@ -0,0 +1,86 @@
+package com.proofpoint.galaxy.benchmarks;
+
+import com.google.common.base.Predicate;
+import com.proofpoint.galaxy.coordinator.ClusterSnapshot;
+import com.proofpoint.galaxy.coordinator.Coordinator;
+import com.proofpoint.galaxy.coordinator.SlotFilterBuilder;
+import com.proofpoint.galaxy.shared.MockUriInfo;
+import com.proofpoint.galaxy.shared.SlotStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures reading slots from the coordinator, both when the cluster snapshot can be
+ * reused and when an agent status update forces it to be rebuilt.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class CoordinatorBenchmark
+{
+    @Param({"100", "1000", "10000"})
+    private int agentCount;
+
+    @Param({"5"})
+    private int slotsPerAgent;
+
+    private SyntheticFleet fleet;
+    private Coordinator coordinator;
+    private Predicate<SlotStatus> filter;
+    private int nextAgent;
+
+    @Setup
+    public void setup()
+    {
+        fleet = new SyntheticFleet(agentCount, slotsPerAgent);
+        coordinator = fleet.getCoordinator();
+        filter = SlotFilterBuilder.build(new MockUriInfo(URI.create("http://localhost/v1/slot?binary=apple&state=running")), false, coordinator.getSnapshot().getSlotIndex());
+    }
+
+    @Benchmark
+    public List<SlotStatus> getAllSlotsStatus()
+    {
+        return coordinator.getAllSlotsStatus(filter);
+    }
+
+    @Benchmark
+    public List<SlotStatus> getAllSlotsStatusAfterAgentUpdate()
+    {
+        fleet.touchAgent(nextAgent++);
+        return coordinator.getAllSlotsStatus(filter);
+    }
+
+    @Benchmark
+    public ClusterSnapshot rebuildSnapshot()
+    {
+        fleet.touchAgent(nextAgent++);
+        return coordinator.getSnapshot();
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        new Runner(new OptionsBuilder()
+                .include(".*" + CoordinatorBenchmark.class.getSimpleName() + ".*")
+                .build()).run();
+    }
+}
@@ -0,0 +1,126 @@
+package com.proofpoint.galaxy.benchmarks;
+
+import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.proofpoint.galaxy.coordinator.AgentFilterBuilder;
+import com.proofpoint.galaxy.coordinator.ClusterSnapshot;
+import com.proofpoint.galaxy.coordinator.SlotFilterBuilder;
+import com.proofpoint.galaxy.shared.AgentStatus;
+import com.proofpoint.galaxy.shared.MockUriInfo;
+import com.proofpoint.galaxy.shared.SlotStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building and evaluating the slot and agent filters of a request, the way the
+ * REST resources do for every <code>galaxy show</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class FilterBenchmark
+{
+    @Param({"100", "1000", "10000"})
+    private int agentCount;
+
+    @Param({"5"})
+    private int slotsPerAgent;
+
+    private ClusterSnapshot snapshot;
+    private MockUriInfo hostAndStateQuery;
+    private MockUriInfo binaryQuery;
+    private MockUriInfo uuidQuery;
+    private MockUriInfo agentQuery;
+
+    @Setup
+    public void setup()
+    {
+        snapshot = new SyntheticFleet(agentCount, slotsPerAgent).getCoordinator().getSnapshot();
+
+        hostAndStateQuery = query("/v1/slot?host=agent-000*&state=running");
+        binaryQuery = query("/v1/slot?binary=apple:1.0");
+        String shortId = snapshot.getSlotIds().get(snapshot.getSlotIds().size() / 2).toString().substring(0, 8);
+        uuidQuery = query("/v1/slot?uuid=" + shortId);
+        agentQuery = query("/v1/admin/agent?host=*.us-east-1a.example.com&state=online");
+    }
+
+    @Benchmark
+    public List<SlotStatus> hostAndStateFilterIndexed()
+    {
+        return snapshot.getSlots(SlotFilterBuilder.build(hostAndStateQuery, false, snapshot.getSlotIndex()));
+    }
+
+    @Benchmark
+    public List<SlotStatus> hostAndStateFilterScan()
+    {
+        return scan(SlotFilterBuilder.build(hostAndStateQuery, false, snapshot.getSlotIds()));
+    }
+
+    @Benchmark
+    public List<SlotStatus> binaryFilterIndexed()
+    {
+        return snapshot.getSlots(SlotFilterBuilder.build(binaryQuery, false, snapshot.getSlotIndex()));
+    }
+
+    @Benchmark
+    public List<SlotStatus> binaryFilterScan()
+    {
+        return scan(SlotFilterBuilder.build(binaryQuery, false, snapshot.getSlotIds()));
+    }
+
+    @Benchmark
+    public List<SlotStatus> uuidFilterIndexed()
+    {
+        return snapshot.getSlots(SlotFilterBuilder.build(uuidQuery, false, snapshot.getSlotIndex()));
+    }
+
+    @Benchmark
+    public List<SlotStatus> uuidFilterScan()
+    {
+        return scan(SlotFilterBuilder.build(uuidQuery, false, snapshot.getSlotIds()));
+    }
+
+    @Benchmark
+    public List<AgentStatus> agentFilter()
+    {
+        return snapshot.getAgents(AgentFilterBuilder.build(agentQuery, snapshot.getSlotIds()));
+    }
+
+    private List<SlotStatus> scan(Predicate<SlotStatus> filter)
+    {
+        return ImmutableList.copyOf(Iterables.filter(snapshot.getSlots(), filter));
+    }
+
+    private static MockUriInfo query(String pathAndQuery)
+    {
+        return new MockUriInfo(URI.create("http://localhost" + pathAndQuery));
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        new Runner(new OptionsBuilder()
+                .include(".*" + FilterBenchmark.class.getSimpleName() + ".*")
+                .build()).run();
+    }
+}
@@ -0,0 +1,106 @@
+package com.proofpoint.galaxy.benchmarks;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.proofpoint.galaxy.coordinator.ClusterSnapshot;
+import com.proofpoint.galaxy.shared.SlotStatus;
+import com.proofpoint.galaxy.shared.SlotStatusRepresentation;
+import com.proofpoint.galaxy.shared.SlotStatusRepresentation.SlotStatusRepresentationFactory;
+import com.proofpoint.galaxy.shared.Strings;
+import com.proofpoint.galaxy.shared.VersionsUtil;
+import com.proofpoint.json.JsonCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.proofpoint.galaxy.coordinator.TestingMavenRepository.MOCK_REPO;
+import static com.proofpoint.galaxy.shared.SlotStatusRepresentation.fromSlotStatus;
+import static com.proofpoint.json.JsonCodec.listJsonCodec;
+
+/**
+ * Measures the work behind a <code>GET /v1/slot</code> once the slots are filtered: the
+ * short id prefix, the fleet slots version and the JSON encoding of the representations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class RepresentationBenchmark
+{
+    private static final JsonCodec<List<SlotStatusRepresentation>> SLOTS_CODEC = listJsonCodec(SlotStatusRepresentation.class);
+
+    @Param({"100", "1000", "10000"})
+    private int agentCount;
+
+    @Param({"5"})
+    private int slotsPerAgent;
+
+    private ClusterSnapshot snapshot;
+    private List<SlotStatus> slots;
+    private List<String> slotIds;
+
+    @Setup
+    public void setup()
+    {
+        snapshot = new SyntheticFleet(agentCount, slotsPerAgent).getCoordinator().getSnapshot();
+        slots = snapshot.getSlots();
+
+        ImmutableList.Builder<String> slotIds = ImmutableList.builder();
+        for (SlotStatus slot : slots) {
+            slotIds.add(slot.getId().toString());
+        }
+        this.slotIds = slotIds.build();
+    }
+
+    @Benchmark
+    public int shortestUniquePrefix()
+    {
+        return Strings.shortestUniquePrefix(slotIds, SlotStatusRepresentationFactory.MIN_PREFIX_SIZE);
+    }
+
+    @Benchmark
+    public String createSlotsVersion()
+    {
+        return VersionsUtil.createSlotsVersion(slots);
+    }
+
+    @Benchmark
+    public SlotStatusRepresentationFactory createRepresentationFactory()
+    {
+        return new SlotStatusRepresentationFactory(slots, MOCK_REPO);
+    }
+
+    /**
+     * Encoding with the factory cached in the snapshot, as the slot resource does.
+     */
+    @Benchmark
+    public String encodeSlots()
+    {
+        List<SlotStatusRepresentation> representations = Lists.transform(slots, fromSlotStatus(snapshot.getSlotRepresentationFactory()));
+        return SLOTS_CODEC.toJson(representations);
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        new Runner(new OptionsBuilder()
+                .include(".*" + RepresentationBenchmark.class.getSimpleName() + ".*")
+                .build()).run();
+    }
+}
@@ -0,0 +1,132 @@
+package com.proofpoint.galaxy.benchmarks;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.proofpoint.galaxy.coordinator.Coordinator;
+import com.proofpoint.galaxy.coordinator.InMemoryStateManager;
+import com.proofpoint.galaxy.coordinator.MockProvisioner;
+import com.proofpoint.galaxy.coordinator.MockServiceInventory;
+import com.proofpoint.galaxy.shared.AgentLifecycleState;
+import com.proofpoint.galaxy.shared.AgentStatus;
+import com.proofpoint.galaxy.shared.Assignment;
+import com.proofpoint.galaxy.shared.ExpectedSlotStatus;
+import com.proofpoint.galaxy.shared.SlotLifecycleState;
+import com.proofpoint.galaxy.shared.SlotStatus;
+import com.proofpoint.units.Duration;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static com.proofpoint.galaxy.coordinator.TestingMavenRepository.MOCK_REPO;
+import static com.proofpoint.galaxy.shared.SlotStatus.createSlotStatus;
+
+/**
+ * A coordinator managing a fleet of in-memory agents.  The fleet is generated from a fixed
+ * seed, so every run of a benchmark sees the same hosts, locations and assignments.
+ */
+public class SyntheticFleet
+{
+    public static final List<String> ZONES = ImmutableList.of("us-east-1a", "us-east-1b", "us-east-1c", "us-east-1d");
+    public static final List<String> APPLICATIONS = ImmutableList.of("apple", "banana", "cherry", "durian", "elderberry", "fig", "grape", "honeydew");
+
+    private final MockProvisioner provisioner;
+    private final InMemoryStateManager stateManager;
+    private final Coordinator coordinator;
+    private final List<AgentStatus> agents;
+    private final Random random = new Random(0);
+
+    public SyntheticFleet(int agentCount, int slotsPerAgent)
+    {
+        Preconditions.checkArgument(agentCount > 0, "agentCount must be at least 1");
+        Preconditions.checkArgument(slotsPerAgent >= 0, "slotsPerAgent is negative");
+
+        provisioner = new MockProvisioner();
+        stateManager = new InMemoryStateManager();
+
+        ImmutableList.Builder<AgentStatus> agents = ImmutableList.builder();
+        for (int agent = 0; agent < agentCount; agent++) {
+            AgentStatus agentStatus = createAgent(agent, slotsPerAgent);
+            provisioner.addAgent(agentStatus);
+            for (SlotStatus slot : agentStatus.getSlotStatuses()) {
+                stateManager.setExpectedState(new ExpectedSlotStatus(slot.getId(), slot.getState(), slot.getAssignment()));
+            }
+            agents.add(agentStatus);
+        }
+        this.agents = agents.build();
+
+        Duration timeout = new Duration(1, TimeUnit.MINUTES);
+        coordinator = new Coordinator("benchmark",
+                provisioner.getAgentFactory(),
+                MOCK_REPO,
+                provisioner,
+                stateManager,
+                new MockServiceInventory(),
+                timeout,
+                50,
+                timeout,
+                20,
+                false);
+    }
+
+    public Coordinator getCoordinator()
+    {
+        return coordinator;
+    }
+
+    public List<AgentStatus> getAgents()
+    {
+        return agents;
+    }
+
+    /**
+     * Replaces the status of an agent with an equal copy, like an agent status update that
+     * changed nothing, so the coordinator must rebuild its snapshot.
+     */
+    public void touchAgent(int agent)
+    {
+        AgentStatus agentStatus = agents.get(agent % agents.size());
+        provisioner.addAgent(agentStatus.changeState(agentStatus.getState()));
+    }
+
+    private AgentStatus createAgent(int agent, int slotsPerAgent)
+    {
+        String zone = ZONES.get(agent % ZONES.size());
+        String instanceId = String.format("i-%08x", agent);
+        URI agentUri = URI.create(String.format("http://agent-%05d.%s.example.com:7777", agent, zone));
+
+        ImmutableList.Builder<SlotStatus> slots = ImmutableList.builder();
+        for (int slot = 0; slot < slotsPerAgent; slot++) {
+            String application = APPLICATIONS.get(random.nextInt(APPLICATIONS.size()));
+            int version = 1 + random.nextInt(3);
+            Assignment assignment = new Assignment("food.fruit:" + application + ":" + version + ".0", "@prod:" + application + ":" + version + ".0");
+            SlotLifecycleState state = random.nextInt(10) == 0 ? SlotLifecycleState.STOPPED : SlotLifecycleState.RUNNING;
+
+            UUID slotId = new UUID(random.nextLong(), random.nextLong());
+            URI slotUri = agentUri.resolve("/v1/agent/slot/" + application + slot);
+            slots.add(createSlotStatus(slotId,
+                    application + slot,
+                    slotUri,
+                    slotUri,
+                    instanceId,
+                    "/ec2/" + zone + "/" + instanceId + "/" + application + slot,
+                    state,
+                    assignment,
+                    "/galaxy/slots/" + application + slot,
+                    ImmutableMap.of("cpu", 1, "memory", 512)));
+        }
+
+        return new AgentStatus(instanceId,
+                AgentLifecycleState.ONLINE,
+                instanceId,
+                agentUri,
+                agentUri,
+                "/ec2/" + zone + "/" + instanceId,
+                "m1.xlarge",
+                slots.build(),
+                ImmutableMap.of("cpu", 8, "memory", 16384));
+    }
+}
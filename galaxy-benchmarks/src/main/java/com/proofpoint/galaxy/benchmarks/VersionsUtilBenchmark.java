@@ -0,0 +1,251 @@
+package com.proofpoint.galaxy.benchmarks;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.io.ByteStreams;
+import com.proofpoint.galaxy.shared.AgentLifecycleState;
+import com.proofpoint.galaxy.shared.AgentStatus;
+import com.proofpoint.galaxy.shared.Assignment;
+import com.proofpoint.galaxy.shared.DigestUtils;
+import com.proofpoint.galaxy.shared.SlotLifecycleState;
+import com.proofpoint.galaxy.shared.SlotStatus;
+import com.proofpoint.galaxy.shared.VersionsUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.net.URI;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static com.proofpoint.galaxy.shared.SlotLifecycleState.RUNNING;
+import static com.proofpoint.galaxy.shared.SlotLifecycleState.STOPPED;
+
+/**
+ * Measures the version hashing done for every slot and agent status change, and for
+ * every fleet wide slots and agents version, against the previous implementation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class VersionsUtilBenchmark
+{
+    private static final int SLOTS_PER_AGENT = 10;
+
+    @Param({"1000", "10000"})
+    private int slotCount;
+
+    private List<SlotStatus> slots;
+    private List<AgentStatus> agents;
+
+    @Setup
+    public void setup()
+    {
+        Assignment assignment = new Assignment("food.fruit:apple:1.0", "@prod:apple:1.0");
+
+        ImmutableList.Builder<SlotStatus> slots = ImmutableList.builder();
+        ImmutableList.Builder<AgentStatus> agents = ImmutableList.builder();
+        for (int agent = 0; agent < slotCount / SLOTS_PER_AGENT; agent++) {
+            String agentId = UUID.randomUUID().toString();
+            URI agentUri = URI.create("http://agent-" + agent + ".example.com:7777");
+
+            List<SlotStatus> agentSlots = new ArrayList<SlotStatus>();
+            for (int slot = 0; slot < SLOTS_PER_AGENT; slot++) {
+                UUID slotId = UUID.randomUUID();
+                URI slotUri = agentUri.resolve("/v1/agent/slot/" + slotId);
+                agentSlots.add(SlotStatus.createSlotStatus(slotId,
+                        "apple" + slot,
+                        slotUri,
+                        slotUri,
+                        "instance-" + agent,
+                        "/ec2/us-east-1/" + agent + "/apple" + slot,
+                        RUNNING,
+                        assignment,
+                        "/galaxy/slots/apple" + slot,
+                        ImmutableMap.of("cpu", 1, "memory", 512)));
+            }
+            slots.addAll(agentSlots);
+            agents.add(new AgentStatus(agentId,
+                    AgentLifecycleState.ONLINE,
+                    "instance-" + agent,
+                    agentUri,
+                    agentUri,
+                    "/ec2/us-east-1/" + agent,
+                    "m1.large",
+                    agentSlots,
+                    ImmutableMap.of("cpu", 8, "memory", 8192)));
+        }
+        this.slots = slots.build();
+        this.agents = agents.build();
+
+        // warm the lazily computed versions, like a running coordinator
+        VersionsUtil.createSlotsVersion(this.slots);
+        VersionsUtil.createAgentsVersion(this.agents);
+    }
+
+    @Benchmark
+    public String createSlotsVersion()
+    {
+        return VersionsUtil.createSlotsVersion(slots);
+    }
+
+    @Benchmark
+    public String legacyCreateSlotsVersion()
+    {
+        return LegacyVersions.createSlotsVersion(slots);
+    }
+
+    @Benchmark
+    public String createAgentsVersion()
+    {
+        return VersionsUtil.createAgentsVersion(agents);
+    }
+
+    @Benchmark
+    public String legacyCreateAgentsVersion()
+    {
+        return LegacyVersions.createAgentsVersion(agents);
+    }
+
+    @Benchmark
+    public int createSlotVersions()
+    {
+        int hash = 0;
+        for (SlotStatus slot : slots) {
+            hash += VersionsUtil.createSlotVersion(slot.getId(), slot.getState(), slot.getAssignment()).hashCode();
+        }
+        return hash;
+    }
+
+    @Benchmark
+    public int legacyCreateSlotVersions()
+    {
+        int hash = 0;
+        for (SlotStatus slot : slots) {
+            hash += LegacyVersions.createSlotVersion(slot.getId(), slot.getState(), slot.getAssignment()).hashCode();
+        }
+        return hash;
+    }
+
+    @Benchmark
+    public int createAgentVersions()
+    {
+        int hash = 0;
+        for (AgentStatus agent : agents) {
+            hash += VersionsUtil.createAgentVersion(agent.getAgentId(), agent.getState(), agent.getSlotStatuses(), agent.getResources()).hashCode();
+        }
+        return hash;
+    }
+
+    @Benchmark
+    public int legacyCreateAgentVersions()
+    {
+        int hash = 0;
+        for (AgentStatus agent : agents) {
+            hash += LegacyVersions.createAgentVersion(agent.getAgentId(), agent.getState(), agent.getSlotStatuses(), agent.getResources()).hashCode();
+        }
+        return hash;
+    }
+
+    /**
+     * Status copies no longer hash until the version is read.
+     */
+    @Benchmark
+    public int changeSlotStates()
+    {
+        int hash = 0;
+        for (SlotStatus slot : slots) {
+            hash += slot.changeState(STOPPED).getState().ordinal();
+        }
+        return hash;
+    }
+
+    /**
+     * The version code before it was changed to stream into a reused digest.
+     */
+    private static class LegacyVersions
+    {
+        public static String createSlotVersion(UUID id, SlotLifecycleState state, Assignment assignment)
+        {
+            String data = Joiner.on("||").useForNull("--NULL--").join(id, state, assignment);
+            return md5Hex(data);
+        }
+
+        public static String createSlotsVersion(Iterable<SlotStatus> slots)
+        {
+            Map<UUID, String> slotVersions = new TreeMap<UUID, String>();
+            for (SlotStatus slot : slots) {
+                slotVersions.put(slot.getId(), slot.getVersion());
+            }
+            return md5Hex(slotVersions.values().toString());
+        }
+
+        public static String createAgentVersion(String agentId, AgentLifecycleState state, Iterable<SlotStatus> slots, Map<String, Integer> resources)
+        {
+            List<Object> parts = new ArrayList<Object>();
+            parts.add(agentId);
+            parts.add(state);
+
+            Map<UUID, String> slotVersions = new TreeMap<UUID, String>();
+            for (SlotStatus slot : slots) {
+                slotVersions.put(slot.getId(), slot.getVersion());
+            }
+            parts.addAll(slotVersions.values());
+
+            parts.add(Joiner.on("--").withKeyValueSeparator("=").join(ImmutableSortedMap.copyOf(resources)));
+
+            String data = Joiner.on("||").useForNull("--NULL--").join(parts);
+            return md5Hex(data);
+        }
+
+        public static String createAgentsVersion(Iterable<AgentStatus> agents)
+        {
+            Map<String, String> agentVersions = new TreeMap<String, String>();
+            for (AgentStatus agent : agents) {
+                agentVersions.put(agent.getAgentId(), agent.getVersion());
+            }
+            return md5Hex(agentVersions.values().toString());
+        }
+
+        private static String md5Hex(String data)
+        {
+            try {
+                byte[] digest = ByteStreams.getDigest(ByteStreams.newInputStreamSupplier(data.getBytes(Charsets.UTF_8)), MessageDigest.getInstance("MD5"));
+                return DigestUtils.toHex(digest);
+            }
+            catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        new Runner(new OptionsBuilder()
+                .include(".*" + VersionsUtilBenchmark.class.getSimpleName() + ".*")
+                .build()).run();
+    }
+}
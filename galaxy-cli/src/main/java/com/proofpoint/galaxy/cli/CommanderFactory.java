@@ -6,6 +6,8 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.net.InetAddresses;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.proofpoint.discovery.client.ServiceDescriptor;
 import com.proofpoint.galaxy.agent.Agent;
 import com.proofpoint.galaxy.agent.DeploymentManagerFactory;
@@ -200,6 +202,9 @@ public class CommanderFactory
                 stateManager,
                 serviceInventory,
                 new Duration(100, TimeUnit.DAYS),
+                1,
+                COMMAND_TIMEOUT,
+                1,
                 true);
 
         return new LocalCommander(new File(slotsDir), coordinator, repository, serviceInventory);
@@ -314,13 +319,15 @@ public class CommanderFactory
         }
 
         @Override
-        public void updateStatus()
+        public ListenableFuture<?> updateStatus()
         {
+            return Futures.immediateFuture(null);
         }
 
         @Override
-        public void setServiceInventory(List<ServiceDescriptor> serviceInventory)
+        public ListenableFuture<?> setServiceInventory(List<ServiceDescriptor> serviceInventory)
         {
+            return Futures.immediateFuture(null);
         }
     }
 
@@ -12,8 +12,8 @@ import com.proofpoint.galaxy.shared.Assignment;
 import com.proofpoint.galaxy.shared.AssignmentRepresentation;
 import com.proofpoint.galaxy.shared.CoordinatorLifecycleState;
 import com.proofpoint.galaxy.shared.CoordinatorStatusRepresentation;
-import com.proofpoint.galaxy.shared.FullJsonResponseHandler;
 import com.proofpoint.galaxy.shared.FullJsonResponseHandler.JsonResponse;
+import com.proofpoint.galaxy.shared.JsonArrayResponseHandler;
 import com.proofpoint.galaxy.shared.JsonResponseHandler;
 import com.proofpoint.galaxy.shared.SlotLifecycleState;
 import com.proofpoint.galaxy.shared.SlotStatusRepresentation;
@@ -42,6 +42,7 @@ import static com.proofpoint.http.client.JsonBodyGenerator.jsonBodyGenerator;
 
 public class HttpCommander implements Commander
 {
+    private static final JsonCodec<SlotStatusRepresentation> SLOT_CODEC = JsonCodec.jsonCodec(SlotStatusRepresentation.class);
     private static final JsonCodec<List<SlotStatusRepresentation>> SLOTS_CODEC = JsonCodec.listJsonCodec(SlotStatusRepresentation.class);
     private static final JsonCodec<AssignmentRepresentation> ASSIGNMENT_CODEC = JsonCodec.jsonCodec(AssignmentRepresentation.class);
     private static final JsonCodec<UpgradeVersions> UPGRADE_VERSIONS_CODEC = JsonCodec.jsonCodec(UpgradeVersions.class);
@@ -71,7 +72,7 @@ public class HttpCommander implements Commander
                 .setUri(uri)
                 .build();
 
-        JsonResponse<List<SlotStatusRepresentation>> response = client.execute(request, FullJsonResponseHandler.create(SLOTS_CODEC)).checkedGet();
+        JsonResponse<List<SlotStatusRepresentation>> response = client.execute(request, JsonArrayResponseHandler.create(SLOT_CODEC)).checkedGet();
         return createCommanderResponse(response.getHeader(GALAXY_SLOTS_VERSION_HEADER), response.getValue());
     }
 
@@ -267,7 +268,7 @@ public class HttpCommander implements Commander
                 .setUri(uri)
                 .build();
 
-        JsonResponse<List<AgentStatusRepresentation>> response = client.execute(request, FullJsonResponseHandler.create(AGENTS_CODEC)).checkedGet();
+        JsonResponse<List<AgentStatusRepresentation>> response = client.execute(request, JsonArrayResponseHandler.create(AGENT_CODEC)).checkedGet();
         return CommanderResponse.createCommanderResponse(response.getHeader(GALAXY_AGENTS_VERSION_HEADER), response.getValue());
     }
 
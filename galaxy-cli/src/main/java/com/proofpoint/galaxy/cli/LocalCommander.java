@@ -5,6 +5,7 @@ import com.google.common.base.Predicate;
 import com.google.common.io.Files;
 import com.proofpoint.discovery.client.ServiceDescriptor;
 import com.proofpoint.discovery.client.ServiceDescriptorsRepresentation;
+import com.proofpoint.galaxy.coordinator.ClusterSnapshot;
 import com.proofpoint.galaxy.coordinator.Coordinator;
 import com.proofpoint.galaxy.coordinator.ServiceInventory;
 import com.proofpoint.galaxy.shared.AgentStatus;
@@ -23,18 +24,15 @@ import java.io.File;
 import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
-import java.util.UUID;
 
 import static com.google.common.collect.Lists.newArrayList;
 import static com.google.common.collect.Lists.transform;
 import static com.proofpoint.galaxy.cli.CommanderResponse.createCommanderResponse;
 import static com.proofpoint.galaxy.shared.AgentStatusRepresentation.fromAgentStatus;
 import static com.proofpoint.galaxy.shared.CoordinatorStatusRepresentation.fromCoordinatorStatus;
-import static com.proofpoint.galaxy.shared.SlotStatus.uuidGetter;
 import static com.proofpoint.galaxy.shared.SlotStatusRepresentation.fromSlotStatus;
 import static com.proofpoint.galaxy.shared.VersionsUtil.checkAgentsVersion;
 import static com.proofpoint.galaxy.shared.VersionsUtil.createAgentsVersion;
-import static com.proofpoint.galaxy.shared.VersionsUtil.createSlotsVersion;
 
 public class LocalCommander implements Commander
 {
@@ -56,25 +54,25 @@ public class LocalCommander implements Commander
     @Override
     public CommanderResponse<List<SlotStatusRepresentation>> show(SlotFilter slotFilter)
     {
-        List<SlotStatus> allSlotStatus = coordinator.getAllSlotStatus();
-        List<UUID> uuids = transform(allSlotStatus, SlotStatus.uuidGetter());
+        ClusterSnapshot snapshot = coordinator.getSnapshot();
 
-        Predicate<SlotStatus> slotPredicate = slotFilter.toSlotPredicate(false, uuids);
+        Predicate<SlotStatus> slotPredicate = slotFilter.toSlotPredicate(false, snapshot.getSlotIndex());
 
-        List<SlotStatus> slots = coordinator.getAllSlotsStatus(slotPredicate);
+        List<SlotStatus> slots = snapshot.getSlots(slotPredicate);
 
         // update just in case something changed
         updateServiceInventory();
 
-        return createCommanderResponse(createSlotsVersion(allSlotStatus), transform(slots, fromSlotStatus(coordinator.getAllSlotStatus(), repository)));
+        return createCommanderResponse(snapshot.getSlotsVersion(), transform(slots, fromSlotStatus(snapshot.getSlotRepresentationFactory())));
     }
 
     @Override
     public List<SlotStatusRepresentation> install(AgentFilter agentFilter, int count, Assignment assignment, String expectedAgentsVersion)
     {
         // select the target agents
-        Predicate<AgentStatus> agentsPredicate = agentFilter.toAgentPredicate(transform(coordinator.getAllSlotStatus(), uuidGetter()), false, repository);
-        List<AgentStatus> agents = coordinator.getAgents(agentsPredicate);
+        ClusterSnapshot snapshot = coordinator.getSnapshot();
+        Predicate<AgentStatus> agentsPredicate = agentFilter.toAgentPredicate(snapshot.getSlotIds(), false, repository);
+        List<AgentStatus> agents = snapshot.getAgents(agentsPredicate);
 
         // verify the expected status of agents
         checkAgentsVersion(expectedAgentsVersion, agents);
@@ -86,15 +84,14 @@ public class LocalCommander implements Commander
         updateServiceInventory();
 
         // calculate unique prefix size with the new slots included
-        return transform(slots, fromSlotStatus(coordinator.getAllSlotStatus(), repository));
+        return transform(slots, fromSlotStatus(coordinator.getSnapshot().getSlotRepresentationFactory()));
     }
 
     @Override
     public List<SlotStatusRepresentation> upgrade(SlotFilter slotFilter, UpgradeVersions upgradeVersions, String expectedSlotsVersion)
     {
         // build predicate
-        List<UUID> uuids = transform(coordinator.getAllSlotStatus(), SlotStatus.uuidGetter());
-        Predicate<SlotStatus> slotPredicate = slotFilter.toSlotPredicate(true, uuids);
+        Predicate<SlotStatus> slotPredicate = slotFilter.toSlotPredicate(true, coordinator.getSnapshot().getSlotIndex());
 
         // upgrade slots
         List<SlotStatus> slots = coordinator.upgrade(slotPredicate, upgradeVersions, expectedSlotsVersion);
@@ -103,15 +100,14 @@ public class LocalCommander implements Commander
         updateServiceInventory();
 
         // build results
-        return transform(slots, fromSlotStatus(coordinator.getAllSlotStatus(), repository));
+        return transform(slots, fromSlotStatus(coordinator.getSnapshot().getSlotRepresentationFactory()));
     }
 
     @Override
     public List<SlotStatusRepresentation> setState(SlotFilter slotFilter, SlotLifecycleState state, String expectedSlotsVersion)
     {
         // build predicate
-        List<UUID> uuids = transform(coordinator.getAllSlotStatus(), SlotStatus.uuidGetter());
-        Predicate<SlotStatus> slotPredicate = slotFilter.toSlotPredicate(true, uuids);
+        Predicate<SlotStatus> slotPredicate = slotFilter.toSlotPredicate(true, coordinator.getSnapshot().getSlotIndex());
 
         // before changing state (like starting) update just in case something changed
         updateServiceInventory();
@@ -123,15 +119,14 @@ public class LocalCommander implements Commander
         updateServiceInventory();
 
         // build results
-        return transform(slots, fromSlotStatus(coordinator.getAllSlotStatus(), repository));
+        return transform(slots, fromSlotStatus(coordinator.getSnapshot().getSlotRepresentationFactory()));
     }
 
     @Override
     public List<SlotStatusRepresentation> terminate(SlotFilter slotFilter, String expectedSlotsVersion)
     {
         // build predicate
-        List<UUID> uuids = transform(coordinator.getAllSlotStatus(), SlotStatus.uuidGetter());
-        Predicate<SlotStatus> slotPredicate = slotFilter.toSlotPredicate(true, uuids);
+        Predicate<SlotStatus> slotPredicate = slotFilter.toSlotPredicate(true, coordinator.getSnapshot().getSlotIndex());
 
         // terminate slots
         List<SlotStatus> slots = coordinator.terminate(slotPredicate, expectedSlotsVersion);
@@ -140,15 +135,14 @@ public class LocalCommander implements Commander
         updateServiceInventory();
 
         // build results
-        return transform(slots, fromSlotStatus(coordinator.getAllSlotStatus(), repository));
+        return transform(slots, fromSlotStatus(coordinator.getSnapshot().getSlotRepresentationFactory()));
     }
 
     @Override
     public List<SlotStatusRepresentation> resetExpectedState(SlotFilter slotFilter, String expectedSlotsVersion)
     {
         // build predicate
-        List<UUID> uuids = transform(coordinator.getAllSlotStatus(), SlotStatus.uuidGetter());
-        Predicate<SlotStatus> slotPredicate = slotFilter.toSlotPredicate(true, uuids);
+        Predicate<SlotStatus> slotPredicate = slotFilter.toSlotPredicate(true, coordinator.getSnapshot().getSlotIndex());
 
         // rest slots expected state
         List<SlotStatus> slots = coordinator.resetExpectedState(slotPredicate, expectedSlotsVersion);
@@ -157,15 +151,14 @@ public class LocalCommander implements Commander
         updateServiceInventory();
 
         // build results
-        return transform(slots, fromSlotStatus(coordinator.getAllSlotStatus(), repository));
+        return transform(slots, fromSlotStatus(coordinator.getSnapshot().getSlotRepresentationFactory()));
     }
 
     @Override
     public boolean ssh(SlotFilter slotFilter, String command)
     {
         // build predicate
-        List<UUID> uuids = transform(coordinator.getAllSlotStatus(), SlotStatus.uuidGetter());
-        Predicate<SlotStatus> slotPredicate = slotFilter.toSlotPredicate(true, uuids);
+        Predicate<SlotStatus> slotPredicate = slotFilter.toSlotPredicate(true, coordinator.getSnapshot().getSlotIndex());
 
         // find the matching slots
         List<SlotStatus> slots = newArrayList(coordinator.getAllSlotsStatus(slotPredicate));
@@ -217,13 +210,13 @@ public class LocalCommander implements Commander
     @Override
     public CommanderResponse<List<AgentStatusRepresentation>> showAgents(AgentFilter agentFilter)
     {
-        List<UUID> uuids = transform(coordinator.getAllSlotStatus(), SlotStatus.uuidGetter());
-        Predicate<AgentStatus> agentPredicate = agentFilter.toAgentPredicate(uuids, true, repository);
-        List<AgentStatus> agentStatuses = coordinator.getAgents(agentPredicate);
+        ClusterSnapshot snapshot = coordinator.getSnapshot();
+        Predicate<AgentStatus> agentPredicate = agentFilter.toAgentPredicate(snapshot.getSlotIds(), true, repository);
+        List<AgentStatus> agentStatuses = snapshot.getAgents(agentPredicate);
 
         // update just in case something changed
         updateServiceInventory();
-        return createCommanderResponse(createAgentsVersion(agentStatuses), transform(agentStatuses, fromAgentStatus(coordinator.getAgents(), repository)));
+        return createCommanderResponse(createAgentsVersion(agentStatuses), transform(agentStatuses, fromAgentStatus(snapshot.getAgentRepresentationFactory())));
     }
 
     @Override
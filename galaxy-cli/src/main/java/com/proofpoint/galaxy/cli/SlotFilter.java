@@ -2,6 +2,7 @@ package com.proofpoint.galaxy.cli;
 
 import com.google.common.base.Predicate;
 import com.proofpoint.galaxy.coordinator.SlotFilterBuilder;
+import com.proofpoint.galaxy.coordinator.SlotIndex;
 import com.proofpoint.galaxy.shared.HttpUriBuilder;
 import com.proofpoint.galaxy.shared.SlotStatus;
 import org.iq80.cli.Option;
@@ -29,7 +30,7 @@ public class SlotFilter
     @Option(name = {"-u", "--uuid"}, description = "Select slot with the given UUID")
     public final List<String> uuid = newArrayList();
 
-    @Option(name = {"-s", "--state"}, description = "Select 'r{unning}', 's{topped}' or 'unknown' slots")
+    @Option(name = {"-s", "--state"}, description = "Select 'r{unning}', 's{topped}', 'st{arting}', 'sp{topping}', 'i{nstalling}' or 'unknown' slots")
     public final List<String> state = newArrayList();
 
     @Option(name = "--all", description = "Select all slots")
@@ -50,6 +51,11 @@ public class SlotFilter
         return createFilterBuilder().buildPredicate(filterRequired, allUuids);
     }
 
+    public Predicate<SlotStatus> toSlotPredicate(boolean filterRequired, SlotIndex slotIndex)
+    {
+        return createFilterBuilder().buildPredicate(filterRequired, slotIndex);
+    }
+
     public URI toUri(URI baseUri)
     {
         return createFilterBuilder().buildUri(baseUri);
@@ -92,6 +92,8 @@ public class SlotRecord implements Record
                 return colorize(state, Color.GREEN);
             } else if (SlotLifecycleState.UNKNOWN == state) {
                 return colorize(state, Color.RED);
+            } else if (state != null && state.isTransitional()) {
+                return colorize(state, Color.BLUE);
             }
         } else if (Column.statusMessage == column) {
             return colorize(value, Color.RED);
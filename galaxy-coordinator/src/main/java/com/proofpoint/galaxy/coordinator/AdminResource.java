@@ -1,12 +1,12 @@
 package com.proofpoint.galaxy.coordinator;
 
 import com.google.common.base.Predicate;
-import com.google.common.collect.Lists;
 import com.google.inject.Inject;
 import com.proofpoint.galaxy.shared.AgentStatus;
+import com.proofpoint.galaxy.shared.AgentStatusRepresentation;
 import com.proofpoint.galaxy.shared.CoordinatorStatus;
 import com.proofpoint.galaxy.shared.Repository;
-import com.proofpoint.galaxy.shared.SlotStatus;
+import com.proofpoint.json.JsonCodec;
 
 import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
@@ -19,7 +19,6 @@ import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 import javax.ws.rs.core.UriInfo;
 import java.util.List;
-import java.util.UUID;
 
 import static com.google.common.collect.Collections2.transform;
 import static com.proofpoint.galaxy.shared.AgentStatusRepresentation.fromAgentStatus;
@@ -30,6 +29,8 @@ import static com.proofpoint.galaxy.shared.VersionsUtil.createAgentsVersion;
 @Path("/v1/admin/")
 public class AdminResource
 {
+    private static final JsonCodec<AgentStatusRepresentation> AGENT_STATUS_CODEC = JsonCodec.jsonCodec(AgentStatusRepresentation.class);
+
     private final Coordinator coordinator;
     private final Repository repository;
 
@@ -75,13 +76,12 @@ public class AdminResource
     @Produces(MediaType.APPLICATION_JSON)
     public Response getAllAgents(@Context UriInfo uriInfo)
     {
-        List<SlotStatus> allSlotStatus = coordinator.getAllSlotStatus();
-        List<UUID> uuids = Lists.transform(allSlotStatus, SlotStatus.uuidGetter());
-        Predicate<AgentStatus> agentPredicate = AgentFilterBuilder.build(uriInfo, uuids, false, repository);
+        ClusterSnapshot snapshot = coordinator.getSnapshot();
+        Predicate<AgentStatus> agentPredicate = AgentFilterBuilder.build(uriInfo, snapshot.getSlotIds(), false, repository);
 
-        List<AgentStatus> agents = coordinator.getAgents(agentPredicate);
+        List<AgentStatus> agents = snapshot.getAgents(agentPredicate);
 
-        return Response.ok(transform(agents, fromAgentStatus(coordinator.getAgents(), repository)))
+        return Response.ok(new JsonArrayStreamingOutput<AgentStatusRepresentation>(AGENT_STATUS_CODEC, transform(agents, fromAgentStatus(snapshot.getAgentRepresentationFactory()))))
                 .header(GALAXY_AGENTS_VERSION_HEADER, createAgentsVersion(agents))
                 .build();
     }
@@ -103,7 +103,7 @@ public class AdminResource
                 provisioning.getKeyPair(),
                 provisioning.getSecurityGroup());
 
-        return Response.ok(transform(agents, fromAgentStatus(coordinator.getAgents(), repository))).build();
+        return Response.ok(transform(agents, fromAgentStatus(coordinator.getSnapshot().getAgentRepresentationFactory()))).build();
     }
 
     @DELETE
@@ -308,7 +308,7 @@ public class AgentFilterBuilder
         public boolean apply(@Nullable AgentStatus agentStatus)
         {
             return agentStatus != null &&
-                    (predicate.apply(agentStatus.getExternalUri()) || predicate.apply(agentStatus.getInternalUri()));
+                    (predicate.applyHost(agentStatus.getExternalHost()) || predicate.applyHost(agentStatus.getInternalHost()));
         }
     }
 
@@ -0,0 +1,170 @@
+package com.proofpoint.galaxy.coordinator;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.proofpoint.galaxy.shared.AgentStatus;
+import com.proofpoint.galaxy.shared.Assignment;
+import com.proofpoint.galaxy.shared.Installation;
+import com.proofpoint.galaxy.shared.InstallationUtils;
+import com.proofpoint.galaxy.shared.Repository;
+import com.proofpoint.galaxy.shared.SlotStatus;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.proofpoint.galaxy.shared.SlotLifecycleState.TERMINATED;
+
+/**
+ * Orders the agents that can take an installation.  Agents are compared by the number of
+ * slots of the same service already in their location, then by their number of slots, and
+ * then by the smallest fraction of a resource left free after the install, so the slots of
+ * one install spread across locations and fill the least loaded agents first.
+ */
+class AgentPlacement
+{
+    private AgentPlacement()
+    {
+    }
+
+    /**
+     * Ranks the candidates for installing up to count slots.  The first count agents are
+     * picked one at a time, so each pick accounts for the location of the picks before it.
+     * The remaining candidates follow in score order and are used when an install fails.
+     */
+    public static List<RemoteAgent> rankAgents(List<RemoteAgent> candidates,
+            Iterable<AgentStatus> allAgents,
+            Installation installation,
+            Repository repository,
+            int count)
+    {
+        Preconditions.checkNotNull(candidates, "candidates is null");
+        Preconditions.checkNotNull(allAgents, "allAgents is null");
+        Preconditions.checkNotNull(installation, "installation is null");
+        Preconditions.checkNotNull(repository, "repository is null");
+
+        // count the slots of this service in each location
+        final Map<String, Integer> serviceSlotsByLocation = new HashMap<String, Integer>();
+        for (AgentStatus agentStatus : allAgents) {
+            String location = getParentLocation(agentStatus.getLocation());
+            for (SlotStatus slotStatus : agentStatus.getSlotStatuses()) {
+                if (isSameService(repository, installation.getAssignment(), slotStatus.getAssignment())) {
+                    increment(serviceSlotsByLocation, location);
+                }
+            }
+        }
+
+        // shuffle first so agents with the same score are picked at random
+        List<Candidate> remaining = newArrayList();
+        for (RemoteAgent agent : candidates) {
+            remaining.add(new Candidate(agent, installation));
+        }
+        Collections.shuffle(remaining);
+
+        Comparator<Candidate> comparator = new Comparator<Candidate>()
+        {
+            @Override
+            public int compare(Candidate left, Candidate right)
+            {
+                int result = Integer.valueOf(get(serviceSlotsByLocation, left.location)).compareTo(get(serviceSlotsByLocation, right.location));
+                if (result != 0) {
+                    return result;
+                }
+                result = Integer.valueOf(left.slotCount).compareTo(right.slotCount);
+                if (result != 0) {
+                    return result;
+                }
+                return Double.compare(right.freeResources, left.freeResources);
+            }
+        };
+
+        ImmutableList.Builder<RemoteAgent> ranked = ImmutableList.builder();
+        for (int i = 0; i < count && !remaining.isEmpty(); i++) {
+            Candidate best = Collections.min(remaining, comparator);
+            remaining.remove(best);
+            increment(serviceSlotsByLocation, best.location);
+            ranked.add(best.agent);
+        }
+
+        Collections.sort(remaining, comparator);
+        for (Candidate candidate : remaining) {
+            ranked.add(candidate.agent);
+        }
+        return ranked.build();
+    }
+
+    static String getParentLocation(String location)
+    {
+        if (location == null) {
+            return "";
+        }
+        if (location.endsWith("/")) {
+            location = location.substring(0, location.length() - 1);
+        }
+        int index = location.lastIndexOf('/');
+        if (index < 0) {
+            return "";
+        }
+        return location.substring(0, index);
+    }
+
+    private static boolean isSameService(Repository repository, Assignment assignment, Assignment slotAssignment)
+    {
+        return slotAssignment != null &&
+                repository.binaryEqualsIgnoreVersion(assignment.getBinary(), slotAssignment.getBinary()) &&
+                repository.configEqualsIgnoreVersion(assignment.getConfig(), slotAssignment.getConfig());
+    }
+
+    private static int get(Map<String, Integer> counts, String key)
+    {
+        return Objects.firstNonNull(counts.get(key), 0);
+    }
+
+    private static void increment(Map<String, Integer> counts, String key)
+    {
+        counts.put(key, get(counts, key) + 1);
+    }
+
+    private static class Candidate
+    {
+        private final RemoteAgent agent;
+        private final String location;
+        private final int slotCount;
+        private final double freeResources;
+
+        private Candidate(RemoteAgent agent, Installation installation)
+        {
+            this.agent = agent;
+
+            AgentStatus status = agent.status();
+            location = getParentLocation(status.getLocation());
+
+            int slots = 0;
+            for (SlotStatus slotStatus : status.getSlotStatuses()) {
+                if (slotStatus.getState() != TERMINATED) {
+                    slots++;
+                }
+            }
+            slotCount = slots;
+
+            // the smallest fraction of a resource left after the install; all resources when the installation requires none
+            Map<String, Integer> availableResources = InstallationUtils.getAvailableResources(status);
+            Map<String, Integer> requiredResources = installation.getResources();
+            Iterable<String> resources = requiredResources.isEmpty() ? status.getResources().keySet() : requiredResources.keySet();
+            double free = 1.0;
+            for (String resource : resources) {
+                Integer total = status.getResources().get(resource);
+                if (total == null || total <= 0) {
+                    continue;
+                }
+                int left = get(availableResources, resource) - get(requiredResources, resource);
+                free = Math.min(free, (double) left / total);
+            }
+            freeResources = free;
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package com.proofpoint.galaxy.coordinator;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Resources;
+import com.google.inject.Inject;
+import com.proofpoint.galaxy.shared.DigestUtils;
+import com.proofpoint.log.Logger;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.URI;
+import java.nio.channels.FileChannel;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.proofpoint.galaxy.shared.FileUtils.listFiles;
+
+/**
+ * Binaries and config bundles served by the coordinator to its agents.  Each artifact is
+ * downloaded from the repository once, and concurrent requests for the same artifact share
+ * the download.  When the cache grows past its maximum size, the least recently used
+ * artifacts are deleted; an artifact that is being served stays readable until it is closed.
+ * <p/>
+ * Only artifacts served over http that can not change in place are cached.  See
+ * {@link #isCacheable}.
+ */
+public class ArtifactCache
+{
+    private static final Logger log = Logger.get(ArtifactCache.class);
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final File cacheDir;
+    private final long maxSize;
+    private final ConcurrentMap<URI, FutureTask<CachedArtifact>> downloads = new ConcurrentHashMap<URI, FutureTask<CachedArtifact>>();
+
+    // artifacts by md5 of the uri, least recently used first
+    // guarded by this
+    private final LinkedHashMap<String, CachedArtifact> artifacts = new LinkedHashMap<String, CachedArtifact>(16, 0.75f, true);
+
+    // guarded by this
+    private long size;
+
+    @Inject
+    public ArtifactCache(CoordinatorConfig config)
+    {
+        this(new File(config.getArtifactCacheDir()), config.getArtifactCacheMaxSizeMb() * 1024L * 1024L);
+    }
+
+    public ArtifactCache(File cacheDir, long maxSize)
+    {
+        Preconditions.checkNotNull(cacheDir, "cacheDir is null");
+        Preconditions.checkArgument(maxSize >= 0, "maxSize is negative");
+
+        this.cacheDir = cacheDir;
+        this.maxSize = maxSize;
+
+        cacheDir.mkdirs();
+        Preconditions.checkArgument(cacheDir.isDirectory(), "cacheDir is not a directory: " + cacheDir.getAbsolutePath());
+
+        // load the artifacts downloaded before a restart, oldest first
+        List<File> files = newArrayList(listFiles(cacheDir));
+        Collections.sort(files, new Comparator<File>()
+        {
+            @Override
+            public int compare(File file1, File file2)
+            {
+                return Long.valueOf(file1.lastModified()).compareTo(file2.lastModified());
+            }
+        });
+        for (File file : files) {
+            // artifacts are stored as <md5 of uri>-<sha-256 of contents>
+            String name = file.getName();
+            int separator = name.indexOf('-');
+            if (!name.endsWith(TEMP_SUFFIX) && separator > 0) {
+                artifacts.put(name.substring(0, separator), new CachedArtifact(file, name.substring(separator + 1)));
+                size += file.length();
+            }
+            else {
+                // left over from an interrupted download
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * Opens the cached copy of the artifact, downloading it first if necessary.  The caller must
+     * close the returned artifact.
+     */
+    public Artifact open(final URI artifactUri)
+            throws IOException
+    {
+        Preconditions.checkNotNull(artifactUri, "artifactUri is null");
+        Preconditions.checkArgument(isCacheable(artifactUri), "artifact can not be cached: %s", artifactUri);
+
+        String key = DigestUtils.md5Hex(artifactUri.toString());
+        while (true) {
+            Artifact artifact = openCached(key);
+            if (artifact != null) {
+                return artifact;
+            }
+
+            FutureTask<CachedArtifact> task = downloads.get(artifactUri);
+            if (task == null) {
+                FutureTask<CachedArtifact> newTask = new FutureTask<CachedArtifact>(new Callable<CachedArtifact>()
+                {
+                    @Override
+                    public CachedArtifact call()
+                            throws IOException
+                    {
+                        return download(artifactUri);
+                    }
+                });
+                task = downloads.putIfAbsent(artifactUri, newTask);
+                if (task == null) {
+                    task = newTask;
+                    task.run();
+                }
+            }
+
+            try {
+                task.get();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while downloading artifact " + artifactUri);
+            }
+            catch (ExecutionException e) {
+                Throwables.propagateIfInstanceOf(e.getCause(), IOException.class);
+                throw Throwables.propagate(e.getCause());
+            }
+            finally {
+                // the downloaded artifact is in the cache now, and a failure is not cached
+                downloads.remove(artifactUri, task);
+            }
+        }
+    }
+
+    public synchronized long getSize()
+    {
+        return size;
+    }
+
+    /**
+     * Artifacts are cached when they are served over http and do not have SNAPSHOT in their file
+     * name, which marks a file that can change in place.
+     */
+    public static boolean isCacheable(URI artifactUri)
+    {
+        String scheme = artifactUri.getScheme();
+        if (!"http".equals(scheme) && !"https".equals(scheme)) {
+            return false;
+        }
+        String path = artifactUri.getPath();
+        return path != null && !path.substring(path.lastIndexOf('/') + 1).contains("SNAPSHOT");
+    }
+
+    private synchronized Artifact openCached(String key)
+            throws IOException
+    {
+        CachedArtifact cachedArtifact = artifacts.get(key);
+        if (cachedArtifact == null) {
+            return null;
+        }
+
+        Artifact artifact;
+        try {
+            artifact = new Artifact(cachedArtifact.file, new RandomAccessFile(cachedArtifact.file, "r").getChannel(), cachedArtifact.digest);
+        }
+        catch (FileNotFoundException e) {
+            // deleted outside of the cache
+            artifacts.remove(key);
+            size -= cachedArtifact.length;
+            return null;
+        }
+
+        // keep the opened artifact, so an artifact larger than the cache can still be served once
+        evict(cachedArtifact);
+        return artifact;
+    }
+
+    private CachedArtifact download(URI artifactUri)
+            throws IOException
+    {
+        File tempFile = File.createTempFile("download", TEMP_SUFFIX, cacheDir);
+        try {
+            MessageDigest messageDigest = newDigest();
+            InputStream in = new DigestInputStream(Resources.newInputStreamSupplier(artifactUri.toURL()).getInput(), messageDigest);
+            try {
+                OutputStream out = new FileOutputStream(tempFile);
+                try {
+                    ByteStreams.copy(in, out);
+                }
+                finally {
+                    out.close();
+                }
+            }
+            finally {
+                in.close();
+            }
+
+            String key = DigestUtils.md5Hex(artifactUri.toString());
+            String digest = DigestUtils.toHex(messageDigest.digest());
+            File file = new File(cacheDir, key + "-" + digest);
+            synchronized (this) {
+                CachedArtifact artifact = artifacts.get(key);
+                if (artifact == null) {
+                    if (!tempFile.renameTo(file)) {
+                        throw new IOException("Unable to save artifact " + artifactUri + " to " + file);
+                    }
+                    artifact = new CachedArtifact(file, digest);
+                    artifacts.put(key, artifact);
+                    size += artifact.length;
+                    evict(artifact);
+                }
+                return artifact;
+            }
+        }
+        finally {
+            tempFile.delete();
+        }
+    }
+
+    // guarded by this
+    private void evict(CachedArtifact retained)
+    {
+        for (Iterator<CachedArtifact> iterator = artifacts.values().iterator(); size > maxSize && iterator.hasNext(); ) {
+            CachedArtifact artifact = iterator.next();
+            if (artifact == retained) {
+                continue;
+            }
+            if (artifact.file.delete() || !artifact.file.exists()) {
+                iterator.remove();
+                size -= artifact.length;
+            }
+            else {
+                log.warn("Unable to delete cached artifact %s", artifact.file.getAbsolutePath());
+            }
+        }
+    }
+
+    private static MessageDigest newDigest()
+    {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    /**
+     * An open cached artifact.  The channel stays readable after the artifact is evicted.
+     */
+    public static class Artifact
+            implements Closeable
+    {
+        private final File file;
+        private final FileChannel channel;
+        private final String digest;
+
+        private Artifact(File file, FileChannel channel, String digest)
+        {
+            this.file = file;
+            this.channel = channel;
+            this.digest = digest;
+        }
+
+        /**
+         * The cached file.  Unlike the channel, the file is deleted when the artifact is evicted.
+         */
+        public File getFile()
+        {
+            return file;
+        }
+
+        public FileChannel getChannel()
+        {
+            return channel;
+        }
+
+        public long getLength()
+                throws IOException
+        {
+            return channel.size();
+        }
+
+        /**
+         * The hex SHA-256 of the artifact contents.
+         */
+        public String getDigest()
+        {
+            return digest;
+        }
+
+        @Override
+        public void close()
+                throws IOException
+        {
+            channel.close();
+        }
+    }
+
+    private static class CachedArtifact
+    {
+        private final File file;
+        private final String digest;
+        private final long length;
+
+        private CachedArtifact(File file, String digest)
+        {
+            this.file = file;
+            this.digest = digest;
+            this.length = file.length();
+        }
+    }
+}
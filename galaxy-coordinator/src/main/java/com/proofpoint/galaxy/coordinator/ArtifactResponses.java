@@ -0,0 +1,170 @@
+package com.proofpoint.galaxy.coordinator;
+
+import com.google.common.base.Splitter;
+import com.google.common.io.Closeables;
+import com.google.common.io.Resources;
+import com.proofpoint.galaxy.coordinator.ArtifactCache.Artifact;
+import com.proofpoint.log.Logger;
+
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Builds the responses of the artifact resources.  Cacheable artifacts are served from the
+ * {@link ArtifactCache} with their content digest as the ETag, and support conditional and
+ * single byte range requests, so an agent can resume an interrupted download.  Other
+ * artifacts are streamed from the repository.
+ */
+final class ArtifactResponses
+{
+    private static final Logger log = Logger.get(ArtifactResponses.class);
+    private static final Pattern BYTE_RANGE_PATTERN = Pattern.compile("bytes=(\\d*)-(\\d*)");
+    private static final int BAD_GATEWAY = 502;
+    private static final int REQUESTED_RANGE_NOT_SATISFIABLE = 416;
+
+    private ArtifactResponses()
+    {
+    }
+
+    public static Response getArtifact(ArtifactCache artifactCache, URI artifactUri, HttpHeaders headers)
+    {
+        if (artifactUri == null) {
+            return Response.status(Status.NOT_FOUND).build();
+        }
+
+        if (!ArtifactCache.isCacheable(artifactUri)) {
+            try {
+                return Response.ok(new InputSupplierStreamingOutput(Resources.newInputStreamSupplier(artifactUri.toURL()))).build();
+            }
+            catch (MalformedURLException e) {
+                return Response.status(Status.NOT_FOUND).build();
+            }
+        }
+
+        Artifact artifact;
+        long length;
+        try {
+            artifact = artifactCache.open(artifactUri);
+            length = artifact.getLength();
+        }
+        catch (FileNotFoundException e) {
+            return Response.status(Status.NOT_FOUND).build();
+        }
+        catch (IOException e) {
+            log.warn(e, "Unable to download artifact %s", artifactUri);
+            return Response.status(BAD_GATEWAY).build();
+        }
+
+        // the artifact is only opened to read its length and digest; the response opens the file
+        // again when it is written, which fails if the artifact was evicted in the meantime, and
+        // the agent then retries the download
+        try {
+            EntityTag entityTag = new EntityTag(artifact.getDigest());
+            if (matchesEntityTag(headers.getRequestHeaders().getFirst(HttpHeaders.IF_NONE_MATCH), artifact.getDigest())) {
+                return Response.notModified(entityTag).build();
+            }
+
+            // a range is ignored when the artifact changed since the client's copy
+            String range = headers.getRequestHeaders().getFirst("Range");
+            String ifRange = headers.getRequestHeaders().getFirst("If-Range");
+            if (range != null && (ifRange == null || matchesEntityTag(ifRange, artifact.getDigest()))) {
+                long[] bounds = parseByteRange(range, length);
+                if (bounds != null && bounds.length == 0) {
+                    return Response.status(REQUESTED_RANGE_NOT_SATISFIABLE)
+                            .header("Content-Range", "bytes */" + length)
+                            .build();
+                }
+                if (bounds != null) {
+                    long count = bounds[1] - bounds[0] + 1;
+                    return Response.status(Status.PARTIAL_CONTENT)
+                            .entity(new FileChannelStreamingOutput(artifact.getFile(), bounds[0], count))
+                            .tag(entityTag)
+                            .header("Accept-Ranges", "bytes")
+                            .header("Content-Range", "bytes " + bounds[0] + "-" + bounds[1] + "/" + length)
+                            .header(HttpHeaders.CONTENT_LENGTH, count)
+                            .build();
+                }
+            }
+
+            return Response.ok(new FileChannelStreamingOutput(artifact.getFile(), 0, length))
+                    .tag(entityTag)
+                    .header("Accept-Ranges", "bytes")
+                    .header(HttpHeaders.CONTENT_LENGTH, length)
+                    .build();
+        }
+        finally {
+            Closeables.closeQuietly(artifact);
+        }
+    }
+
+    /**
+     * Parses a single byte range.  Returns the first and last byte of the range, an empty array
+     * if the range can not be satisfied, or null if the header is not a single byte range and
+     * must be ignored.
+     */
+    static long[] parseByteRange(String range, long length)
+    {
+        Matcher matcher = BYTE_RANGE_PATTERN.matcher(range.trim());
+        if (!matcher.matches()) {
+            return null;
+        }
+        String first = matcher.group(1);
+        String last = matcher.group(2);
+        try {
+            if (first.isEmpty()) {
+                // suffix range: the last n bytes
+                if (last.isEmpty()) {
+                    return null;
+                }
+                long suffixLength = Long.parseLong(last);
+                if (suffixLength == 0 || length == 0) {
+                    return new long[0];
+                }
+                return new long[] {Math.max(0, length - suffixLength), length - 1};
+            }
+
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? Long.MAX_VALUE : Long.parseLong(last);
+            if (end < start) {
+                return null;
+            }
+            if (start >= length) {
+                return new long[0];
+            }
+            return new long[] {start, Math.min(end, length - 1)};
+        }
+        catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    static boolean matchesEntityTag(String header, String digest)
+    {
+        if (header == null) {
+            return false;
+        }
+        for (String value : Splitter.on(',').trimResults().omitEmptyStrings().split(header)) {
+            if (value.equals("*")) {
+                return true;
+            }
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+                value = value.substring(1, value.length() - 1);
+            }
+            if (value.equals(digest)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -45,7 +45,8 @@ public class AwsProvisionerModule
         binder.requireExplicitBindings();
 
         binder.bind(Provisioner.class).to(AwsProvisioner.class).in(Scopes.SINGLETON);
-        binder.bind(StateManager.class).to(SimpleDbStateManager.class).in(Scopes.SINGLETON);
+        binder.bind(StateManager.class).annotatedWith(ForCachingStateManager.class).to(SimpleDbStateManager.class).in(Scopes.SINGLETON);
+        binder.bind(StateManager.class).to(CachingStateManager.class).in(Scopes.SINGLETON);
         binder.bind(AuthorizedKeyStore.class).to(S3AuthorizedKeyStore.class).in(Scopes.SINGLETON);
         ConfigurationModule.bindConfig(binder).to(AwsProvisionerConfig.class);
     }
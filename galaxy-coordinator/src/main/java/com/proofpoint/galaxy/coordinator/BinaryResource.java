@@ -1,6 +1,6 @@
 package com.proofpoint.galaxy.coordinator;
 
-import com.google.common.io.Resources;
+import com.google.common.base.Preconditions;
 import com.proofpoint.galaxy.shared.MavenCoordinates;
 import com.proofpoint.galaxy.shared.Repository;
 
@@ -8,20 +8,24 @@ import javax.inject.Inject;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
-import javax.ws.rs.core.Response.Status;
-import java.net.MalformedURLException;
-import java.net.URL;
 
 @Path("/v1/binary/")
 public class BinaryResource
 {
     private final Repository repository;
+    private final ArtifactCache artifactCache;
 
     @Inject
-    public BinaryResource(Repository repository)
+    public BinaryResource(Repository repository, ArtifactCache artifactCache)
     {
+        Preconditions.checkNotNull(repository, "repository is null");
+        Preconditions.checkNotNull(artifactCache, "artifactCache is null");
+
         this.repository = repository;
+        this.artifactCache = artifactCache;
     }
 
     @GET
@@ -29,9 +33,10 @@ public class BinaryResource
     public Response getBinary(@PathParam("groupId") String groupId,
             @PathParam("artifactId") String artifactId,
             @PathParam("version") String version,
-            @PathParam("packaging") String packaging)
+            @PathParam("packaging") String packaging,
+            @Context HttpHeaders headers)
     {
-        return getBinary(groupId, artifactId, version, packaging, null);
+        return getBinary(groupId, artifactId, version, packaging, null, headers);
     }
 
     @GET
@@ -40,21 +45,10 @@ public class BinaryResource
             @PathParam("artifactId") String artifactId,
             @PathParam("version") String version,
             @PathParam("packaging") String packaging,
-            @PathParam("classifier") String classifier)
+            @PathParam("classifier") String classifier,
+            @Context HttpHeaders headers)
     {
         MavenCoordinates coordinates = new MavenCoordinates(groupId, artifactId, version, packaging, classifier, null);
-
-        URL binaryUrl = null;
-        try {
-            binaryUrl = repository.binaryToHttpUri(coordinates.toGAV()).toURL();
-        }
-        catch (MalformedURLException e) {
-        }
-
-        if (binaryUrl == null) {
-            return Response.status(Status.NOT_FOUND).build();
-        }
-
-        return Response.ok(new InputSupplierStreamingOutput(Resources.newInputStreamSupplier(binaryUrl))).build();
+        return ArtifactResponses.getArtifact(artifactCache, repository.binaryToHttpUri(coordinates.toGAV()), headers);
     }
 }
@@ -0,0 +1,328 @@
+package com.proofpoint.galaxy.coordinator;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import com.proofpoint.galaxy.shared.ExpectedSlotStatus;
+import com.proofpoint.log.Logger;
+import com.proofpoint.units.Duration;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.collect.Maps.newHashMap;
+import static com.google.common.collect.Maps.newLinkedHashMap;
+import static com.google.common.collect.Sets.newLinkedHashSet;
+
+/**
+ * Keeps the expected state in memory.  Changes are written to the delegate in batches
+ * every flush interval, and the full expected state is reloaded from the delegate on
+ * startup and every refresh interval.
+ * <p/>
+ * Changes are acknowledged before they are written, so changes made within a flush interval
+ * of a crash are lost.  With a flush interval of zero every change is written before it is
+ * acknowledged, and a change that can not be written fails.
+ */
+public class CachingStateManager implements StateManager
+{
+    private static final Logger log = Logger.get(CachingStateManager.class);
+
+    // the coordinator must not start with an empty expected state, so startup fails if the state can not be loaded
+    private static final int INITIAL_LOAD_ATTEMPTS = 3;
+    private static final long INITIAL_LOAD_RETRY_MILLIS = 1000;
+
+    private final StateManager delegate;
+    private final Duration refreshInterval;
+    private final Duration flushInterval;
+    private final boolean writeThrough;
+    private final ConcurrentMap<UUID, ExpectedSlotStatus> expectedStates = new ConcurrentHashMap<UUID, ExpectedSlotStatus>();
+    private final ScheduledExecutorService executor;
+
+    // guarded by this
+    private final Map<UUID, ExpectedSlotStatus> pendingWrites = newLinkedHashMap();
+    private final Set<UUID> pendingDeletes = newLinkedHashSet();
+
+    // flushes and refreshes are serialized, so an older batch or load never overwrites a newer one
+    private final Object flushLock = new Object();
+
+    @Inject
+    public CachingStateManager(@ForCachingStateManager StateManager delegate, CoordinatorConfig config)
+    {
+        this(delegate, config.getExpectedStateRefreshInterval(), config.getExpectedStateFlushInterval());
+    }
+
+    public CachingStateManager(StateManager delegate, Duration refreshInterval, Duration flushInterval)
+    {
+        Preconditions.checkNotNull(delegate, "delegate is null");
+        Preconditions.checkNotNull(refreshInterval, "refreshInterval is null");
+        Preconditions.checkNotNull(flushInterval, "flushInterval is null");
+
+        this.delegate = delegate;
+        this.refreshInterval = refreshInterval;
+        this.flushInterval = flushInterval;
+        this.writeThrough = flushInterval.toMillis() == 0;
+
+        executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("expected-state-writer").setDaemon(true).build());
+
+        loadInitialState();
+    }
+
+    @PostConstruct
+    public void start()
+    {
+        if (!writeThrough) {
+            executor.scheduleWithFixedDelay(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try {
+                        flush();
+                    }
+                    catch (Throwable e) {
+                        log.error(e, "Unexpected exception writing expected state");
+                    }
+                }
+            }, (long) flushInterval.toMillis(), (long) flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        executor.scheduleWithFixedDelay(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try {
+                    refresh();
+                }
+                catch (Throwable e) {
+                    log.error(e, "Unexpected exception loading expected state");
+                }
+            }
+        }, (long) refreshInterval.toMillis(), (long) refreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop()
+    {
+        executor.shutdownNow();
+        try {
+            if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                log.warn("Timed out waiting for expected state writer to stop");
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (!flush()) {
+            log.error("Unable to write pending expected state changes on shutdown");
+        }
+    }
+
+    @Override
+    public Collection<ExpectedSlotStatus> getAllExpectedStates()
+    {
+        return ImmutableList.copyOf(expectedStates.values());
+    }
+
+    @Override
+    public void deleteExpectedState(UUID slotId)
+    {
+        Preconditions.checkNotNull(slotId, "slotId is null");
+
+        synchronized (this) {
+            cacheDelete(slotId);
+        }
+        writeThrough();
+    }
+
+    @Override
+    public void setExpectedState(ExpectedSlotStatus slotStatus)
+    {
+        Preconditions.checkNotNull(slotStatus, "slotStatus is null");
+
+        synchronized (this) {
+            cacheWrite(slotStatus);
+        }
+        writeThrough();
+    }
+
+    @Override
+    public void deleteExpectedStates(Collection<UUID> slotIds)
+    {
+        synchronized (this) {
+            for (UUID slotId : slotIds) {
+                cacheDelete(slotId);
+            }
+        }
+        writeThrough();
+    }
+
+    @Override
+    public void setExpectedStates(Collection<ExpectedSlotStatus> slotStatuses)
+    {
+        synchronized (this) {
+            for (ExpectedSlotStatus slotStatus : slotStatuses) {
+                cacheWrite(slotStatus);
+            }
+        }
+        writeThrough();
+    }
+
+    // guarded by this
+    private void cacheDelete(UUID slotId)
+    {
+        expectedStates.remove(slotId);
+        pendingWrites.remove(slotId);
+        pendingDeletes.add(slotId);
+    }
+
+    // guarded by this
+    private void cacheWrite(ExpectedSlotStatus slotStatus)
+    {
+        expectedStates.put(slotStatus.getId(), slotStatus);
+        pendingDeletes.remove(slotStatus.getId());
+        pendingWrites.put(slotStatus.getId(), slotStatus);
+    }
+
+    private void writeThrough()
+    {
+        if (writeThrough && !flush()) {
+            throw new IllegalStateException("Unable to write expected state to the store");
+        }
+    }
+
+    /**
+     * Writes the pending changes to the delegate.  Changes that fail are retried on the
+     * next flush unless they have been replaced by a newer change.
+     *
+     * @return true if all changes were written
+     */
+    @VisibleForTesting
+    boolean flush()
+    {
+        synchronized (flushLock) {
+            Map<UUID, ExpectedSlotStatus> writes;
+            Set<UUID> deletes;
+            synchronized (this) {
+                writes = newHashMap(pendingWrites);
+                deletes = ImmutableSet.copyOf(pendingDeletes);
+                pendingWrites.clear();
+                pendingDeletes.clear();
+            }
+
+            if (!writes.isEmpty()) {
+                try {
+                    delegate.setExpectedStates(writes.values());
+                    writes.clear();
+                }
+                catch (Exception e) {
+                    log.warn(e, "Unable to write %s expected slot states", writes.size());
+                }
+            }
+            if (!deletes.isEmpty()) {
+                try {
+                    delegate.deleteExpectedStates(deletes);
+                    deletes = ImmutableSet.of();
+                }
+                catch (Exception e) {
+                    log.warn(e, "Unable to delete %s expected slot states", deletes.size());
+                }
+            }
+
+            if (writes.isEmpty() && deletes.isEmpty()) {
+                return true;
+            }
+
+            synchronized (this) {
+                for (Entry<UUID, ExpectedSlotStatus> entry : writes.entrySet()) {
+                    if (!pendingWrites.containsKey(entry.getKey()) && !pendingDeletes.contains(entry.getKey())) {
+                        pendingWrites.put(entry.getKey(), entry.getValue());
+                    }
+                }
+                for (UUID slotId : deletes) {
+                    if (!pendingWrites.containsKey(slotId)) {
+                        pendingDeletes.add(slotId);
+                    }
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Replaces the cached state with the state stored in the delegate.  Changes not yet
+     * written to the delegate are kept.
+     * <p/>
+     * No flush can run between loading the stored state and replacing the cached state, so
+     * every change made meanwhile is still pending when the cached state is replaced.
+     * Otherwise a change written after the load would be overwritten with the older value.
+     */
+    @VisibleForTesting
+    void refresh()
+    {
+        synchronized (flushLock) {
+            flush();
+
+            Collection<ExpectedSlotStatus> storedStates;
+            try {
+                storedStates = delegate.getAllExpectedStates();
+            }
+            catch (Exception e) {
+                log.warn(e, "Unable to load expected state; keeping cached state");
+                return;
+            }
+            setStoredStates(storedStates);
+        }
+    }
+
+    private void loadInitialState()
+    {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                setStoredStates(delegate.getAllExpectedStates());
+                return;
+            }
+            catch (Exception e) {
+                if (attempt >= INITIAL_LOAD_ATTEMPTS) {
+                    throw new IllegalStateException("Unable to load expected state", e);
+                }
+                log.warn(e, "Unable to load expected state; retrying");
+            }
+
+            try {
+                Thread.sleep(INITIAL_LOAD_RETRY_MILLIS);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while loading expected state", e);
+            }
+        }
+    }
+
+    private synchronized void setStoredStates(Collection<ExpectedSlotStatus> storedStates)
+    {
+        Map<UUID, ExpectedSlotStatus> newStates = newHashMap();
+        for (ExpectedSlotStatus storedState : storedStates) {
+            newStates.put(storedState.getId(), storedState);
+        }
+        newStates.putAll(pendingWrites);
+        newStates.keySet().removeAll(pendingDeletes);
+
+        expectedStates.keySet().retainAll(newStates.keySet());
+        expectedStates.putAll(newStates);
+    }
+}
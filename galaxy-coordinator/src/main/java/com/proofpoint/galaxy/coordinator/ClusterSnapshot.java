@@ -0,0 +1,140 @@
+package com.proofpoint.galaxy.coordinator;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.proofpoint.galaxy.coordinator.SlotFilterBuilder.SlotQuery;
+import com.proofpoint.galaxy.shared.AgentStatus;
+import com.proofpoint.galaxy.shared.AgentStatusRepresentation.AgentStatusRepresentationFactory;
+import com.proofpoint.galaxy.shared.Repository;
+import com.proofpoint.galaxy.shared.SlotStatus;
+import com.proofpoint.galaxy.shared.SlotStatusRepresentation.SlotStatusRepresentationFactory;
+
+import java.util.List;
+import java.util.UUID;
+
+import static com.proofpoint.galaxy.shared.VersionsUtil.createAgentsVersion;
+import static com.proofpoint.galaxy.shared.VersionsUtil.createSlotsVersion;
+
+/**
+ * An immutable view of the cluster: the agents, the slots merged with their expected
+ * state, and everything derived from them that the REST resources need.  A snapshot is
+ * built once per change and shared by all readers, so a request should fetch a single
+ * snapshot and use it throughout.
+ */
+public class ClusterSnapshot
+{
+    private final long version;
+    private final long expectedStateGeneration;
+    private final List<AgentStatus> agents;
+    private final List<SlotStatus> slots;
+    private final List<UUID> slotIds;
+    private final SlotIndex slotIndex;
+    private final String agentsVersion;
+    private final String slotsVersion;
+    private final SlotStatusRepresentationFactory slotRepresentationFactory;
+    private final AgentStatusRepresentationFactory agentRepresentationFactory;
+
+    public ClusterSnapshot(long version, long expectedStateGeneration, List<AgentStatus> agents, List<SlotStatus> slots, Repository repository)
+    {
+        Preconditions.checkNotNull(agents, "agents is null");
+        Preconditions.checkNotNull(slots, "slots is null");
+        Preconditions.checkNotNull(repository, "repository is null");
+
+        this.version = version;
+        this.expectedStateGeneration = expectedStateGeneration;
+        this.agents = ImmutableList.copyOf(agents);
+        this.slots = ImmutableList.copyOf(slots);
+        this.slotIds = ImmutableList.copyOf(Lists.transform(this.slots, SlotStatus.uuidGetter()));
+        this.slotIndex = new SlotIndex(this.slots);
+        this.agentsVersion = createAgentsVersion(this.agents);
+        this.slotsVersion = createSlotsVersion(this.slots);
+        this.slotRepresentationFactory = new SlotStatusRepresentationFactory(this.slots, repository);
+        this.agentRepresentationFactory = new AgentStatusRepresentationFactory(this.agents, repository);
+    }
+
+    /**
+     * Gets the version of this snapshot.  Versions increase every time the snapshot is rebuilt.
+     */
+    public long getVersion()
+    {
+        return version;
+    }
+
+    long getExpectedStateGeneration()
+    {
+        return expectedStateGeneration;
+    }
+
+    public List<AgentStatus> getAgents()
+    {
+        return agents;
+    }
+
+    public List<AgentStatus> getAgents(Predicate<AgentStatus> agentFilter)
+    {
+        return ImmutableList.copyOf(Iterables.filter(agents, agentFilter));
+    }
+
+    public List<SlotStatus> getSlots()
+    {
+        return slots;
+    }
+
+    /**
+     * Gets the slots matching the filter.  Filters built against the index of this snapshot
+     * are evaluated with index lookups.
+     */
+    public List<SlotStatus> getSlots(Predicate<SlotStatus> slotFilter)
+    {
+        if (slotFilter instanceof SlotQuery) {
+            return ((SlotQuery) slotFilter).select(slotIndex);
+        }
+        return ImmutableList.copyOf(Iterables.filter(slots, slotFilter));
+    }
+
+    public List<UUID> getSlotIds()
+    {
+        return slotIds;
+    }
+
+    public SlotIndex getSlotIndex()
+    {
+        return slotIndex;
+    }
+
+    public String getAgentsVersion()
+    {
+        return agentsVersion;
+    }
+
+    public String getSlotsVersion()
+    {
+        return slotsVersion;
+    }
+
+    public SlotStatusRepresentationFactory getSlotRepresentationFactory()
+    {
+        return slotRepresentationFactory;
+    }
+
+    public AgentStatusRepresentationFactory getAgentRepresentationFactory()
+    {
+        return agentRepresentationFactory;
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("ClusterSnapshot");
+        sb.append("{version=").append(version);
+        sb.append(", agents=").append(agents.size());
+        sb.append(", slots=").append(slots.size());
+        sb.append(", slotsVersion='").append(slotsVersion).append('\'');
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,54 @@
+package com.proofpoint.galaxy.coordinator;
+
+import com.google.common.base.Preconditions;
+import com.proofpoint.galaxy.shared.MavenCoordinates;
+import com.proofpoint.galaxy.shared.Repository;
+
+import javax.inject.Inject;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+
+@Path("/v1/config/")
+public class ConfigResource
+{
+    private final Repository repository;
+    private final ArtifactCache artifactCache;
+
+    @Inject
+    public ConfigResource(Repository repository, ArtifactCache artifactCache)
+    {
+        Preconditions.checkNotNull(repository, "repository is null");
+        Preconditions.checkNotNull(artifactCache, "artifactCache is null");
+
+        this.repository = repository;
+        this.artifactCache = artifactCache;
+    }
+
+    @GET
+    @Path("{groupId}/{artifactId}/{version}/{packaging}")
+    public Response getConfig(@PathParam("groupId") String groupId,
+            @PathParam("artifactId") String artifactId,
+            @PathParam("version") String version,
+            @PathParam("packaging") String packaging,
+            @Context HttpHeaders headers)
+    {
+        return getConfig(groupId, artifactId, version, packaging, null, headers);
+    }
+
+    @GET
+    @Path("{groupId}/{artifactId}/{version}/{packaging}/{classifier}")
+    public Response getConfig(@PathParam("groupId") String groupId,
+            @PathParam("artifactId") String artifactId,
+            @PathParam("version") String version,
+            @PathParam("packaging") String packaging,
+            @PathParam("classifier") String classifier,
+            @Context HttpHeaders headers)
+    {
+        MavenCoordinates coordinates = new MavenCoordinates(groupId, artifactId, version, packaging, classifier, null);
+        return ArtifactResponses.getArtifact(artifactCache, repository.configToHttpUri(MavenCoordinates.toConfigGAV(coordinates)), headers);
+    }
+}
@@ -6,7 +6,7 @@ import com.google.common.base.Joiner;
 import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
-import com.google.common.base.Predicates;
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
@@ -15,18 +15,22 @@ import com.google.common.collect.Sets;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 import com.proofpoint.discovery.client.ServiceDescriptor;
+import com.proofpoint.galaxy.coordinator.auth.AuthConfig;
 import com.proofpoint.galaxy.shared.AgentLifecycleState;
 import com.proofpoint.galaxy.shared.AgentStatus;
 import com.proofpoint.galaxy.shared.Assignment;
 import com.proofpoint.galaxy.shared.CoordinatorLifecycleState;
 import com.proofpoint.galaxy.shared.CoordinatorStatus;
 import com.proofpoint.galaxy.shared.ExpectedSlotStatus;
+import com.proofpoint.galaxy.shared.HttpUriBuilder;
 import com.proofpoint.galaxy.shared.Installation;
 import com.proofpoint.galaxy.shared.InstallationUtils;
+import com.proofpoint.galaxy.shared.MavenCoordinates;
 import com.proofpoint.galaxy.shared.Repository;
 import com.proofpoint.galaxy.shared.SlotLifecycleState;
 import com.proofpoint.galaxy.shared.SlotStatus;
 import com.proofpoint.galaxy.shared.UpgradeVersions;
+import com.proofpoint.http.server.HttpServerInfo;
 import com.proofpoint.log.Logger;
 import com.proofpoint.node.NodeInfo;
 import com.proofpoint.units.Duration;
@@ -41,13 +45,25 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Queue;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.collect.Iterables.concat;
@@ -55,7 +71,9 @@ import static com.google.common.collect.Iterables.filter;
 import static com.google.common.collect.Iterables.transform;
 import static com.google.common.collect.Lists.newArrayList;
 import static com.google.common.collect.Sets.newHashSet;
+import static com.google.common.util.concurrent.MoreExecutors.sameThreadExecutor;
 import static com.proofpoint.galaxy.shared.AgentLifecycleState.ONLINE;
+import static com.proofpoint.galaxy.shared.HttpUriBuilder.uriBuilderFrom;
 import static com.proofpoint.galaxy.shared.SlotLifecycleState.RESTARTING;
 import static com.proofpoint.galaxy.shared.SlotLifecycleState.RUNNING;
 import static com.proofpoint.galaxy.shared.SlotLifecycleState.STOPPED;
@@ -67,6 +85,9 @@ public class Coordinator
 {
     private static final Logger log = Logger.get(Coordinator.class);
 
+    // marks the end of the completed slots handed to a slot operation listener
+    private static final Object WORKERS_DONE = new Object();
+
     private final ConcurrentMap<String, CoordinatorStatus> coordinators = new ConcurrentHashMap<String, CoordinatorStatus>();
     private final ConcurrentMap<String, RemoteAgent> agents = new ConcurrentHashMap<String, RemoteAgent>();
 
@@ -79,8 +100,42 @@ public class Coordinator
     private final ServiceInventory serviceInventory;
     private final StateManager stateManager;
     private final boolean allowDuplicateInstallationsOnAnAgent;
+    private final int maxConcurrentAgentUpdates;
+    private final Duration agentUpdateTimeout;
+    private final int maxSlotOperationParallelism;
+    private final ExecutorService slotOperationExecutor;
+    private final URI artifactProxyUri;
+    private volatile List<ServiceDescriptor> publishedServiceInventory = ImmutableList.of();
+
+    // incremented every time this coordinator changes the expected state
+    private final AtomicLong expectedStateGeneration = new AtomicLong();
+    private volatile ClusterSnapshot snapshot;
 
     @Inject
+    public Coordinator(NodeInfo nodeInfo,
+            HttpServerInfo httpServerInfo,
+            AuthConfig authConfig,
+            CoordinatorConfig config,
+            RemoteAgentFactory remoteAgentFactory,
+            Repository repository,
+            Provisioner provisioner,
+            StateManager stateManager,
+            ServiceInventory serviceInventory)
+    {
+        this(nodeInfo.getEnvironment(),
+                remoteAgentFactory,
+                repository,
+                provisioner,
+                stateManager,
+                serviceInventory,
+                checkNotNull(config, "config is null").getStatusExpiration(),
+                config.getMaxConcurrentAgentUpdates(),
+                config.getAgentUpdateTimeout(),
+                config.getMaxSlotOperationParallelism(),
+                false,
+                getArtifactProxyUri(config, httpServerInfo, authConfig));
+    }
+
     public Coordinator(NodeInfo nodeInfo,
             CoordinatorConfig config,
             RemoteAgentFactory remoteAgentFactory,
@@ -95,6 +150,9 @@ public class Coordinator
                 stateManager,
                 serviceInventory,
                 checkNotNull(config, "config is null").getStatusExpiration(),
+                config.getMaxConcurrentAgentUpdates(),
+                config.getAgentUpdateTimeout(),
+                config.getMaxSlotOperationParallelism(),
                 false);
     }
 
@@ -105,7 +163,40 @@ public class Coordinator
             StateManager stateManager,
             ServiceInventory serviceInventory,
             Duration statusExpiration,
+            int maxConcurrentAgentUpdates,
+            Duration agentUpdateTimeout,
+            int maxSlotOperationParallelism,
             boolean allowDuplicateInstallationsOnAnAgent)
+    {
+        this(environment,
+                remoteAgentFactory,
+                repository,
+                provisioner,
+                stateManager,
+                serviceInventory,
+                statusExpiration,
+                maxConcurrentAgentUpdates,
+                agentUpdateTimeout,
+                maxSlotOperationParallelism,
+                allowDuplicateInstallationsOnAnAgent,
+                null);
+    }
+
+    /**
+     * @param artifactProxyUri base uri of the artifact resources of this coordinator, or null if agents download artifacts from the repository
+     */
+    public Coordinator(String environment,
+            RemoteAgentFactory remoteAgentFactory,
+            Repository repository,
+            Provisioner provisioner,
+            StateManager stateManager,
+            ServiceInventory serviceInventory,
+            Duration statusExpiration,
+            int maxConcurrentAgentUpdates,
+            Duration agentUpdateTimeout,
+            int maxSlotOperationParallelism,
+            boolean allowDuplicateInstallationsOnAnAgent,
+            URI artifactProxyUri)
     {
         Preconditions.checkNotNull(environment, "environment is null");
         Preconditions.checkNotNull(remoteAgentFactory, "remoteAgentFactory is null");
@@ -114,6 +205,9 @@ public class Coordinator
         Preconditions.checkNotNull(stateManager, "stateManager is null");
         Preconditions.checkNotNull(serviceInventory, "serviceInventory is null");
         Preconditions.checkNotNull(statusExpiration, "statusExpiration is null");
+        Preconditions.checkArgument(maxConcurrentAgentUpdates > 0, "maxConcurrentAgentUpdates must be at least 1");
+        Preconditions.checkNotNull(agentUpdateTimeout, "agentUpdateTimeout is null");
+        Preconditions.checkArgument(maxSlotOperationParallelism > 0, "maxSlotOperationParallelism must be at least 1");
 
         this.environment = environment;
         this.remoteAgentFactory = remoteAgentFactory;
@@ -123,8 +217,13 @@ public class Coordinator
         this.serviceInventory = serviceInventory;
         this.statusExpiration = statusExpiration;
         this.allowDuplicateInstallationsOnAnAgent = allowDuplicateInstallationsOnAnAgent;
+        this.maxConcurrentAgentUpdates = maxConcurrentAgentUpdates;
+        this.agentUpdateTimeout = agentUpdateTimeout;
+        this.maxSlotOperationParallelism = maxSlotOperationParallelism;
+        this.artifactProxyUri = artifactProxyUri;
 
         timerService = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("coordinator-agent-monitor").setDaemon(true).build());
+        slotOperationExecutor = Executors.newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat("coordinator-slot-operation-%s").setDaemon(true).build());
 
         updateAllCoordinators();
         updateAllAgents();
@@ -291,9 +390,73 @@ public class Coordinator
         agents.keySet().retainAll(instanceIds);
 
         List<ServiceDescriptor> serviceDescriptors = serviceInventory.getServiceInventory(transform(getAllSlots(), getSlotStatus()));
-        for (RemoteAgent remoteAgent : agents.values()) {
-            remoteAgent.updateStatus();
-            remoteAgent.setServiceInventory(serviceDescriptors);
+
+        // fan the updates out over the http client, but bound the number of requests in flight
+        List<RemoteAgent> remoteAgents = ImmutableList.copyOf(agents.values());
+        Semaphore permits = new Semaphore(maxConcurrentAgentUpdates);
+        CountDownLatch completed = new CountDownLatch(remoteAgents.size());
+        try {
+            for (RemoteAgent remoteAgent : remoteAgents) {
+                permits.acquire();
+                updateAgent(remoteAgent, serviceDescriptors, permits, completed);
+            }
+
+            // each request is bounded by the agent update timeout, so only wait for the stragglers
+            if (completed.await(agentUpdateTimeout.toMillis() * 2, TimeUnit.MILLISECONDS)) {
+                publishedServiceInventory = serviceDescriptors;
+            }
+            else {
+                log.warn("Timed out waiting for %s of %s agents to respond", completed.getCount(), remoteAgents.size());
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // the expected state may have been reloaded from the store, so always rebuild
+        expectedStateChanged();
+        getSnapshot();
+    }
+
+    /**
+     * Gets the service inventory most recently sent to every responding agent.
+     */
+    public List<ServiceDescriptor> getPublishedServiceInventory()
+    {
+        return publishedServiceInventory;
+    }
+
+    private void updateAgent(final RemoteAgent remoteAgent, final List<ServiceDescriptor> serviceDescriptors, final Semaphore permits, final CountDownLatch completed)
+    {
+        final Runnable release = new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                permits.release();
+                completed.countDown();
+            }
+        };
+
+        try {
+            remoteAgent.updateStatus().addListener(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try {
+                        remoteAgent.setServiceInventory(serviceDescriptors).addListener(release, sameThreadExecutor());
+                    }
+                    catch (Throwable e) {
+                        log.error(e, "Unexpected exception updating service inventory of agent %s", remoteAgent.status().getAgentId());
+                        release.run();
+                    }
+                }
+            }, sameThreadExecutor());
+        }
+        catch (Throwable e) {
+            log.error(e, "Unexpected exception updating agent %s", remoteAgent.status().getAgentId());
+            release.run();
         }
     }
 
@@ -349,36 +512,141 @@ public class Coordinator
 
     public List<SlotStatus> install(Predicate<AgentStatus> filter, int limit, Assignment assignment)
     {
-        Installation installation = InstallationUtils.toInstallation(repository, assignment);
+        final Installation installation = toProxyInstallation(InstallationUtils.toInstallation(repository, assignment));
 
-        List<RemoteAgent> targetAgents = selectAgents(filter, installation);
+        List<RemoteAgent> targetAgents = AgentPlacement.rankAgents(selectAgents(filter, installation),
+                transform(agents.values(), getAgentStatus()),
+                installation,
+                repository,
+                limit);
+
+        // install on the best agents in parallel; when an install fails the worker moves on to the next agent in rank order
+        final Queue<RemoteAgent> remainingAgents = new ConcurrentLinkedQueue<RemoteAgent>(targetAgents);
+        final AtomicInteger remainingInstalls = new AtomicInteger(limit);
+        final List<SlotStatus> slots = Collections.synchronizedList(new ArrayList<SlotStatus>());
+        final List<RuntimeException> failures = Collections.synchronizedList(new ArrayList<RuntimeException>());
+        Runnable worker = new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                while (remainingInstalls.getAndDecrement() > 0) {
+                    SlotStatus slotStatus = installOnNextAgent(remainingAgents, installation, failures);
+                    if (slotStatus == null) {
+                        return;
+                    }
+                    slots.add(slotStatus);
+                }
+            }
+        };
 
-        // randomize agents so all processes don't end up on the same node
-        // todo sort agents by number of process already installed on them
-        List<SlotStatus> slots = newArrayList();
-        for (RemoteAgent agent : targetAgents) {
-            if (slots.size() >= limit) {
-                break;
+        int workerCount = Math.min(Math.min(limit, maxSlotOperationParallelism), targetAgents.size());
+        if (workerCount <= 1) {
+            worker.run();
+        }
+        else {
+            List<Future<?>> workers = newArrayList();
+            try {
+                for (int i = 0; i < workerCount; i++) {
+                    workers.add(slotOperationExecutor.submit(worker));
+                }
+                for (Future<?> future : workers) {
+                    future.get();
+                }
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting for installs to complete", e);
             }
+            catch (ExecutionException e) {
+                throw Throwables.propagate(e.getCause());
+            }
+            finally {
+                // workers still running when the caller gives up must not keep installing
+                remainingInstalls.set(0);
+                for (Future<?> future : workers) {
+                    future.cancel(true);
+                }
+            }
+        }
 
-            // install
-            SlotStatus slotStatus = agent.install(installation);
-            stateManager.setExpectedState(new ExpectedSlotStatus(slotStatus.getId(), STOPPED, installation.getAssignment()));
-            slots.add(slotStatus);
+        // running out of agents is not an error, but a failed install is; the slots that were
+        // installed are still recorded in the expected state
+        if (slots.size() < limit && !failures.isEmpty()) {
+            log.warn("Installed %s of %s slots of %s before %s installs failed", slots.size(), limit, installation.getAssignment(), failures.size());
+            throw failures.get(0);
         }
         return ImmutableList.copyOf(slots);
     }
 
+    private SlotStatus installOnNextAgent(Queue<RemoteAgent> remainingAgents, Installation installation, List<RuntimeException> failures)
+    {
+        for (RemoteAgent agent = remainingAgents.poll(); agent != null; agent = remainingAgents.poll()) {
+            try {
+                SlotStatus slotStatus = agent.install(installation);
+                stateManager.setExpectedState(new ExpectedSlotStatus(slotStatus.getId(), STOPPED, installation.getAssignment()));
+                expectedStateChanged();
+                return slotStatus;
+            }
+            catch (RuntimeException e) {
+                log.warn(e, "Unable to install %s on agent %s; trying the next agent", installation.getAssignment(), agent.status().getAgentId());
+                failures.add(e);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Points the installation at the artifact resources of this coordinator, so the agents share
+     * one download of each artifact from the repository.
+     */
+    private Installation toProxyInstallation(Installation installation)
+    {
+        if (artifactProxyUri == null) {
+            return installation;
+        }
+        Assignment assignment = installation.getAssignment();
+        return new Installation(installation.getShortName(),
+                assignment,
+                toProxyUri(installation.getBinaryFile(), "/v1/binary", MavenCoordinates.fromBinaryGAV(assignment.getBinary())),
+                toProxyUri(installation.getConfigFile(), "/v1/config", MavenCoordinates.fromConfigGAV(assignment.getConfig())),
+                installation.getResources());
+    }
+
+    private URI toProxyUri(URI artifactUri, String resourcePath, MavenCoordinates coordinates)
+    {
+        // artifacts the coordinator would not cache are still downloaded from the repository
+        if (artifactUri == null || !ArtifactCache.isCacheable(artifactUri) || coordinates == null || coordinates.getGroupId() == null) {
+            return artifactUri;
+        }
+        HttpUriBuilder uriBuilder = uriBuilderFrom(artifactProxyUri)
+                .replacePath(resourcePath)
+                .appendPath(coordinates.getGroupId())
+                .appendPath(coordinates.getArtifactId())
+                .appendPath(coordinates.getVersion())
+                .appendPath(coordinates.getPackaging());
+        if (coordinates.getClassifier() != null) {
+            uriBuilder.appendPath(coordinates.getClassifier());
+        }
+        return uriBuilder.build();
+    }
+
+    private static URI getArtifactProxyUri(CoordinatorConfig config, HttpServerInfo httpServerInfo, AuthConfig authConfig)
+    {
+        // agents download artifacts with unsigned requests, which are rejected when authentication is enabled
+        if (!config.isArtifactProxyEnabled() || authConfig.isEnabled()) {
+            return null;
+        }
+        return Objects.firstNonNull(httpServerInfo.getHttpUri(), httpServerInfo.getHttpsUri());
+    }
+
     private List<RemoteAgent> selectAgents(Predicate<AgentStatus> filter, Installation installation)
     {
-        // randomize agents so all processes don't end up on the same node
-        // todo sort agents by number of process already installed on them
         List<RemoteAgent> targetAgents = newArrayList();
         List<RemoteAgent> allAgents = newArrayList(filter(this.agents.values(), filterAgentsBy(filter)));
         if (!allowDuplicateInstallationsOnAnAgent) {
             allAgents = newArrayList(filter(this.agents.values(), filterAgentsWithAssignment(installation)));
         }
-        Collections.shuffle(allAgents);
         for (RemoteAgent agent : allAgents) {
             // verify agent state
             AgentStatus status = agent.status();
@@ -398,6 +666,15 @@ public class Coordinator
     }
 
     public List<SlotStatus> upgrade(Predicate<SlotStatus> filter, UpgradeVersions upgradeVersions, String expectedSlotsVersion)
+    {
+        return upgrade(filter, upgradeVersions, expectedSlotsVersion, 1, null);
+    }
+
+    public List<SlotStatus> upgrade(Predicate<SlotStatus> filter,
+            UpgradeVersions upgradeVersions,
+            String expectedSlotsVersion,
+            int parallelism,
+            SlotOperationListener listener)
     {
         // filter the slots
         List<RemoteSlot> filteredSlots = ImmutableList.copyOf(filter(getAllSlots(), filterSlotsBy(filter)));
@@ -430,25 +707,31 @@ public class Coordinator
 
         URI configFile = repository.configToHttpUri(assignment.getConfig());
 
-        final Installation installation = new Installation(
+        final Installation installation = toProxyInstallation(new Installation(
                 repository.configShortName(assignment.getConfig()),
                 assignment,
                 repository.binaryToHttpUri(assignment.getBinary()),
-                configFile, ImmutableMap.<String, Integer>of());
+                configFile, ImmutableMap.<String, Integer>of()));
 
-        return ImmutableList.copyOf(transform(slotsToUpgrade, new Function<RemoteSlot, SlotStatus>()
+        return applyToSlots(slotsToUpgrade, new Function<RemoteSlot, SlotStatus>()
         {
             @Override
             public SlotStatus apply(RemoteSlot slot)
             {
                 SlotStatus slotStatus = slot.assign(installation);
                 stateManager.setExpectedState(new ExpectedSlotStatus(slotStatus.getId(), STOPPED, installation.getAssignment()));
+                expectedStateChanged();
                 return slotStatus;
             }
-        }));
+        }, parallelism, listener);
     }
 
     public List<SlotStatus> terminate(Predicate<SlotStatus> filter, String expectedSlotsVersion)
+    {
+        return terminate(filter, expectedSlotsVersion, 1, null);
+    }
+
+    public List<SlotStatus> terminate(final Predicate<SlotStatus> filter, String expectedSlotsVersion, int parallelism, SlotOperationListener listener)
     {
         Preconditions.checkNotNull(filter, "filter is null");
 
@@ -458,20 +741,34 @@ public class Coordinator
         // verify the state of the system hasn't changed
         checkSlotsVersion(expectedSlotsVersion, transform(filteredSlots, getSlotStatus()));
 
-        ImmutableList.Builder<SlotStatus> builder = ImmutableList.builder();
-        for (RemoteSlot slot : filteredSlots) {
-            if (filter.apply(slot.status())) {
+        return applyToSlots(filteredSlots, new Function<RemoteSlot, SlotStatus>()
+        {
+            @Override
+            public SlotStatus apply(RemoteSlot slot)
+            {
+                if (!filter.apply(slot.status())) {
+                    return null;
+                }
                 SlotStatus slotStatus = slot.terminate();
                 if (slotStatus.getState() == TERMINATED) {
                     stateManager.deleteExpectedState(slotStatus.getId());
+                    expectedStateChanged();
                 }
-                builder.add(slotStatus);
+                return slotStatus;
             }
-        }
-        return builder.build();
+        }, parallelism, listener);
+    }
+
+    public List<SlotStatus> setState(SlotLifecycleState state, Predicate<SlotStatus> filter, String expectedSlotsVersion)
+    {
+        return setState(state, filter, expectedSlotsVersion, 1, null);
     }
 
-    public List<SlotStatus> setState(final SlotLifecycleState state, Predicate<SlotStatus> filter, String expectedSlotsVersion)
+    public List<SlotStatus> setState(final SlotLifecycleState state,
+            Predicate<SlotStatus> filter,
+            String expectedSlotsVersion,
+            int parallelism,
+            SlotOperationListener listener)
     {
         Preconditions.checkArgument(EnumSet.of(RUNNING, RESTARTING, STOPPED).contains(state), "Unsupported lifecycle state: " + state);
 
@@ -481,7 +778,7 @@ public class Coordinator
         // verify the state of the system hasn't changed
         checkSlotsVersion(expectedSlotsVersion, transform(filteredSlots, getSlotStatus()));
 
-        return ImmutableList.copyOf(transform(filteredSlots, new Function<RemoteSlot, SlotStatus>()
+        return applyToSlots(filteredSlots, new Function<RemoteSlot, SlotStatus>()
         {
             @Override
             public SlotStatus apply(RemoteSlot slot)
@@ -505,9 +802,17 @@ public class Coordinator
                         throw new IllegalArgumentException("Unexpected state transition " + state);
                 }
                 stateManager.setExpectedState(new ExpectedSlotStatus(slotStatus.getId(), expectedState, slotStatus.getAssignment()));
+                expectedStateChanged();
                 return slotStatus;
             }
-        }));
+        }, parallelism, listener);
+    }
+
+    public void verifySlotsVersion(Predicate<SlotStatus> filter, String expectedSlotsVersion)
+    {
+        if (expectedSlotsVersion != null) {
+            checkSlotsVersion(expectedSlotsVersion, transform(filter(getAllSlots(), filterSlotsBy(filter)), getSlotStatus()));
+        }
     }
 
     public List<SlotStatus> resetExpectedState(Predicate<SlotStatus> filter, String expectedSlotsVersion)
@@ -524,25 +829,104 @@ public class Coordinator
             public SlotStatus apply(SlotStatus slotStatus)
             {
                 if (slotStatus.getState() != SlotLifecycleState.UNKNOWN) {
-                    stateManager.setExpectedState(new ExpectedSlotStatus(slotStatus.getId(), slotStatus.getState(), slotStatus.getAssignment()));
+                    stateManager.setExpectedState(new ExpectedSlotStatus(slotStatus.getId(), getFinalState(slotStatus.getState()), slotStatus.getAssignment()));
                 }
                 else {
                     stateManager.deleteExpectedState(slotStatus.getId());
                 }
+                expectedStateChanged();
                 return slotStatus;
             }
         }));
     }
 
+    /**
+     * Gets the state a slot in the specified state will settle in.
+     */
+    private static SlotLifecycleState getFinalState(SlotLifecycleState state)
+    {
+        switch (state) {
+            case STARTING:
+            case RESTARTING:
+                return RUNNING;
+            case STOPPING:
+            case INSTALLING:
+                return STOPPED;
+            default:
+                return state;
+        }
+    }
+
     public List<SlotStatus> getAllSlotStatus()
     {
-        return getAllSlotsStatus(Predicates.<SlotStatus>alwaysTrue());
+        return getSnapshot().getSlots();
     }
 
     public List<SlotStatus> getAllSlotsStatus(Predicate<SlotStatus> slotFilter)
     {
-        ImmutableMap<UUID, ExpectedSlotStatus> expectedStates = Maps.uniqueIndex(stateManager.getAllExpectedStates(), ExpectedSlotStatus.uuidGetter());
-        ImmutableMap<UUID, SlotStatus> actualStates = Maps.uniqueIndex(transform(getAllSlots(), getSlotStatus()), SlotStatus.uuidGetter());
+        return getSnapshot().getSlots(slotFilter);
+    }
+
+    /**
+     * Gets the current cluster snapshot.  The snapshot is rebuilt after every agent update
+     * and after this coordinator changes the expected state; otherwise all callers share
+     * the same instance.
+     */
+    public ClusterSnapshot getSnapshot()
+    {
+        ClusterSnapshot current = snapshot;
+        if (current != null && isCurrent(current)) {
+            return current;
+        }
+        return rebuildSnapshot();
+    }
+
+    private synchronized ClusterSnapshot rebuildSnapshot()
+    {
+        // another reader may have rebuilt the snapshot while we waited for the lock
+        ClusterSnapshot current = snapshot;
+        if (current != null && isCurrent(current)) {
+            return current;
+        }
+
+        // read the generation first, so a concurrent change results in another rebuild
+        long generation = expectedStateGeneration.get();
+        List<AgentStatus> agentStatuses = getAgents();
+        List<SlotStatus> slotStatuses = mergeExpectedState(concat(transform(agentStatuses, AgentStatus.slotStatusesGetter())), stateManager.getAllExpectedStates());
+
+        long version = (current == null) ? 1 : current.getVersion() + 1;
+        current = new ClusterSnapshot(version, generation, agentStatuses, slotStatuses, repository);
+        snapshot = current;
+        return current;
+    }
+
+    private boolean isCurrent(ClusterSnapshot snapshot)
+    {
+        if (snapshot.getExpectedStateGeneration() != expectedStateGeneration.get()) {
+            return false;
+        }
+
+        // agents replace their status object on every change, so an identity check is enough
+        List<AgentStatus> agentStatuses = snapshot.getAgents();
+        int index = 0;
+        for (RemoteAgent agent : agents.values()) {
+            if (index >= agentStatuses.size() || agent.status() != agentStatuses.get(index)) {
+                return false;
+            }
+            index++;
+        }
+        return index == agentStatuses.size();
+    }
+
+    private void expectedStateChanged()
+    {
+        expectedStateGeneration.incrementAndGet();
+    }
+
+    private static List<SlotStatus> mergeExpectedState(Iterable<SlotStatus> slotStatuses, Iterable<ExpectedSlotStatus> expectedSlotStatuses)
+    {
+        ImmutableMap<UUID, ExpectedSlotStatus> expectedStates = Maps.uniqueIndex(expectedSlotStatuses, ExpectedSlotStatus.uuidGetter());
+        ImmutableMap<UUID, SlotStatus> actualStates = Maps.uniqueIndex(slotStatuses, SlotStatus.uuidGetter());
 
         ArrayList<SlotStatus> stats = newArrayList();
         for (UUID uuid : Sets.union(actualStates.keySet(), expectedStates.keySet())) {
@@ -576,9 +960,10 @@ public class Coordinator
             else {
                 fullSlotStatus = actualState.changeExpectedState(expectedState.getStatus(), expectedState.getAssignment());
 
-                // add error message if actual state doesn't match expected state
+                // add error message if actual state doesn't match expected state; a slot that is
+                // still changing state is not reported until it settles
                 List<String> messages = newArrayList();
-                if (!Objects.equal(actualState.getState(), expectedState.getStatus())) {
+                if (!actualState.getState().isTransitional() && !Objects.equal(actualState.getState(), expectedState.getStatus())) {
                     messages.add("Expected state to be " + expectedState.getStatus());
                 }
                 if (!Objects.equal(actualState.getAssignment(), expectedState.getAssignment())) {
@@ -594,14 +979,125 @@ public class Coordinator
                     fullSlotStatus = fullSlotStatus.changeStatusMessage(Joiner.on("; ").join(messages));
                 }
             }
-            if (slotFilter.apply(fullSlotStatus)) {
-                stats.add(fullSlotStatus);
-            }
+            stats.add(fullSlotStatus);
         }
 
         return stats;
     }
 
+    /**
+     * Applies the operation to every slot using up to parallelism threads.  Results are
+     * returned in slot order, skipping slots for which the operation returned null.  After
+     * the first failure no new slots are started, and the failure is rethrown once the
+     * operations already in progress finish.  The listener is called on the calling thread,
+     * so a slow listener never holds up the operations.
+     */
+    private List<SlotStatus> applyToSlots(final List<RemoteSlot> slots,
+            final Function<RemoteSlot, SlotStatus> operation,
+            int parallelism,
+            SlotOperationListener listener)
+    {
+        Preconditions.checkArgument(parallelism > 0, "parallelism must be at least 1");
+
+        if (slots.isEmpty()) {
+            return ImmutableList.of();
+        }
+
+        // completed slots waiting for the listener, followed by WORKERS_DONE
+        final BlockingQueue<Object> completed = listener == null ? null : new LinkedBlockingQueue<Object>();
+        final SlotStatus[] results = new SlotStatus[slots.size()];
+        final AtomicInteger nextSlot = new AtomicInteger();
+        final AtomicBoolean failed = new AtomicBoolean();
+        final Runnable worker = new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                for (int index = nextSlot.getAndIncrement(); index < slots.size() && !failed.get(); index = nextSlot.getAndIncrement()) {
+                    SlotStatus slotStatus;
+                    try {
+                        slotStatus = operation.apply(slots.get(index));
+                    }
+                    catch (RuntimeException e) {
+                        failed.set(true);
+                        throw e;
+                    }
+                    results[index] = slotStatus;
+                    if (slotStatus != null && completed != null) {
+                        completed.add(slotStatus);
+                    }
+                }
+            }
+        };
+
+        int workerCount = Math.min(Math.min(parallelism, maxSlotOperationParallelism), slots.size());
+        if (workerCount <= 1 && listener == null) {
+            worker.run();
+        }
+        else {
+            final AtomicInteger runningWorkers = new AtomicInteger(workerCount);
+            List<Future<?>> workers = newArrayList();
+            for (int i = 0; i < workerCount; i++) {
+                workers.add(slotOperationExecutor.submit(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        try {
+                            worker.run();
+                        }
+                        finally {
+                            if (runningWorkers.decrementAndGet() == 0 && completed != null) {
+                                completed.add(WORKERS_DONE);
+                            }
+                        }
+                    }
+                }));
+            }
+
+            if (listener != null) {
+                try {
+                    for (Object slotStatus = completed.take(); slotStatus != WORKERS_DONE; slotStatus = completed.take()) {
+                        listener.slotOperationCompleted((SlotStatus) slotStatus);
+                    }
+                }
+                catch (InterruptedException e) {
+                    failed.set(true);
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted while waiting for slot operations to complete", e);
+                }
+            }
+
+            Throwable failure = null;
+            for (Future<?> future : workers) {
+                try {
+                    future.get();
+                }
+                catch (InterruptedException e) {
+                    failed.set(true);
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted while waiting for slot operations to complete", e);
+                }
+                catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause();
+                    }
+                }
+            }
+            if (failure != null) {
+                throw Throwables.propagate(failure);
+            }
+        }
+
+        ImmutableList.Builder<SlotStatus> builder = ImmutableList.builder();
+        for (SlotStatus slotStatus : results) {
+            if (slotStatus != null) {
+                builder.add(slotStatus);
+            }
+        }
+        return builder.build();
+    }
+
     private Predicate<RemoteSlot> filterSlotsBy(final Predicate<SlotStatus> filter)
     {
         return new Predicate<RemoteSlot>()
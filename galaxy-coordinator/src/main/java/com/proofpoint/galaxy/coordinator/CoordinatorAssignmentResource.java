@@ -13,9 +13,9 @@
  */
 package com.proofpoint.galaxy.coordinator;
 
+import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
-import com.google.common.collect.Lists;
 import com.google.inject.Inject;
 import com.proofpoint.galaxy.shared.Repository;
 import com.proofpoint.galaxy.shared.SlotStatus;
@@ -26,12 +26,12 @@ import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
 import java.util.List;
-import java.util.UUID;
 
 import static com.google.common.collect.Collections2.transform;
 import static com.proofpoint.galaxy.shared.VersionsUtil.GALAXY_SLOTS_VERSION_HEADER;
@@ -57,21 +57,42 @@ public class CoordinatorAssignmentResource
     @POST
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
-    public Response upgrade(UpgradeVersions upgradeVersions,
+    public Response upgrade(final UpgradeVersions upgradeVersions,
+            @QueryParam("parallelism") Integer parallelism,
+            @QueryParam("stream") boolean stream,
             @Context UriInfo uriInfo,
-            @HeaderParam(GALAXY_SLOTS_VERSION_HEADER) String expectedSlotsVersion)
+            @HeaderParam(GALAXY_SLOTS_VERSION_HEADER) final String expectedSlotsVersion)
     {
         Preconditions.checkNotNull(upgradeVersions, "upgradeRepresentation must not be null");
+        if (parallelism != null && parallelism < 1) {
+            return Response.status(Response.Status.BAD_REQUEST).build();
+        }
+        // slots are changed one at a time unless the caller asks for more
+        final int maxParallelism = Objects.firstNonNull(parallelism, 1);
+
+        ClusterSnapshot snapshot = coordinator.getSnapshot();
 
         // build filter
-        List<UUID> uuids = Lists.transform(coordinator.getAllSlotStatus(), SlotStatus.uuidGetter());
-        Predicate<SlotStatus> slotFilter = SlotFilterBuilder.build(uriInfo, true, uuids);
+        final Predicate<SlotStatus> slotFilter = SlotFilterBuilder.build(uriInfo, true, snapshot.getSlotIndex());
+
+        if (stream) {
+            // fail before the response is committed; the slots version of a streamed response is not known up front
+            coordinator.verifySlotsVersion(slotFilter, expectedSlotsVersion);
+            return Response.ok(new SlotOperationStreamingOutput(snapshot.getSlotRepresentationFactory())
+            {
+                @Override
+                protected void execute(SlotOperationListener listener)
+                {
+                    coordinator.upgrade(slotFilter, upgradeVersions, expectedSlotsVersion, maxParallelism, listener);
+                }
+            }).build();
+        }
 
         // upgrade slots
-        List<SlotStatus> results = coordinator.upgrade(slotFilter, upgradeVersions, expectedSlotsVersion);
+        List<SlotStatus> results = coordinator.upgrade(slotFilter, upgradeVersions, expectedSlotsVersion, maxParallelism, null);
 
         // build response
-        return Response.ok(transform(results, fromSlotStatus(coordinator.getAllSlotStatus(), repository)))
+        return Response.ok(transform(results, fromSlotStatus(coordinator.getSnapshot().getSlotRepresentationFactory())))
                 .header(GALAXY_SLOTS_VERSION_HEADER, createSlotsVersion(results))
                 .build();
     }
@@ -20,6 +20,7 @@ import com.proofpoint.configuration.ConfigDescription;
 import com.proofpoint.configuration.LegacyConfig;
 import com.proofpoint.units.Duration;
 
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
@@ -30,6 +31,21 @@ public class CoordinatorConfig
 
     private String galaxyVersion;
     private Duration statusExpiration = new Duration(30, TimeUnit.SECONDS);
+    private int maxConcurrentAgentUpdates = 50;
+    private Duration agentUpdateTimeout = new Duration(10, TimeUnit.SECONDS);
+    private Duration agentStatusWait = new Duration(30, TimeUnit.SECONDS);
+    private int maxSlotOperationParallelism = 20;
+    private Duration deploymentCheckInterval = new Duration(1, TimeUnit.SECONDS);
+    private Duration deploymentBatchTimeout = new Duration(10, TimeUnit.MINUTES);
+    private Duration deploymentRetention = new Duration(1, TimeUnit.DAYS);
+    private Duration expectedStateRefreshInterval = new Duration(5, TimeUnit.MINUTES);
+    private Duration expectedStateFlushInterval = new Duration(1, TimeUnit.SECONDS);
+    private Duration repositoryReleaseCacheTtl = new Duration(1, TimeUnit.HOURS);
+    private Duration repositorySnapshotCacheTtl = new Duration(1, TimeUnit.MINUTES);
+    private Duration repositoryNegativeCacheTtl = new Duration(30, TimeUnit.SECONDS);
+    private boolean artifactProxyEnabled;
+    private String artifactCacheDir = "artifact-cache";
+    private int artifactCacheMaxSizeMb = 4096;
 
     private String agentDefaultConfig;
 
@@ -66,6 +82,215 @@ public class CoordinatorConfig
         return this;
     }
 
+    @Min(1)
+    public int getMaxConcurrentAgentUpdates()
+    {
+        return maxConcurrentAgentUpdates;
+    }
+
+    @Config("coordinator.agent.max-concurrent-updates")
+    @ConfigDescription("Maximum number of agent status requests in flight at once")
+    public CoordinatorConfig setMaxConcurrentAgentUpdates(int maxConcurrentAgentUpdates)
+    {
+        this.maxConcurrentAgentUpdates = maxConcurrentAgentUpdates;
+        return this;
+    }
+
+    @NotNull
+    public Duration getAgentUpdateTimeout()
+    {
+        return agentUpdateTimeout;
+    }
+
+    @Config("coordinator.agent.update-timeout")
+    @ConfigDescription("Maximum time to wait for a single agent to respond to a status request")
+    public CoordinatorConfig setAgentUpdateTimeout(Duration agentUpdateTimeout)
+    {
+        this.agentUpdateTimeout = agentUpdateTimeout;
+        return this;
+    }
+
+    @NotNull
+    public Duration getAgentStatusWait()
+    {
+        return agentStatusWait;
+    }
+
+    @Config("coordinator.agent.status-wait")
+    @ConfigDescription("Maximum time an agent may hold a status request open waiting for a change; 0 disables watching agents. Watched agents are still polled, so an agent that stops responding is marked offline within the status expiration plus the update timeout")
+    public CoordinatorConfig setAgentStatusWait(Duration agentStatusWait)
+    {
+        this.agentStatusWait = agentStatusWait;
+        return this;
+    }
+
+    @Min(1)
+    public int getMaxSlotOperationParallelism()
+    {
+        return maxSlotOperationParallelism;
+    }
+
+    @Config("coordinator.slot-operation.max-parallelism")
+    @ConfigDescription("Maximum number of slots started, stopped, upgraded or terminated at once by a request that sets the parallelism parameter; slots are changed one at a time otherwise")
+    public CoordinatorConfig setMaxSlotOperationParallelism(int maxSlotOperationParallelism)
+    {
+        this.maxSlotOperationParallelism = maxSlotOperationParallelism;
+        return this;
+    }
+
+    @NotNull
+    public Duration getDeploymentCheckInterval()
+    {
+        return deploymentCheckInterval;
+    }
+
+    @Config("coordinator.deployment.check-interval")
+    @ConfigDescription("How often rolling deployments check the health of the current batch")
+    public CoordinatorConfig setDeploymentCheckInterval(Duration deploymentCheckInterval)
+    {
+        this.deploymentCheckInterval = deploymentCheckInterval;
+        return this;
+    }
+
+    @NotNull
+    public Duration getDeploymentBatchTimeout()
+    {
+        return deploymentBatchTimeout;
+    }
+
+    @Config("coordinator.deployment.batch-timeout")
+    @ConfigDescription("Maximum time a rolling deployment batch may take to become healthy before the deployment fails")
+    public CoordinatorConfig setDeploymentBatchTimeout(Duration deploymentBatchTimeout)
+    {
+        this.deploymentBatchTimeout = deploymentBatchTimeout;
+        return this;
+    }
+
+    @NotNull
+    public Duration getDeploymentRetention()
+    {
+        return deploymentRetention;
+    }
+
+    @Config("coordinator.deployment.retention")
+    @ConfigDescription("How long a completed or failed rolling deployment is kept before it is removed")
+    public CoordinatorConfig setDeploymentRetention(Duration deploymentRetention)
+    {
+        this.deploymentRetention = deploymentRetention;
+        return this;
+    }
+
+    @NotNull
+    public Duration getExpectedStateRefreshInterval()
+    {
+        return expectedStateRefreshInterval;
+    }
+
+    @Config("coordinator.expected-state.refresh-interval")
+    @ConfigDescription("How often the cached expected state is reloaded from the expected state store")
+    public CoordinatorConfig setExpectedStateRefreshInterval(Duration expectedStateRefreshInterval)
+    {
+        this.expectedStateRefreshInterval = expectedStateRefreshInterval;
+        return this;
+    }
+
+    @NotNull
+    public Duration getExpectedStateFlushInterval()
+    {
+        return expectedStateFlushInterval;
+    }
+
+    @Config("coordinator.expected-state.flush-interval")
+    @ConfigDescription("How often expected state changes are written to the expected state store in a batch; changes made within this interval of a crash are lost, and 0 writes every change before it is acknowledged")
+    public CoordinatorConfig setExpectedStateFlushInterval(Duration expectedStateFlushInterval)
+    {
+        this.expectedStateFlushInterval = expectedStateFlushInterval;
+        return this;
+    }
+
+    @NotNull
+    public Duration getRepositoryReleaseCacheTtl()
+    {
+        return repositoryReleaseCacheTtl;
+    }
+
+    @Config("coordinator.repository.release-cache-ttl")
+    @ConfigDescription("How long a resolved release artifact is cached before the repository is checked again")
+    public CoordinatorConfig setRepositoryReleaseCacheTtl(Duration repositoryReleaseCacheTtl)
+    {
+        this.repositoryReleaseCacheTtl = repositoryReleaseCacheTtl;
+        return this;
+    }
+
+    @NotNull
+    public Duration getRepositorySnapshotCacheTtl()
+    {
+        return repositorySnapshotCacheTtl;
+    }
+
+    @Config("coordinator.repository.snapshot-cache-ttl")
+    @ConfigDescription("How long a resolved SNAPSHOT artifact is cached before the repository is checked again")
+    public CoordinatorConfig setRepositorySnapshotCacheTtl(Duration repositorySnapshotCacheTtl)
+    {
+        this.repositorySnapshotCacheTtl = repositorySnapshotCacheTtl;
+        return this;
+    }
+
+    @NotNull
+    public Duration getRepositoryNegativeCacheTtl()
+    {
+        return repositoryNegativeCacheTtl;
+    }
+
+    @Config("coordinator.repository.negative-cache-ttl")
+    @ConfigDescription("How long an artifact that could not be found is cached before the repository is checked again")
+    public CoordinatorConfig setRepositoryNegativeCacheTtl(Duration repositoryNegativeCacheTtl)
+    {
+        this.repositoryNegativeCacheTtl = repositoryNegativeCacheTtl;
+        return this;
+    }
+
+    public boolean isArtifactProxyEnabled()
+    {
+        return artifactProxyEnabled;
+    }
+
+    @Config("coordinator.artifact-proxy.enabled")
+    @ConfigDescription("Have agents download binaries and config bundles through this coordinator instead of from the repository")
+    public CoordinatorConfig setArtifactProxyEnabled(boolean artifactProxyEnabled)
+    {
+        this.artifactProxyEnabled = artifactProxyEnabled;
+        return this;
+    }
+
+    @NotNull
+    public String getArtifactCacheDir()
+    {
+        return artifactCacheDir;
+    }
+
+    @Config("coordinator.artifact-cache.dir")
+    @ConfigDescription("Directory where binaries and config bundles served to agents are cached")
+    public CoordinatorConfig setArtifactCacheDir(String artifactCacheDir)
+    {
+        this.artifactCacheDir = artifactCacheDir;
+        return this;
+    }
+
+    @Min(0)
+    public int getArtifactCacheMaxSizeMb()
+    {
+        return artifactCacheMaxSizeMb;
+    }
+
+    @Config("coordinator.artifact-cache.max-size-mb")
+    @ConfigDescription("Maximum size of the artifact cache; the least recently used artifacts are deleted when it is exceeded")
+    public CoordinatorConfig setArtifactCacheMaxSizeMb(int artifactCacheMaxSizeMb)
+    {
+        this.artifactCacheMaxSizeMb = artifactCacheMaxSizeMb;
+        return this;
+    }
+
     @NotNull
     public List<String> getRepositories()
     {
@@ -203,7 +203,7 @@ public class CoordinatorFilterBuilder
         public boolean apply(@Nullable CoordinatorStatus coordinatorStatus)
         {
             return coordinatorStatus != null &&
-                    (predicate.apply(coordinatorStatus.getExternalUri()) || predicate.apply(coordinatorStatus.getInternalUri()));
+                    (predicate.applyHost(coordinatorStatus.getExternalHost()) || predicate.applyHost(coordinatorStatus.getInternalHost()));
         }
     }
 
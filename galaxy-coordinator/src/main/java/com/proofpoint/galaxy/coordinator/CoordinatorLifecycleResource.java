@@ -13,9 +13,9 @@
  */
 package com.proofpoint.galaxy.coordinator;
 
+import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
-import com.google.common.collect.Lists;
 import com.google.inject.Inject;
 import com.proofpoint.galaxy.shared.Repository;
 import com.proofpoint.galaxy.shared.SlotLifecycleState;
@@ -25,15 +25,18 @@ import javax.ws.rs.HeaderParam;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
+import java.util.EnumSet;
 import java.util.List;
-import java.util.UUID;
 
 import static com.google.common.collect.Collections2.transform;
-import static com.proofpoint.galaxy.shared.SlotLifecycleState.UNKNOWN;
+import static com.proofpoint.galaxy.shared.SlotLifecycleState.RESTARTING;
+import static com.proofpoint.galaxy.shared.SlotLifecycleState.RUNNING;
+import static com.proofpoint.galaxy.shared.SlotLifecycleState.STOPPED;
 import static com.proofpoint.galaxy.shared.VersionsUtil.GALAXY_SLOTS_VERSION_HEADER;
 import static com.proofpoint.galaxy.shared.SlotStatusRepresentation.fromSlotStatus;
 import static com.proofpoint.galaxy.shared.VersionsUtil.createSlotsVersion;
@@ -57,25 +60,46 @@ public class CoordinatorLifecycleResource
     @PUT
     @Produces(MediaType.APPLICATION_JSON)
     public Response setState(String newState,
+            @QueryParam("parallelism") Integer parallelism,
+            @QueryParam("stream") boolean stream,
             @Context UriInfo uriInfo,
-            @HeaderParam(GALAXY_SLOTS_VERSION_HEADER) String expectedSlotsVersion)
+            @HeaderParam(GALAXY_SLOTS_VERSION_HEADER) final String expectedSlotsVersion)
     {
         Preconditions.checkNotNull(newState, "newState must not be null");
+        if (parallelism != null && parallelism < 1) {
+            return Response.status(Response.Status.BAD_REQUEST).build();
+        }
+        // slots are changed one at a time unless the caller asks for more
+        final int maxParallelism = Objects.firstNonNull(parallelism, 1);
 
-        SlotLifecycleState state = SlotLifecycleState.lookup(newState);
-        if (state == null || state == UNKNOWN) {
+        final SlotLifecycleState state = SlotLifecycleState.lookup(newState);
+        if (state == null || !EnumSet.of(RUNNING, RESTARTING, STOPPED).contains(state)) {
             return Response.status(Response.Status.BAD_REQUEST).build();
         }
 
+        ClusterSnapshot snapshot = coordinator.getSnapshot();
+
         // build filter
-        List<UUID> uuids = Lists.transform(coordinator.getAllSlotStatus(), SlotStatus.uuidGetter());
-        Predicate<SlotStatus> slotFilter = SlotFilterBuilder.build(uriInfo, true, uuids);
+        final Predicate<SlotStatus> slotFilter = SlotFilterBuilder.build(uriInfo, true, snapshot.getSlotIndex());
+
+        if (stream) {
+            // fail before the response is committed; the slots version of a streamed response is not known up front
+            coordinator.verifySlotsVersion(slotFilter, expectedSlotsVersion);
+            return Response.ok(new SlotOperationStreamingOutput(snapshot.getSlotRepresentationFactory())
+            {
+                @Override
+                protected void execute(SlotOperationListener listener)
+                {
+                    coordinator.setState(state, slotFilter, expectedSlotsVersion, maxParallelism, listener);
+                }
+            }).build();
+        }
 
         // set slot state
-        List<SlotStatus> results = coordinator.setState(state, slotFilter, expectedSlotsVersion);
+        List<SlotStatus> results = coordinator.setState(state, slotFilter, expectedSlotsVersion, maxParallelism, null);
 
         // build response
-        return Response.ok(transform(results, fromSlotStatus(coordinator.getAllSlotStatus(), repository)))
+        return Response.ok(transform(results, fromSlotStatus(coordinator.getSnapshot().getSlotRepresentationFactory())))
                 .header(GALAXY_SLOTS_VERSION_HEADER, createSlotsVersion(results))
                 .build();
      }
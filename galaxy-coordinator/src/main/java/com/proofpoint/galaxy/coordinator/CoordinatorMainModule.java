@@ -28,6 +28,7 @@ import com.proofpoint.galaxy.shared.ExpectedSlotStatus;
 import com.proofpoint.galaxy.shared.InstallationRepresentation;
 import com.proofpoint.galaxy.shared.RepositorySet;
 import com.proofpoint.galaxy.shared.SlotStatusRepresentation;
+import com.proofpoint.galaxy.shared.SmileMessageBodyProvider;
 import com.proofpoint.galaxy.shared.VersionConflictExceptionMapper;
 import com.proofpoint.http.server.TheServlet;
 import com.proofpoint.json.JsonCodecBinder;
@@ -49,16 +50,21 @@ public class CoordinatorMainModule
         binder.bind(CoordinatorAssignmentResource.class).in(Scopes.SINGLETON);
         binder.bind(CoordinatorLifecycleResource.class).in(Scopes.SINGLETON);
         binder.bind(ExpectedStateResource.class).in(Scopes.SINGLETON);
+        binder.bind(RollingDeploymentManager.class).in(Scopes.SINGLETON);
+        binder.bind(RollingDeploymentResource.class).in(Scopes.SINGLETON);
         binder.bind(InvalidSlotFilterExceptionMapper.class).in(Scopes.SINGLETON);
         binder.bind(AdminResource.class).in(Scopes.SINGLETON);
         binder.bind(VersionConflictExceptionMapper.class).in(Scopes.SINGLETON);
+        binder.bind(SmileMessageBodyProvider.class).in(Scopes.SINGLETON);
         binder.bind(RemoteAgentFactory.class).to(HttpRemoteAgentFactory.class).in(Scopes.SINGLETON);
 
         binder.bind(Repository.class).to(RepositorySet.class).in(Scopes.SINGLETON);
         Multibinder.newSetBinder(binder, Repository.class).addBinding().to(MavenRepository.class).in(Scopes.SINGLETON);
         Multibinder.newSetBinder(binder, Repository.class).addBinding().to(HttpRepository.class).in(Scopes.SINGLETON);
 
+        binder.bind(ArtifactCache.class).in(Scopes.SINGLETON);
         binder.bind(BinaryResource.class).in(Scopes.SINGLETON);
+        binder.bind(ConfigResource.class).in(Scopes.SINGLETON);
 
         binder.bind(ServiceInventory.class).to(HttpServiceInventory.class).in(Scopes.SINGLETON);
         binder.bind(ServiceInventoryResource.class).in(Scopes.SINGLETON);
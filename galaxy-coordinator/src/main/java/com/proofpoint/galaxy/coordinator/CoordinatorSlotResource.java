@@ -13,6 +13,7 @@
  */
 package com.proofpoint.galaxy.coordinator;
 
+import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
 import com.google.common.collect.Iterables;
@@ -22,6 +23,8 @@ import com.proofpoint.galaxy.shared.Assignment;
 import com.proofpoint.galaxy.shared.AssignmentRepresentation;
 import com.proofpoint.galaxy.shared.Repository;
 import com.proofpoint.galaxy.shared.SlotStatus;
+import com.proofpoint.galaxy.shared.SlotStatusRepresentation;
+import com.proofpoint.json.JsonCodec;
 
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
@@ -37,10 +40,8 @@ import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
 import java.util.List;
-import java.util.UUID;
 
 import static com.google.common.collect.Lists.transform;
-import static com.proofpoint.galaxy.shared.SlotStatus.uuidGetter;
 import static com.proofpoint.galaxy.shared.SlotStatusRepresentation.fromSlotStatus;
 import static com.proofpoint.galaxy.shared.VersionsUtil.GALAXY_AGENTS_VERSION_HEADER;
 import static com.proofpoint.galaxy.shared.VersionsUtil.GALAXY_SLOTS_VERSION_HEADER;
@@ -52,6 +53,8 @@ public class CoordinatorSlotResource
 {
     public static final int MIN_PREFIX_SIZE = 4;
 
+    private static final JsonCodec<SlotStatusRepresentation> SLOT_STATUS_CODEC = JsonCodec.jsonCodec(SlotStatusRepresentation.class);
+
     private final Coordinator coordinator;
     private final Repository repository;
 
@@ -69,15 +72,16 @@ public class CoordinatorSlotResource
     @Produces(MediaType.APPLICATION_JSON)
     public Response getAllSlots(@Context UriInfo uriInfo)
     {
+        ClusterSnapshot snapshot = coordinator.getSnapshot();
+
         // build filter
-        List<UUID> uuids = transform(coordinator.getAllSlotStatus(), uuidGetter());
-        Predicate<SlotStatus> slotFilter = SlotFilterBuilder.build(uriInfo, false, uuids);
+        Predicate<SlotStatus> slotFilter = SlotFilterBuilder.build(uriInfo, false, snapshot.getSlotIndex());
 
         // select slots
-        List<SlotStatus> slots = coordinator.getAllSlotsStatus(slotFilter);
+        List<SlotStatus> slots = snapshot.getSlots(slotFilter);
 
-        // build response
-        return Response.ok(Iterables.transform(slots, fromSlotStatus(coordinator.getAllSlotStatus(), repository)))
+        // build response; representations are created as they are written
+        return Response.ok(new JsonArrayStreamingOutput<SlotStatusRepresentation>(SLOT_STATUS_CODEC, Iterables.transform(slots, fromSlotStatus(snapshot.getSlotRepresentationFactory()))))
                 .header(GALAXY_SLOTS_VERSION_HEADER, createSlotsVersion(slots))
                 .build();
     }
@@ -97,11 +101,12 @@ public class CoordinatorSlotResource
         Assignment assignment = assignmentRepresentation.toAssignment();
 
         // select the target agents
+        ClusterSnapshot snapshot = coordinator.getSnapshot();
         Predicate<AgentStatus> agentFilter = AgentFilterBuilder.build(uriInfo,
-                transform(coordinator.getAllSlotStatus(), uuidGetter()),
+                snapshot.getSlotIds(),
                 false,
                 repository);
-        List<AgentStatus> agents = coordinator.getAgents(agentFilter);
+        List<AgentStatus> agents = snapshot.getAgents(agentFilter);
 
         // verify the expected status of agents
         checkAgentsVersion(expectedAgentsVersion, agents);
@@ -110,25 +115,47 @@ public class CoordinatorSlotResource
         List<SlotStatus> slots = coordinator.install(agentFilter, limit, assignment);
 
         // calculate unique prefix size with the new slots included
-        return Response.ok(transform(slots, fromSlotStatus(coordinator.getAllSlotStatus(), repository)))
+        return Response.ok(transform(slots, fromSlotStatus(coordinator.getSnapshot().getSlotRepresentationFactory())))
                 .header(GALAXY_SLOTS_VERSION_HEADER, createSlotsVersion(slots))
                 .build();
     }
 
     @DELETE
     @Produces(MediaType.APPLICATION_JSON)
-    public Response terminateSlots(@Context UriInfo uriInfo,
-            @HeaderParam(GALAXY_SLOTS_VERSION_HEADER) String expectedSlotsVersion)
+    public Response terminateSlots(@QueryParam("parallelism") Integer parallelism,
+            @QueryParam("stream") boolean stream,
+            @Context UriInfo uriInfo,
+            @HeaderParam(GALAXY_SLOTS_VERSION_HEADER) final String expectedSlotsVersion)
     {
+        if (parallelism != null && parallelism < 1) {
+            return Response.status(Response.Status.BAD_REQUEST).build();
+        }
+        // slots are changed one at a time unless the caller asks for more
+        final int maxParallelism = Objects.firstNonNull(parallelism, 1);
+
+        ClusterSnapshot snapshot = coordinator.getSnapshot();
+
         // build filter
-        List<UUID> uuids = transform(coordinator.getAllSlotStatus(), uuidGetter());
-        Predicate<SlotStatus> slotFilter = SlotFilterBuilder.build(uriInfo, true, uuids);
+        final Predicate<SlotStatus> slotFilter = SlotFilterBuilder.build(uriInfo, true, snapshot.getSlotIndex());
+
+        if (stream) {
+            // fail before the response is committed; the slots version of a streamed response is not known up front
+            coordinator.verifySlotsVersion(slotFilter, expectedSlotsVersion);
+            return Response.ok(new SlotOperationStreamingOutput(snapshot.getSlotRepresentationFactory())
+            {
+                @Override
+                protected void execute(SlotOperationListener listener)
+                {
+                    coordinator.terminate(slotFilter, expectedSlotsVersion, maxParallelism, listener);
+                }
+            }).build();
+        }
 
         // terminate slots
-        List<SlotStatus> result = coordinator.terminate(slotFilter, expectedSlotsVersion);
+        List<SlotStatus> result = coordinator.terminate(slotFilter, expectedSlotsVersion, maxParallelism, null);
 
         // build response
-        return Response.ok(transform(result, fromSlotStatus(coordinator.getAllSlotStatus(), repository)))
+        return Response.ok(transform(result, fromSlotStatus(coordinator.getSnapshot().getSlotRepresentationFactory())))
                 .header(GALAXY_SLOTS_VERSION_HEADER, createSlotsVersion(result))
                 .build();
     }
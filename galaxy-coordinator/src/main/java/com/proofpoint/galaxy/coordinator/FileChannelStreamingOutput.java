@@ -0,0 +1,60 @@
+package com.proofpoint.galaxy.coordinator;
+
+import com.google.common.base.Preconditions;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Writes a region of a file with {@link FileChannel#transferTo}, which lets the operating
+ * system copy the file without passing it through a Java buffer when the output allows it.
+ * The file is only opened while it is written, so a response that is never written, such as
+ * the response to a HEAD request, does not hold a file descriptor.
+ */
+class FileChannelStreamingOutput implements StreamingOutput
+{
+    private final File file;
+    private final long position;
+    private final long count;
+
+    public FileChannelStreamingOutput(File file, long position, long count)
+    {
+        Preconditions.checkNotNull(file, "file is null");
+        Preconditions.checkArgument(position >= 0, "position is negative");
+        Preconditions.checkArgument(count >= 0, "count is negative");
+
+        this.file = file;
+        this.position = position;
+        this.count = count;
+    }
+
+    public void write(OutputStream output)
+            throws IOException, WebApplicationException
+    {
+        FileChannel channel = new RandomAccessFile(file, "r").getChannel();
+        try {
+            // the output stream is owned by the container, so the wrapping channel is not closed
+            WritableByteChannel target = Channels.newChannel(output);
+            long written = 0;
+            while (written < count) {
+                long transferred = channel.transferTo(position + written, count - written, target);
+                if (transferred <= 0) {
+                    throw new EOFException("File ended before " + count + " bytes were written");
+                }
+                written += transferred;
+            }
+            output.flush();
+        }
+        finally {
+            channel.close();
+        }
+    }
+}
@@ -76,4 +76,20 @@ public class FileStateManager implements StateManager
             log.error(e, "Error writing expected slot status");
         }
     }
+
+    @Override
+    public void deleteExpectedStates(Collection<UUID> slotIds)
+    {
+        for (UUID slotId : slotIds) {
+            deleteExpectedState(slotId);
+        }
+    }
+
+    @Override
+    public void setExpectedStates(Collection<ExpectedSlotStatus> slotStatuses)
+    {
+        for (ExpectedSlotStatus slotStatus : slotStatuses) {
+            setExpectedState(slotStatus);
+        }
+    }
 }
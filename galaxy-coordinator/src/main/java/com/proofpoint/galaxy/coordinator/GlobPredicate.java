@@ -1,15 +1,33 @@
 package com.proofpoint.galaxy.coordinator;
 
+import com.google.common.base.Predicate;
+
+import javax.annotation.Nullable;
 import java.util.regex.Pattern;
 
-public class GlobPredicate extends RegexPredicate
+public class GlobPredicate implements Predicate<CharSequence>
 {
+    private static final MatcherCache<Predicate<CharSequence>> GLOB_CACHE = new MatcherCache<Predicate<CharSequence>>(1000)
+    {
+        @Override
+        protected Predicate<CharSequence> compile(String glob)
+        {
+            return compileGlob(glob);
+        }
+    };
+
     private final String glob;
+    private final Predicate<CharSequence> matcher;
 
     public GlobPredicate(String glob)
     {
-        super(globToPattern(glob));
         this.glob = glob;
+        this.matcher = GLOB_CACHE.get(glob.trim());
+    }
+
+    public boolean apply(@Nullable CharSequence input)
+    {
+        return input != null && matcher.apply(input);
     }
 
     @Override
@@ -18,6 +36,37 @@ public class GlobPredicate extends RegexPredicate
         return glob;
     }
 
+    /**
+     * Compiles the glob into a matcher.  Globs that are a literal with an optional leading
+     * and trailing <code>*</code> are matched with simple string operations; all others are
+     * converted to a regular expression.
+     */
+    static Predicate<CharSequence> compileGlob(String glob)
+    {
+        glob = glob.trim();
+
+        boolean anyPrefix = glob.startsWith("*");
+        String literal = anyPrefix ? glob.substring(1) : glob;
+        boolean anySuffix = literal.endsWith("*");
+        if (anySuffix) {
+            literal = literal.substring(0, literal.length() - 1);
+        }
+
+        for (int i = 0; i < literal.length(); i++) {
+            switch (literal.charAt(i)) {
+                case '*':
+                case '?':
+                case '\\':
+                case '{':
+                case '}':
+                case '[':
+                case ']':
+                    return new RegexPredicate(globToPattern(glob));
+            }
+        }
+        return new LiteralGlobMatcher(literal, anyPrefix, anySuffix);
+    }
+
     public static Pattern globToPattern(String glob)
     {
         glob = glob.trim();
@@ -106,4 +155,39 @@ public class GlobPredicate extends RegexPredicate
         }
         return Pattern.compile(regex.toString());
     }
+
+    private static class LiteralGlobMatcher implements Predicate<CharSequence>
+    {
+        private final String literal;
+        private final boolean anyPrefix;
+        private final boolean anySuffix;
+
+        private LiteralGlobMatcher(String literal, boolean anyPrefix, boolean anySuffix)
+        {
+            this.literal = literal;
+            this.anyPrefix = anyPrefix;
+            this.anySuffix = anySuffix;
+        }
+
+        public boolean apply(CharSequence input)
+        {
+            String value = input.toString();
+            if (anyPrefix && anySuffix) {
+                return value.contains(literal);
+            }
+            if (anyPrefix) {
+                return value.endsWith(literal);
+            }
+            if (anySuffix) {
+                return value.startsWith(literal);
+            }
+            return value.equals(literal);
+        }
+
+        @Override
+        public String toString()
+        {
+            return (anyPrefix ? "*" : "") + literal + (anySuffix ? "*" : "");
+        }
+    }
 }
@@ -1,14 +1,21 @@
 package com.proofpoint.galaxy.coordinator;
 
 import com.google.common.base.Function;
+import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.ning.http.client.AsyncCompletionHandler;
 import com.ning.http.client.AsyncHttpClient;
+import com.ning.http.client.AsyncHttpClient.BoundRequestBuilder;
+import com.ning.http.client.PerRequestConfig;
 import com.ning.http.client.Response;
 import com.proofpoint.discovery.client.ServiceDescriptor;
 import com.proofpoint.discovery.client.ServiceDescriptorsRepresentation;
+import com.proofpoint.galaxy.coordinator.ServiceInventoryEncoder.EncodedServiceInventory;
 import com.proofpoint.galaxy.shared.AgentStatus;
 import com.proofpoint.galaxy.shared.AgentStatusRepresentation;
 import com.proofpoint.galaxy.shared.Installation;
@@ -16,55 +23,104 @@ import com.proofpoint.galaxy.shared.InstallationRepresentation;
 import com.proofpoint.galaxy.shared.SlotLifecycleState;
 import com.proofpoint.galaxy.shared.SlotStatus;
 import com.proofpoint.galaxy.shared.SlotStatusRepresentation;
+import com.proofpoint.galaxy.shared.SmileCodec;
 import com.proofpoint.json.JsonCodec;
 import com.proofpoint.log.Logger;
+import com.proofpoint.units.Duration;
 
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response.Status;
 import java.net.URI;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static com.proofpoint.galaxy.shared.AgentLifecycleState.OFFLINE;
 import static com.proofpoint.galaxy.shared.AgentLifecycleState.ONLINE;
 import static com.proofpoint.galaxy.shared.AgentLifecycleState.PROVISIONING;
+import static com.proofpoint.galaxy.shared.SmileCodec.APPLICATION_SMILE;
+import static com.proofpoint.galaxy.shared.SmileCodec.isSmile;
+import static com.proofpoint.galaxy.shared.SmileCodec.smileCodec;
 import static com.proofpoint.galaxy.shared.VersionsUtil.GALAXY_AGENT_VERSION_HEADER;
+import static com.proofpoint.galaxy.shared.VersionsUtil.GALAXY_SERVICE_INVENTORY_VERSION_HEADER;
 
 public class HttpRemoteAgent implements RemoteAgent
 {
     private static final Logger log = Logger.get(HttpRemoteAgent.class);
 
+    // resend an unchanged service inventory now and then in case the agent restarted and lost it
+    private static final long SERVICE_INVENTORY_RESEND_NANOS = TimeUnit.MINUTES.toNanos(5);
+
+    // agents that do not support Smile ignore the preference and answer with JSON
+    private static final String STATUS_ACCEPT = APPLICATION_SMILE + ", " + MediaType.APPLICATION_JSON + ";q=0.5";
+    private static final SmileCodec<AgentStatusRepresentation> AGENT_STATUS_SMILE_CODEC = smileCodec(AgentStatusRepresentation.class);
+
     private final JsonCodec<InstallationRepresentation> installationCodec;
     private final JsonCodec<AgentStatusRepresentation> agentStatusCodec;
     private final JsonCodec<SlotStatusRepresentation> slotStatusCodec;
-    private final JsonCodec<ServiceDescriptorsRepresentation> serviceDescriptorsCodec;
+    private final ServiceInventoryEncoder serviceInventoryEncoder;
 
-    private AgentStatus agentStatus;
-    private String environment;
+    // read without locking; every change is a read-modify-write, so changes are guarded by this
+    private volatile AgentStatus agentStatus;
     private final AsyncHttpClient httpClient;
+    private final PerRequestConfig requestConfig;
+    private final PerRequestConfig watchRequestConfig;
+    private final long statusWaitMillis;
+    private final long watchLease;
+
+    private final AtomicBoolean watching = new AtomicBoolean();
+    private volatile long watchExpiration = System.nanoTime();
 
     private final AtomicBoolean serviceInventoryUp = new AtomicBoolean(true);
+    private volatile String agentServiceInventoryVersion;
+    private volatile long serviceInventorySent;
+    private volatile boolean agentAcceptsSmile;
 
     public HttpRemoteAgent(AgentStatus agentStatus,
             String environment,
             AsyncHttpClient httpClient,
+            Duration updateTimeout,
+            Duration statusWait,
             JsonCodec<InstallationRepresentation> installationCodec,
             JsonCodec<AgentStatusRepresentation> agentStatusCodec,
             JsonCodec<SlotStatusRepresentation> slotStatusCodec,
             JsonCodec<ServiceDescriptorsRepresentation> serviceDescriptorsCodec)
+    {
+        this(agentStatus,
+                httpClient,
+                updateTimeout,
+                statusWait,
+                installationCodec,
+                agentStatusCodec,
+                slotStatusCodec,
+                new ServiceInventoryEncoder(environment, serviceDescriptorsCodec));
+    }
+
+    HttpRemoteAgent(AgentStatus agentStatus,
+            AsyncHttpClient httpClient,
+            Duration updateTimeout,
+            Duration statusWait,
+            JsonCodec<InstallationRepresentation> installationCodec,
+            JsonCodec<AgentStatusRepresentation> agentStatusCodec,
+            JsonCodec<SlotStatusRepresentation> slotStatusCodec,
+            ServiceInventoryEncoder serviceInventoryEncoder)
     {
         Preconditions.checkNotNull(agentStatus, "agentStatus is null");
-        Preconditions.checkNotNull(environment, "environment is null");
         Preconditions.checkNotNull(httpClient, "httpClient is null");
+        Preconditions.checkNotNull(updateTimeout, "updateTimeout is null");
+        Preconditions.checkNotNull(statusWait, "statusWait is null");
 
         this.agentStatus = agentStatus;
-        this.environment = environment;
         this.httpClient = httpClient;
+        this.requestConfig = new PerRequestConfig(null, (int) updateTimeout.toMillis());
+        this.statusWaitMillis = (long) statusWait.toMillis();
+        this.watchRequestConfig = new PerRequestConfig(null, (int) (statusWaitMillis + updateTimeout.toMillis()));
+        this.watchLease = TimeUnit.MILLISECONDS.toNanos(3 * statusWaitMillis);
         this.installationCodec = installationCodec;
         this.agentStatusCodec = agentStatusCodec;
         this.slotStatusCodec = slotStatusCodec;
-        this.serviceDescriptorsCodec = serviceDescriptorsCodec;
+        this.serviceInventoryEncoder = serviceInventoryEncoder;
     }
 
     @Override
@@ -74,7 +130,7 @@ public class HttpRemoteAgent implements RemoteAgent
     }
 
     @Override
-    public void setInternalUri(URI internalUri)
+    public synchronized void setInternalUri(URI internalUri)
     {
         agentStatus = agentStatus.changeInternalUri(internalUri);
     }
@@ -93,71 +149,210 @@ public class HttpRemoteAgent implements RemoteAgent
     }
 
     @Override
-    public void setServiceInventory(List<ServiceDescriptor> serviceInventory)
-    {
-        if (agentStatus.getState() == ONLINE) {
-            Preconditions.checkNotNull(serviceInventory, "serviceInventory is null");
-            URI internalUri = agentStatus.getInternalUri();
-            try {
-                httpClient.preparePut(internalUri + "/v1/serviceInventory")
-                        .setHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON)
-                        .setBody(serviceDescriptorsCodec.toJson(new ServiceDescriptorsRepresentation(environment, serviceInventory)))
-                        .execute()
-                        .get();
-
-                if (serviceInventoryUp.compareAndSet(false, true)) {
-                    log.info("Service inventory put succeeded for agent at %s", internalUri);
-                }
+    public ListenableFuture<?> setServiceInventory(List<ServiceDescriptor> serviceInventory)
+    {
+        final SettableFuture<Void> future = SettableFuture.create();
+        if (agentStatus.getState() != ONLINE) {
+            future.set(null);
+            return future;
+        }
+
+        Preconditions.checkNotNull(serviceInventory, "serviceInventory is null");
+        final EncodedServiceInventory encoded = serviceInventoryEncoder.encode(serviceInventory);
+        if (encoded.getVersion().equals(agentServiceInventoryVersion) && System.nanoTime() - serviceInventorySent < SERVICE_INVENTORY_RESEND_NANOS) {
+            // the agent already has this inventory
+            future.set(null);
+            return future;
+        }
+
+        final URI internalUri = agentStatus.getInternalUri();
+        try {
+            BoundRequestBuilder request = httpClient.preparePut(internalUri + "/v1/serviceInventory")
+                    .setPerRequestConfig(requestConfig)
+                    .setHeader(GALAXY_SERVICE_INVENTORY_VERSION_HEADER, encoded.getVersion());
+            if (agentAcceptsSmile) {
+                request.setHeader(HttpHeaders.CONTENT_TYPE, APPLICATION_SMILE).setBody(encoded.getSmile());
             }
-            catch (Exception e) {
-                if (serviceInventoryUp.compareAndSet(true, false) && !log.isDebugEnabled()) {
-                    log.error("Unable to post service inventory to agent at %s: %s", internalUri, e.getMessage());
-                }
-                log.debug(e, "Unable to post service inventory to agent at %s: %s", internalUri, e.getMessage());
+            else {
+                request.setHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON).setBody(encoded.getJson());
             }
+            request.execute(new AsyncCompletionHandler<Void>()
+            {
+                @Override
+                public Void onCompleted(Response response)
+                {
+                    if (response.getStatusCode() / 100 == 2) {
+                        agentServiceInventoryVersion = encoded.getVersion();
+                        serviceInventorySent = System.nanoTime();
+                    }
+                    if (serviceInventoryUp.compareAndSet(false, true)) {
+                        log.info("Service inventory put succeeded for agent at %s", internalUri);
+                    }
+                    future.set(null);
+                    return null;
+                }
+
+                @Override
+                public void onThrowable(Throwable t)
+                {
+                    serviceInventoryFailed(internalUri, t);
+                    future.set(null);
+                }
+            });
+        }
+        catch (Exception e) {
+            serviceInventoryFailed(internalUri, e);
+            future.set(null);
         }
+        return future;
+    }
+
+    private void serviceInventoryFailed(URI internalUri, Throwable e)
+    {
+        if (serviceInventoryUp.compareAndSet(true, false) && !log.isDebugEnabled()) {
+            log.error("Unable to post service inventory to agent at %s: %s", internalUri, e.getMessage());
+        }
+        log.debug(e, "Unable to post service inventory to agent at %s: %s", internalUri, e.getMessage());
     }
 
     @Override
-    public void updateStatus()
+    public ListenableFuture<?> updateStatus()
     {
-        URI internalUri = agentStatus.getInternalUri();
-        if (internalUri != null) {
-            try {
-                String uri = internalUri.toString();
-                if (!uri.endsWith("/")) {
-                    uri += "/";
-                }
-                uri += "v1/agent";
-                Response response = httpClient.prepareGet(uri)
-                        .execute()
-                        .get();
-
-                if (response.getStatusCode() == Status.OK.getStatusCode()) {
-                    String responseJson = response.getResponseBody();
-                    AgentStatusRepresentation agentStatusRepresentation = agentStatusCodec.fromJson(responseJson);
-                    agentStatus = agentStatusRepresentation.toAgentStatus(agentStatus.getInstanceId(), agentStatus.getInstanceType());
-                    return;
-                }
-            }
-            catch (Exception ignored) {
+        // extend the watch lease; the watch stops on its own once the coordinator loses interest in this agent
+        watchExpiration = System.nanoTime() + watchLease;
+
+        // while a watch is outstanding the agent sends every change as it happens, but a dead agent
+        // is only noticed when the watch times out, so the agent is still polled; an unchanged
+        // agent answers the conditional request with an empty Not Modified response
+        SettableFuture<AgentStatus> future = SettableFuture.create();
+        requestStatus(future, false);
+        return future;
+    }
+
+    private void watchStatus()
+    {
+        if (statusWaitMillis > 0 && System.nanoTime() - watchExpiration < 0) {
+            if (watching.compareAndSet(false, true)) {
+                requestStatus(SettableFuture.<AgentStatus>create(), true);
             }
         }
+    }
+
+    private void requestStatus(final SettableFuture<AgentStatus> future, final boolean watch)
+    {
+        URI internalUri = agentStatus.getInternalUri();
+        if (internalUri == null) {
+            statusRequestFailed(future, watch);
+            return;
+        }
+
+        String uri = internalUri.toString();
+        if (!uri.endsWith("/")) {
+            uri += "/";
+        }
+        uri += "v1/agent";
+        if (watch) {
+            uri += "?maxWait=" + statusWaitMillis + "ms";
+        }
+
+        try {
+            httpClient.prepareGet(uri)
+                    .setPerRequestConfig(watch ? watchRequestConfig : requestConfig)
+                    .setHeader(HttpHeaders.IF_NONE_MATCH, "\"" + agentStatus.getVersion() + "\"")
+                    .setHeader(HttpHeaders.ACCEPT, STATUS_ACCEPT)
+                    .execute(new AsyncCompletionHandler<Void>()
+                    {
+                        @Override
+                        public Void onCompleted(Response response)
+                        {
+                            boolean watchSupported;
+                            try {
+                                if (response.getStatusCode() == Status.OK.getStatusCode()) {
+                                    // an agent that answers in Smile also accepts the service inventory in Smile
+                                    AgentStatusRepresentation agentStatusRepresentation;
+                                    if (isSmile(response.getContentType())) {
+                                        agentStatusRepresentation = AGENT_STATUS_SMILE_CODEC.fromSmile(response.getResponseBodyAsBytes());
+                                        agentAcceptsSmile = true;
+                                    }
+                                    else {
+                                        agentStatusRepresentation = agentStatusCodec.fromJson(response.getResponseBody());
+                                        agentAcceptsSmile = false;
+                                    }
+                                    setPolledStatus(agentStatusRepresentation);
+
+                                    // older agents do not support conditional requests and would turn a watch into a busy loop
+                                    watchSupported = response.getHeader(HttpHeaders.ETAG) != null;
+                                }
+                                else if (response.getStatusCode() == Status.NOT_MODIFIED.getStatusCode()) {
+                                    watchSupported = true;
+                                }
+                                else {
+                                    markAgentOffline();
+                                    watchSupported = false;
+                                }
+                            }
+                            catch (Exception e) {
+                                markAgentOffline();
+                                watchSupported = false;
+                            }
+                            future.set(agentStatus);
 
+                            if (watch) {
+                                watching.set(false);
+                            }
+                            if (watchSupported) {
+                                watchStatus();
+                            }
+                            return null;
+                        }
+
+                        @Override
+                        public void onThrowable(Throwable t)
+                        {
+                            statusRequestFailed(future, watch);
+                        }
+                    });
+        }
+        catch (Exception e) {
+            statusRequestFailed(future, watch);
+        }
+    }
+
+    private void statusRequestFailed(SettableFuture<AgentStatus> future, boolean watch)
+    {
+        markAgentOffline();
+        future.set(agentStatus);
+        if (watch) {
+            watching.set(false);
+        }
+    }
+
+    private synchronized void setPolledStatus(AgentStatusRepresentation agentStatusRepresentation)
+    {
+        AgentStatus newAgentStatus = agentStatusRepresentation.toAgentStatus(agentStatus.getInstanceId(), agentStatus.getInstanceType(), agentStatus);
+        if (!Objects.equal(newAgentStatus.getAgentId(), agentStatus.getAgentId())) {
+            // a different agent answered, so it does not have the service inventory
+            agentServiceInventoryVersion = null;
+        }
+        agentStatus = newAgentStatus;
+    }
+
+    private synchronized void markAgentOffline()
+    {
         // error talking to agent -- mark agent offline
+        agentServiceInventoryVersion = null;
         if (agentStatus.getState() != PROVISIONING) {
-            agentStatus = agentStatus.changeState(OFFLINE);
-            agentStatus = agentStatus.changeAllSlotsState(SlotLifecycleState.UNKNOWN);
+            agentStatus = agentStatus.changeState(OFFLINE).changeAllSlotsState(SlotLifecycleState.UNKNOWN);
         }
     }
 
-    public void setStatus(AgentStatus agentStatus)
+    public synchronized void setStatus(AgentStatus agentStatus)
     {
         Preconditions.checkNotNull(agentStatus, "agentStatus is null");
         this.agentStatus = agentStatus;
     }
 
-    public void setSlotStatus(SlotStatus slotStatus)
+    public synchronized void setSlotStatus(SlotStatus slotStatus)
     {
         agentStatus = agentStatus.changeSlotStatus(slotStatus);
     }
@@ -183,7 +378,7 @@ public class HttpRemoteAgent implements RemoteAgent
             SlotStatusRepresentation slotStatusRepresentation = slotStatusCodec.fromJson(responseJson);
 
             SlotStatus slotStatus = slotStatusRepresentation.toSlotStatus(agentStatus.getInstanceId());
-            agentStatus = agentStatus.changeSlotStatus(slotStatus);
+            setSlotStatus(slotStatus);
 
             return slotStatus;
         }
@@ -13,18 +13,22 @@ import com.proofpoint.galaxy.shared.SlotStatus;
 import com.proofpoint.galaxy.shared.SlotStatusRepresentation;
 import com.proofpoint.json.JsonCodec;
 import com.proofpoint.node.NodeInfo;
+import com.proofpoint.units.Duration;
 
 public class HttpRemoteAgentFactory implements RemoteAgentFactory
 {
     private final String environment;
     private final AsyncHttpClient httpClient;
+    private final Duration updateTimeout;
+    private final Duration statusWait;
     private final JsonCodec<InstallationRepresentation> installationCodec;
     private final JsonCodec<AgentStatusRepresentation> agentStatusCodec;
     private final JsonCodec<SlotStatusRepresentation> slotStatusCodec;
-    private final JsonCodec<ServiceDescriptorsRepresentation> serviceDescriptorsCodec;
+    private final ServiceInventoryEncoder serviceInventoryEncoder;
 
     @Inject
     public HttpRemoteAgentFactory(NodeInfo nodeInfo,
+            CoordinatorConfig config,
             JsonCodec<InstallationRepresentation> installationCodec,
             JsonCodec<SlotStatusRepresentation> slotStatusCodec,
             JsonCodec<AgentStatusRepresentation> agentStatusCodec,
@@ -33,9 +37,11 @@ public class HttpRemoteAgentFactory implements RemoteAgentFactory
         environment = nodeInfo.getEnvironment();
         this.agentStatusCodec = agentStatusCodec;
         this.httpClient = new AsyncHttpClient();
+        this.updateTimeout = config.getAgentUpdateTimeout();
+        this.statusWait = config.getAgentStatusWait();
         this.installationCodec = installationCodec;
         this.slotStatusCodec = slotStatusCodec;
-        this.serviceDescriptorsCodec = serviceDescriptorsCodec;
+        this.serviceInventoryEncoder = new ServiceInventoryEncoder(environment, serviceDescriptorsCodec);
     }
 
     @Override
@@ -51,6 +57,6 @@ public class HttpRemoteAgentFactory implements RemoteAgentFactory
                 ImmutableList.<SlotStatus>of(),
                 ImmutableMap.<String, Integer>of());
 
-        return new HttpRemoteAgent(agentStatus, environment, httpClient, installationCodec, agentStatusCodec, slotStatusCodec, serviceDescriptorsCodec);
+        return new HttpRemoteAgent(agentStatus, httpClient, updateTimeout, statusWait, installationCodec, agentStatusCodec, slotStatusCodec, serviceInventoryEncoder);
     }
 }
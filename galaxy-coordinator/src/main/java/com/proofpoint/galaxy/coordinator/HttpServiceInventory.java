@@ -14,6 +14,7 @@
 package com.proofpoint.galaxy.coordinator;
 
 import com.google.common.base.Charsets;
+import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -37,21 +38,49 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.regex.Pattern;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Maps.newHashMap;
 
 public class HttpServiceInventory implements ServiceInventory
 {
     private static final Logger log = Logger.get(HttpServiceInventory.class);
+    private static final String GALAXY_HOST_PROPERTY = "${galaxy.host}";
+    private static final int MAX_CACHED_CONFIGS = 10000;
+
     private final Repository repository;
     private final JsonCodec<List<ServiceDescriptor>> descriptorsJsonCodec;
     private final Set<String> invalidServiceInventory = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
     private final File cacheDir;
 
+    // parsed descriptors of each config, least recently used first; configs without a service
+    // inventory map to an empty list, and a load in progress is shared by every caller
+    // guarded by itself
+    private final Map<String, FutureTask<List<ServiceDescriptor>>> configDescriptors = new LinkedHashMap<String, FutureTask<List<ServiceDescriptor>>>(16, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Entry<String, FutureTask<List<ServiceDescriptor>>> eldest)
+        {
+            return size() > MAX_CACHED_CONFIGS;
+        }
+    };
+
+    // guarded by this
+    private Map<UUID, SlotServiceInventory> slotInventories = ImmutableMap.of();
+
+    // guarded by this
+    private ImmutableList<ServiceDescriptor> serviceInventory = ImmutableList.of();
+
     @Inject
     public HttpServiceInventory(Repository repository, JsonCodec<List<ServiceDescriptor>> descriptorsJsonCodec)
     {
@@ -68,40 +97,92 @@ public class HttpServiceInventory implements ServiceInventory
         this.cacheDir = cacheDir;
     }
 
+    /**
+     * Gets the service inventory of the slots.  Only slots that are new or changed since the
+     * previous call are recomputed, and if no slot changed the previous list instance is
+     * returned, so callers can detect an unchanged inventory by identity.  Slots missing from
+     * the call are dropped, so a query for a subset of the slots would discard the inventory of
+     * the other slots.
+     */
     @Override
     public ImmutableList<ServiceDescriptor> getServiceInventory(Iterable<SlotStatus> allSlotStatus)
     {
-        ImmutableList.Builder<ServiceDescriptor> newDescriptors = ImmutableList.builder();
+        // config bundles are loaded without holding the lock, so callers only wait on the configs they need
+        Map<UUID, SlotServiceInventory> previousSlotInventories;
+        ImmutableList<ServiceDescriptor> previousServiceInventory;
+        synchronized (this) {
+            previousSlotInventories = slotInventories;
+            previousServiceInventory = serviceInventory;
+        }
+
+        boolean changed = false;
+        List<SlotServiceInventory> inventories = newArrayList();
+        Map<UUID, SlotServiceInventory> newSlotInventories = newHashMap();
         for (SlotStatus slotStatus : allSlotStatus) {
             // if the self reference is null, the slot is totally offline so skip for now
             if (slotStatus.getSelf() == null) {
                 continue;
             }
 
-            List<ServiceDescriptor> serviceDescriptors = getServiceInventory(slotStatus);
-            if (serviceDescriptors == null) {
-                continue;
+            SlotServiceInventory inventory = previousSlotInventories.get(slotStatus.getId());
+            if (inventory == null || !inventory.isCurrent(slotStatus)) {
+                inventory = createSlotServiceInventory(slotStatus);
+                changed = true;
             }
-            for (ServiceDescriptor serviceDescriptor : serviceDescriptors) {
-                newDescriptors.add(new ServiceDescriptor(null,
-                        slotStatus.getId().toString(),
-                        serviceDescriptor.getType(),
-                        serviceDescriptor.getPool(),
-                        slotStatus.getLocation(),
-                        slotStatus.getState() == SlotLifecycleState.RUNNING ? ServiceState.RUNNING : ServiceState.STOPPED,
-                        interpolateProperties(serviceDescriptor.getProperties(), slotStatus)));
+            if (newSlotInventories.put(slotStatus.getId(), inventory) == null) {
+                inventories.add(inventory);
             }
         }
-        return newDescriptors.build();
+
+        if (!changed && newSlotInventories.size() == previousSlotInventories.size()) {
+            return previousServiceInventory;
+        }
+
+        ImmutableList.Builder<ServiceDescriptor> newDescriptors = ImmutableList.builder();
+        for (SlotServiceInventory inventory : inventories) {
+            newDescriptors.addAll(inventory.getDescriptors());
+        }
+        ImmutableList<ServiceDescriptor> newServiceInventory = newDescriptors.build();
+
+        synchronized (this) {
+            slotInventories = newSlotInventories;
+            serviceInventory = newServiceInventory;
+        }
+        return newServiceInventory;
+    }
+
+    private SlotServiceInventory createSlotServiceInventory(SlotStatus slotStatus)
+    {
+        List<ServiceDescriptor> serviceDescriptors = getServiceInventory(slotStatus);
+        if (serviceDescriptors == null) {
+            // the inventory could not be loaded, so try again on the next call
+            boolean complete = slotStatus.getAssignment() == null;
+            return new SlotServiceInventory(slotStatus, ImmutableList.<ServiceDescriptor>of(), complete);
+        }
+
+        String host = slotStatus.getSelf().getHost();
+        ImmutableList.Builder<ServiceDescriptor> descriptors = ImmutableList.builder();
+        for (ServiceDescriptor serviceDescriptor : serviceDescriptors) {
+            descriptors.add(new ServiceDescriptor(null,
+                    slotStatus.getId().toString(),
+                    serviceDescriptor.getType(),
+                    serviceDescriptor.getPool(),
+                    slotStatus.getLocation(),
+                    slotStatus.getState() == SlotLifecycleState.RUNNING ? ServiceState.RUNNING : ServiceState.STOPPED,
+                    interpolateProperties(serviceDescriptor.getProperties(), host)));
+        }
+        return new SlotServiceInventory(slotStatus, descriptors.build(), true);
     }
 
-    private Map<String, String> interpolateProperties(Map<String, String> properties, SlotStatus slotStatus)
+    private static Map<String, String> interpolateProperties(Map<String, String> properties, String host)
     {
         ImmutableMap.Builder<String, String> builder = ImmutableMap.builder();
         for (Entry<String, String> entry : properties.entrySet()) {
             String key = entry.getKey();
             String value = entry.getValue();
-            value = value.replaceAll(Pattern.quote("${galaxy.host}"), slotStatus.getSelf().getHost());
+            if (value.contains(GALAXY_HOST_PROPERTY)) {
+                value = value.replace(GALAXY_HOST_PROPERTY, host);
+            }
             builder.put(key, value);
         }
         return builder.build();
@@ -114,15 +195,65 @@ public class HttpServiceInventory implements ServiceInventory
             return null;
         }
 
-        String config = assignment.getConfig();
+        final String config = assignment.getConfig();
+        FutureTask<List<ServiceDescriptor>> task;
+        boolean loader = false;
+        synchronized (configDescriptors) {
+            task = configDescriptors.get(config);
+            if (task == null) {
+                task = new FutureTask<List<ServiceDescriptor>>(new Callable<List<ServiceDescriptor>>()
+                {
+                    @Override
+                    public List<ServiceDescriptor> call()
+                    {
+                        return loadServiceInventory(config);
+                    }
+                });
+                configDescriptors.put(config, task);
+                loader = true;
+            }
+        }
 
+        if (loader) {
+            task.run();
+        }
+
+        List<ServiceDescriptor> descriptors;
+        try {
+            descriptors = task.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        catch (ExecutionException e) {
+            descriptors = null;
+        }
+
+        if (descriptors == null) {
+            // the load failed, so let the next caller try again
+            synchronized (configDescriptors) {
+                if (configDescriptors.get(config) == task) {
+                    configDescriptors.remove(config);
+                }
+            }
+        }
+        return descriptors;
+    }
+
+    /**
+     * Loads the descriptors of a config.  The disk cache only saves a trip to the repository
+     * after a restart, since loaded descriptors are kept in memory.
+     */
+    private List<ServiceDescriptor> loadServiceInventory(String config)
+    {
         File cacheFile = getCacheFile(config);
         if (cacheFile.canRead()) {
             try {
                 String json = CharStreams.toString(Files.newReaderSupplier(cacheFile, Charsets.UTF_8));
                 List<ServiceDescriptor> descriptors = descriptorsJsonCodec.fromJson(json);
                 invalidServiceInventory.remove(config);
-                return descriptors;
+                return nullToEmpty(descriptors);
             }
             catch (Exception ignored) {
                 // delete the bad cache file
@@ -152,7 +283,7 @@ public class HttpServiceInventory implements ServiceInventory
             Files.write(json, cacheFile, Charsets.UTF_8);
 
             List<ServiceDescriptor> descriptors = descriptorsJsonCodec.fromJson(json);
-            return descriptors;
+            return nullToEmpty(descriptors);
         }
         catch (Exception e) {
             if (invalidServiceInventory.add(config)) {
@@ -162,6 +293,14 @@ public class HttpServiceInventory implements ServiceInventory
         return null;
     }
 
+    private static List<ServiceDescriptor> nullToEmpty(List<ServiceDescriptor> descriptors)
+    {
+        if (descriptors == null) {
+            return ImmutableList.of();
+        }
+        return ImmutableList.copyOf(descriptors);
+    }
+
     private File getCacheFile(String config)
     {
         String cacheName = config;
@@ -173,4 +312,44 @@ public class HttpServiceInventory implements ServiceInventory
         cacheName = cacheName + "_" + DigestUtils.md5Hex(cacheName);
         return new File(cacheDir, cacheName).getAbsoluteFile();
     }
+
+    private static class SlotServiceInventory
+    {
+        private final String config;
+        private final SlotLifecycleState state;
+        private final String location;
+        private final String host;
+        private final List<ServiceDescriptor> descriptors;
+        private final boolean complete;
+
+        private SlotServiceInventory(SlotStatus slotStatus, List<ServiceDescriptor> descriptors, boolean complete)
+        {
+            Assignment assignment = slotStatus.getAssignment();
+            this.config = assignment == null ? null : assignment.getConfig();
+            this.state = slotStatus.getState();
+            this.location = slotStatus.getLocation();
+            this.host = slotStatus.getSelf().getHost();
+            this.descriptors = descriptors;
+            this.complete = complete;
+        }
+
+        public List<ServiceDescriptor> getDescriptors()
+        {
+            return descriptors;
+        }
+
+        /**
+         * Checks if the descriptors were created from the same values of the slot, which are
+         * the only values the descriptors depend on.
+         */
+        public boolean isCurrent(SlotStatus slotStatus)
+        {
+            Assignment assignment = slotStatus.getAssignment();
+            return complete &&
+                    Objects.equal(config, assignment == null ? null : assignment.getConfig()) &&
+                    state == slotStatus.getState() &&
+                    Objects.equal(location, slotStatus.getLocation()) &&
+                    Objects.equal(host, slotStatus.getSelf().getHost());
+        }
+    }
 }
@@ -0,0 +1,49 @@
+package com.proofpoint.galaxy.coordinator;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.proofpoint.json.JsonCodec;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+ * Writes a JSON array one element at a time, so the elements are only created as they are
+ * written and the response is never held in memory as a whole.
+ */
+class JsonArrayStreamingOutput<T> implements StreamingOutput
+{
+    private final JsonCodec<T> elementCodec;
+    private final Iterable<? extends T> elements;
+
+    public JsonArrayStreamingOutput(JsonCodec<T> elementCodec, Iterable<? extends T> elements)
+    {
+        Preconditions.checkNotNull(elementCodec, "elementCodec is null");
+        Preconditions.checkNotNull(elements, "elements is null");
+
+        this.elementCodec = elementCodec;
+        this.elements = elements;
+    }
+
+    public void write(OutputStream output)
+            throws IOException, WebApplicationException
+    {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, Charsets.UTF_8));
+        writer.write('[');
+        boolean first = true;
+        for (T element : elements) {
+            if (!first) {
+                writer.write(',');
+            }
+            first = false;
+            writer.write(elementCodec.toJson(element));
+        }
+        writer.write(']');
+        writer.flush();
+    }
+}
@@ -0,0 +1,58 @@
+package com.proofpoint.galaxy.coordinator;
+
+import com.google.common.base.Preconditions;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * A bounded, least recently used cache of compiled matchers keyed by expression.  Filters
+ * are rebuilt for every request, but clients poll with the same few expressions, so the
+ * compiled matchers are shared across requests instead of being compiled each time.
+ */
+abstract class MatcherCache<T>
+{
+    private final Map<String, T> matchers;
+
+    protected MatcherCache(final int maxSize)
+    {
+        Preconditions.checkArgument(maxSize > 0, "maxSize must be at least 1");
+        matchers = new LinkedHashMap<String, T>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Entry<String, T> eldest)
+            {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    public T get(String expression)
+    {
+        Preconditions.checkNotNull(expression, "expression is null");
+
+        synchronized (matchers) {
+            T matcher = matchers.get(expression);
+            if (matcher != null) {
+                return matcher;
+            }
+        }
+
+        // compile outside of the lock; a racing compile of the same expression is harmless
+        T matcher = compile(expression);
+        synchronized (matchers) {
+            matchers.put(expression, matcher);
+        }
+        return matcher;
+    }
+
+    public int size()
+    {
+        synchronized (matchers) {
+            return matchers.size();
+        }
+    }
+
+    protected abstract T compile(String expression);
+}
@@ -1,27 +1,33 @@
 package com.proofpoint.galaxy.coordinator;
 
+import com.google.common.base.Function;
 import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableList.Builder;
-import com.google.common.io.ByteProcessor;
-import com.google.common.io.ByteStreams;
 import com.google.common.io.CharStreams;
+import com.google.common.io.Closeables;
 import com.google.common.io.InputSupplier;
-import com.google.common.io.Resources;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.google.inject.Inject;
 import com.proofpoint.galaxy.coordinator.MavenMetadata.SnapshotVersion;
 import com.proofpoint.galaxy.shared.MavenCoordinates;
 import com.proofpoint.galaxy.shared.Repository;
+import com.proofpoint.units.Duration;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
 import java.net.URI;
-import java.net.URL;
 import java.net.URLConnection;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -33,40 +39,89 @@ import static com.proofpoint.galaxy.shared.MavenCoordinates.toConfigGAV;
 public class MavenRepository implements Repository
 {
     private static final Pattern TIMESTAMP_VERSION = Pattern.compile("^(.+)-[0-9]{8}\\.[0-9]{6}\\-[0-9]+$");
+    private static final Duration DEFAULT_RELEASE_CACHE_TTL = new CoordinatorConfig().getRepositoryReleaseCacheTtl();
+    private static final Duration DEFAULT_SNAPSHOT_CACHE_TTL = new CoordinatorConfig().getRepositorySnapshotCacheTtl();
+    private static final Duration DEFAULT_NEGATIVE_CACHE_TTL = new CoordinatorConfig().getRepositoryNegativeCacheTtl();
+
     private final List<String> defaultGroupIds;
     private final List<URI> repositoryBases;
 
+    // resolved coordinates keyed by the requested coordinates
+    private final ResolutionCache<MavenCoordinates> resolvedCoordinates;
+    // artifact uri keyed by the resolved coordinates
+    private final ResolutionCache<URI> artifactUris;
+
     public MavenRepository(Iterable<String> defaultGroupIds, URI repositoryBase, URI... repositoryBases)
     {
         this(defaultGroupIds, ImmutableList.<URI>builder().add(repositoryBase).add(repositoryBases).build());
     }
 
     public MavenRepository(Iterable<String> defaultGroupIds, Iterable<URI> repositoryBases)
+    {
+        this(defaultGroupIds, repositoryBases, DEFAULT_RELEASE_CACHE_TTL, DEFAULT_SNAPSHOT_CACHE_TTL, DEFAULT_NEGATIVE_CACHE_TTL, Ticker.systemTicker());
+    }
+
+    public MavenRepository(Iterable<String> defaultGroupIds,
+            Iterable<URI> repositoryBases,
+            Duration releaseCacheTtl,
+            Duration snapshotCacheTtl,
+            Duration negativeCacheTtl,
+            Ticker ticker)
     {
         this.defaultGroupIds = ImmutableList.copyOf(defaultGroupIds);
         for (URI uri : repositoryBases) {
             Preconditions.checkArgument(uri.toASCIIString().endsWith("/"), "Uri must end with a '/' " + uri);
         }
         this.repositoryBases = ImmutableList.copyOf(repositoryBases);
+
+        resolvedCoordinates = new ResolutionCache<MavenCoordinates>(new Function<MavenCoordinates, MavenCoordinates>()
+        {
+            @Override
+            public MavenCoordinates apply(MavenCoordinates coordinates)
+            {
+                return resolveUncached(coordinates);
+            }
+        }, releaseCacheTtl, snapshotCacheTtl, negativeCacheTtl, ticker);
+        artifactUris = new ResolutionCache<URI>(new Function<MavenCoordinates, URI>()
+        {
+            @Override
+            public URI apply(MavenCoordinates coordinates)
+            {
+                return findArtifact(coordinates);
+            }
+        }, releaseCacheTtl, snapshotCacheTtl, negativeCacheTtl, ticker);
     }
 
     @Inject
     public MavenRepository(CoordinatorConfig config)
     {
-        if (config.getDefaultRepositoryGroupId() != null) {
-            this.defaultGroupIds = ImmutableList.copyOf(config.getDefaultRepositoryGroupId());
-        } else {
-            this.defaultGroupIds = ImmutableList.of();
-        }
+        this(config.getDefaultRepositoryGroupId() != null ? config.getDefaultRepositoryGroupId() : ImmutableList.<String>of(),
+                toRepositoryBases(config.getRepositories()),
+                config.getRepositoryReleaseCacheTtl(),
+                config.getRepositorySnapshotCacheTtl(),
+                config.getRepositoryNegativeCacheTtl(),
+                Ticker.systemTicker());
+    }
 
+    private static List<URI> toRepositoryBases(Iterable<String> repositories)
+    {
         Builder<URI> builder = ImmutableList.builder();
-        for (String binaryRepoBase : config.getRepositories()) {
+        for (String binaryRepoBase : repositories) {
             if (!binaryRepoBase.endsWith("/")) {
                 binaryRepoBase = binaryRepoBase + "/";
             }
             builder.add(URI.create(binaryRepoBase));
         }
-        repositoryBases = builder.build();
+        return builder.build();
+    }
+
+    /**
+     * Discards all cached resolutions, so the next lookup of every artifact goes to the repository.
+     */
+    public void invalidateCache()
+    {
+        resolvedCoordinates.clear();
+        artifactUris.clear();
     }
 
     @Override
@@ -252,7 +307,33 @@ public class MavenRepository implements Repository
         if (coordinates == null) {
             return null;
         }
-        List<URI> checkedUris = newArrayList();
+
+        URI uri = artifactUris.get(coordinates);
+        if (uri != null) {
+            return uri;
+        }
+
+        if (required) {
+            throw new RuntimeException("Unable to find binary " + coordinates + " at " + getArtifactUris(coordinates));
+        }
+        else {
+            return null;
+        }
+    }
+
+    private URI findArtifact(MavenCoordinates coordinates)
+    {
+        for (URI uri : getArtifactUris(coordinates)) {
+            if (isValidBinary(uri)) {
+                return uri;
+            }
+        }
+        return null;
+    }
+
+    private List<URI> getArtifactUris(MavenCoordinates coordinates)
+    {
+        List<URI> uris = newArrayList();
         for (URI repositoryBase : repositoryBases) {
             // build the uri
             StringBuilder builder = new StringBuilder();
@@ -265,21 +346,9 @@ public class MavenRepository implements Repository
             }
             builder.append('.').append(coordinates.getPackaging());
 
-            URI uri = repositoryBase.resolve(builder.toString());
-
-            // try to download some of the file
-            if (isValidBinary(uri)) {
-                return uri;
-            }
-
-            checkedUris.add(uri);
-        }
-        if (required) {
-            throw new RuntimeException("Unable to find binary " + coordinates + " at " + checkedUris);
-        }
-        else {
-            return null;
+            uris.add(repositoryBase.resolve(builder.toString()));
         }
+        return uris;
     }
 
     public MavenCoordinates resolve(MavenCoordinates coordinates)
@@ -288,6 +357,11 @@ public class MavenRepository implements Repository
             return coordinates;
         }
 
+        return resolvedCoordinates.get(coordinates);
+    }
+
+    private MavenCoordinates resolveUncached(MavenCoordinates coordinates)
+    {
         List<String> groupIds;
         if (coordinates.getGroupId() != null) {
             groupIds = ImmutableList.of(coordinates.getGroupId());
@@ -381,46 +455,50 @@ public class MavenRepository implements Repository
         return null;
     }
 
-    private String toString(URI uri)
+    private String toString(final URI uri)
             throws IOException
     {
-        final URL url = uri.toURL();
         return CharStreams.toString(new InputSupplier<InputStreamReader>() {
             @Override
             public InputStreamReader getInput()
                     throws IOException
             {
-                URLConnection connection = url.openConnection();
-                if (connection instanceof HttpURLConnection) {
-                    HttpURLConnection httpConnection = (HttpURLConnection) connection;
-                    httpConnection.addRequestProperty("User-Agent", "User-Agent: Apache-Maven/3.0.3 (Java 1.6.0_29; Mac OS X 10.7.2)");
-                }
-                InputStream in = connection.getInputStream();
+                InputStream in = openConnection(uri).getInputStream();
                 return new InputStreamReader(in, UTF_8);
             }
         });
     }
 
+    private static URLConnection openConnection(URI uri)
+            throws IOException
+    {
+        URLConnection connection = uri.toURL().openConnection();
+        if (connection instanceof HttpURLConnection) {
+            HttpURLConnection httpConnection = (HttpURLConnection) connection;
+            httpConnection.addRequestProperty("User-Agent", "User-Agent: Apache-Maven/3.0.3 (Java 1.6.0_29; Mac OS X 10.7.2)");
+        }
+        return connection;
+    }
+
     private boolean isValidBinary(URI uri)
     {
         try {
-            InputSupplier<InputStream> inputSupplier = Resources.newInputStreamSupplier(uri.toURL());
-            ByteStreams.readBytes(inputSupplier, new ByteProcessor<Void>()
-            {
-                private int count;
-
-                public boolean processBytes(byte[] buffer, int offset, int length)
-                {
-                    count += length;
-                    // make sure we got at least 10 bytes
-                    return count < 10;
-                }
+            URLConnection connection = openConnection(uri);
+            if (connection instanceof HttpURLConnection) {
+                // only fetch the headers
+                HttpURLConnection httpConnection = (HttpURLConnection) connection;
+                httpConnection.setRequestMethod("HEAD");
+                return httpConnection.getResponseCode() / 100 == 2;
+            }
 
-                public Void getResult()
-                {
-                    return null;
-                }
-            });
+            // other repositories must be read; make sure we get some of the file
+            InputStream in = connection.getInputStream();
+            try {
+                in.read(new byte[10]);
+            }
+            finally {
+                Closeables.closeQuietly(in);
+            }
             return true;
         }
         catch (Exception ignored) {
@@ -438,4 +516,103 @@ public class MavenRepository implements Repository
         sb.append('}');
         return sb.toString();
     }
+
+    private static boolean isSnapshot(MavenCoordinates coordinates)
+    {
+        return coordinates.getVersion().contains("SNAPSHOT");
+    }
+
+    private static class CacheEntry<T>
+    {
+        private final T value;
+        private final long expiration;
+
+        private CacheEntry(T value, long expiration)
+        {
+            this.value = value;
+            this.expiration = expiration;
+        }
+
+        public T getValue()
+        {
+            return value;
+        }
+    }
+
+    /**
+     * Caches lookups against the repository.  Releases never change so they are kept for a long
+     * time, SNAPSHOT versions are checked again after a short time, and misses are remembered
+     * briefly so a bad spec does not hit the repository on every request.  Concurrent lookups
+     * of the same coordinates share one repository request.
+     */
+    private static class ResolutionCache<T>
+    {
+        private static final int MAXIMUM_SIZE = 10000;
+
+        private final Cache<MavenCoordinates, CacheEntry<T>> cache;
+        private final long releaseTtlNanos;
+        private final long snapshotTtlNanos;
+        private final long negativeTtlNanos;
+        private final Ticker ticker;
+
+        private ResolutionCache(final Function<MavenCoordinates, T> loader, Duration releaseTtl, Duration snapshotTtl, Duration negativeTtl, final Ticker ticker)
+        {
+            Preconditions.checkNotNull(loader, "loader is null");
+            Preconditions.checkNotNull(releaseTtl, "releaseTtl is null");
+            Preconditions.checkNotNull(snapshotTtl, "snapshotTtl is null");
+            Preconditions.checkNotNull(negativeTtl, "negativeTtl is null");
+            Preconditions.checkNotNull(ticker, "ticker is null");
+
+            this.releaseTtlNanos = TimeUnit.MILLISECONDS.toNanos((long) releaseTtl.toMillis());
+            this.snapshotTtlNanos = TimeUnit.MILLISECONDS.toNanos((long) snapshotTtl.toMillis());
+            this.negativeTtlNanos = TimeUnit.MILLISECONDS.toNanos((long) negativeTtl.toMillis());
+            this.ticker = ticker;
+
+            // entries are dropped after the longest ttl; the shorter ttls are checked on read
+            cache = CacheBuilder.newBuilder()
+                    .maximumSize(MAXIMUM_SIZE)
+                    .expireAfterWrite(Math.max(releaseTtlNanos, Math.max(snapshotTtlNanos, negativeTtlNanos)), TimeUnit.NANOSECONDS)
+                    .ticker(ticker)
+                    .build(new CacheLoader<MavenCoordinates, CacheEntry<T>>()
+                    {
+                        @Override
+                        public CacheEntry<T> load(MavenCoordinates coordinates)
+                        {
+                            T value = loader.apply(coordinates);
+                            return new CacheEntry<T>(value, ticker.read() + getTtl(coordinates, value));
+                        }
+                    });
+        }
+
+        public T get(MavenCoordinates coordinates)
+        {
+            try {
+                CacheEntry<T> entry = cache.getUnchecked(coordinates);
+                if (entry.expiration - ticker.read() <= 0) {
+                    cache.invalidate(coordinates);
+                    entry = cache.getUnchecked(coordinates);
+                }
+                return entry.getValue();
+            }
+            catch (UncheckedExecutionException e) {
+                throw Throwables.propagate(e.getCause());
+            }
+        }
+
+        public void clear()
+        {
+            cache.invalidateAll();
+        }
+
+        private long getTtl(MavenCoordinates coordinates, T value)
+        {
+            if (value == null) {
+                return negativeTtlNanos;
+            }
+            if (isSnapshot(coordinates)) {
+                return snapshotTtlNanos;
+            }
+            return releaseTtlNanos;
+        }
+    }
 }
@@ -3,6 +3,8 @@ package com.proofpoint.galaxy.coordinator;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.proofpoint.discovery.client.ServiceDescriptor;
 import com.proofpoint.galaxy.shared.AgentLifecycleState;
 import com.proofpoint.galaxy.shared.AgentStatus;
@@ -59,12 +61,14 @@ public class ProvisioningRemoteAgent implements RemoteAgent
     }
 
     @Override
-    public void updateStatus()
+    public ListenableFuture<?> updateStatus()
     {
+        return Futures.immediateFuture(null);
     }
 
     @Override
-    public void setServiceInventory(List<ServiceDescriptor> serviceInventory)
+    public ListenableFuture<?> setServiceInventory(List<ServiceDescriptor> serviceInventory)
     {
+        return Futures.immediateFuture(null);
     }
 }
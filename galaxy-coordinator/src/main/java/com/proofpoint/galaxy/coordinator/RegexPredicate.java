@@ -7,11 +7,20 @@ import java.util.regex.Pattern;
 
 public class RegexPredicate implements Predicate<CharSequence>
 {
+    private static final MatcherCache<Pattern> PATTERN_CACHE = new MatcherCache<Pattern>(1000)
+    {
+        @Override
+        protected Pattern compile(String regex)
+        {
+            return Pattern.compile(regex);
+        }
+    };
+
     private final Pattern pattern;
 
     public RegexPredicate(String regex)
     {
-        this(Pattern.compile(regex));
+        this(PATTERN_CACHE.get(regex));
     }
 
     public RegexPredicate(Pattern pattern)
@@ -1,5 +1,6 @@
 package com.proofpoint.galaxy.coordinator;
 
+import com.google.common.util.concurrent.ListenableFuture;
 import com.proofpoint.discovery.client.ServiceDescriptor;
 import com.proofpoint.galaxy.shared.AgentStatus;
 import com.proofpoint.galaxy.shared.Installation;
@@ -19,7 +20,7 @@ public interface RemoteAgent
 
     List<? extends RemoteSlot> getSlots();
 
-    void updateStatus();
+    ListenableFuture<?> updateStatus();
 
-    void setServiceInventory(List<ServiceDescriptor> serviceInventory);
+    ListenableFuture<?> setServiceInventory(List<ServiceDescriptor> serviceInventory);
 }
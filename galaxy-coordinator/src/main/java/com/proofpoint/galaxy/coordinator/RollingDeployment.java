@@ -0,0 +1,315 @@
+package com.proofpoint.galaxy.coordinator;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.proofpoint.discovery.client.ServiceDescriptor;
+import com.proofpoint.discovery.client.ServiceState;
+import com.proofpoint.galaxy.shared.Assignment;
+import com.proofpoint.galaxy.shared.SlotStatus;
+import com.proofpoint.galaxy.shared.UpgradeVersions;
+import com.proofpoint.log.Logger;
+import com.proofpoint.units.Duration;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Predicates.compose;
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Sets.newHashSet;
+import static com.google.common.collect.Sets.newLinkedHashSet;
+import static com.proofpoint.galaxy.coordinator.RollingDeploymentState.COMPLETED;
+import static com.proofpoint.galaxy.coordinator.RollingDeploymentState.FAILED;
+import static com.proofpoint.galaxy.coordinator.RollingDeploymentState.PAUSED;
+import static com.proofpoint.galaxy.shared.SlotLifecycleState.RUNNING;
+
+/**
+ * Upgrades and starts a fixed set of slots one batch at a time.  A batch is complete once every
+ * slot in it is running the new assignment, and optionally once the service inventory of those
+ * slots has been published to the agents.  Progress is driven by {@link #checkProgress()}, which
+ * must only be called from a single thread.
+ */
+public class RollingDeployment
+{
+    private static final Logger log = Logger.get(RollingDeployment.class);
+
+    private final UUID id = UUID.randomUUID();
+    private final Coordinator coordinator;
+    private final ServiceInventory serviceInventory;
+    private final UpgradeVersions upgradeVersions;
+    private final Assignment assignment;
+    private final int batchSize;
+    private final int parallelism;
+    private final boolean waitForAnnouncement;
+    private final long batchTimeoutNanos;
+    private final int totalSlots;
+
+    private final LinkedList<UUID> pendingSlots;
+    private final List<UUID> completedSlots = newArrayList();
+    private List<UUID> currentBatch = ImmutableList.of();
+    private long batchDeadline;
+    private boolean retryBatch;
+    private RollingDeploymentState state = RollingDeploymentState.RUNNING;
+    private String statusMessage;
+    private long finishedNanos;
+
+    public RollingDeployment(Coordinator coordinator,
+            ServiceInventory serviceInventory,
+            UpgradeVersions upgradeVersions,
+            Assignment assignment,
+            List<UUID> slotIds,
+            int batchSize,
+            int parallelism,
+            boolean waitForAnnouncement,
+            Duration batchTimeout)
+    {
+        Preconditions.checkNotNull(coordinator, "coordinator is null");
+        Preconditions.checkNotNull(serviceInventory, "serviceInventory is null");
+        Preconditions.checkNotNull(upgradeVersions, "upgradeVersions is null");
+        Preconditions.checkNotNull(slotIds, "slotIds is null");
+        Preconditions.checkArgument(batchSize > 0, "batchSize must be at least 1");
+        Preconditions.checkArgument(parallelism > 0, "parallelism must be at least 1");
+        Preconditions.checkNotNull(batchTimeout, "batchTimeout is null");
+
+        this.coordinator = coordinator;
+        this.serviceInventory = serviceInventory;
+        this.upgradeVersions = upgradeVersions;
+        this.assignment = assignment;
+        this.batchSize = batchSize;
+        this.parallelism = parallelism;
+        this.waitForAnnouncement = waitForAnnouncement;
+        this.batchTimeoutNanos = TimeUnit.MILLISECONDS.toNanos((long) batchTimeout.toMillis());
+        this.pendingSlots = new LinkedList<UUID>(slotIds);
+        this.totalSlots = slotIds.size();
+    }
+
+    public UUID getId()
+    {
+        return id;
+    }
+
+    /**
+     * Gets the target assignment, or null if there were no slots to upgrade.
+     */
+    public Assignment getAssignment()
+    {
+        return assignment;
+    }
+
+    public int getBatchSize()
+    {
+        return batchSize;
+    }
+
+    public boolean isWaitForAnnouncement()
+    {
+        return waitForAnnouncement;
+    }
+
+    public int getTotalSlots()
+    {
+        return totalSlots;
+    }
+
+    public synchronized RollingDeploymentState getState()
+    {
+        return state;
+    }
+
+    public synchronized String getStatusMessage()
+    {
+        return statusMessage;
+    }
+
+    public synchronized List<UUID> getPendingSlots()
+    {
+        return ImmutableList.copyOf(pendingSlots);
+    }
+
+    public synchronized List<UUID> getCurrentBatch()
+    {
+        return currentBatch;
+    }
+
+    public synchronized List<UUID> getCompletedSlots()
+    {
+        return ImmutableList.copyOf(completedSlots);
+    }
+
+    /**
+     * Stops the deployment from starting new batches.  The current batch, if any, still completes.
+     */
+    public synchronized boolean pause()
+    {
+        if (state != RollingDeploymentState.RUNNING) {
+            return false;
+        }
+        state = PAUSED;
+        return true;
+    }
+
+    /**
+     * Resumes a paused or failed deployment.  Slots of a failed batch that are still unhealthy are upgraded
+     * and started again, and get a new batch timeout.
+     */
+    public synchronized boolean resume()
+    {
+        if (state != PAUSED && state != FAILED) {
+            return false;
+        }
+        if (state == FAILED) {
+            retryBatch = true;
+            batchDeadline = System.nanoTime() + batchTimeoutNanos;
+        }
+        state = RollingDeploymentState.RUNNING;
+        statusMessage = null;
+        return true;
+    }
+
+    /**
+     * Checks if the deployment completed or failed, and has not been resumed, before the
+     * specified {@link System#nanoTime()}.
+     */
+    synchronized boolean isFinishedBefore(long nanoTime)
+    {
+        return (state == COMPLETED || state == FAILED) && finishedNanos - nanoTime < 0;
+    }
+
+    // guarded by this
+    private void finish(RollingDeploymentState state)
+    {
+        this.state = state;
+        finishedNanos = System.nanoTime();
+    }
+
+    void checkProgress()
+    {
+        List<UUID> batch;
+        boolean retry;
+        synchronized (this) {
+            if (state == COMPLETED || state == FAILED) {
+                return;
+            }
+            batch = currentBatch;
+            retry = retryBatch;
+            retryBatch = false;
+        }
+
+        if (!batch.isEmpty()) {
+            List<SlotStatus> unhealthySlots = newArrayList();
+            List<SlotStatus> transitionalSlots = newArrayList();
+            List<String> problems = checkBatch(batch, unhealthySlots, transitionalSlots);
+            if (retry && !unhealthySlots.isEmpty()) {
+                upgradeSlots(ImmutableList.copyOf(Iterables.transform(unhealthySlots, SlotStatus.uuidGetter())));
+                return;
+            }
+            synchronized (this) {
+                if (!problems.isEmpty()) {
+                    statusMessage = Joiner.on("; ").join(problems);
+
+                    // slots that are still starting or stopping are waited for, even after the batch
+                    // timeout, since the agent bounds every transition with its own timeouts
+                    if (problems.size() > transitionalSlots.size() && System.nanoTime() - batchDeadline > 0) {
+                        finish(FAILED);
+                        log.warn("Rolling deployment %s failed: %s", id, statusMessage);
+                    }
+                    return;
+                }
+                completedSlots.addAll(batch);
+                currentBatch = ImmutableList.of();
+                statusMessage = null;
+            }
+        }
+
+        synchronized (this) {
+            if (state != RollingDeploymentState.RUNNING) {
+                return;
+            }
+            if (pendingSlots.isEmpty()) {
+                finish(COMPLETED);
+                log.info("Rolling deployment %s of %s slots to %s completed", id, totalSlots, assignment);
+                return;
+            }
+            List<UUID> nextBatch = pendingSlots.subList(0, Math.min(batchSize, pendingSlots.size()));
+            batch = ImmutableList.copyOf(nextBatch);
+            nextBatch.clear();
+            currentBatch = batch;
+            batchDeadline = System.nanoTime() + batchTimeoutNanos;
+        }
+        upgradeSlots(batch);
+    }
+
+    private void upgradeSlots(List<UUID> slotIds)
+    {
+        Predicate<SlotStatus> filter = compose(Predicates.in(newHashSet(slotIds)), SlotStatus.uuidGetter());
+        try {
+            coordinator.upgrade(filter, upgradeVersions, null, parallelism, null);
+            coordinator.setState(RUNNING, filter, null, parallelism, null);
+        }
+        catch (RuntimeException e) {
+            log.warn(e, "Rolling deployment %s failed to upgrade %s", id, slotIds);
+            synchronized (this) {
+                finish(FAILED);
+                statusMessage = "Upgrade failed: " + e.getMessage();
+            }
+        }
+    }
+
+    private List<String> checkBatch(List<UUID> batch, List<SlotStatus> unhealthySlots, List<SlotStatus> transitionalSlots)
+    {
+        Set<UUID> remaining = newLinkedHashSet(batch);
+        List<SlotStatus> slots = coordinator.getAllSlotsStatus(compose(Predicates.in(remaining), SlotStatus.uuidGetter()));
+
+        List<String> problems = newArrayList();
+        for (SlotStatus slot : slots) {
+            remaining.remove(slot.getId());
+            if (slot.getState().isTransitional()) {
+                problems.add(String.format("Slot %s is still %s", slot.getId(), slot.getState()));
+                transitionalSlots.add(slot);
+            }
+            else if (slot.getState() != RUNNING) {
+                problems.add(String.format("Slot %s is %s", slot.getId(), slot.getState()));
+                unhealthySlots.add(slot);
+            }
+            else if (!assignment.equals(slot.getAssignment())) {
+                problems.add(String.format("Slot %s is not assigned %s", slot.getId(), assignment));
+                unhealthySlots.add(slot);
+            }
+        }
+        for (UUID slotId : remaining) {
+            problems.add(String.format("Slot %s is missing", slotId));
+        }
+
+        if (problems.isEmpty() && waitForAnnouncement) {
+            Set<String> announced = newHashSet();
+            for (ServiceDescriptor descriptor : coordinator.getPublishedServiceInventory()) {
+                if (descriptor.getState() == ServiceState.RUNNING) {
+                    announced.add(descriptor.getNodeId());
+                }
+            }
+            Set<String> batchSlotIds = newHashSet();
+            for (SlotStatus slot : slots) {
+                batchSlotIds.add(slot.getId().toString());
+            }
+
+            // the service inventory is computed incrementally from the previous inventory of every
+            // slot, so query all slots like the coordinator does and only check the batch
+            Set<String> unannounced = newLinkedHashSet();
+            for (ServiceDescriptor descriptor : serviceInventory.getServiceInventory(coordinator.getAllSlotStatus())) {
+                if (batchSlotIds.contains(descriptor.getNodeId()) && !announced.contains(descriptor.getNodeId())) {
+                    unannounced.add(descriptor.getNodeId());
+                }
+            }
+            for (String slotId : unannounced) {
+                problems.add(String.format("Services of slot %s have not been announced", slotId));
+            }
+        }
+        return problems;
+    }
+}
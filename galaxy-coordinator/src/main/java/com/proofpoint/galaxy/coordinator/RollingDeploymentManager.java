@@ -0,0 +1,207 @@
+package com.proofpoint.galaxy.coordinator;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import com.proofpoint.galaxy.shared.Assignment;
+import com.proofpoint.galaxy.shared.Repository;
+import com.proofpoint.galaxy.shared.SlotLifecycleState;
+import com.proofpoint.galaxy.shared.SlotStatus;
+import com.proofpoint.galaxy.shared.UpgradeVersions;
+import com.proofpoint.log.Logger;
+import com.proofpoint.units.Duration;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Sets.newHashSet;
+import static com.proofpoint.galaxy.shared.SlotLifecycleState.RUNNING;
+import static com.proofpoint.galaxy.shared.SlotLifecycleState.TERMINATED;
+import static com.proofpoint.galaxy.shared.SlotLifecycleState.UNKNOWN;
+import static com.proofpoint.galaxy.shared.VersionsUtil.checkSlotsVersion;
+
+public class RollingDeploymentManager
+{
+    private static final Logger log = Logger.get(RollingDeploymentManager.class);
+
+    private final ConcurrentMap<UUID, RollingDeployment> deployments = new ConcurrentHashMap<UUID, RollingDeployment>();
+
+    private final Coordinator coordinator;
+    private final Repository repository;
+    private final ServiceInventory serviceInventory;
+    private final Duration checkInterval;
+    private final Duration batchTimeout;
+    private final long retentionNanos;
+    private final ScheduledExecutorService deploymentService;
+
+    @Inject
+    public RollingDeploymentManager(Coordinator coordinator, Repository repository, ServiceInventory serviceInventory, CoordinatorConfig config)
+    {
+        this(coordinator, repository, serviceInventory, config.getDeploymentCheckInterval(), config.getDeploymentBatchTimeout(), config.getDeploymentRetention());
+    }
+
+    public RollingDeploymentManager(Coordinator coordinator,
+            Repository repository,
+            ServiceInventory serviceInventory,
+            Duration checkInterval,
+            Duration batchTimeout,
+            Duration retention)
+    {
+        Preconditions.checkNotNull(coordinator, "coordinator is null");
+        Preconditions.checkNotNull(repository, "repository is null");
+        Preconditions.checkNotNull(serviceInventory, "serviceInventory is null");
+        Preconditions.checkNotNull(checkInterval, "checkInterval is null");
+        Preconditions.checkNotNull(batchTimeout, "batchTimeout is null");
+        Preconditions.checkNotNull(retention, "retention is null");
+
+        this.coordinator = coordinator;
+        this.repository = repository;
+        this.serviceInventory = serviceInventory;
+        this.checkInterval = checkInterval;
+        this.batchTimeout = batchTimeout;
+        this.retentionNanos = TimeUnit.MILLISECONDS.toNanos((long) retention.toMillis());
+
+        deploymentService = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("coordinator-rolling-deployment").setDaemon(true).build());
+    }
+
+    @PostConstruct
+    public void start()
+    {
+        deploymentService.scheduleWithFixedDelay(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try {
+                    checkDeployments();
+                }
+                catch (Throwable e) {
+                    log.error(e, "Unexpected exception checking rolling deployments");
+                }
+            }
+        }, 0, (long) checkInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop()
+    {
+        deploymentService.shutdownNow();
+    }
+
+    /**
+     * Creates a deployment of the slots matching the filter.  Exactly one of batchSize and
+     * batchPercentage must be set.  Slots already running the target assignment are skipped.
+     */
+    public RollingDeployment createDeployment(Predicate<SlotStatus> filter,
+            UpgradeVersions upgradeVersions,
+            Integer batchSize,
+            Integer batchPercentage,
+            int parallelism,
+            boolean waitForAnnouncement,
+            String expectedSlotsVersion)
+    {
+        Preconditions.checkNotNull(filter, "filter is null");
+        Preconditions.checkNotNull(upgradeVersions, "upgradeVersions is null");
+        Preconditions.checkArgument(batchSize == null ^ batchPercentage == null, "Exactly one of batchSize and batchPercentage must be set");
+        Preconditions.checkArgument(batchSize == null || batchSize > 0, "batchSize must be at least 1");
+        Preconditions.checkArgument(batchPercentage == null || (batchPercentage > 0 && batchPercentage <= 100), "batchPercentage must be between 1 and 100");
+
+        // verify the state of the system hasn't changed
+        List<SlotStatus> slots = coordinator.getAllSlotsStatus(filter);
+        checkSlotsVersion(expectedSlotsVersion, slots);
+
+        // the whole deployment must move to a single new version
+        Set<Assignment> newAssignments = newHashSet();
+        List<SlotStatus> slotsToUpgrade = newArrayList();
+        for (SlotStatus slot : slots) {
+            SlotLifecycleState state = slot.getState();
+            if (state != TERMINATED && state != UNKNOWN) {
+                newAssignments.add(upgradeVersions.upgradeAssignment(repository, slot.getAssignment()));
+                slotsToUpgrade.add(slot);
+            }
+        }
+        if (newAssignments.size() > 1) {
+            throw new AmbiguousUpgradeException(newAssignments);
+        }
+        Assignment assignment = newAssignments.isEmpty() ? null : newAssignments.iterator().next();
+
+        List<UUID> slotIds = newArrayList();
+        for (SlotStatus slot : slotsToUpgrade) {
+            if (slot.getState() != RUNNING || !slot.getAssignment().equals(assignment)) {
+                slotIds.add(slot.getId());
+            }
+        }
+
+        if (batchPercentage != null) {
+            batchSize = Math.max(1, (slotIds.size() * batchPercentage + 99) / 100);
+        }
+
+        RollingDeployment deployment = new RollingDeployment(coordinator,
+                serviceInventory,
+                upgradeVersions,
+                assignment,
+                slotIds,
+                batchSize,
+                parallelism,
+                waitForAnnouncement,
+                batchTimeout);
+        deployments.put(deployment.getId(), deployment);
+        log.info("Created rolling deployment %s of %s slots to %s in batches of %s", deployment.getId(), slotIds.size(), assignment, batchSize);
+        return deployment;
+    }
+
+    public List<RollingDeployment> getDeployments()
+    {
+        return ImmutableList.copyOf(deployments.values());
+    }
+
+    public RollingDeployment getDeployment(UUID deploymentId)
+    {
+        return deployments.get(deploymentId);
+    }
+
+    /**
+     * Removes a deployment that is not running, which cancels the remaining batches.
+     */
+    public boolean removeDeployment(UUID deploymentId)
+    {
+        RollingDeployment deployment = deployments.get(deploymentId);
+        if (deployment == null || deployment.getState() == RollingDeploymentState.RUNNING) {
+            return false;
+        }
+        return deployments.remove(deploymentId, deployment);
+    }
+
+    /**
+     * Advances the running deployments, and removes the deployments that completed or failed
+     * longer than the retention ago.
+     */
+    @VisibleForTesting
+    public void checkDeployments()
+    {
+        long expiration = System.nanoTime() - retentionNanos;
+        for (RollingDeployment deployment : deployments.values()) {
+            try {
+                deployment.checkProgress();
+            }
+            catch (RuntimeException e) {
+                log.error(e, "Unexpected exception checking rolling deployment %s", deployment.getId());
+            }
+            if (deployment.isFinishedBefore(expiration)) {
+                deployments.remove(deployment.getId(), deployment);
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.proofpoint.galaxy.coordinator;
+
+import com.google.common.base.Function;
+import com.proofpoint.galaxy.shared.Assignment;
+import org.codehaus.jackson.annotate.JsonCreator;
+import org.codehaus.jackson.annotate.JsonProperty;
+
+import java.util.List;
+import java.util.UUID;
+
+public class RollingDeploymentRepresentation
+{
+    private final UUID id;
+    private final String state;
+    private final String binary;
+    private final String config;
+    private final int batchSize;
+    private final boolean waitForAnnouncement;
+    private final int totalSlots;
+    private final List<UUID> completedSlots;
+    private final List<UUID> currentBatch;
+    private final List<UUID> pendingSlots;
+    private final String statusMessage;
+
+    public static Function<RollingDeployment, RollingDeploymentRepresentation> fromRollingDeployment()
+    {
+        return new Function<RollingDeployment, RollingDeploymentRepresentation>()
+        {
+            public RollingDeploymentRepresentation apply(RollingDeployment deployment)
+            {
+                return from(deployment);
+            }
+        };
+    }
+
+    public static RollingDeploymentRepresentation from(RollingDeployment deployment)
+    {
+        // take the mutable fields under a single lock so the counts add up
+        synchronized (deployment) {
+            Assignment assignment = deployment.getAssignment();
+            return new RollingDeploymentRepresentation(deployment.getId(),
+                    deployment.getState().toString(),
+                    assignment != null ? assignment.getBinary() : null,
+                    assignment != null ? assignment.getConfig() : null,
+                    deployment.getBatchSize(),
+                    deployment.isWaitForAnnouncement(),
+                    deployment.getTotalSlots(),
+                    deployment.getCompletedSlots(),
+                    deployment.getCurrentBatch(),
+                    deployment.getPendingSlots(),
+                    deployment.getStatusMessage());
+        }
+    }
+
+    @JsonCreator
+    public RollingDeploymentRepresentation(@JsonProperty("id") UUID id,
+            @JsonProperty("state") String state,
+            @JsonProperty("binary") String binary,
+            @JsonProperty("config") String config,
+            @JsonProperty("batchSize") int batchSize,
+            @JsonProperty("waitForAnnouncement") boolean waitForAnnouncement,
+            @JsonProperty("totalSlots") int totalSlots,
+            @JsonProperty("completedSlots") List<UUID> completedSlots,
+            @JsonProperty("currentBatch") List<UUID> currentBatch,
+            @JsonProperty("pendingSlots") List<UUID> pendingSlots,
+            @JsonProperty("statusMessage") String statusMessage)
+    {
+        this.id = id;
+        this.state = state;
+        this.binary = binary;
+        this.config = config;
+        this.batchSize = batchSize;
+        this.waitForAnnouncement = waitForAnnouncement;
+        this.totalSlots = totalSlots;
+        this.completedSlots = completedSlots;
+        this.currentBatch = currentBatch;
+        this.pendingSlots = pendingSlots;
+        this.statusMessage = statusMessage;
+    }
+
+    @JsonProperty
+    public UUID getId()
+    {
+        return id;
+    }
+
+    @JsonProperty
+    public String getState()
+    {
+        return state;
+    }
+
+    @JsonProperty
+    public String getBinary()
+    {
+        return binary;
+    }
+
+    @JsonProperty
+    public String getConfig()
+    {
+        return config;
+    }
+
+    @JsonProperty
+    public int getBatchSize()
+    {
+        return batchSize;
+    }
+
+    @JsonProperty
+    public boolean isWaitForAnnouncement()
+    {
+        return waitForAnnouncement;
+    }
+
+    @JsonProperty
+    public int getTotalSlots()
+    {
+        return totalSlots;
+    }
+
+    @JsonProperty
+    public List<UUID> getCompletedSlots()
+    {
+        return completedSlots;
+    }
+
+    @JsonProperty
+    public List<UUID> getCurrentBatch()
+    {
+        return currentBatch;
+    }
+
+    @JsonProperty
+    public List<UUID> getPendingSlots()
+    {
+        return pendingSlots;
+    }
+
+    @JsonProperty
+    public String getStatusMessage()
+    {
+        return statusMessage;
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("RollingDeploymentRepresentation");
+        sb.append("{id=").append(id);
+        sb.append(", state='").append(state).append('\'');
+        sb.append(", binary='").append(binary).append('\'');
+        sb.append(", config='").append(config).append('\'');
+        sb.append(", batchSize=").append(batchSize);
+        sb.append(", totalSlots=").append(totalSlots);
+        sb.append(", completedSlots=").append(completedSlots.size());
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,136 @@
+package com.proofpoint.galaxy.coordinator;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Predicate;
+import com.google.inject.Inject;
+import com.proofpoint.galaxy.shared.SlotStatus;
+import com.proofpoint.galaxy.shared.UpgradeVersions;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.DELETE;
+import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.POST;
+import javax.ws.rs.PUT;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.UriInfo;
+import java.util.UUID;
+
+import static com.google.common.collect.Collections2.transform;
+import static com.proofpoint.galaxy.coordinator.RollingDeploymentRepresentation.fromRollingDeployment;
+import static com.proofpoint.galaxy.shared.VersionsUtil.GALAXY_SLOTS_VERSION_HEADER;
+
+@Path("/v1/deployment")
+public class RollingDeploymentResource
+{
+    private final Coordinator coordinator;
+    private final RollingDeploymentManager deploymentManager;
+
+    @Inject
+    public RollingDeploymentResource(Coordinator coordinator, RollingDeploymentManager deploymentManager)
+    {
+        Preconditions.checkNotNull(coordinator, "coordinator must not be null");
+        Preconditions.checkNotNull(deploymentManager, "deploymentManager is null");
+
+        this.coordinator = coordinator;
+        this.deploymentManager = deploymentManager;
+    }
+
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getAllDeployments()
+    {
+        return Response.ok(transform(deploymentManager.getDeployments(), fromRollingDeployment())).build();
+    }
+
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response createDeployment(UpgradeVersions upgradeVersions,
+            @QueryParam("batchSize") Integer batchSize,
+            @QueryParam("batchPercentage") Integer batchPercentage,
+            @QueryParam("parallelism") Integer parallelism,
+            @QueryParam("waitForAnnouncement") boolean waitForAnnouncement,
+            @Context UriInfo uriInfo,
+            @HeaderParam(GALAXY_SLOTS_VERSION_HEADER) String expectedSlotsVersion)
+    {
+        Preconditions.checkNotNull(upgradeVersions, "upgradeVersions must not be null");
+        Preconditions.checkArgument(parallelism == null || parallelism > 0, "parallelism must be at least 1");
+
+        // build filter
+        Predicate<SlotStatus> slotFilter = SlotFilterBuilder.build(uriInfo, true, coordinator.getSnapshot().getSlotIndex());
+
+        RollingDeployment deployment = deploymentManager.createDeployment(slotFilter,
+                upgradeVersions,
+                batchSize,
+                batchPercentage,
+                Objects.firstNonNull(parallelism, Integer.MAX_VALUE),
+                waitForAnnouncement,
+                expectedSlotsVersion);
+
+        return Response.ok(RollingDeploymentRepresentation.from(deployment)).build();
+    }
+
+    @GET
+    @Path("{deploymentId}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getDeployment(@PathParam("deploymentId") UUID deploymentId)
+    {
+        RollingDeployment deployment = deploymentManager.getDeployment(deploymentId);
+        if (deployment == null) {
+            return Response.status(Status.NOT_FOUND).build();
+        }
+        return Response.ok(RollingDeploymentRepresentation.from(deployment)).build();
+    }
+
+    @PUT
+    @Path("{deploymentId}/state")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response setState(@PathParam("deploymentId") UUID deploymentId, String newState)
+    {
+        Preconditions.checkNotNull(newState, "newState must not be null");
+
+        RollingDeployment deployment = deploymentManager.getDeployment(deploymentId);
+        if (deployment == null) {
+            return Response.status(Status.NOT_FOUND).build();
+        }
+
+        boolean changed;
+        if ("paused".equalsIgnoreCase(newState)) {
+            changed = deployment.pause();
+        }
+        else if ("running".equalsIgnoreCase(newState)) {
+            changed = deployment.resume();
+        }
+        else {
+            return Response.status(Status.BAD_REQUEST).build();
+        }
+
+        if (!changed) {
+            return Response.status(Status.CONFLICT).entity(RollingDeploymentRepresentation.from(deployment)).build();
+        }
+        return Response.ok(RollingDeploymentRepresentation.from(deployment)).build();
+    }
+
+    @DELETE
+    @Path("{deploymentId}")
+    public Response removeDeployment(@PathParam("deploymentId") UUID deploymentId)
+    {
+        if (deploymentManager.getDeployment(deploymentId) == null) {
+            return Response.status(Status.NOT_FOUND).build();
+        }
+        if (!deploymentManager.removeDeployment(deploymentId)) {
+            // running deployments must be paused first
+            return Response.status(Status.CONFLICT).build();
+        }
+        return Response.ok().build();
+    }
+}
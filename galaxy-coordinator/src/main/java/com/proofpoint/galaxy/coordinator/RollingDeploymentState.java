@@ -0,0 +1,9 @@
+package com.proofpoint.galaxy.coordinator;
+
+public enum RollingDeploymentState
+{
+    RUNNING,
+    PAUSED,
+    FAILED,
+    COMPLETED
+}
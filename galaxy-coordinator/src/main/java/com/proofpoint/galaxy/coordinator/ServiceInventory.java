@@ -7,5 +7,10 @@ import java.util.List;
 
 public interface ServiceInventory
 {
+    /**
+     * Gets the service inventory of every slot in the cluster.  Implementations may reuse the
+     * inventory computed by the previous call, so callers must pass all slots rather than a
+     * subset, and filter the returned descriptors instead.
+     */
     List<ServiceDescriptor> getServiceInventory(Iterable<SlotStatus> allSlotStatus);
 }
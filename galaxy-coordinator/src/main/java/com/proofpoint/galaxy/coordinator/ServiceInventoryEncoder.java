@@ -0,0 +1,83 @@
+package com.proofpoint.galaxy.coordinator;
+
+import com.google.common.base.Preconditions;
+import com.proofpoint.discovery.client.ServiceDescriptor;
+import com.proofpoint.discovery.client.ServiceDescriptorsRepresentation;
+import com.proofpoint.galaxy.shared.DigestUtils;
+import com.proofpoint.galaxy.shared.SmileCodec;
+import com.proofpoint.json.JsonCodec;
+
+import java.util.List;
+
+import static com.proofpoint.galaxy.shared.SmileCodec.smileCodec;
+
+/**
+ * Encodes the service inventory sent to agents.  The inventory is encoded once per change
+ * and shared by every agent, and the version, a digest of the encoded inventory, lets an
+ * agent that already has the inventory be skipped.  Agents that accept Smile are sent the
+ * Smile encoding, which has the same version.
+ */
+class ServiceInventoryEncoder
+{
+    private static final SmileCodec<ServiceDescriptorsRepresentation> SERVICE_DESCRIPTORS_SMILE_CODEC = smileCodec(ServiceDescriptorsRepresentation.class);
+
+    private final String environment;
+    private final JsonCodec<ServiceDescriptorsRepresentation> serviceDescriptorsCodec;
+    private volatile EncodedServiceInventory lastEncoded;
+
+    public ServiceInventoryEncoder(String environment, JsonCodec<ServiceDescriptorsRepresentation> serviceDescriptorsCodec)
+    {
+        Preconditions.checkNotNull(environment, "environment is null");
+        Preconditions.checkNotNull(serviceDescriptorsCodec, "serviceDescriptorsCodec is null");
+
+        this.environment = environment;
+        this.serviceDescriptorsCodec = serviceDescriptorsCodec;
+    }
+
+    public EncodedServiceInventory encode(List<ServiceDescriptor> serviceInventory)
+    {
+        Preconditions.checkNotNull(serviceInventory, "serviceInventory is null");
+
+        // the service inventory returns the same list until a slot changes
+        EncodedServiceInventory encoded = lastEncoded;
+        if (encoded == null || encoded.serviceInventory != serviceInventory) {
+            ServiceDescriptorsRepresentation representation = new ServiceDescriptorsRepresentation(environment, serviceInventory);
+            String json = serviceDescriptorsCodec.toJson(representation);
+            byte[] smile = SERVICE_DESCRIPTORS_SMILE_CODEC.toSmile(representation);
+            encoded = new EncodedServiceInventory(serviceInventory, json, smile, DigestUtils.md5Hex(json));
+            lastEncoded = encoded;
+        }
+        return encoded;
+    }
+
+    public static class EncodedServiceInventory
+    {
+        private final List<ServiceDescriptor> serviceInventory;
+        private final String json;
+        private final byte[] smile;
+        private final String version;
+
+        private EncodedServiceInventory(List<ServiceDescriptor> serviceInventory, String json, byte[] smile, String version)
+        {
+            this.serviceInventory = serviceInventory;
+            this.json = json;
+            this.smile = smile;
+            this.version = version;
+        }
+
+        public String getJson()
+        {
+            return json;
+        }
+
+        public byte[] getSmile()
+        {
+            return smile;
+        }
+
+        public String getVersion()
+        {
+            return version;
+        }
+    }
+}
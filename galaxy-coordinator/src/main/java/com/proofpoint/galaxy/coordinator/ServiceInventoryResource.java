@@ -24,6 +24,8 @@ import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
+import static com.proofpoint.galaxy.shared.SmileCodec.APPLICATION_SMILE;
+
 @Path("/v1/serviceInventory")
 public class ServiceInventoryResource
 {
@@ -44,7 +46,7 @@ public class ServiceInventoryResource
     }
 
     @GET
-    @Produces(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, APPLICATION_SMILE})
     public Response getServiceInventory()
     {
         return Response.ok(new ServiceDescriptorsRepresentation(environment, serviceInventory.getServiceInventory(coordinator.getAllSlotStatus()))).build();
@@ -3,14 +3,19 @@ package com.proofpoint.galaxy.coordinator;
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.services.simpledb.AmazonSimpleDB;
 import com.amazonaws.services.simpledb.model.Attribute;
+import com.amazonaws.services.simpledb.model.BatchDeleteAttributesRequest;
+import com.amazonaws.services.simpledb.model.BatchPutAttributesRequest;
 import com.amazonaws.services.simpledb.model.CreateDomainRequest;
+import com.amazonaws.services.simpledb.model.DeletableItem;
 import com.amazonaws.services.simpledb.model.DeleteAttributesRequest;
 import com.amazonaws.services.simpledb.model.Item;
 import com.amazonaws.services.simpledb.model.PutAttributesRequest;
 import com.amazonaws.services.simpledb.model.ReplaceableAttribute;
+import com.amazonaws.services.simpledb.model.ReplaceableItem;
 import com.amazonaws.services.simpledb.model.SelectRequest;
 import com.amazonaws.services.simpledb.model.SelectResult;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
 import com.proofpoint.galaxy.shared.Assignment;
 import com.proofpoint.galaxy.shared.ExpectedSlotStatus;
 import com.proofpoint.galaxy.shared.SlotLifecycleState;
@@ -28,6 +33,10 @@ import static com.google.common.collect.Lists.newArrayList;
 public class SimpleDbStateManager implements StateManager
 {
     private static final Logger log = Logger.get(SimpleDbStateManager.class);
+
+    // SimpleDB accepts at most 25 items in a single batch request
+    private static final int MAX_BATCH_ITEMS = 25;
+
     private final AmazonSimpleDB simpleDb;
     private final String domainName;
     private boolean domainCreated;
@@ -39,25 +48,34 @@ public class SimpleDbStateManager implements StateManager
         domainName = "galaxy-" + nodeInfo.getEnvironment();
     }
 
+    /**
+     * Loads every page of the domain.  Unlike the single slot operations, failures are
+     * rethrown so a caller can tell an empty store from an unavailable one.
+     */
     @Override
     public Collection<ExpectedSlotStatus> getAllExpectedStates()
     {
+        checkDomainCreated();
+
         List<ExpectedSlotStatus> slots = newArrayList();
-        if (isDomainCreated()) {
-            try {
-                String query = String.format("select itemName, state, binary, config from `%s`", domainName);
-                SelectResult select = simpleDb.select(new SelectRequest(query, true));
+        try {
+            String query = String.format("select itemName, state, binary, config from `%s`", domainName);
+            String nextToken = null;
+            do {
+                SelectResult select = simpleDb.select(new SelectRequest(query, true).withNextToken(nextToken));
                 for (Item item : select.getItems()) {
                     ExpectedSlotStatus expectedSlotStatus = loadSlotStatus(item);
                     if (expectedSlotStatus != null) {
                         slots.add(expectedSlotStatus);
                     }
                 }
-                expectedStateStoreUp();
-            }
-            catch (Exception e) {
-                expectedStateStoreDown(e);
-            }
+                nextToken = select.getNextToken();
+            } while (nextToken != null);
+            expectedStateStoreUp();
+        }
+        catch (RuntimeException e) {
+            expectedStateStoreDown(e);
+            throw e;
         }
         return slots;
     }
@@ -89,15 +107,8 @@ public class SimpleDbStateManager implements StateManager
         Preconditions.checkNotNull(slotStatus, "slotStatus is null");
 
         if (isDomainCreated()) {
-            List<ReplaceableAttribute> attributes = newArrayList();
-            attributes.add(new ReplaceableAttribute("state", slotStatus.getStatus().toString(), true));
-            if (slotStatus.getAssignment() != null) {
-                attributes.add(new ReplaceableAttribute("binary", slotStatus.getAssignment().getBinary(), true));
-                attributes.add(new ReplaceableAttribute("config", slotStatus.getAssignment().getConfig(), true));
-            }
-
             try {
-                simpleDb.putAttributes(new PutAttributesRequest().withDomainName(domainName).withItemName(slotStatus.getId().toString()).withAttributes(attributes));
+                simpleDb.putAttributes(new PutAttributesRequest().withDomainName(domainName).withItemName(slotStatus.getId().toString()).withAttributes(toAttributes(slotStatus)));
                 expectedStateStoreUp();
             }
             catch (Exception e) {
@@ -106,6 +117,74 @@ public class SimpleDbStateManager implements StateManager
         }
     }
 
+    @Override
+    public void deleteExpectedStates(Collection<UUID> slotIds)
+    {
+        Preconditions.checkNotNull(slotIds, "slotIds is null");
+        checkDomainCreated();
+
+        List<DeletableItem> items = newArrayList();
+        for (UUID slotId : slotIds) {
+            List<Attribute> attributes = newArrayList();
+            attributes.add(new Attribute("state", null));
+            attributes.add(new Attribute("binary", null));
+            attributes.add(new Attribute("config", null));
+            items.add(new DeletableItem(slotId.toString(), attributes));
+        }
+
+        try {
+            for (List<DeletableItem> batch : Lists.partition(items, MAX_BATCH_ITEMS)) {
+                simpleDb.batchDeleteAttributes(new BatchDeleteAttributesRequest(domainName, batch));
+            }
+            expectedStateStoreUp();
+        }
+        catch (RuntimeException e) {
+            expectedStateStoreDown(e);
+            throw e;
+        }
+    }
+
+    @Override
+    public void setExpectedStates(Collection<ExpectedSlotStatus> slotStatuses)
+    {
+        Preconditions.checkNotNull(slotStatuses, "slotStatuses is null");
+        checkDomainCreated();
+
+        List<ReplaceableItem> items = newArrayList();
+        for (ExpectedSlotStatus slotStatus : slotStatuses) {
+            items.add(new ReplaceableItem(slotStatus.getId().toString(), toAttributes(slotStatus)));
+        }
+
+        try {
+            for (List<ReplaceableItem> batch : Lists.partition(items, MAX_BATCH_ITEMS)) {
+                simpleDb.batchPutAttributes(new BatchPutAttributesRequest(domainName, batch));
+            }
+            expectedStateStoreUp();
+        }
+        catch (RuntimeException e) {
+            expectedStateStoreDown(e);
+            throw e;
+        }
+    }
+
+    private List<ReplaceableAttribute> toAttributes(ExpectedSlotStatus slotStatus)
+    {
+        List<ReplaceableAttribute> attributes = newArrayList();
+        attributes.add(new ReplaceableAttribute("state", slotStatus.getStatus().toString(), true));
+        if (slotStatus.getAssignment() != null) {
+            attributes.add(new ReplaceableAttribute("binary", slotStatus.getAssignment().getBinary(), true));
+            attributes.add(new ReplaceableAttribute("config", slotStatus.getAssignment().getConfig(), true));
+        }
+        return attributes;
+    }
+
+    private void checkDomainCreated()
+    {
+        if (!isDomainCreated()) {
+            throw new IllegalStateException("Expected state domain " + domainName + " could not be created");
+        }
+    }
+
     private synchronized boolean isDomainCreated()
     {
         if (!domainCreated) {
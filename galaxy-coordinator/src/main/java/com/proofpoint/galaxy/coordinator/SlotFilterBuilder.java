@@ -5,6 +5,7 @@ import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
 import com.google.common.collect.Collections2;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.proofpoint.galaxy.shared.HttpUriBuilder;
 import com.proofpoint.galaxy.shared.SlotLifecycleState;
@@ -13,6 +14,7 @@ import com.proofpoint.galaxy.shared.SlotStatus;
 import javax.annotation.Nullable;
 import javax.ws.rs.core.UriInfo;
 import java.net.URI;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map.Entry;
@@ -30,6 +32,16 @@ public class SlotFilterBuilder
     }
 
     public static Predicate<SlotStatus> build(UriInfo uriInfo, boolean filterRequired, List<UUID> allUuids)
+    {
+        return fromUriInfo(uriInfo).buildPredicate(filterRequired, allUuids);
+    }
+
+    public static Predicate<SlotStatus> build(UriInfo uriInfo, boolean filterRequired, SlotIndex slotIndex)
+    {
+        return fromUriInfo(uriInfo).buildPredicate(filterRequired, slotIndex);
+    }
+
+    private static SlotFilterBuilder fromUriInfo(UriInfo uriInfo)
     {
         SlotFilterBuilder builder = new SlotFilterBuilder();
         for (Entry<String, List<String>> entry : uriInfo.getQueryParameters().entrySet()) {
@@ -67,7 +79,7 @@ public class SlotFilterBuilder
                 builder.selectAll();
             }
         }
-        return builder.buildPredicate(filterRequired, allUuids);
+        return builder;
     }
 
     private final List<SlotLifecycleState> stateFilters = Lists.newArrayListWithCapacity(6);
@@ -132,85 +144,103 @@ public class SlotFilterBuilder
     }
 
     public Predicate<SlotStatus> buildPredicate(boolean filterRequired, final List<UUID> allUuids)
+    {
+        return buildPredicate(filterRequired, new Function<String, SlotUuidPredicate>()
+        {
+            @Override
+            public SlotUuidPredicate apply(String shortId)
+            {
+                return new SlotUuidPredicate(shortId, allUuids);
+            }
+        });
+    }
+
+    /**
+     * Builds a predicate that resolves short ids using the index.  When applied to the
+     * slots of the same snapshot with {@link ClusterSnapshot#getSlots(Predicate)}, the
+     * slots are selected with index lookups instead of testing every slot.
+     */
+    public Predicate<SlotStatus> buildPredicate(boolean filterRequired, final SlotIndex slotIndex)
+    {
+        Preconditions.checkNotNull(slotIndex, "slotIndex is null");
+        return buildPredicate(filterRequired, new Function<String, SlotUuidPredicate>()
+        {
+            @Override
+            public SlotUuidPredicate apply(String shortId)
+            {
+                return new SlotUuidPredicate(shortId, slotIndex);
+            }
+        });
+    }
+
+    private Predicate<SlotStatus> buildPredicate(boolean filterRequired, Function<String, SlotUuidPredicate> slotUuidPredicateFactory)
     {
         // Filters are evaluated as: set | host | (env & version & type)
-        List<Predicate<SlotStatus>> andPredicates = Lists.newArrayListWithCapacity(6);
+        // The cheap and selective filters go first, so index lookups can stop early
+        List<List<IndexedSlotPredicate>> andPredicates = Lists.newArrayListWithCapacity(6);
         if (!slotUuidFilters.isEmpty()) {
-            Predicate<SlotStatus> predicate = Predicates.or(Lists.transform(slotUuidFilters, new Function<String, Predicate<SlotStatus>>()
-            {
-                @Override
-                public Predicate<SlotStatus> apply(String shortId)
-                {
-                    return new SlotUuidPredicate(shortId, allUuids);
-                }
-            }));
-            andPredicates.add(predicate);
+            andPredicates.add(ImmutableList.<IndexedSlotPredicate>copyOf(Lists.transform(slotUuidFilters, slotUuidPredicateFactory)));
         }
 
         if (!stateFilters.isEmpty()) {
-            Predicate<SlotStatus> predicate = Predicates.or(Lists.transform(stateFilters, new Function<SlotLifecycleState, StatePredicate>()
+            andPredicates.add(ImmutableList.<IndexedSlotPredicate>copyOf(Lists.transform(stateFilters, new Function<SlotLifecycleState, StatePredicate>()
             {
                 @Override
                 public StatePredicate apply(SlotLifecycleState state)
                 {
                     return new StatePredicate(state);
                 }
-            }));
-            andPredicates.add(predicate);
+            })));
         }
 
         if (!hostGlobs.isEmpty()) {
-            Predicate<SlotStatus> predicate = Predicates.or(Lists.transform(hostGlobs, new Function<String, HostPredicate>()
+            andPredicates.add(ImmutableList.<IndexedSlotPredicate>copyOf(Lists.transform(hostGlobs, new Function<String, HostPredicate>()
             {
                 @Override
                 public HostPredicate apply(String hostGlob)
                 {
                     return new HostPredicate(hostGlob);
                 }
-            }));
-            andPredicates.add(predicate);
+            })));
         }
 
         if (!machineGlobs.isEmpty()) {
-            Predicate<SlotStatus> predicate = Predicates.or(Lists.transform(machineGlobs, new Function<String, MachinePredicate>()
+            andPredicates.add(ImmutableList.<IndexedSlotPredicate>copyOf(Lists.transform(machineGlobs, new Function<String, MachinePredicate>()
             {
                 @Override
                 public MachinePredicate apply(String machineGlob)
                 {
                     return new MachinePredicate(machineGlob);
                 }
-            }));
-            andPredicates.add(predicate);
+            })));
         }
 
         if (!binaryGlobs.isEmpty()) {
-            Predicate<SlotStatus> predicate = Predicates.or(Lists.transform(binaryGlobs, new Function<String, BinarySpecPredicate>()
+            andPredicates.add(ImmutableList.<IndexedSlotPredicate>copyOf(Lists.transform(binaryGlobs, new Function<String, BinarySpecPredicate>()
             {
                 @Override
                 public BinarySpecPredicate apply(String binarySpecPredicate)
                 {
                     return new BinarySpecPredicate(binarySpecPredicate);
                 }
-            }));
-            andPredicates.add(predicate);
+            })));
         }
         if (!configGlobs.isEmpty()) {
-            Predicate<SlotStatus> predicate = Predicates.or(Lists.transform(configGlobs, new Function<String, ConfigSpecPredicate>()
+            andPredicates.add(ImmutableList.<IndexedSlotPredicate>copyOf(Lists.transform(configGlobs, new Function<String, ConfigSpecPredicate>()
             {
                 @Override
                 public ConfigSpecPredicate apply(String configSpecPredicate)
                 {
                     return new ConfigSpecPredicate(configSpecPredicate);
                 }
-            }));
-            andPredicates.add(predicate);
+            })));
         }
 
         if (selectAll) {
             return Predicates.alwaysTrue();
         }
         else if (!andPredicates.isEmpty()) {
-            return Predicates.and(andPredicates);
+            return new SlotQuery(andPredicates);
         }
         else if (!filterRequired) {
             return Predicates.alwaysTrue();
@@ -252,30 +282,112 @@ public class SlotFilterBuilder
         return uriBuilder.build();
     }
 
-    public static class SlotUuidPredicate implements Predicate<SlotStatus>
+    /**
+     * A slot predicate that can also select the matching slots using a {@link SlotIndex}.
+     */
+    public interface IndexedSlotPredicate extends Predicate<SlotStatus>
+    {
+        BitSet select(SlotIndex slotIndex);
+    }
+
+    /**
+     * Matches slots that match at least one predicate of every clause.
+     */
+    public static class SlotQuery implements Predicate<SlotStatus>
+    {
+        private final List<List<IndexedSlotPredicate>> clauses;
+
+        public SlotQuery(List<List<IndexedSlotPredicate>> clauses)
+        {
+            Preconditions.checkNotNull(clauses, "clauses is null");
+            Preconditions.checkArgument(!clauses.isEmpty(), "clauses is empty");
+            this.clauses = ImmutableList.copyOf(clauses);
+        }
+
+        @Override
+        public boolean apply(@Nullable SlotStatus slotStatus)
+        {
+            for (List<IndexedSlotPredicate> clause : clauses) {
+                if (!matchesAny(clause, slotStatus)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static boolean matchesAny(List<IndexedSlotPredicate> predicates, SlotStatus slotStatus)
+        {
+            for (IndexedSlotPredicate predicate : predicates) {
+                if (predicate.apply(slotStatus)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public List<SlotStatus> select(SlotIndex slotIndex)
+        {
+            BitSet selected = null;
+            for (List<IndexedSlotPredicate> clause : clauses) {
+                BitSet matches = new BitSet();
+                for (IndexedSlotPredicate predicate : clause) {
+                    matches.or(predicate.select(slotIndex));
+                }
+
+                if (selected == null) {
+                    selected = matches;
+                }
+                else {
+                    selected.and(matches);
+                }
+
+                // no need to evaluate the remaining clauses
+                if (selected.isEmpty()) {
+                    break;
+                }
+            }
+            return slotIndex.getSlots(selected);
+        }
+    }
+
+    public static class SlotUuidPredicate implements IndexedSlotPredicate
     {
         private final UUID uuid;
 
         public SlotUuidPredicate(String shortId, List<UUID> allUuids)
         {
-            Predicate<UUID> startsWithPrefix = Predicates.compose(startsWith(shortId.toLowerCase()), compose(toLowerCase(), StringFunctions.<UUID>toStringFunction()));
-            Collection<UUID> matches = Collections2.filter(allUuids, startsWithPrefix);
+            this(resolveShortId(shortId, Collections2.filter(allUuids, Predicates.compose(startsWith(shortId.toLowerCase()), compose(toLowerCase(), StringFunctions.<UUID>toStringFunction())))));
+        }
+
+        public SlotUuidPredicate(String shortId, SlotIndex slotIndex)
+        {
+            this(resolveShortId(shortId, slotIndex.getSlotIdsWithPrefix(shortId)));
+        }
 
+        public SlotUuidPredicate(UUID uuid)
+        {
+            this.uuid = uuid;
+        }
+
+        private static UUID resolveShortId(String shortId, Collection<UUID> matches)
+        {
             if (matches.size() > 1) {
                 throw new IllegalArgumentException(format("Ambiguous expansion for id '%s': %s", shortId, matches));
             }
 
             if (matches.isEmpty()) {
-                uuid = null;
-            }
-            else {
-                uuid = matches.iterator().next();
+                return null;
             }
+            return matches.iterator().next();
         }
 
-        public SlotUuidPredicate(UUID uuid)
+        @Override
+        public BitSet select(SlotIndex slotIndex)
         {
-            this.uuid = uuid;
+            if (uuid == null) {
+                return new BitSet();
+            }
+            return slotIndex.selectById(uuid);
         }
 
         @Override
@@ -288,7 +400,7 @@ public class SlotFilterBuilder
         }
     }
 
-    public static class HostPredicate implements Predicate<SlotStatus>
+    public static class HostPredicate implements IndexedSlotPredicate
     {
         private final UriHostPredicate predicate;
 
@@ -297,15 +409,28 @@ public class SlotFilterBuilder
             predicate = new UriHostPredicate(hostGlob.toLowerCase());
         }
 
+        @Override
+        public BitSet select(SlotIndex slotIndex)
+        {
+            return slotIndex.selectByHost(new Predicate<String>()
+            {
+                @Override
+                public boolean apply(String host)
+                {
+                    return predicate.applyHost(host);
+                }
+            });
+        }
+
         @Override
         public boolean apply(@Nullable SlotStatus slotStatus)
         {
             return slotStatus != null &&
-                    (predicate.apply(slotStatus.getExternalUri()) || predicate.apply(slotStatus.getSelf()));
+                    (predicate.applyHost(slotStatus.getExternalHost()) || predicate.applyHost(slotStatus.getInternalHost()));
         }
     }
 
-    public static class MachinePredicate implements Predicate<SlotStatus>
+    public static class MachinePredicate implements IndexedSlotPredicate
     {
         private final GlobPredicate predicate;
 
@@ -314,6 +439,12 @@ public class SlotFilterBuilder
             predicate = new GlobPredicate(machineGlob);
         }
 
+        @Override
+        public BitSet select(SlotIndex slotIndex)
+        {
+            return slotIndex.selectByMachine(predicate);
+        }
+
         @Override
         public boolean apply(@Nullable SlotStatus slotStatus)
         {
@@ -321,7 +452,7 @@ public class SlotFilterBuilder
         }
     }
 
-    public static class StatePredicate implements Predicate<SlotStatus>
+    public static class StatePredicate implements IndexedSlotPredicate
     {
         private final SlotLifecycleState state;
 
@@ -330,6 +461,12 @@ public class SlotFilterBuilder
             this.state = state;
         }
 
+        @Override
+        public BitSet select(SlotIndex slotIndex)
+        {
+            return slotIndex.selectByState(state);
+        }
+
         @Override
         public boolean apply(SlotStatus slotStatus)
         {
@@ -337,7 +474,7 @@ public class SlotFilterBuilder
         }
     }
 
-    public static class BinarySpecPredicate implements Predicate<SlotStatus>
+    public static class BinarySpecPredicate implements IndexedSlotPredicate
     {
         private final Predicate<CharSequence> glob;
 
@@ -346,6 +483,12 @@ public class SlotFilterBuilder
             glob = new GlobPredicate("*" + binaryFilter + "*");
         }
 
+        @Override
+        public BitSet select(SlotIndex slotIndex)
+        {
+            return slotIndex.selectByBinary(glob);
+        }
+
         @Override
         public boolean apply(@Nullable SlotStatus slotStatus)
         {
@@ -354,7 +497,7 @@ public class SlotFilterBuilder
         }
     }
 
-    public static class ConfigSpecPredicate implements Predicate<SlotStatus>
+    public static class ConfigSpecPredicate implements IndexedSlotPredicate
     {
         private final Predicate<CharSequence> glob;
 
@@ -363,6 +506,12 @@ public class SlotFilterBuilder
             glob = new GlobPredicate("*" + configFilter + "*");
         }
 
+        @Override
+        public BitSet select(SlotIndex slotIndex)
+        {
+            return slotIndex.selectByConfig(glob);
+        }
+
         @Override
         public boolean apply(@Nullable SlotStatus slotStatus)
         {
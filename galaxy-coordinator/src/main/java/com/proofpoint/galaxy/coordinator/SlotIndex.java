@@ -0,0 +1,206 @@
+package com.proofpoint.galaxy.coordinator;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.proofpoint.galaxy.shared.SlotLifecycleState;
+import com.proofpoint.galaxy.shared.SlotStatus;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.UUID;
+
+/**
+ * Secondary indexes over the slots of a cluster snapshot.  Lookups return the matching
+ * slot positions as a bit set, so the results of several lookups can be combined cheaply
+ * and the selected slots are returned in snapshot order.  Glob lookups are evaluated once
+ * per distinct value instead of once per slot.
+ */
+public class SlotIndex
+{
+    private final List<SlotStatus> slots;
+    private final ImmutableMap<UUID, Integer> positionsById;
+    private final String[] sortedIds;
+    private final UUID[] sortedUuids;
+    private final ImmutableListMultimap<SlotLifecycleState, Integer> positionsByState;
+    private final ImmutableListMultimap<String, Integer> positionsByHost;
+    private final ImmutableListMultimap<String, Integer> positionsByMachine;
+    private final ImmutableListMultimap<String, Integer> positionsByBinary;
+    private final ImmutableListMultimap<String, Integer> positionsByConfig;
+
+    public SlotIndex(List<SlotStatus> slots)
+    {
+        Preconditions.checkNotNull(slots, "slots is null");
+        this.slots = ImmutableList.copyOf(slots);
+
+        ImmutableMap.Builder<UUID, Integer> positionsById = ImmutableMap.builder();
+        ImmutableListMultimap.Builder<SlotLifecycleState, Integer> positionsByState = ImmutableListMultimap.builder();
+        ImmutableListMultimap.Builder<String, Integer> positionsByHost = ImmutableListMultimap.builder();
+        ImmutableListMultimap.Builder<String, Integer> positionsByMachine = ImmutableListMultimap.builder();
+        ImmutableListMultimap.Builder<String, Integer> positionsByBinary = ImmutableListMultimap.builder();
+        ImmutableListMultimap.Builder<String, Integer> positionsByConfig = ImmutableListMultimap.builder();
+
+        // sort the lower case ids so a short id prefix is a binary search
+        IdEntry[] idEntries = new IdEntry[this.slots.size()];
+        for (int position = 0; position < this.slots.size(); position++) {
+            SlotStatus slot = this.slots.get(position);
+            positionsById.put(slot.getId(), position);
+            idEntries[position] = new IdEntry(slot.getId());
+
+            if (slot.getState() != null) {
+                positionsByState.put(slot.getState(), position);
+            }
+
+            String externalHost = slot.getExternalHost();
+            if (externalHost != null) {
+                positionsByHost.put(externalHost, position);
+            }
+            String internalHost = slot.getInternalHost();
+            if (internalHost != null && !internalHost.equals(externalHost)) {
+                positionsByHost.put(internalHost, position);
+            }
+
+            if (slot.getInstanceId() != null) {
+                positionsByMachine.put(slot.getInstanceId(), position);
+            }
+
+            if (slot.getAssignment() != null) {
+                positionsByBinary.put(slot.getAssignment().getBinary(), position);
+                positionsByConfig.put(slot.getAssignment().getConfig(), position);
+            }
+        }
+        Arrays.sort(idEntries);
+
+        this.positionsById = positionsById.build();
+        this.positionsByState = positionsByState.build();
+        this.positionsByHost = positionsByHost.build();
+        this.positionsByMachine = positionsByMachine.build();
+        this.positionsByBinary = positionsByBinary.build();
+        this.positionsByConfig = positionsByConfig.build();
+
+        sortedIds = new String[idEntries.length];
+        sortedUuids = new UUID[idEntries.length];
+        for (int i = 0; i < idEntries.length; i++) {
+            sortedIds[i] = idEntries[i].id;
+            sortedUuids[i] = idEntries[i].uuid;
+        }
+    }
+
+    public List<SlotStatus> getSlots()
+    {
+        return slots;
+    }
+
+    public List<SlotStatus> getSlots(BitSet positions)
+    {
+        ImmutableList.Builder<SlotStatus> builder = ImmutableList.builder();
+        for (int position = positions.nextSetBit(0); position >= 0; position = positions.nextSetBit(position + 1)) {
+            builder.add(slots.get(position));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Gets the ids of all slots that start with the specified prefix (case insensitive).
+     */
+    public List<UUID> getSlotIdsWithPrefix(String prefix)
+    {
+        Preconditions.checkNotNull(prefix, "prefix is null");
+        prefix = prefix.toLowerCase();
+
+        int index = Arrays.binarySearch(sortedIds, prefix);
+        if (index < 0) {
+            index = -(index + 1);
+        }
+
+        ImmutableList.Builder<UUID> matches = ImmutableList.builder();
+        for (; index < sortedIds.length && sortedIds[index].startsWith(prefix); index++) {
+            matches.add(sortedUuids[index]);
+        }
+        return matches.build();
+    }
+
+    public BitSet selectById(UUID slotId)
+    {
+        BitSet positions = new BitSet(slots.size());
+        Integer position = positionsById.get(slotId);
+        if (position != null) {
+            positions.set(position);
+        }
+        return positions;
+    }
+
+    public BitSet selectByState(SlotLifecycleState state)
+    {
+        return toBitSet(positionsByState.get(state));
+    }
+
+    /**
+     * Selects the slots with an internal or external host matching the predicate.  Hosts
+     * are lower case.
+     */
+    public BitSet selectByHost(Predicate<? super String> hostPredicate)
+    {
+        return select(positionsByHost, hostPredicate);
+    }
+
+    public BitSet selectByMachine(Predicate<? super String> machinePredicate)
+    {
+        return select(positionsByMachine, machinePredicate);
+    }
+
+    public BitSet selectByBinary(Predicate<? super String> binaryPredicate)
+    {
+        return select(positionsByBinary, binaryPredicate);
+    }
+
+    public BitSet selectByConfig(Predicate<? super String> configPredicate)
+    {
+        return select(positionsByConfig, configPredicate);
+    }
+
+    private BitSet select(ImmutableListMultimap<String, Integer> index, Predicate<? super String> predicate)
+    {
+        BitSet positions = new BitSet(slots.size());
+        for (Entry<String, Collection<Integer>> entry : index.asMap().entrySet()) {
+            if (predicate.apply(entry.getKey())) {
+                for (Integer position : entry.getValue()) {
+                    positions.set(position);
+                }
+            }
+        }
+        return positions;
+    }
+
+    private BitSet toBitSet(Collection<Integer> positions)
+    {
+        BitSet bitSet = new BitSet(slots.size());
+        for (Integer position : positions) {
+            bitSet.set(position);
+        }
+        return bitSet;
+    }
+
+    private static class IdEntry implements Comparable<IdEntry>
+    {
+        private final UUID uuid;
+        private final String id;
+
+        private IdEntry(UUID uuid)
+        {
+            this.uuid = uuid;
+            this.id = uuid.toString().toLowerCase();
+        }
+
+        @Override
+        public int compareTo(IdEntry o)
+        {
+            return id.compareTo(o.id);
+        }
+    }
+}
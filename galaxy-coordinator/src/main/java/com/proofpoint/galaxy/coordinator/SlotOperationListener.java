@@ -0,0 +1,13 @@
+package com.proofpoint.galaxy.coordinator;
+
+import com.proofpoint.galaxy.shared.SlotStatus;
+
+public interface SlotOperationListener
+{
+    /**
+     * Called once for each slot as soon as the operation on that slot completes.  Calls are
+     * made on the thread that started the operation, so a slow listener does not hold up the
+     * operations on other slots.
+     */
+    void slotOperationCompleted(SlotStatus slotStatus);
+}
@@ -0,0 +1,113 @@
+package com.proofpoint.galaxy.coordinator;
+
+import com.google.common.base.Charsets;
+import com.proofpoint.galaxy.shared.SlotOperationResultRepresentation;
+import com.proofpoint.galaxy.shared.SlotStatus;
+import com.proofpoint.galaxy.shared.SlotStatusRepresentation.SlotStatusRepresentationFactory;
+import com.proofpoint.json.JsonCodec;
+import com.proofpoint.log.Logger;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+ * Writes a JSON array of slot operation results, flushing each element as soon as the
+ * operation on that slot completes.  A client that disconnects stops the writes but not the operation.
+ * <p/>
+ * The response is committed before the operation completes, so an operation that fails ends
+ * the array with a result that carries the error instead of a slot.
+ */
+abstract class SlotOperationStreamingOutput implements StreamingOutput
+{
+    private static final Logger log = Logger.get(SlotOperationStreamingOutput.class);
+    private static final JsonCodec<SlotOperationResultRepresentation> RESULT_CODEC = JsonCodec.jsonCodec(SlotOperationResultRepresentation.class);
+
+    private final SlotStatusRepresentationFactory representationFactory;
+
+    protected SlotOperationStreamingOutput(SlotStatusRepresentationFactory representationFactory)
+    {
+        this.representationFactory = representationFactory;
+    }
+
+    /**
+     * Runs the operation.  The listener is called on the calling thread.
+     */
+    protected abstract void execute(SlotOperationListener listener);
+
+    public void write(OutputStream output)
+            throws IOException, WebApplicationException
+    {
+        final ElementWriter writer = new ElementWriter(output);
+
+        RuntimeException failure = null;
+        try {
+            execute(new SlotOperationListener()
+            {
+                @Override
+                public void slotOperationCompleted(SlotStatus slotStatus)
+                {
+                    writer.writeElement(RESULT_CODEC.toJson(SlotOperationResultRepresentation.completed(representationFactory.create(slotStatus))));
+                }
+            });
+        }
+        catch (RuntimeException e) {
+            failure = e;
+        }
+
+        if (failure != null) {
+            // the response is committed, so the failure can only be reported in the stream
+            log.warn(failure, "Streamed slot operation failed");
+            writer.writeElement(RESULT_CODEC.toJson(SlotOperationResultRepresentation.failed(String.valueOf(failure.getMessage()))));
+        }
+        writer.close();
+    }
+
+    private static class ElementWriter
+    {
+        private final Writer writer;
+        private boolean first = true;
+        private IOException writeFailure;
+
+        private ElementWriter(OutputStream output)
+                throws IOException
+        {
+            writer = new BufferedWriter(new OutputStreamWriter(output, Charsets.UTF_8));
+            writer.write('[');
+            writer.flush();
+        }
+
+        public void writeElement(String json)
+        {
+            if (writeFailure != null) {
+                return;
+            }
+            try {
+                if (!first) {
+                    writer.write(',');
+                }
+                first = false;
+                writer.write(json);
+                writer.flush();
+            }
+            catch (IOException e) {
+                // the client is gone; the operation keeps going without it
+                writeFailure = e;
+            }
+        }
+
+        public void close()
+                throws IOException
+        {
+            if (writeFailure != null) {
+                throw writeFailure;
+            }
+            writer.write(']');
+            writer.flush();
+        }
+    }
+}
@@ -7,6 +7,8 @@ import javax.annotation.Nullable;
 import java.net.InetAddress;
 import java.net.URI;
 
+import static com.proofpoint.galaxy.shared.Strings.lowerCaseHost;
+
 public class UriHostPredicate implements Predicate<URI>
 {
     private final Predicate<CharSequence> predicate;
@@ -23,13 +25,21 @@ public class UriHostPredicate implements Predicate<URI>
             return false;
         }
 
-        String host = uri.getHost();
+        return applyHost(lowerCaseHost(uri));
+    }
+
+    /**
+     * Applies the predicate to an already lower case host, such as the hosts precomputed
+     * by the status objects.
+     */
+    public boolean applyHost(@Nullable String host)
+    {
         if (host == null) {
             return false;
         }
 
         // match host string directly
-        if (predicate.apply(host.toLowerCase())) {
+        if (predicate.apply(host)) {
             return true;
         }
 
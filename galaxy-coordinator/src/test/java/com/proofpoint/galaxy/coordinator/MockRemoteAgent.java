@@ -5,6 +5,8 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.proofpoint.discovery.client.ServiceDescriptor;
 import com.proofpoint.galaxy.shared.AgentLifecycleState;
 import com.proofpoint.galaxy.shared.AgentStatus;
@@ -59,8 +61,9 @@ public class MockRemoteAgent implements RemoteAgent
     }
 
     @Override
-    public void updateStatus()
+    public ListenableFuture<?> updateStatus()
     {
+        return Futures.immediateFuture(null);
     }
 
     void setSlotStatus(SlotStatus slotStatus)
@@ -70,8 +73,9 @@ public class MockRemoteAgent implements RemoteAgent
     }
 
     @Override
-    public void setServiceInventory(List<ServiceDescriptor> serviceInventory)
+    public ListenableFuture<?> setServiceInventory(List<ServiceDescriptor> serviceInventory)
     {
+        return Futures.immediateFuture(null);
     }
 
     @Override
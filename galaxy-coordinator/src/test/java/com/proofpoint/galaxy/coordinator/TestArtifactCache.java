@@ -0,0 +1,170 @@
+package com.proofpoint.galaxy.coordinator;
+
+import com.proofpoint.galaxy.coordinator.ArtifactCache.Artifact;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static com.google.common.collect.Lists.newArrayList;
+import static com.proofpoint.galaxy.shared.FileUtils.createTempDir;
+import static com.proofpoint.galaxy.shared.FileUtils.deleteRecursively;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestArtifactCache
+{
+    private static final int ARTIFACT_SIZE = 1000;
+
+    private final AtomicInteger requests = new AtomicInteger();
+    private ExecutorService serverExecutor;
+    private HttpServer server;
+    private File cacheDir;
+
+    @BeforeMethod
+    public void setUp()
+            throws Exception
+    {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.createContext("/", new HttpHandler()
+        {
+            @Override
+            public void handle(HttpExchange exchange)
+                    throws IOException
+            {
+                requests.incrementAndGet();
+
+                // each path has different content of the same size
+                byte[] artifact = new byte[ARTIFACT_SIZE];
+                byte[] path = exchange.getRequestURI().getPath().getBytes(UTF_8);
+                System.arraycopy(path, 0, artifact, 0, path.length);
+
+                exchange.sendResponseHeaders(200, artifact.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(artifact);
+                out.close();
+            }
+        });
+        server.start();
+
+        requests.set(0);
+        cacheDir = createTempDir("artifact-cache");
+    }
+
+    @AfterMethod
+    public void tearDown()
+    {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+        deleteRecursively(cacheDir);
+    }
+
+    @Test
+    public void testConcurrentOpenSharesDownload()
+            throws Exception
+    {
+        final ArtifactCache cache = new ArtifactCache(cacheDir, 10 * ARTIFACT_SIZE);
+        final URI apple = artifactUri("apple-1.0.tar.gz");
+
+        ExecutorService executor = Executors.newFixedThreadPool(10);
+        try {
+            List<Future<Artifact>> futures = newArrayList();
+            for (int i = 0; i < 10; i++) {
+                futures.add(executor.submit(new Callable<Artifact>()
+                {
+                    @Override
+                    public Artifact call()
+                            throws Exception
+                    {
+                        return cache.open(apple);
+                    }
+                }));
+            }
+
+            String digest = futures.get(0).get().getDigest();
+            for (Future<Artifact> future : futures) {
+                Artifact artifact = future.get();
+                assertEquals(artifact.getDigest(), digest);
+                assertEquals(artifact.getLength(), ARTIFACT_SIZE);
+                artifact.close();
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+        assertEquals(requests.get(), 1);
+
+        // a new cache in the same directory reuses the artifact
+        ArtifactCache restarted = new ArtifactCache(cacheDir, 10 * ARTIFACT_SIZE);
+        restarted.open(apple).close();
+        assertEquals(requests.get(), 1);
+        assertEquals(restarted.getSize(), ARTIFACT_SIZE);
+    }
+
+    @Test
+    public void testEviction()
+            throws Exception
+    {
+        ArtifactCache cache = new ArtifactCache(cacheDir, 2 * ARTIFACT_SIZE);
+        cache.open(artifactUri("apple-1.0.tar.gz")).close();
+        cache.open(artifactUri("apple-2.0.tar.gz")).close();
+
+        // an open artifact stays readable after it is evicted
+        Artifact apple = cache.open(artifactUri("apple-1.0.tar.gz"));
+        cache.open(artifactUri("banana-1.0.tar.gz")).close();
+        cache.open(artifactUri("banana-2.0.tar.gz")).close();
+        assertEquals(cache.getSize(), 2 * ARTIFACT_SIZE);
+        assertTrue(new String(read(apple), UTF_8).startsWith("/food/fruit/apple-1.0.tar.gz"));
+        apple.close();
+        assertEquals(requests.get(), 4);
+
+        // the least recently used artifact was evicted and is downloaded again
+        cache.open(artifactUri("apple-2.0.tar.gz")).close();
+        assertEquals(requests.get(), 5);
+    }
+
+    @Test
+    public void testIsCacheable()
+    {
+        assertTrue(ArtifactCache.isCacheable(URI.create("http://repo/food/fruit/apple-1.0.tar.gz")));
+        assertTrue(ArtifactCache.isCacheable(URI.create("https://repo/food/fruit/apple-1.0-20120101.101010-1.tar.gz")));
+        assertFalse(ArtifactCache.isCacheable(URI.create("http://repo/food/fruit/apple-2.0-SNAPSHOT.tar.gz")));
+        assertFalse(ArtifactCache.isCacheable(URI.create("file:/repo/food/fruit/apple-1.0.tar.gz")));
+    }
+
+    private URI artifactUri(String name)
+    {
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/food/fruit/" + name);
+    }
+
+    private static byte[] read(Artifact artifact)
+            throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate((int) artifact.getLength());
+        while (buffer.hasRemaining()) {
+            if (artifact.getChannel().read(buffer, buffer.position()) < 0) {
+                break;
+            }
+        }
+        return buffer.array();
+    }
+}
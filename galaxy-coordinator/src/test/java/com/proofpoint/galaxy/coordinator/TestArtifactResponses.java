@@ -0,0 +1,44 @@
+package com.proofpoint.galaxy.coordinator;
+
+import org.testng.annotations.Test;
+
+import static com.proofpoint.galaxy.coordinator.ArtifactResponses.matchesEntityTag;
+import static com.proofpoint.galaxy.coordinator.ArtifactResponses.parseByteRange;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class TestArtifactResponses
+{
+    @Test
+    public void testParseByteRange()
+    {
+        assertEquals(parseByteRange("bytes=0-99", 1000), new long[] {0, 99});
+        assertEquals(parseByteRange("bytes=500-", 1000), new long[] {500, 999});
+        assertEquals(parseByteRange("bytes=900-2000", 1000), new long[] {900, 999});
+        assertEquals(parseByteRange("bytes=-100", 1000), new long[] {900, 999});
+        assertEquals(parseByteRange("bytes=-2000", 1000), new long[] {0, 999});
+
+        // unsatisfiable
+        assertEquals(parseByteRange("bytes=1000-", 1000), new long[0]);
+        assertEquals(parseByteRange("bytes=-0", 1000), new long[0]);
+
+        // ignored
+        assertNull(parseByteRange("bytes=100-50", 1000));
+        assertNull(parseByteRange("bytes=0-10,20-30", 1000));
+        assertNull(parseByteRange("bytes=-", 1000));
+        assertNull(parseByteRange("items=0-10", 1000));
+    }
+
+    @Test
+    public void testMatchesEntityTag()
+    {
+        assertTrue(matchesEntityTag("\"abc\"", "abc"));
+        assertTrue(matchesEntityTag("W/\"abc\"", "abc"));
+        assertTrue(matchesEntityTag("\"xyz\", \"abc\"", "abc"));
+        assertTrue(matchesEntityTag("*", "abc"));
+        assertFalse(matchesEntityTag("\"xyz\"", "abc"));
+        assertFalse(matchesEntityTag(null, "abc"));
+    }
+}
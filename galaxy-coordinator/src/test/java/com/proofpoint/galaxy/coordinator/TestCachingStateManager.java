@@ -0,0 +1,224 @@
+package com.proofpoint.galaxy.coordinator;
+
+import com.google.common.collect.Iterables;
+import com.proofpoint.galaxy.shared.ExpectedSlotStatus;
+import com.proofpoint.units.Duration;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static com.proofpoint.galaxy.shared.AssignmentHelper.APPLE_ASSIGNMENT;
+import static com.proofpoint.galaxy.shared.AssignmentHelper.BANANA_ASSIGNMENT;
+import static com.proofpoint.galaxy.shared.SlotLifecycleState.RUNNING;
+import static com.proofpoint.galaxy.shared.SlotLifecycleState.STOPPED;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class TestCachingStateManager
+{
+    private final UUID appleSlotId = UUID.randomUUID();
+    private final UUID bananaSlotId = UUID.randomUUID();
+
+    private CountingStateManager store;
+    private CachingStateManager stateManager;
+
+    @BeforeMethod
+    public void setUp()
+    {
+        store = new CountingStateManager();
+        store.setExpectedState(new ExpectedSlotStatus(appleSlotId, STOPPED, APPLE_ASSIGNMENT));
+        stateManager = new CachingStateManager(store, new Duration(1, TimeUnit.DAYS), new Duration(1, TimeUnit.DAYS));
+    }
+
+    @Test
+    public void testLoadedOnStartup()
+    {
+        assertEquals(store.loads, 1);
+        assertEquals(stateManager.getAllExpectedStates().size(), 1);
+        assertEquals(stateManager.getAllExpectedStates().size(), 1);
+        assertEquals(store.loads, 1);
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testInitialLoadFailure()
+    {
+        // an empty expected state must not be served as if it were loaded
+        store.failingLoads = true;
+        new CachingStateManager(store, new Duration(1, TimeUnit.DAYS), new Duration(1, TimeUnit.DAYS));
+    }
+
+    @Test
+    public void testWriteThrough()
+    {
+        stateManager = new CachingStateManager(store, new Duration(1, TimeUnit.DAYS), new Duration(0, TimeUnit.MILLISECONDS));
+        stateManager.setExpectedState(new ExpectedSlotStatus(bananaSlotId, STOPPED, BANANA_ASSIGNMENT));
+        assertEquals(store.getStoredStates().size(), 2);
+
+        // a change that can not be written fails, but stays cached and is written later
+        store.failingWrites = true;
+        try {
+            stateManager.deleteExpectedState(appleSlotId);
+            fail("expected IllegalStateException");
+        }
+        catch (IllegalStateException expected) {
+        }
+        assertEquals(store.getStoredStates().size(), 2);
+        assertEquals(Iterables.getOnlyElement(stateManager.getAllExpectedStates()).getId(), bananaSlotId);
+
+        store.failingWrites = false;
+        assertTrue(stateManager.flush());
+        assertEquals(Iterables.getOnlyElement(store.getStoredStates()).getId(), bananaSlotId);
+    }
+
+    @Test
+    public void testWritesAreBatched()
+    {
+        stateManager.setExpectedState(new ExpectedSlotStatus(appleSlotId, RUNNING, APPLE_ASSIGNMENT));
+        stateManager.setExpectedState(new ExpectedSlotStatus(bananaSlotId, STOPPED, BANANA_ASSIGNMENT));
+        stateManager.deleteExpectedState(appleSlotId);
+
+        // changes are visible immediately, but not written until the flush
+        assertEquals(Iterables.getOnlyElement(stateManager.getAllExpectedStates()).getId(), bananaSlotId);
+        assertEquals(Iterables.getOnlyElement(store.getStoredStates()).getId(), appleSlotId);
+
+        stateManager.flush();
+        assertEquals(store.batchWrites, 1);
+        assertEquals(store.batchDeletes, 1);
+        assertEquals(Iterables.getOnlyElement(store.getStoredStates()).getId(), bananaSlotId);
+
+        // nothing to write
+        stateManager.flush();
+        assertEquals(store.batchWrites, 1);
+        assertEquals(store.batchDeletes, 1);
+    }
+
+    @Test
+    public void testFailedWritesAreRetried()
+    {
+        store.failingLoads = true;
+        store.failingWrites = true;
+        stateManager.setExpectedState(new ExpectedSlotStatus(bananaSlotId, RUNNING, BANANA_ASSIGNMENT));
+        stateManager.flush();
+        assertEquals(store.getStoredStates().size(), 1);
+
+        // a failed load keeps the cached state
+        stateManager.refresh();
+        assertEquals(stateManager.getAllExpectedStates().size(), 2);
+
+        store.failingWrites = false;
+        stateManager.flush();
+        assertEquals(store.getStoredStates().size(), 2);
+    }
+
+    @Test
+    public void testRefreshKeepsPendingChanges()
+    {
+        // change the store behind the cache
+        store.setExpectedState(new ExpectedSlotStatus(bananaSlotId, STOPPED, BANANA_ASSIGNMENT));
+
+        // the delete can not be written, so the reload must not bring apple back
+        store.failingWrites = true;
+        stateManager.deleteExpectedState(appleSlotId);
+        stateManager.refresh();
+
+        ExpectedSlotStatus banana = Iterables.getOnlyElement(stateManager.getAllExpectedStates());
+        assertEquals(banana.getId(), bananaSlotId);
+        assertEquals(banana.getStatus(), STOPPED);
+        assertEquals(store.getStoredStates().size(), 2);
+    }
+
+    @Test
+    public void testWriteDuringRefresh()
+            throws Exception
+    {
+        stateManager = new CachingStateManager(store, new Duration(1, TimeUnit.DAYS), new Duration(0, TimeUnit.MILLISECONDS));
+        final Thread writer = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                stateManager.setExpectedState(new ExpectedSlotStatus(bananaSlotId, RUNNING, BANANA_ASSIGNMENT));
+            }
+        });
+
+        // the write starts after the stored state is loaded, but before the cache is replaced
+        store.afterLoad = new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                writer.start();
+                try {
+                    writer.join(500);
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        stateManager.refresh();
+        store.afterLoad = null;
+        writer.join();
+
+        // the refresh must not drop the write
+        assertEquals(stateManager.getAllExpectedStates().size(), 2);
+        assertEquals(store.getStoredStates().size(), 2);
+        stateManager.refresh();
+        assertEquals(stateManager.getAllExpectedStates().size(), 2);
+    }
+
+    private static class CountingStateManager extends InMemoryStateManager
+    {
+        private int loads;
+        private int batchWrites;
+        private int batchDeletes;
+        private boolean failingLoads;
+        private boolean failingWrites;
+        private volatile Runnable afterLoad;
+
+        public Collection<ExpectedSlotStatus> getStoredStates()
+        {
+            return super.getAllExpectedStates();
+        }
+
+        @Override
+        public Collection<ExpectedSlotStatus> getAllExpectedStates()
+        {
+            checkFailing(failingLoads);
+            loads++;
+            Collection<ExpectedSlotStatus> states = super.getAllExpectedStates();
+            Runnable afterLoad = this.afterLoad;
+            if (afterLoad != null) {
+                afterLoad.run();
+            }
+            return states;
+        }
+
+        @Override
+        public void deleteExpectedStates(Collection<UUID> slotIds)
+        {
+            checkFailing(failingWrites);
+            batchDeletes++;
+            super.deleteExpectedStates(slotIds);
+        }
+
+        @Override
+        public void setExpectedStates(Collection<ExpectedSlotStatus> slotStatuses)
+        {
+            checkFailing(failingWrites);
+            batchWrites++;
+            super.setExpectedStates(slotStatuses);
+        }
+
+        private void checkFailing(boolean failing)
+        {
+            if (failing) {
+                throw new IllegalStateException("store is down");
+            }
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.proofpoint.galaxy.coordinator;
 import com.google.common.base.Predicates;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.proofpoint.galaxy.shared.AgentLifecycleState;
 import com.proofpoint.galaxy.shared.AgentStatus;
@@ -15,16 +16,21 @@ import org.testng.annotations.Test;
 
 import java.net.URI;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
+import static com.google.common.collect.Sets.newHashSet;
 import static com.proofpoint.galaxy.shared.AssignmentHelper.APPLE_ASSIGNMENT;
 import static com.proofpoint.galaxy.shared.AssignmentHelper.BANANA_ASSIGNMENT;
 import static com.proofpoint.galaxy.shared.AssignmentHelper.RESOLVED_APPLE_ASSIGNMENT;
 import static com.proofpoint.galaxy.shared.AssignmentHelper.SHORT_APPLE_ASSIGNMENT;
 import static com.proofpoint.galaxy.shared.SlotLifecycleState.STOPPED;
+import static com.proofpoint.galaxy.shared.SlotStatus.createSlotStatus;
+import static com.proofpoint.galaxy.shared.VersionsUtil.createSlotsVersion;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 
 public class TestCoordinator
@@ -50,6 +56,9 @@ public class TestCoordinator
                 new InMemoryStateManager(),
                 new MockServiceInventory(),
                 statusExpiration,
+                10,
+                statusExpiration,
+                10,
                 false);
     }
 
@@ -115,6 +124,22 @@ public class TestCoordinator
         assertNull(coordinator.getAgentStatus(agentId));
     }
 
+    @Test
+    public void testMoreAgentsThanConcurrentUpdates()
+            throws Exception
+    {
+        for (int i = 0; i < 25; i++) {
+            String agentId = UUID.randomUUID().toString();
+            provisioner.addAgent(agentId, URI.create("fake://agent/" + agentId));
+        }
+
+        coordinator.updateAllAgents();
+        assertEquals(coordinator.getAgents().size(), 25);
+        for (AgentStatus agentStatus : coordinator.getAgents()) {
+            assertEquals(agentStatus.getState(), AgentLifecycleState.ONLINE);
+        }
+    }
+
     @Test
     public void testInstallWithinShortBinarySpec()
     {
@@ -175,6 +200,79 @@ public class TestCoordinator
         assertEquals(slots.size(), 0);
     }
 
+    @Test
+    public void testInstallSpreadsAcrossAgents()
+    {
+        provisioner.addAgent(createAgentWithBanana("busy-a", "/zone-a/busy-a"));
+        provisioner.addAgent(createAgentStatus("idle-a", "/zone-a/idle-a", ImmutableList.<SlotStatus>of()));
+        provisioner.addAgent(createAgentWithBanana("busy-b", "/zone-b/busy-b"));
+        coordinator.updateAllAgents();
+
+        // the idle agent is picked first, and then an agent in the other zone
+        List<SlotStatus> slots = coordinator.install(Predicates.<AgentStatus>alwaysTrue(), 2, APPLE_ASSIGNMENT);
+        assertEquals(slots.size(), 2);
+        Set<String> hosts = newHashSet();
+        for (SlotStatus slot : slots) {
+            assertAppleSlot(slot);
+            hosts.add(slot.getSelf().getHost());
+        }
+        assertEquals(hosts, ImmutableSet.of("idle-a", "busy-b"));
+    }
+
+    private AgentStatus createAgentWithBanana(String name, String location)
+    {
+        URI agentUri = URI.create("fake://" + name + "/");
+        SlotStatus banana = createSlotStatus(UUID.randomUUID(),
+                "banana",
+                agentUri.resolve("slot/banana"),
+                agentUri.resolve("slot/banana"),
+                name,
+                location + "/banana",
+                STOPPED,
+                BANANA_ASSIGNMENT,
+                "/banana",
+                ImmutableMap.<String, Integer>of());
+        return createAgentStatus(name, location, ImmutableList.of(banana));
+    }
+
+    private AgentStatus createAgentStatus(String name, String location, List<SlotStatus> slots)
+    {
+        URI agentUri = URI.create("fake://" + name + "/");
+        return new AgentStatus(name,
+                AgentLifecycleState.ONLINE,
+                name,
+                agentUri,
+                agentUri,
+                location,
+                "instance.type",
+                slots,
+                ImmutableMap.of("cpu", 8, "memory", 1024));
+    }
+
+    @Test
+    public void testSnapshot()
+    {
+        URI agentUri = URI.create("fake://appleServer1/");
+        provisioner.addAgent("instance-id", agentUri, ImmutableMap.of("cpu", 1, "memory", 512));
+        coordinator.updateAllAgents();
+
+        // readers share the snapshot until something changes
+        ClusterSnapshot snapshot = coordinator.getSnapshot();
+        assertSame(coordinator.getSnapshot(), snapshot);
+        assertEquals(snapshot.getAgents().size(), 1);
+        assertTrue(snapshot.getSlots().isEmpty());
+
+        List<SlotStatus> slots = coordinator.install(Predicates.<AgentStatus>alwaysTrue(), 1, APPLE_ASSIGNMENT);
+        assertEquals(slots.size(), 1);
+
+        ClusterSnapshot newSnapshot = coordinator.getSnapshot();
+        assertTrue(newSnapshot.getVersion() > snapshot.getVersion());
+        assertEquals(newSnapshot.getSlotIds(), ImmutableList.of(slots.get(0).getId()));
+        assertEquals(newSnapshot.getSlotsVersion(), createSlotsVersion(coordinator.getAllSlotStatus()));
+        assertEquals(Iterables.getOnlyElement(newSnapshot.getSlots()).getExpectedState(), STOPPED);
+        assertSame(coordinator.getSnapshot(), newSnapshot);
+    }
+
     private void assertAppleSlot(SlotStatus slot)
     {
         assertEquals(slot.getAssignment(), RESOLVED_APPLE_ASSIGNMENT);
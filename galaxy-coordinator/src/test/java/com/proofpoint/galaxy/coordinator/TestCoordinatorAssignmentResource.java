@@ -150,7 +150,7 @@ public class TestCoordinatorAssignmentResource
     private void testUpgrade(UpgradeVersions upgradeVersions)
     {
         UriInfo uriInfo = MockUriInfo.from("http://localhost/v1/slot/assignment?host=apple*");
-        Response response = resource.upgrade(upgradeVersions, uriInfo, null);
+        Response response = resource.upgrade(upgradeVersions, null, false, uriInfo, null);
 
         AgentStatus agentStatus = coordinator.getAgentStatus(agentId);
         SlotStatus apple1Status = agentStatus.getSlotStatus(apple1SlotId);
@@ -175,7 +175,7 @@ public class TestCoordinatorAssignmentResource
         UpgradeVersions upgradeVersions = new UpgradeVersions("2.0", "2,0");
         UriInfo uriInfo = MockUriInfo.from("http://localhost/v1/slot/assignment?state=stopped");
         try {
-            resource.upgrade(upgradeVersions, uriInfo, null);
+            resource.upgrade(upgradeVersions, null, false, uriInfo, null);
             fail("Expected AmbiguousUpgradeException");
         }
         catch (AmbiguousUpgradeException expected) {
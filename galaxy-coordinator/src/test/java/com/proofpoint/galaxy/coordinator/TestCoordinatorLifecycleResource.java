@@ -13,25 +13,31 @@
  */
 package com.proofpoint.galaxy.coordinator;
 
+import com.google.common.base.Charsets;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableList.Builder;
 import com.google.common.collect.ImmutableMap;
 import com.proofpoint.galaxy.shared.AgentStatus;
 import com.proofpoint.galaxy.shared.SlotLifecycleState;
 import com.proofpoint.galaxy.shared.MockUriInfo;
+import com.proofpoint.galaxy.shared.SlotOperationResultRepresentation;
 import com.proofpoint.galaxy.shared.SlotStatus;
 import com.proofpoint.galaxy.shared.SlotStatusRepresentation;
 import com.proofpoint.galaxy.shared.VersionConflictException;
 import com.proofpoint.galaxy.shared.VersionsUtil;
+import com.proofpoint.json.JsonCodec;
 import com.proofpoint.node.NodeInfo;
 import com.proofpoint.units.Duration;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
+import java.io.ByteArrayOutputStream;
 import java.net.URI;
 import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
@@ -145,37 +151,37 @@ public class TestCoordinatorLifecycleResource
         assertSlotState(bananaSlotId, STOPPED);
 
         // stopped.start => running
-        assertOkResponse(resource.setState("running", uriInfo, null), RUNNING, apple1SlotId, apple2SlotId);
+        assertOkResponse(resource.setState("running", null, false, uriInfo, null), RUNNING, apple1SlotId, apple2SlotId);
         assertSlotState(apple1SlotId, RUNNING);
         assertSlotState(apple2SlotId, RUNNING);
         assertSlotState(bananaSlotId, STOPPED);
 
         // running.start => running
-        assertOkResponse(resource.setState("running", uriInfo, null), RUNNING, apple1SlotId, apple2SlotId);
+        assertOkResponse(resource.setState("running", null, false, uriInfo, null), RUNNING, apple1SlotId, apple2SlotId);
         assertSlotState(apple1SlotId, RUNNING);
         assertSlotState(apple2SlotId, RUNNING);
         assertSlotState(bananaSlotId, STOPPED);
 
         // running.stop => stopped
-        assertOkResponse(resource.setState("stopped", uriInfo, null), STOPPED, apple1SlotId, apple2SlotId);
+        assertOkResponse(resource.setState("stopped", null, false, uriInfo, null), STOPPED, apple1SlotId, apple2SlotId);
         assertSlotState(apple1SlotId, STOPPED);
         assertSlotState(apple2SlotId, STOPPED);
         assertSlotState(bananaSlotId, STOPPED);
 
         // stopped.stop => stopped
-        assertOkResponse(resource.setState("stopped", uriInfo, null), STOPPED, apple1SlotId, apple2SlotId);
+        assertOkResponse(resource.setState("stopped", null, false, uriInfo, null), STOPPED, apple1SlotId, apple2SlotId);
         assertSlotState(apple1SlotId, STOPPED);
         assertSlotState(apple2SlotId, STOPPED);
         assertSlotState(bananaSlotId, STOPPED);
 
         // stopped.restart => running
-        assertOkResponse(resource.setState("restarting", uriInfo, null), RUNNING, apple1SlotId, apple2SlotId);
+        assertOkResponse(resource.setState("restarting", null, false, uriInfo, null), RUNNING, apple1SlotId, apple2SlotId);
         assertSlotState(apple1SlotId, RUNNING);
         assertSlotState(apple2SlotId, RUNNING);
         assertSlotState(bananaSlotId, STOPPED);
 
         // running.restart => running
-        assertOkResponse(resource.setState("restarting", uriInfo, null), RUNNING, apple1SlotId, apple2SlotId);
+        assertOkResponse(resource.setState("restarting", null, false, uriInfo, null), RUNNING, apple1SlotId, apple2SlotId);
         assertSlotState(apple1SlotId, RUNNING);
         assertSlotState(apple2SlotId, RUNNING);
         assertSlotState(bananaSlotId, STOPPED);
@@ -184,21 +190,30 @@ public class TestCoordinatorLifecycleResource
     @Test
     public void testSetStateUnknownState()
     {
-        Response response = resource.setState("unknown", uriInfo, null);
+        Response response = resource.setState("unknown", null, false, uriInfo, null);
         assertEquals(response.getStatus(), Response.Status.BAD_REQUEST.getStatusCode());
         assertNull(response.getEntity());
     }
 
+    @Test
+    public void testSetStateInvalidParallelism()
+    {
+        Response response = resource.setState("running", 0, false, uriInfo, null);
+        assertEquals(response.getStatus(), Response.Status.BAD_REQUEST.getStatusCode());
+        assertNull(response.getEntity());
+        assertSlotState(apple1SlotId, STOPPED);
+    }
+
     @Test(expectedExceptions = NullPointerException.class)
     public void testSetStateNullState()
     {
-        resource.setState(null, uriInfo, null);
+        resource.setState(null, null, false, uriInfo, null);
     }
 
     @Test(expectedExceptions = InvalidSlotFilterException.class)
     public void testSetStateNoFilter()
     {
-        resource.setState("running", MockUriInfo.from("http://localhost/v1/slot/lifecycle"), null);
+        resource.setState("running", null, false, MockUriInfo.from("http://localhost/v1/slot/lifecycle"), null);
     }
 
     @Test
@@ -206,7 +221,7 @@ public class TestCoordinatorLifecycleResource
     {
         UriInfo uriInfo = MockUriInfo.from("http://localhost/v1/slot/lifecycle?binary=*:apple:*");
         try {
-            resource.setState("running", uriInfo, "invalid-version");
+            resource.setState("running", null, false, uriInfo, "invalid-version");
             fail("Expected VersionConflictException");
         }
         catch (VersionConflictException e) {
@@ -220,7 +235,35 @@ public class TestCoordinatorLifecycleResource
     {
         UriInfo uriInfo = MockUriInfo.from("http://localhost/v1/slot/lifecycle?binary=*:apple:*");
         String slotsVersion = VersionsUtil.createSlotsVersion(coordinator.getAllSlotsStatus(SlotFilterBuilder.build(uriInfo, false, ImmutableList.<UUID>of())));
-        assertOkResponse(resource.setState("running", uriInfo, slotsVersion), RUNNING, apple1SlotId, apple2SlotId);
+        assertOkResponse(resource.setState("running", null, false, uriInfo, slotsVersion), RUNNING, apple1SlotId, apple2SlotId);
+    }
+
+    @Test
+    public void testStreamingSetState()
+            throws Exception
+    {
+        UriInfo uriInfo = MockUriInfo.from("http://localhost/v1/slot/lifecycle?binary=*:apple:*");
+        Response response = resource.setState("running", 2, true, uriInfo, null);
+        assertEquals(response.getStatus(), Response.Status.OK.getStatusCode());
+
+        // nothing happens until the response is written
+        assertSlotState(apple1SlotId, STOPPED);
+        assertSlotState(apple2SlotId, STOPPED);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ((StreamingOutput) response.getEntity()).write(out);
+        List<SlotOperationResultRepresentation> results = JsonCodec.listJsonCodec(SlotOperationResultRepresentation.class).fromJson(new String(out.toByteArray(), Charsets.UTF_8));
+
+        Builder<UUID> ids = ImmutableList.builder();
+        for (SlotOperationResultRepresentation result : results) {
+            assertNull(result.getError());
+            assertEquals(result.getSlot().getStatus(), RUNNING.toString());
+            ids.add(result.getSlot().getId());
+        }
+        assertEqualsNoOrder(ids.build(), ImmutableList.of(apple1SlotId, apple2SlotId));
+        assertSlotState(apple1SlotId, RUNNING);
+        assertSlotState(apple2SlotId, RUNNING);
+        assertSlotState(bananaSlotId, STOPPED);
     }
 
     private void assertOkResponse(Response response, SlotLifecycleState state, UUID... slotIds)
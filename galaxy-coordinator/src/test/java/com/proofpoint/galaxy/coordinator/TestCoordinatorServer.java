@@ -47,6 +47,7 @@ import org.testng.annotations.Test;
 import javax.inject.Singleton;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response.Status;
+import java.io.File;
 import java.net.URI;
 import java.util.List;
 import java.util.Map;
@@ -56,6 +57,8 @@ import static com.google.common.base.Functions.toStringFunction;
 import static com.google.common.collect.Lists.transform;
 import static com.google.inject.Scopes.SINGLETON;
 import static com.proofpoint.galaxy.coordinator.CoordinatorSlotResource.MIN_PREFIX_SIZE;
+import static com.proofpoint.galaxy.shared.FileUtils.createTempDir;
+import static com.proofpoint.galaxy.shared.FileUtils.deleteRecursively;
 import static com.proofpoint.galaxy.shared.Strings.shortestUniquePrefix;
 import static com.proofpoint.galaxy.shared.AgentLifecycleState.ONLINE;
 import static com.proofpoint.galaxy.shared.SlotLifecycleState.TERMINATED;
@@ -90,16 +93,19 @@ public class TestCoordinatorServer
     private UUID bananaSlotId;
 
     private MockProvisioner provisioner;
+    private File artifactCacheDir;
 
     @BeforeClass
     public void startServer()
             throws Exception
     {
+        artifactCacheDir = createTempDir("artifact-cache");
         Map<String, String> properties = ImmutableMap.<String, String>builder()
                 .put("galaxy.version", "123")
                 .put("coordinator.binary-repo", "http://localhost:9999/")
                 .put("coordinator.default-group-id", "prod")
                 .put("coordinator.agent.default-config", "@agent.config")
+                .put("coordinator.artifact-cache.dir", artifactCacheDir.getAbsolutePath())
                 .put("coordinator.aws.access-key", "my-access-key")
                 .put("coordinator.aws.secret-key", "my-secret-key")
                 .put("coordinator.aws.agent.ami", "ami-0123abcd")
@@ -217,6 +223,10 @@ public class TestCoordinatorServer
         if (client != null) {
             client.close();
         }
+
+        if (artifactCacheDir != null) {
+            deleteRecursively(artifactCacheDir);
+        }
     }
 
     @Test
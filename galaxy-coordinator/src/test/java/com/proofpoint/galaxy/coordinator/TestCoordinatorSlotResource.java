@@ -1,5 +1,6 @@
 package com.proofpoint.galaxy.coordinator;
 
+import com.google.common.base.Charsets;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
@@ -9,6 +10,7 @@ import com.proofpoint.galaxy.shared.AssignmentRepresentation;
 import com.proofpoint.galaxy.shared.MockUriInfo;
 import com.proofpoint.galaxy.shared.SlotStatus;
 import com.proofpoint.galaxy.shared.SlotStatusRepresentation;
+import com.proofpoint.json.JsonCodec;
 import com.proofpoint.node.NodeInfo;
 import com.proofpoint.units.Duration;
 import org.testng.annotations.AfterMethod;
@@ -16,9 +18,13 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.net.URI;
 import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
@@ -70,6 +76,7 @@ public class TestCoordinatorSlotResource
 
     @Test
     public void testGetAllSlots()
+            throws Exception
     {
         SlotStatus slot1 = createSlotStatus(UUID.randomUUID(),
                 "slot1",
@@ -108,13 +115,14 @@ public class TestCoordinatorSlotResource
         URI requestUri = URI.create("http://localhost/v1/slot");
         Response response = resource.getAllSlots(MockUriInfo.from(requestUri));
         assertEquals(response.getStatus(), Response.Status.OK.getStatusCode());
-        assertEqualsNoOrder((Iterable<?>) response.getEntity(),
+        assertEqualsNoOrder(readSlots(response),
                 ImmutableList.of(SlotStatusRepresentation.from(slot1, prefixSize, repository), SlotStatusRepresentation.from(slot2, prefixSize, repository)));
         assertNull(response.getMetadata().get("Content-Type")); // content type is set by jersey based on @Produces
     }
 
     @Test
     public void testGetAllSlotsWithFilter()
+            throws Exception
     {
         SlotStatus slot1 = createSlotStatus(UUID.randomUUID(),
                 "slot1",
@@ -153,17 +161,18 @@ public class TestCoordinatorSlotResource
         URI requestUri = URI.create("http://localhost/v1/slot?host=foo");
         Response response = resource.getAllSlots(MockUriInfo.from(requestUri));
         assertEquals(response.getStatus(), Response.Status.OK.getStatusCode());
-        assertEqualsNoOrder((Iterable<?>) response.getEntity(), ImmutableList.of(SlotStatusRepresentation.from(slot1, prefixSize, repository)));
+        assertEqualsNoOrder(readSlots(response), ImmutableList.of(SlotStatusRepresentation.from(slot1, prefixSize, repository)));
         assertNull(response.getMetadata().get("Content-Type")); // content type is set by jersey based on @Produces
     }
 
     @Test
     public void testGetAllSlotEmpty()
+            throws Exception
     {
         URI requestUri = URI.create("http://localhost/v1/slot?state=unknown");
         Response response = resource.getAllSlots(MockUriInfo.from(requestUri));
         assertEquals(response.getStatus(), Response.Status.OK.getStatusCode());
-        assertEqualsNoOrder((Iterable<?>) response.getEntity(), ImmutableList.of());
+        assertEqualsNoOrder(readSlots(response), ImmutableList.of());
         assertNull(response.getMetadata().get("Content-Type")); // content type is set by jersey based on @Produces
     }
 
@@ -271,4 +280,12 @@ public class TestCoordinatorSlotResource
         assertEquals(slot.getState(), STOPPED);
         assertEquals(slot.getResources(), ImmutableMap.of("cpu", 1, "memory", 512));
     }
+
+    private static List<SlotStatusRepresentation> readSlots(Response response)
+            throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ((StreamingOutput) response.getEntity()).write(out);
+        return JsonCodec.listJsonCodec(SlotStatusRepresentation.class).fromJson(new String(out.toByteArray(), Charsets.UTF_8));
+    }
 }
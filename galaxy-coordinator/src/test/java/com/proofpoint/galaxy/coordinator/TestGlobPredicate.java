@@ -1,8 +1,13 @@
 package com.proofpoint.galaxy.coordinator;
 
+import com.google.common.base.Predicate;
 import org.testng.annotations.Test;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 
 public class TestGlobPredicate
@@ -53,4 +58,68 @@ public class TestGlobPredicate
         assertFalse(globPredicate.apply("readme.txthtml"));
 
     }
+
+    @Test
+    public void testSimpleGlobs()
+    {
+        GlobPredicate globPredicate = new GlobPredicate("apple.txt");
+        assertTrue(globPredicate.apply("apple.txt"));
+        assertFalse(globPredicate.apply("appleXtxt"));
+        assertFalse(globPredicate.apply("apple.txt "));
+        assertFalse(globPredicate.apply(null));
+
+        globPredicate = new GlobPredicate("apple*");
+        assertTrue(globPredicate.apply("apple"));
+        assertTrue(globPredicate.apply("apple.txt"));
+        assertFalse(globPredicate.apply("banana-apple"));
+
+        globPredicate = new GlobPredicate("*apple");
+        assertTrue(globPredicate.apply("apple"));
+        assertTrue(globPredicate.apply("banana-apple"));
+        assertFalse(globPredicate.apply("apple.txt"));
+
+        globPredicate = new GlobPredicate("*apple*");
+        assertTrue(globPredicate.apply("apple"));
+        assertTrue(globPredicate.apply("banana-apple.txt"));
+        assertFalse(globPredicate.apply("banana"));
+        assertFalse(globPredicate.apply(null));
+
+        globPredicate = new GlobPredicate(" ap(p)l+e ");
+        assertTrue(globPredicate.apply("ap(p)l+e"));
+        assertFalse(globPredicate.apply("apple"));
+
+        // escaped wildcards are not simple
+        globPredicate = new GlobPredicate("apple\\*");
+        assertTrue(globPredicate.apply("apple*"));
+        assertFalse(globPredicate.apply("apple.txt"));
+    }
+
+    @Test
+    public void testMatcherCache()
+    {
+        final AtomicInteger compiles = new AtomicInteger();
+        MatcherCache<Predicate<CharSequence>> cache = new MatcherCache<Predicate<CharSequence>>(2)
+        {
+            @Override
+            protected Predicate<CharSequence> compile(String glob)
+            {
+                compiles.incrementAndGet();
+                return GlobPredicate.compileGlob(glob);
+            }
+        };
+
+        Predicate<CharSequence> apple = cache.get("apple*");
+        assertSame(cache.get("apple*"), apple);
+        assertEquals(compiles.get(), 1);
+
+        // least recently used expression is evicted
+        cache.get("banana*");
+        cache.get("apple*");
+        cache.get("*.{txt,html}");
+        assertEquals(cache.size(), 2);
+        assertSame(cache.get("apple*"), apple);
+        assertEquals(compiles.get(), 3);
+        cache.get("banana*");
+        assertEquals(compiles.get(), 4);
+    }
 }
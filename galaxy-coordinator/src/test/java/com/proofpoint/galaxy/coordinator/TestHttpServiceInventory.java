@@ -0,0 +1,172 @@
+package com.proofpoint.galaxy.coordinator;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.proofpoint.discovery.client.ServiceDescriptor;
+import com.proofpoint.discovery.client.ServiceState;
+import com.proofpoint.galaxy.shared.Assignment;
+import com.proofpoint.galaxy.shared.SlotStatus;
+import com.proofpoint.json.JsonCodec;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.net.URI;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static com.google.common.collect.Lists.newArrayList;
+import static com.proofpoint.galaxy.shared.AssignmentHelper.APPLE_ASSIGNMENT;
+import static com.proofpoint.galaxy.shared.AssignmentHelper.BANANA_ASSIGNMENT;
+import static com.proofpoint.galaxy.shared.FileUtils.createTempDir;
+import static com.proofpoint.galaxy.shared.FileUtils.deleteRecursively;
+import static com.proofpoint.galaxy.shared.FileUtils.newFile;
+import static com.proofpoint.galaxy.shared.SlotLifecycleState.RUNNING;
+import static com.proofpoint.galaxy.shared.SlotLifecycleState.STOPPED;
+import static com.proofpoint.galaxy.shared.SlotStatus.createSlotStatus;
+import static com.proofpoint.json.JsonCodec.listJsonCodec;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+public class TestHttpServiceInventory
+{
+    private final JsonCodec<List<ServiceDescriptor>> codec = listJsonCodec(ServiceDescriptor.class);
+
+    private final AtomicInteger configRequests = new AtomicInteger();
+    private TestingMavenRepository repository;
+    private File cacheDir;
+    private HttpServiceInventory serviceInventory;
+
+    @BeforeMethod
+    public void setUp()
+            throws Exception
+    {
+        configRequests.set(0);
+        repository = new TestingMavenRepository(TestingMavenRepository.createBinaryRepoDir())
+        {
+            @Override
+            public URI configToHttpUri(String config)
+            {
+                configRequests.incrementAndGet();
+                return super.configToHttpUri(config);
+            }
+        };
+        cacheDir = createTempDir("service-inventory-cache");
+
+        // replace the apple config with one that contains a service inventory
+        File configFile = newFile(repository.getTargetRepo(), "prod", "apple", "1.0", "apple-1.0.config");
+        ZipOutputStream out = new ZipOutputStream(new FileOutputStream(configFile));
+        out.putNextEntry(new ZipEntry("galaxy-service-inventory.json"));
+        String json = codec.toJson(ImmutableList.of(new ServiceDescriptor(null, null, "apple", "general", null, null, ImmutableMap.of("http", "http://${galaxy.host}:8080"))));
+        out.write(json.getBytes(UTF_8));
+        out.close();
+
+        serviceInventory = new HttpServiceInventory(repository, codec, cacheDir);
+    }
+
+    @AfterMethod
+    public void tearDown()
+    {
+        repository.destroy();
+        deleteRecursively(cacheDir);
+    }
+
+    @Test
+    public void testServiceInventory()
+    {
+        SlotStatus apple = createSlot(APPLE_ASSIGNMENT);
+        SlotStatus banana = createSlot(BANANA_ASSIGNMENT);
+
+        List<ServiceDescriptor> descriptors = serviceInventory.getServiceInventory(ImmutableList.of(apple, banana));
+        assertEquals(descriptors.size(), 1);
+        ServiceDescriptor descriptor = descriptors.get(0);
+        assertEquals(descriptor.getNodeId(), apple.getId().toString());
+        assertEquals(descriptor.getType(), "apple");
+        assertEquals(descriptor.getPool(), "general");
+        assertEquals(descriptor.getLocation(), apple.getLocation());
+        assertEquals(descriptor.getState(), ServiceState.RUNNING);
+        assertEquals(descriptor.getProperties(), ImmutableMap.of("http", "http://apple.example.com:8080"));
+    }
+
+    @Test
+    public void testUnchangedSlotsReuseInventory()
+    {
+        SlotStatus apple = createSlot(APPLE_ASSIGNMENT);
+        List<ServiceDescriptor> descriptors = serviceInventory.getServiceInventory(ImmutableList.of(apple));
+
+        // descriptors are kept in memory, so neither the repository nor the disk cache is read again
+        repository.destroy();
+        deleteRecursively(cacheDir);
+
+        assertSame(serviceInventory.getServiceInventory(ImmutableList.of(apple)), descriptors);
+        assertSame(serviceInventory.getServiceInventory(ImmutableList.of(apple.changeInstanceId("other"))), descriptors);
+
+        // a new slot with the same config gets its own descriptor
+        SlotStatus otherApple = createSlot(APPLE_ASSIGNMENT);
+        List<ServiceDescriptor> newDescriptors = serviceInventory.getServiceInventory(ImmutableList.of(apple, otherApple));
+        assertEquals(newDescriptors.size(), 2);
+        assertEquals(newDescriptors.get(0), descriptors.get(0));
+
+        // removed slots drop out
+        assertEquals(serviceInventory.getServiceInventory(ImmutableList.of(otherApple)).size(), 1);
+        assertTrue(serviceInventory.getServiceInventory(ImmutableList.<SlotStatus>of()).isEmpty());
+    }
+
+    @Test
+    public void testChangedSlotIsRecomputed()
+    {
+        SlotStatus apple = createSlot(APPLE_ASSIGNMENT);
+        List<ServiceDescriptor> descriptors = serviceInventory.getServiceInventory(ImmutableList.of(apple));
+        assertEquals(descriptors.get(0).getState(), ServiceState.RUNNING);
+
+        List<ServiceDescriptor> stopped = serviceInventory.getServiceInventory(ImmutableList.of(apple.changeState(STOPPED)));
+        assertNotSame(stopped, descriptors);
+        assertEquals(stopped.get(0).getState(), ServiceState.STOPPED);
+    }
+
+    @Test
+    public void testConfigLoadedOnce()
+    {
+        List<SlotStatus> slots = newArrayList();
+        for (int i = 0; i < 10; i++) {
+            slots.add(createSlot(APPLE_ASSIGNMENT));
+            slots.add(createSlot(BANANA_ASSIGNMENT));
+        }
+        assertEquals(serviceInventory.getServiceInventory(slots).size(), 10);
+        assertEquals(configRequests.get(), 2);
+
+        // new slots use the parsed descriptors, including the missing inventory of banana
+        slots.add(createSlot(APPLE_ASSIGNMENT));
+        slots.add(createSlot(BANANA_ASSIGNMENT));
+        assertEquals(serviceInventory.getServiceInventory(slots).size(), 11);
+        assertEquals(configRequests.get(), 2);
+    }
+
+    @Test
+    public void testWarmStartFromDiskCache()
+    {
+        SlotStatus apple = createSlot(APPLE_ASSIGNMENT);
+        List<ServiceDescriptor> descriptors = serviceInventory.getServiceInventory(ImmutableList.of(apple));
+        assertEquals(configRequests.get(), 1);
+
+        // a new instance reads the descriptors from the disk cache instead of the repository
+        repository.destroy();
+        HttpServiceInventory restarted = new HttpServiceInventory(repository, codec, cacheDir);
+        assertEquals(restarted.getServiceInventory(ImmutableList.of(apple)), descriptors);
+        assertEquals(configRequests.get(), 1);
+    }
+
+    private static SlotStatus createSlot(Assignment assignment)
+    {
+        URI self = URI.create("http://apple.example.com:7777/v1/agent/slot/apple");
+        return createSlotStatus(UUID.randomUUID(), "apple", self, self, "instance", "/test/apple", RUNNING, assignment, "/apple", ImmutableMap.<String, Integer>of());
+    }
+}
@@ -1,5 +1,9 @@
 package com.proofpoint.galaxy.coordinator;
 
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
+import com.proofpoint.units.Duration;
 import org.testng.Assert;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
@@ -7,6 +11,9 @@ import org.testng.annotations.Test;
 
 import java.io.File;
 import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+import static com.proofpoint.galaxy.shared.FileUtils.deleteRecursively;
 
 public class TestMavenRepository
 {
@@ -136,4 +143,60 @@ public class TestMavenRepository
         Assert.assertFalse(repo.configEqualsIgnoreVersion("@apple:1.0", "@banana:1.0"));
         Assert.assertFalse(repo.binaryEqualsIgnoreVersion("apple:1.0", "banana:1.0"));
     }
+
+    @Test
+    public void resolutionIsCached()
+            throws Exception
+    {
+        TestingTicker ticker = new TestingTicker();
+        File targetRepo = TestingMavenRepository.createBinaryRepoDir();
+        try {
+            MavenRepository repository = new MavenRepository(ImmutableList.of("food.fruit"),
+                    ImmutableList.of(targetRepo.toURI()),
+                    new Duration(1, TimeUnit.HOURS),
+                    new Duration(1, TimeUnit.MINUTES),
+                    new Duration(30, TimeUnit.SECONDS),
+                    ticker);
+
+            // a removed release is still served from the cache until the release ttl expires
+            File apple = new File(targetRepo, "food/fruit/apple/1.0/apple-1.0.tar.gz");
+            URI appleUri = repository.binaryToHttpUri("apple:1.0");
+            Assert.assertEquals(appleUri, apple.toURI());
+            Assert.assertTrue(apple.delete());
+            Assert.assertEquals(repository.binaryToHttpUri("apple:1.0"), appleUri);
+            ticker.advance(2, TimeUnit.HOURS);
+            Assert.assertNull(repository.binaryResolve("apple:1.0"));
+
+            // a missing artifact is not checked again until the negative ttl expires
+            Assert.assertNull(repository.binaryResolve("apple:1.0"));
+            Files.copy(new File(targetRepo, "food/fruit/apple/2.0/apple-2.0.tar.gz"), apple);
+            Assert.assertNull(repository.binaryResolve("apple:1.0"));
+            ticker.advance(1, TimeUnit.MINUTES);
+            Assert.assertEquals(repository.binaryResolve("apple:1.0"), "food.fruit:apple:1.0");
+
+            // invalidating the cache forces a new lookup
+            Assert.assertTrue(apple.delete());
+            repository.invalidateCache();
+            Assert.assertNull(repository.binaryResolve("apple:1.0"));
+        }
+        finally {
+            deleteRecursively(targetRepo);
+        }
+    }
+
+    private static class TestingTicker extends Ticker
+    {
+        private long time;
+
+        @Override
+        public long read()
+        {
+            return time;
+        }
+
+        public void advance(long duration, TimeUnit timeUnit)
+        {
+            time += timeUnit.toNanos(duration);
+        }
+    }
 }
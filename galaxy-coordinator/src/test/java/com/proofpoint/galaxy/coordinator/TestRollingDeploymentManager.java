@@ -0,0 +1,292 @@
+package com.proofpoint.galaxy.coordinator;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.proofpoint.galaxy.shared.AgentStatus;
+import com.proofpoint.galaxy.shared.Assignment;
+import com.proofpoint.galaxy.shared.MockUriInfo;
+import com.proofpoint.galaxy.shared.SlotLifecycleState;
+import com.proofpoint.galaxy.shared.SlotStatus;
+import com.proofpoint.galaxy.shared.UpgradeVersions;
+import com.proofpoint.node.NodeInfo;
+import com.proofpoint.units.Duration;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.net.URI;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static com.proofpoint.galaxy.coordinator.RollingDeploymentState.COMPLETED;
+import static com.proofpoint.galaxy.coordinator.RollingDeploymentState.FAILED;
+import static com.proofpoint.galaxy.coordinator.RollingDeploymentState.PAUSED;
+import static com.proofpoint.galaxy.coordinator.RollingDeploymentState.RUNNING;
+import static com.proofpoint.galaxy.coordinator.TestingMavenRepository.MOCK_REPO;
+import static com.proofpoint.galaxy.shared.AgentLifecycleState.ONLINE;
+import static com.proofpoint.galaxy.shared.AssignmentHelper.APPLE_ASSIGNMENT;
+import static com.proofpoint.galaxy.shared.AssignmentHelper.BANANA_ASSIGNMENT;
+import static com.proofpoint.galaxy.shared.ExtraAssertions.assertEqualsNoOrder;
+import static com.proofpoint.galaxy.shared.SlotLifecycleState.STARTING;
+import static com.proofpoint.galaxy.shared.SlotLifecycleState.STOPPED;
+import static com.proofpoint.galaxy.shared.SlotStatus.createSlotStatus;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class TestRollingDeploymentManager
+{
+    private static final UpgradeVersions UPGRADE_VERSIONS = new UpgradeVersions("2.0", null);
+    private static final Assignment UPGRADED_APPLE_ASSIGNMENT = UPGRADE_VERSIONS.upgradeAssignment(MOCK_REPO, APPLE_ASSIGNMENT);
+
+    private MockProvisioner provisioner;
+    private Coordinator coordinator;
+    private MockServiceInventory serviceInventory;
+    private RollingDeploymentManager deploymentManager;
+    private String agentId;
+    private UUID apple1SlotId;
+    private UUID apple2SlotId;
+    private UUID apple3SlotId;
+    private UUID bananaSlotId;
+
+    @BeforeMethod
+    public void setup()
+            throws Exception
+    {
+        NodeInfo nodeInfo = new NodeInfo("testing");
+
+        provisioner = new MockProvisioner();
+        serviceInventory = new MockServiceInventory();
+        coordinator = new Coordinator(nodeInfo,
+                new CoordinatorConfig().setStatusExpiration(new Duration(1, TimeUnit.DAYS)),
+                provisioner.getAgentFactory(),
+                MOCK_REPO,
+                provisioner,
+                new InMemoryStateManager(),
+                serviceInventory);
+        deploymentManager = new RollingDeploymentManager(coordinator,
+                MOCK_REPO,
+                serviceInventory,
+                new Duration(1, TimeUnit.DAYS),
+                new Duration(1, TimeUnit.DAYS),
+                new Duration(1, TimeUnit.DAYS));
+
+        apple1SlotId = UUID.randomUUID();
+        apple2SlotId = UUID.randomUUID();
+        apple3SlotId = UUID.randomUUID();
+        bananaSlotId = UUID.randomUUID();
+
+        agentId = UUID.randomUUID().toString();
+        AgentStatus agentStatus = new AgentStatus(agentId,
+                ONLINE,
+                "instance-id",
+                URI.create("fake://appleServer1/"),
+                URI.create("fake://appleServer1/"),
+                "/unknown/location",
+                "instance.type",
+                ImmutableList.of(
+                        createStoppedSlot(apple1SlotId, "apple1", APPLE_ASSIGNMENT),
+                        createStoppedSlot(apple2SlotId, "apple2", APPLE_ASSIGNMENT),
+                        createStoppedSlot(apple3SlotId, "apple3", APPLE_ASSIGNMENT),
+                        createStoppedSlot(bananaSlotId, "banana", BANANA_ASSIGNMENT)),
+                ImmutableMap.of("cpu", 8, "memory", 1024));
+
+        provisioner.addAgent(agentStatus);
+        coordinator.updateAllAgents();
+    }
+
+    @Test
+    public void testRollingUpgrade()
+    {
+        RollingDeployment deployment = createAppleDeployment(2, null);
+        assertEquals(deployment.getAssignment(), UPGRADED_APPLE_ASSIGNMENT);
+        assertEquals(deployment.getTotalSlots(), 3);
+        assertEquals(deployment.getState(), RUNNING);
+
+        // first batch is upgraded and started
+        deploymentManager.checkDeployments();
+        assertEquals(deployment.getCurrentBatch().size(), 2);
+        assertEquals(deployment.getPendingSlots().size(), 1);
+        assertEquals(countUpgradedSlots(), 2);
+
+        // first batch is healthy, so second batch is started
+        deploymentManager.checkDeployments();
+        assertEquals(deployment.getCompletedSlots().size(), 2);
+        assertEquals(deployment.getCurrentBatch().size(), 1);
+        assertEquals(countUpgradedSlots(), 3);
+
+        deploymentManager.checkDeployments();
+        assertEquals(deployment.getState(), COMPLETED);
+        assertEqualsNoOrder(deployment.getCompletedSlots(), ImmutableList.of(apple1SlotId, apple2SlotId, apple3SlotId));
+
+        // banana was not touched
+        SlotStatus banana = coordinator.getAgentStatus(agentId).getSlotStatus(bananaSlotId);
+        assertEquals(banana.getState(), STOPPED);
+        assertEquals(banana.getAssignment(), BANANA_ASSIGNMENT);
+    }
+
+    @Test
+    public void testPauseResume()
+    {
+        RollingDeployment deployment = createAppleDeployment(1, null);
+
+        deploymentManager.checkDeployments();
+        assertEquals(countUpgradedSlots(), 1);
+
+        // the current batch completes, but no new batch is started
+        assertTrue(deployment.pause());
+        assertFalse(deployment.pause());
+        deploymentManager.checkDeployments();
+        deploymentManager.checkDeployments();
+        assertEquals(deployment.getState(), PAUSED);
+        assertEquals(deployment.getCompletedSlots().size(), 1);
+        assertTrue(deployment.getCurrentBatch().isEmpty());
+        assertEquals(countUpgradedSlots(), 1);
+
+        assertTrue(deployment.resume());
+        assertFalse(deployment.resume());
+        deploymentManager.checkDeployments();
+        assertEquals(countUpgradedSlots(), 2);
+    }
+
+    @Test
+    public void testBatchPercentage()
+    {
+        RollingDeployment deployment = createAppleDeployment(null, 50);
+        assertEquals(deployment.getBatchSize(), 2);
+    }
+
+    @Test
+    public void testRemoveDeployment()
+    {
+        RollingDeployment deployment = createAppleDeployment(1, null);
+
+        // running deployments must be paused before they are removed
+        assertFalse(deploymentManager.removeDeployment(deployment.getId()));
+        deployment.pause();
+        assertTrue(deploymentManager.removeDeployment(deployment.getId()));
+        assertTrue(deploymentManager.getDeployments().isEmpty());
+    }
+
+    @Test
+    public void testExpireFinishedDeployments()
+    {
+        deploymentManager = new RollingDeploymentManager(coordinator,
+                MOCK_REPO,
+                serviceInventory,
+                new Duration(1, TimeUnit.DAYS),
+                new Duration(1, TimeUnit.DAYS),
+                new Duration(0, TimeUnit.MILLISECONDS));
+        RollingDeployment deployment = createAppleDeployment(3, null);
+
+        // upgrade the only batch, and complete the deployment
+        deploymentManager.checkDeployments();
+        deploymentManager.checkDeployments();
+        assertEquals(deployment.getState(), COMPLETED);
+        assertEquals(deploymentManager.getDeployment(deployment.getId()), deployment);
+
+        // the completed deployment is removed after the retention
+        deploymentManager.checkDeployments();
+        assertNull(deploymentManager.getDeployment(deployment.getId()));
+    }
+
+    @Test
+    public void testTransitionalSlotIsWaitedFor()
+    {
+        deploymentManager = createDeploymentManagerWithoutBatchTimeout();
+        RollingDeployment deployment = createAppleDeployment(3, null);
+        deploymentManager.checkDeployments();
+        assertEquals(countUpgradedSlots(), 3);
+
+        // a slot that is still starting neither fails the batch after the timeout nor is upgraded again
+        setSlotState(apple1SlotId, STARTING);
+        deploymentManager.checkDeployments();
+        assertEquals(deployment.getState(), RUNNING);
+        assertEquals(deployment.getCurrentBatch().size(), 3);
+        assertTrue(deployment.getStatusMessage().contains("still STARTING"));
+        assertEquals(coordinator.getAgentStatus(agentId).getSlotStatus(apple1SlotId).getState(), STARTING);
+
+        // the batch completes once the slot is running
+        setSlotState(apple1SlotId, SlotLifecycleState.RUNNING);
+        deploymentManager.checkDeployments();
+        assertEquals(deployment.getState(), COMPLETED);
+    }
+
+    @Test
+    public void testStoppedSlotFailsBatch()
+    {
+        deploymentManager = createDeploymentManagerWithoutBatchTimeout();
+        RollingDeployment deployment = createAppleDeployment(3, null);
+        deploymentManager.checkDeployments();
+
+        setSlotState(apple1SlotId, STOPPED);
+        deploymentManager.checkDeployments();
+        assertEquals(deployment.getState(), FAILED);
+    }
+
+    @Test(expectedExceptions = AmbiguousUpgradeException.class)
+    public void testAmbiguousDeployment()
+    {
+        deploymentManager.createDeployment(SlotFilterBuilder.build(MockUriInfo.from("http://localhost/v1/deployment?state=stopped"), true, ImmutableList.<UUID>of()),
+                UPGRADE_VERSIONS,
+                1,
+                null,
+                1,
+                false,
+                null);
+    }
+
+    private RollingDeployment createAppleDeployment(Integer batchSize, Integer batchPercentage)
+    {
+        return deploymentManager.createDeployment(SlotFilterBuilder.build(MockUriInfo.from("http://localhost/v1/deployment?binary=*:apple:*"), true, ImmutableList.<UUID>of()),
+                UPGRADE_VERSIONS,
+                batchSize,
+                batchPercentage,
+                2,
+                false,
+                null);
+    }
+
+    private RollingDeploymentManager createDeploymentManagerWithoutBatchTimeout()
+    {
+        return new RollingDeploymentManager(coordinator,
+                MOCK_REPO,
+                serviceInventory,
+                new Duration(1, TimeUnit.DAYS),
+                new Duration(0, TimeUnit.MILLISECONDS),
+                new Duration(1, TimeUnit.DAYS));
+    }
+
+    private void setSlotState(UUID slotId, SlotLifecycleState state)
+    {
+        AgentStatus agentStatus = coordinator.getAgentStatus(agentId);
+        provisioner.addAgent(agentStatus.changeSlotStatus(agentStatus.getSlotStatus(slotId).changeState(state)));
+        coordinator.updateAllAgents();
+    }
+
+    private int countUpgradedSlots()
+    {
+        int count = 0;
+        for (SlotStatus slotStatus : coordinator.getAgentStatus(agentId).getSlotStatuses()) {
+            if (slotStatus.getAssignment().equals(UPGRADED_APPLE_ASSIGNMENT)) {
+                assertEquals(slotStatus.getState(), SlotLifecycleState.RUNNING);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static SlotStatus createStoppedSlot(UUID slotId, String name, Assignment assignment)
+    {
+        return createSlotStatus(slotId,
+                name,
+                URI.create("fake://appleServer1/v1/agent/slot/" + name),
+                URI.create("fake://appleServer1/v1/agent/slot/" + name),
+                "instance",
+                "/location",
+                STOPPED,
+                assignment,
+                "/" + name,
+                ImmutableMap.<String, Integer>of());
+    }
+}
@@ -3,6 +3,8 @@ package com.proofpoint.galaxy.coordinator;
 import com.google.common.base.Predicate;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+import com.proofpoint.galaxy.coordinator.SlotFilterBuilder.SlotQuery;
 import com.proofpoint.galaxy.coordinator.SlotFilterBuilder.SlotUuidPredicate;
 import com.proofpoint.galaxy.shared.Assignment;
 import com.proofpoint.galaxy.shared.MockUriInfo;
@@ -19,10 +21,12 @@ import java.util.List;
 import java.util.UUID;
 
 import static com.proofpoint.galaxy.shared.AssignmentHelper.APPLE_ASSIGNMENT;
+import static com.proofpoint.galaxy.shared.AssignmentHelper.BANANA_ASSIGNMENT;
 import static com.proofpoint.galaxy.shared.SlotLifecycleState.RUNNING;
 import static com.proofpoint.galaxy.shared.SlotLifecycleState.UNKNOWN;
 import static com.proofpoint.galaxy.shared.SlotStatus.createSlotStatus;
 import static java.util.Arrays.asList;
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 
@@ -204,4 +208,54 @@ public class TestSlotFilterBuilder
         assertFalse(new ConfigSpecPredicate("@prod:apple:x:1.0").apply(status));
         assertFalse(buildFilter("config", "@prod:apple:x:1.0").apply(status));
     }
+
+    @Test
+    public void testIndexedSelection()
+    {
+        SlotStatus apple = createSlotStatus(UUID.fromString("12345678-9999-1234-1234-123456789012"),
+                "apple",
+                URI.create("fake://apple.example.com"),
+                URI.create("fake://10.0.0.1"),
+                "apple-instance",
+                "/location",
+                RUNNING,
+                APPLE_ASSIGNMENT,
+                "/apple",
+                ImmutableMap.<String, Integer>of());
+        SlotStatus banana = createSlotStatus(UUID.fromString("12399999-1234-1234-1234-123456789012"),
+                "banana",
+                URI.create("fake://banana.example.com"),
+                URI.create("fake://10.0.0.2"),
+                "banana-instance",
+                "/location",
+                UNKNOWN,
+                BANANA_ASSIGNMENT,
+                "/banana",
+                ImmutableMap.<String, Integer>of());
+        List<SlotStatus> slots = ImmutableList.of(status, apple, banana);
+        SlotIndex slotIndex = new SlotIndex(slots);
+
+        assertEquals(slotIndex.getSlotIdsWithPrefix("1234"), ImmutableList.of(status.getId(), apple.getId(), banana.getId()));
+        assertEquals(slotIndex.getSlotIdsWithPrefix("12399"), ImmutableList.of(banana.getId()));
+        assertEquals(slotIndex.getSlotIdsWithPrefix("ABCD"), ImmutableList.<UUID>of());
+
+        assertIndexedSelection(slots, slotIndex, "uuid=12399", banana);
+        assertIndexedSelection(slots, slotIndex, "state=unknown", status, banana);
+        assertIndexedSelection(slots, slotIndex, "host=*.example.com", apple, banana);
+        assertIndexedSelection(slots, slotIndex, "host=10.0.0.1", apple);
+        assertIndexedSelection(slots, slotIndex, "machine=*-instance", apple, banana);
+        assertIndexedSelection(slots, slotIndex, "binary=apple", status, apple);
+        assertIndexedSelection(slots, slotIndex, "config=@prod:banana:*", banana);
+        assertIndexedSelection(slots, slotIndex, "binary=apple&state=running", apple);
+        assertIndexedSelection(slots, slotIndex, "state=running&state=unknown&host=banana*", banana);
+        assertIndexedSelection(slots, slotIndex, "binary=apple&config=@prod:banana:*");
+    }
+
+    private void assertIndexedSelection(List<SlotStatus> slots, SlotIndex slotIndex, String query, SlotStatus... expected)
+    {
+        Predicate<SlotStatus> predicate = SlotFilterBuilder.build(MockUriInfo.from("fake://localhost?" + query), true, slotIndex);
+        assertTrue(predicate instanceof SlotQuery);
+        assertEquals(((SlotQuery) predicate).select(slotIndex), asList(expected));
+        assertEquals(ImmutableList.copyOf(Iterables.filter(slots, predicate)), asList(expected));
+    }
 }
@@ -0,0 +1,102 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.proofpoint.galaxy.coordinator;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableMap;
+import com.proofpoint.galaxy.shared.SlotOperationResultRepresentation;
+import com.proofpoint.galaxy.shared.SlotStatus;
+import com.proofpoint.galaxy.shared.SlotStatusRepresentation.SlotStatusRepresentationFactory;
+import com.proofpoint.json.JsonCodec;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.util.List;
+import java.util.UUID;
+
+import static com.proofpoint.galaxy.shared.AssignmentHelper.APPLE_ASSIGNMENT;
+import static com.proofpoint.galaxy.shared.SlotLifecycleState.RUNNING;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+public class TestSlotOperationStreamingOutput
+{
+    private static final JsonCodec<List<SlotOperationResultRepresentation>> RESULTS_CODEC = JsonCodec.listJsonCodec(SlotOperationResultRepresentation.class);
+
+    @Test
+    public void testCompleted()
+            throws Exception
+    {
+        final SlotStatus slotStatus = newSlotStatus();
+        List<SlotOperationResultRepresentation> results = write(new SlotOperationStreamingOutput(new SlotStatusRepresentationFactory())
+        {
+            @Override
+            protected void execute(SlotOperationListener listener)
+            {
+                listener.slotOperationCompleted(slotStatus);
+            }
+        });
+
+        assertEquals(results.size(), 1);
+        assertEquals(results.get(0).getSlot().getId(), slotStatus.getId());
+        assertEquals(results.get(0).getSlot().getStatus(), RUNNING.toString());
+        assertNull(results.get(0).getError());
+    }
+
+    @Test
+    public void testFailureAfterResponseStarted()
+            throws Exception
+    {
+        final SlotStatus slotStatus = newSlotStatus();
+        List<SlotOperationResultRepresentation> results = write(new SlotOperationStreamingOutput(new SlotStatusRepresentationFactory())
+        {
+            @Override
+            protected void execute(SlotOperationListener listener)
+            {
+                listener.slotOperationCompleted(slotStatus);
+                throw new IllegalStateException("agent is offline");
+            }
+        });
+
+        // the completed slot is still reported, followed by the failure
+        assertEquals(results.size(), 2);
+        assertEquals(results.get(0).getSlot().getId(), slotStatus.getId());
+        assertNull(results.get(0).getError());
+        assertNull(results.get(1).getSlot());
+        assertEquals(results.get(1).getError(), "agent is offline");
+    }
+
+    private static List<SlotOperationResultRepresentation> write(SlotOperationStreamingOutput output)
+            throws Exception
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        output.write(out);
+        return RESULTS_CODEC.fromJson(new String(out.toByteArray(), Charsets.UTF_8));
+    }
+
+    private static SlotStatus newSlotStatus()
+    {
+        return SlotStatus.createSlotStatus(UUID.randomUUID(),
+                "apple",
+                URI.create("fake://foo/v1/agent/slot/apple"),
+                URI.create("fake://foo/v1/agent/slot/apple"),
+                "instance",
+                "/location",
+                RUNNING,
+                APPLE_ASSIGNMENT,
+                "/apple",
+                ImmutableMap.<String, Integer>of());
+    }
+}
@@ -0,0 +1,200 @@
+package com.proofpoint.galaxy.integration;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.proofpoint.discovery.client.ServiceDescriptor;
+import com.proofpoint.discovery.client.ServiceDescriptorsRepresentation;
+import com.proofpoint.galaxy.shared.AgentLifecycleState;
+import com.proofpoint.galaxy.shared.AgentStatus;
+import com.proofpoint.galaxy.shared.Installation;
+import com.proofpoint.galaxy.shared.SlotLifecycleState;
+import com.proofpoint.galaxy.shared.SlotStatus;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.proofpoint.galaxy.shared.SlotLifecycleState.STOPPED;
+import static com.proofpoint.galaxy.shared.SlotLifecycleState.TERMINATED;
+import static com.proofpoint.galaxy.shared.SlotStatus.createSlotStatus;
+
+/**
+ * The state of an agent without any deployments or processes behind it.  Slots move between
+ * states as soon as they are asked to, so a single JVM can hold thousands of these.
+ */
+public class SimulatedAgent
+{
+    private final String agentId;
+    private final URI uri;
+    private final String location;
+    private final String instanceType;
+    private final Map<String, Integer> resources;
+
+    private final Map<String, SlotStatus> slots = new TreeMap<String, SlotStatus>();
+    private final List<Runnable> statusWatchers = newArrayList();
+    private int nextSlotId = 1;
+
+    private volatile AgentStatus status;
+    private volatile ServiceDescriptorsRepresentation serviceInventory;
+
+    public SimulatedAgent(String agentId, URI uri, String location, String instanceType, Map<String, Integer> resources)
+    {
+        Preconditions.checkNotNull(agentId, "agentId is null");
+        Preconditions.checkNotNull(uri, "uri is null");
+        Preconditions.checkNotNull(location, "location is null");
+        Preconditions.checkNotNull(instanceType, "instanceType is null");
+        Preconditions.checkNotNull(resources, "resources is null");
+
+        this.agentId = agentId;
+        this.uri = uri;
+        this.location = location;
+        this.instanceType = instanceType;
+        this.resources = ImmutableMap.copyOf(resources);
+        this.serviceInventory = new ServiceDescriptorsRepresentation("unknown", ImmutableList.<ServiceDescriptor>of());
+
+        synchronized (this) {
+            statusChanged();
+        }
+    }
+
+    public String getAgentId()
+    {
+        return agentId;
+    }
+
+    public URI getUri()
+    {
+        return uri;
+    }
+
+    public AgentStatus status()
+    {
+        return status;
+    }
+
+    public synchronized List<SlotStatus> getSlots()
+    {
+        return ImmutableList.copyOf(slots.values());
+    }
+
+    public synchronized SlotStatus getSlot(String slotName)
+    {
+        return slots.get(slotName);
+    }
+
+    public synchronized SlotStatus install(Installation installation)
+    {
+        Preconditions.checkNotNull(installation, "installation is null");
+
+        String slotName = installation.getShortName() + nextSlotId++;
+        URI slotUri = URI.create(uri + "/v1/agent/slot/" + slotName);
+        SlotStatus slotStatus = createSlotStatus(UUID.randomUUID(),
+                slotName,
+                slotUri,
+                slotUri,
+                "instance",
+                location + "/" + slotName,
+                STOPPED,
+                installation.getAssignment(),
+                "/simulated/slots/" + slotName,
+                installation.getResources());
+
+        slots.put(slotName, slotStatus);
+        statusChanged();
+        return slotStatus;
+    }
+
+    public synchronized SlotStatus assign(String slotName, Installation installation)
+    {
+        Preconditions.checkNotNull(installation, "installation is null");
+
+        SlotStatus slotStatus = slots.get(slotName);
+        if (slotStatus == null) {
+            return null;
+        }
+        slotStatus = slotStatus.changeAssignment(STOPPED, installation.getAssignment(), installation.getResources());
+        slots.put(slotName, slotStatus);
+        statusChanged();
+        return slotStatus;
+    }
+
+    public synchronized SlotStatus setState(String slotName, SlotLifecycleState state)
+    {
+        Preconditions.checkNotNull(state, "state is null");
+
+        SlotStatus slotStatus = slots.get(slotName);
+        if (slotStatus == null) {
+            return null;
+        }
+        slotStatus = slotStatus.changeState(state);
+        slots.put(slotName, slotStatus);
+        statusChanged();
+        return slotStatus;
+    }
+
+    public synchronized SlotStatus terminate(String slotName)
+    {
+        SlotStatus slotStatus = slots.remove(slotName);
+        if (slotStatus == null) {
+            return null;
+        }
+        statusChanged();
+        return slotStatus.changeState(TERMINATED);
+    }
+
+    public ServiceDescriptorsRepresentation getServiceInventory()
+    {
+        return serviceInventory;
+    }
+
+    public void setServiceInventory(ServiceDescriptorsRepresentation serviceInventory)
+    {
+        Preconditions.checkNotNull(serviceInventory, "serviceInventory is null");
+        this.serviceInventory = serviceInventory;
+    }
+
+    /**
+     * Registers a watcher to run on the next status change.  Returns false, without
+     * registering the watcher, if the status has already moved on from the specified version.
+     * Watchers run while the agent is locked, so they must hand off any real work.
+     */
+    public synchronized boolean watchStatus(String version, Runnable watcher)
+    {
+        if (!status.getVersion().equals(version)) {
+            return false;
+        }
+        statusWatchers.add(watcher);
+        return true;
+    }
+
+    /**
+     * Removes a watcher that has not run yet.  Returns false if the watcher already ran.
+     */
+    public synchronized boolean cancelWatch(Runnable watcher)
+    {
+        return statusWatchers.remove(watcher);
+    }
+
+    private void statusChanged()
+    {
+        status = new AgentStatus(agentId,
+                AgentLifecycleState.ONLINE,
+                "instance",
+                uri,
+                uri,
+                location,
+                instanceType,
+                slots.values(),
+                resources);
+
+        List<Runnable> watchers = ImmutableList.copyOf(statusWatchers);
+        statusWatchers.clear();
+        for (Runnable watcher : watchers) {
+            watcher.run();
+        }
+    }
+}
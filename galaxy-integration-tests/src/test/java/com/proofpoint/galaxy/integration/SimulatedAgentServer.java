@@ -0,0 +1,466 @@
+package com.proofpoint.galaxy.integration;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.proofpoint.discovery.client.ServiceDescriptorsRepresentation;
+import com.proofpoint.galaxy.shared.AgentStatus;
+import com.proofpoint.galaxy.shared.AgentStatusRepresentation;
+import com.proofpoint.galaxy.shared.Installation;
+import com.proofpoint.galaxy.shared.InstallationRepresentation;
+import com.proofpoint.galaxy.shared.SlotLifecycleState;
+import com.proofpoint.galaxy.shared.SlotStatus;
+import com.proofpoint.galaxy.shared.SlotStatusRepresentation;
+import com.proofpoint.json.JsonCodec;
+import com.proofpoint.log.Logger;
+import com.proofpoint.units.Duration;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response.Status;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.proofpoint.galaxy.shared.SlotLifecycleState.RUNNING;
+import static com.proofpoint.galaxy.shared.VersionsUtil.GALAXY_AGENT_VERSION_HEADER;
+import static com.proofpoint.galaxy.shared.VersionsUtil.GALAXY_SLOT_VERSION_HEADER;
+import static com.proofpoint.json.JsonCodec.jsonCodec;
+import static com.proofpoint.json.JsonCodec.listJsonCodec;
+
+/**
+ * Serves the agent REST API for a fleet of {@link SimulatedAgent}s from a single http server.
+ * Each agent lives under its own path, <code>/agents/{index}</code>, which is the agent uri
+ * handed to the coordinator.  Responses can be delayed and failed at random to model slow or
+ * unhealthy agents.  Delays and status watches are parked on a scheduler rather than a thread,
+ * so the server thread count stays flat as the fleet grows.
+ */
+public class SimulatedAgentServer
+{
+    private static final Logger log = Logger.get(SimulatedAgentServer.class);
+
+    private static final Pattern AGENT_PATH = Pattern.compile("/agents/(\\d+)(/.*)?");
+    private static final Pattern SLOT_PATH = Pattern.compile("/v1/agent/slot/([a-z0-9_.-]+)(/lifecycle|/assignment)?");
+
+    private final JsonCodec<AgentStatusRepresentation> agentCodec = jsonCodec(AgentStatusRepresentation.class);
+    private final JsonCodec<SlotStatusRepresentation> slotCodec = jsonCodec(SlotStatusRepresentation.class);
+    private final JsonCodec<List<SlotStatusRepresentation>> slotsCodec = listJsonCodec(SlotStatusRepresentation.class);
+    private final JsonCodec<InstallationRepresentation> installationCodec = jsonCodec(InstallationRepresentation.class);
+    private final JsonCodec<ServiceDescriptorsRepresentation> serviceInventoryCodec = jsonCodec(ServiceDescriptorsRepresentation.class);
+
+    private final String environment;
+    private final long latencyNanos;
+    private final long jitterNanos;
+    private final double failureRate;
+    private final Random random = new Random();
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService scheduler;
+    private final List<SimulatedAgent> agents;
+
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong failureCount = new AtomicLong();
+    private final AtomicLong serviceInventoryCount = new AtomicLong();
+
+    public SimulatedAgentServer(String environment,
+            int agentCount,
+            int slotsPerAgent,
+            List<Installation> installations,
+            Duration latency,
+            Duration jitter,
+            double failureRate,
+            int threads)
+            throws IOException
+    {
+        Preconditions.checkNotNull(environment, "environment is null");
+        Preconditions.checkArgument(agentCount >= 0, "agentCount is negative");
+        Preconditions.checkArgument(slotsPerAgent >= 0, "slotsPerAgent is negative");
+        Preconditions.checkNotNull(installations, "installations is null");
+        Preconditions.checkArgument(slotsPerAgent == 0 || !installations.isEmpty(), "installations is empty");
+        Preconditions.checkNotNull(latency, "latency is null");
+        Preconditions.checkNotNull(jitter, "jitter is null");
+        Preconditions.checkArgument(failureRate >= 0 && failureRate <= 1, "failureRate must be between 0 and 1");
+        Preconditions.checkArgument(threads > 0, "threads must be at least 1");
+
+        this.environment = environment;
+        this.latencyNanos = (long) (latency.toMillis() * 1000000);
+        this.jitterNanos = (long) (jitter.toMillis() * 1000000);
+        this.failureRate = failureRate;
+
+        executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setDaemon(true).setNameFormat("simulated-agent-%s").build());
+        scheduler = Executors.newScheduledThreadPool(2, new ThreadFactoryBuilder().setDaemon(true).setNameFormat("simulated-agent-timer-%s").build());
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        server.setExecutor(executor);
+        server.createContext("/agents/", new HttpHandler()
+        {
+            @Override
+            public void handle(HttpExchange exchange)
+            {
+                delay(exchange);
+            }
+        });
+
+        String baseUri = "http://127.0.0.1:" + server.getAddress().getPort() + "/agents/";
+        ImmutableList.Builder<SimulatedAgent> agents = ImmutableList.builder();
+        for (int index = 0; index < agentCount; index++) {
+            String zone = "zone-" + (char) ('a' + index % 4);
+            String instanceId = String.format("sim-%05d", index);
+            SimulatedAgent agent = new SimulatedAgent(instanceId,
+                    URI.create(baseUri + index),
+                    "/simulated/" + zone + "/" + instanceId + "/agent",
+                    "simulated",
+                    ImmutableMap.of("cpu", 8, "memory", 16384));
+            for (int slot = 0; slot < slotsPerAgent; slot++) {
+                SlotStatus slotStatus = agent.install(installations.get((index + slot) % installations.size()));
+                agent.setState(slotStatus.getName(), RUNNING);
+            }
+            agents.add(agent);
+        }
+        this.agents = agents.build();
+    }
+
+    public void start()
+    {
+        server.start();
+    }
+
+    public void stop()
+    {
+        server.stop(0);
+        scheduler.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    public List<SimulatedAgent> getAgents()
+    {
+        return agents;
+    }
+
+    public List<String> getAgentUris()
+    {
+        ImmutableList.Builder<String> uris = ImmutableList.builder();
+        for (SimulatedAgent agent : agents) {
+            uris.add(agent.getUri().toString());
+        }
+        return uris.build();
+    }
+
+    public long getRequestCount()
+    {
+        return requestCount.get();
+    }
+
+    public long getFailureCount()
+    {
+        return failureCount.get();
+    }
+
+    public long getServiceInventoryCount()
+    {
+        return serviceInventoryCount.get();
+    }
+
+    private void delay(final HttpExchange exchange)
+    {
+        requestCount.incrementAndGet();
+
+        long delay = latencyNanos;
+        if (jitterNanos > 0) {
+            delay += (long) (random.nextDouble() * jitterNanos);
+        }
+
+        if (delay <= 0) {
+            dispatch(exchange);
+            return;
+        }
+        scheduler.schedule(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                executor.execute(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        dispatch(exchange);
+                    }
+                });
+            }
+        }, delay, TimeUnit.NANOSECONDS);
+    }
+
+    private void dispatch(HttpExchange exchange)
+    {
+        try {
+            if (failureRate > 0 && random.nextDouble() < failureRate) {
+                failureCount.incrementAndGet();
+                sendResponse(exchange, Status.SERVICE_UNAVAILABLE.getStatusCode(), null, null);
+                return;
+            }
+
+            Matcher agentMatcher = AGENT_PATH.matcher(exchange.getRequestURI().getPath());
+            SimulatedAgent agent = null;
+            if (agentMatcher.matches()) {
+                int index = Integer.parseInt(agentMatcher.group(1));
+                if (index < agents.size()) {
+                    agent = agents.get(index);
+                }
+            }
+            if (agent == null) {
+                sendResponse(exchange, Status.NOT_FOUND.getStatusCode(), null, null);
+                return;
+            }
+
+            String path = agentMatcher.group(2) == null ? "" : agentMatcher.group(2);
+            if (path.endsWith("/")) {
+                path = path.substring(0, path.length() - 1);
+            }
+            String method = exchange.getRequestMethod();
+
+            if (path.equals("/v1/agent") && method.equals("GET")) {
+                getAgentStatus(exchange, agent);
+                return;
+            }
+            if (path.equals("/v1/agent/slot")) {
+                if (method.equals("GET")) {
+                    sendSlots(exchange, agent);
+                    return;
+                }
+                if (method.equals("POST")) {
+                    Installation installation = installationCodec.fromJson(readBody(exchange)).toInstallation();
+                    SlotStatus slotStatus = agent.install(installation);
+                    exchange.getResponseHeaders().set(HttpHeaders.LOCATION, slotStatus.getSelf().toString());
+                    sendSlot(exchange, Status.CREATED, agent, slotStatus);
+                    return;
+                }
+            }
+            if (path.equals("/v1/serviceInventory")) {
+                if (method.equals("GET")) {
+                    sendResponse(exchange, Status.OK.getStatusCode(), serviceInventoryCodec.toJson(agent.getServiceInventory()), null);
+                    return;
+                }
+                if (method.equals("PUT")) {
+                    ServiceDescriptorsRepresentation serviceInventory = serviceInventoryCodec.fromJson(readBody(exchange));
+                    if (!environment.equals(serviceInventory.getEnvironment())) {
+                        sendResponse(exchange, Status.BAD_REQUEST.getStatusCode(), null, null);
+                        return;
+                    }
+                    agent.setServiceInventory(serviceInventory);
+                    serviceInventoryCount.incrementAndGet();
+                    sendResponse(exchange, Status.OK.getStatusCode(), null, null);
+                    return;
+                }
+            }
+
+            Matcher slotMatcher = SLOT_PATH.matcher(path);
+            if (slotMatcher.matches()) {
+                String slotName = slotMatcher.group(1);
+                String operation = slotMatcher.group(2);
+
+                SlotStatus slotStatus = null;
+                if (operation == null && method.equals("GET")) {
+                    slotStatus = agent.getSlot(slotName);
+                }
+                else if (operation == null && method.equals("DELETE")) {
+                    slotStatus = agent.terminate(slotName);
+                }
+                else if ("/lifecycle".equals(operation) && method.equals("PUT")) {
+                    String state = readBody(exchange).trim();
+                    SlotLifecycleState lifecycleState = state.equals("restarting") ? RUNNING : SlotLifecycleState.lookup(state);
+                    if (lifecycleState == null) {
+                        sendResponse(exchange, Status.BAD_REQUEST.getStatusCode(), null, null);
+                        return;
+                    }
+                    slotStatus = agent.setState(slotName, lifecycleState);
+                }
+                else if ("/assignment".equals(operation) && method.equals("PUT")) {
+                    Installation installation = installationCodec.fromJson(readBody(exchange)).toInstallation();
+                    slotStatus = agent.assign(slotName, installation);
+                }
+                else {
+                    sendResponse(exchange, 405, null, null);
+                    return;
+                }
+
+                if (slotStatus == null) {
+                    sendResponse(exchange, Status.NOT_FOUND.getStatusCode(), null, null);
+                    return;
+                }
+                sendSlot(exchange, Status.OK, agent, slotStatus);
+                return;
+            }
+
+            sendResponse(exchange, Status.NOT_FOUND.getStatusCode(), null, null);
+        }
+        catch (Exception e) {
+            log.warn(e, "Simulated agent request %s %s failed", exchange.getRequestMethod(), exchange.getRequestURI());
+            sendResponse(exchange, Status.INTERNAL_SERVER_ERROR.getStatusCode(), null, null);
+        }
+    }
+
+    /**
+     * Mirrors the agent resource: a request carrying the current version as an entity tag
+     * waits up to maxWait for a change, and then gets either the new status or a 304.
+     */
+    private void getAgentStatus(final HttpExchange exchange, final SimulatedAgent agent)
+    {
+        AgentStatus agentStatus = agent.status();
+        final String version = parseEntityTag(exchange.getRequestHeaders().getFirst(HttpHeaders.IF_NONE_MATCH));
+        if (version != null && version.equals(agentStatus.getVersion())) {
+            long maxWait = parseMaxWait(exchange.getRequestURI().getRawQuery());
+            if (maxWait <= 0) {
+                sendNotModified(exchange, version);
+                return;
+            }
+
+            final Runnable watcher = new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    executor.execute(new Runnable()
+                    {
+                        @Override
+                        public void run()
+                        {
+                            sendAgentStatus(exchange, agent.status());
+                        }
+                    });
+                }
+            };
+            if (agent.watchStatus(version, watcher)) {
+                scheduler.schedule(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        if (agent.cancelWatch(watcher)) {
+                            sendNotModified(exchange, version);
+                        }
+                    }
+                }, maxWait, TimeUnit.MILLISECONDS);
+                return;
+            }
+
+            // the status changed while the watch was being set up
+            agentStatus = agent.status();
+        }
+        sendAgentStatus(exchange, agentStatus);
+    }
+
+    private void sendAgentStatus(HttpExchange exchange, AgentStatus agentStatus)
+    {
+        exchange.getResponseHeaders().set(HttpHeaders.ETAG, "\"" + agentStatus.getVersion() + "\"");
+        exchange.getResponseHeaders().set(GALAXY_AGENT_VERSION_HEADER, agentStatus.getVersion());
+        sendResponse(exchange, Status.OK.getStatusCode(), agentCodec.toJson(AgentStatusRepresentation.from(agentStatus)), MediaType.APPLICATION_JSON);
+    }
+
+    private void sendNotModified(HttpExchange exchange, String version)
+    {
+        exchange.getResponseHeaders().set(HttpHeaders.ETAG, "\"" + version + "\"");
+        exchange.getResponseHeaders().set(GALAXY_AGENT_VERSION_HEADER, version);
+        sendResponse(exchange, Status.NOT_MODIFIED.getStatusCode(), null, null);
+    }
+
+    private void sendSlots(HttpExchange exchange, SimulatedAgent agent)
+    {
+        ImmutableList.Builder<SlotStatusRepresentation> representations = ImmutableList.builder();
+        for (SlotStatus slotStatus : agent.getSlots()) {
+            representations.add(SlotStatusRepresentation.from(slotStatus));
+        }
+        exchange.getResponseHeaders().set(GALAXY_AGENT_VERSION_HEADER, agent.status().getVersion());
+        sendResponse(exchange, Status.OK.getStatusCode(), slotsCodec.toJson(representations.build()), MediaType.APPLICATION_JSON);
+    }
+
+    private void sendSlot(HttpExchange exchange, Status status, SimulatedAgent agent, SlotStatus slotStatus)
+    {
+        exchange.getResponseHeaders().set(GALAXY_AGENT_VERSION_HEADER, agent.status().getVersion());
+        exchange.getResponseHeaders().set(GALAXY_SLOT_VERSION_HEADER, slotStatus.getVersion());
+        sendResponse(exchange, status.getStatusCode(), slotCodec.toJson(SlotStatusRepresentation.from(slotStatus)), MediaType.APPLICATION_JSON);
+    }
+
+    private static void sendResponse(HttpExchange exchange, int statusCode, String body, String contentType)
+    {
+        try {
+            if (body == null) {
+                exchange.sendResponseHeaders(statusCode, -1);
+            }
+            else {
+                byte[] bytes = body.getBytes(Charsets.UTF_8);
+                exchange.getResponseHeaders().set(HttpHeaders.CONTENT_TYPE, contentType);
+                exchange.sendResponseHeaders(statusCode, bytes.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(bytes);
+                out.flush();
+            }
+        }
+        catch (IOException e) {
+            log.debug(e, "Unable to send simulated agent response");
+        }
+        finally {
+            exchange.close();
+        }
+    }
+
+    private static String readBody(HttpExchange exchange)
+            throws IOException
+    {
+        return new String(ByteStreams.toByteArray(exchange.getRequestBody()), Charsets.UTF_8);
+    }
+
+    private static String parseEntityTag(String entityTag)
+    {
+        if (entityTag == null) {
+            return null;
+        }
+        entityTag = entityTag.trim();
+        if (entityTag.startsWith("W/")) {
+            entityTag = entityTag.substring(2);
+        }
+        if (entityTag.length() >= 2 && entityTag.startsWith("\"") && entityTag.endsWith("\"")) {
+            entityTag = entityTag.substring(1, entityTag.length() - 1);
+        }
+        if (entityTag.isEmpty()) {
+            return null;
+        }
+        return entityTag;
+    }
+
+    private static long parseMaxWait(String query)
+    {
+        if (query == null) {
+            return 0;
+        }
+        for (String parameter : query.split("&")) {
+            if (parameter.startsWith("maxWait=")) {
+                try {
+                    return (long) Duration.valueOf(URLDecoder.decode(parameter.substring("maxWait=".length()), "UTF-8")).toMillis();
+                }
+                catch (Exception e) {
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+}
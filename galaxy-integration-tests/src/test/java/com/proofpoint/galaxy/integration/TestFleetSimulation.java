@@ -0,0 +1,326 @@
+package com.proofpoint.galaxy.integration;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Binder;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Module;
+import com.google.inject.util.Modules;
+import com.ning.http.client.AsyncHttpClient;
+import com.ning.http.client.Response;
+import com.proofpoint.configuration.ConfigurationFactory;
+import com.proofpoint.configuration.ConfigurationModule;
+import com.proofpoint.galaxy.coordinator.Coordinator;
+import com.proofpoint.galaxy.coordinator.CoordinatorMainModule;
+import com.proofpoint.galaxy.coordinator.Global;
+import com.proofpoint.galaxy.coordinator.InMemoryStateManager;
+import com.proofpoint.galaxy.coordinator.LocalProvisionerModule;
+import com.proofpoint.galaxy.coordinator.StateManager;
+import com.proofpoint.galaxy.coordinator.TestingMavenRepository;
+import com.proofpoint.galaxy.shared.AgentLifecycleState;
+import com.proofpoint.galaxy.shared.AgentStatus;
+import com.proofpoint.galaxy.shared.Assignment;
+import com.proofpoint.galaxy.shared.Installation;
+import com.proofpoint.http.client.HttpClient;
+import com.proofpoint.http.client.HttpClientConfig;
+import com.proofpoint.http.server.testing.TestingHttpServer;
+import com.proofpoint.http.server.testing.TestingHttpServerModule;
+import com.proofpoint.jaxrs.JaxrsModule;
+import com.proofpoint.json.JsonModule;
+import com.proofpoint.log.Logger;
+import com.proofpoint.node.NodeModule;
+import com.proofpoint.units.Duration;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import javax.ws.rs.core.Response.Status;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Executors;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Maps.newHashMap;
+import static com.google.inject.Scopes.SINGLETON;
+import static com.proofpoint.galaxy.coordinator.TestingMavenRepository.MOCK_REPO;
+import static com.proofpoint.galaxy.shared.AssignmentHelper.APPLE_ASSIGNMENT;
+import static com.proofpoint.galaxy.shared.AssignmentHelper.BANANA_ASSIGNMENT;
+import static com.proofpoint.galaxy.shared.FileUtils.createTempDir;
+import static com.proofpoint.galaxy.shared.FileUtils.deleteRecursively;
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Runs a real coordinator against fleets of simulated agents, discovered through the static
+ * provisioner, and reports how the agent refresh cycle, the coordinator endpoints, the heap
+ * and the thread count hold up as the fleet grows.
+ * <p/>
+ * The defaults keep the run short enough for every build.  Scale runs are configured with
+ * system properties:
+ * <ul>
+ * <li><code>galaxy.simulation.agents</code> comma separated fleet sizes, default 10,100</li>
+ * <li><code>galaxy.simulation.slots-per-agent</code> default 5</li>
+ * <li><code>galaxy.simulation.latency</code> and <code>galaxy.simulation.jitter</code> agent response delay, default 0ms</li>
+ * <li><code>galaxy.simulation.failure-rate</code> fraction of agent requests that fail, default 0</li>
+ * <li><code>galaxy.simulation.refresh-cycles</code> default 3</li>
+ * <li><code>galaxy.simulation.requests</code> requests per coordinator endpoint, default 20</li>
+ * </ul>
+ * Any other system property starting with <code>coordinator.</code> is passed to the
+ * coordinator, for example <code>coordinator.agent.max-concurrent-updates</code>.
+ */
+public class TestFleetSimulation
+{
+    private static final Logger log = Logger.get(TestFleetSimulation.class);
+
+    private static final List<String> ENDPOINTS = ImmutableList.of("/v1/slot", "/v1/admin/agent");
+
+    private final List<Integer> agentCounts = parseCounts(System.getProperty("galaxy.simulation.agents", "10,100"));
+    private final int slotsPerAgent = Integer.getInteger("galaxy.simulation.slots-per-agent", 5);
+    private final Duration latency = Duration.valueOf(System.getProperty("galaxy.simulation.latency", "0ms"));
+    private final Duration jitter = Duration.valueOf(System.getProperty("galaxy.simulation.jitter", "0ms"));
+    private final double failureRate = Double.parseDouble(System.getProperty("galaxy.simulation.failure-rate", "0"));
+    private final int refreshCycles = Integer.getInteger("galaxy.simulation.refresh-cycles", 3);
+    private final int requests = Integer.getInteger("galaxy.simulation.requests", 20);
+
+    private File binaryRepoDir;
+    private File localBinaryRepoDir;
+    private File expectedStateDir;
+    private File artifactCacheDir;
+    private AsyncHttpClient client;
+    private HttpClient provisionerClient;
+
+    @BeforeClass
+    public void setup()
+            throws Exception
+    {
+        binaryRepoDir = TestingMavenRepository.createBinaryRepoDir();
+        localBinaryRepoDir = createTempDir("localBinaryRepoDir");
+        expectedStateDir = createTempDir("expected-state");
+        artifactCacheDir = createTempDir("artifact-cache");
+        client = new AsyncHttpClient();
+        provisionerClient = new HttpClient(Executors.newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat("provisioner-http-%s").setDaemon(true).build()), new HttpClientConfig());
+    }
+
+    @AfterClass
+    public void tearDown()
+    {
+        if (client != null) {
+            client.close();
+        }
+        if (binaryRepoDir != null) {
+            deleteRecursively(binaryRepoDir);
+        }
+        if (localBinaryRepoDir != null) {
+            deleteRecursively(localBinaryRepoDir);
+        }
+        if (expectedStateDir != null) {
+            deleteRecursively(expectedStateDir);
+        }
+        if (artifactCacheDir != null) {
+            deleteRecursively(artifactCacheDir);
+        }
+    }
+
+    @Test
+    public void testFleetScale()
+            throws Exception
+    {
+        List<SimulationResult> results = newArrayList();
+        for (int agentCount : agentCounts) {
+            results.add(simulate(agentCount));
+        }
+
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%n%8s %8s %12s %12s", "agents", "slots", "cycle-p50", "cycle-max"));
+        for (String endpoint : ENDPOINTS) {
+            report.append(String.format(" %24s", endpoint + " p50/p90/p99"));
+        }
+        report.append(String.format(" %10s %8s %10s%n", "heap-mb", "threads", "requests"));
+        for (SimulationResult result : results) {
+            report.append(result).append(String.format("%n"));
+        }
+        log.info("Fleet simulation with %s slots per agent, latency %s, jitter %s, failure rate %s:%s", slotsPerAgent, latency, jitter, failureRate, report);
+    }
+
+    private SimulationResult simulate(int agentCount)
+            throws Exception
+    {
+        List<Installation> installations = ImmutableList.of(createInstallation("apple", APPLE_ASSIGNMENT), createInstallation("banana", BANANA_ASSIGNMENT));
+        SimulatedAgentServer agentServer = new SimulatedAgentServer("prod", agentCount, slotsPerAgent, installations, latency, jitter, failureRate, 8);
+        agentServer.start();
+        TestingHttpServer coordinatorServer = null;
+        try {
+            Injector injector = createCoordinator(agentServer.getAgentUris());
+            coordinatorServer = injector.getInstance(TestingHttpServer.class);
+            coordinatorServer.start();
+            Coordinator coordinator = injector.getInstance(Coordinator.class);
+
+            // the coordinator already refreshed once while it was created, so these are steady state cycles
+            long[] cycleMillis = new long[Math.max(refreshCycles, 1)];
+            for (int cycle = 0; cycle < cycleMillis.length; cycle++) {
+                long start = System.nanoTime();
+                coordinator.updateAllAgents();
+                cycleMillis[cycle] = (System.nanoTime() - start) / 1000000;
+            }
+
+            List<AgentStatus> agents = coordinator.getAgents();
+            assertEquals(agents.size(), agentCount);
+            if (failureRate == 0) {
+                for (AgentStatus agent : agents) {
+                    assertEquals(agent.getState(), AgentLifecycleState.ONLINE, agent.getInstanceId());
+                }
+                assertEquals(coordinator.getAllSlotStatus().size(), agentCount * slotsPerAgent);
+            }
+
+            ImmutableList.Builder<long[]> endpointMillis = ImmutableList.builder();
+            for (String endpoint : ENDPOINTS) {
+                endpointMillis.add(measureEndpoint(coordinatorServer.getBaseUrl() + endpoint));
+            }
+
+            System.gc();
+            long heapBytes = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+            int threads = ManagementFactory.getThreadMXBean().getThreadCount();
+
+            return new SimulationResult(agentCount,
+                    agentCount * slotsPerAgent,
+                    percentile(cycleMillis, 0.5),
+                    percentile(cycleMillis, 1),
+                    endpointMillis.build(),
+                    heapBytes,
+                    threads,
+                    agentServer.getRequestCount());
+        }
+        finally {
+            if (coordinatorServer != null) {
+                coordinatorServer.stop();
+            }
+            agentServer.stop();
+        }
+    }
+
+    private Injector createCoordinator(List<String> agentUris)
+    {
+        Map<String, String> properties = newHashMap();
+        properties.put("node.environment", "prod");
+        properties.put("galaxy.version", "123");
+        properties.put("coordinator.binary-repo", binaryRepoDir.toURI().toString());
+        properties.put("coordinator.default-group-id", "prod");
+        properties.put("coordinator.binary-repo.local", localBinaryRepoDir.toString());
+        properties.put("coordinator.status.expiration", "100d");
+        properties.put("coordinator.agent.default-config", "@agent.config");
+        properties.put("coordinator.aws.access-key", "my-access-key");
+        properties.put("coordinator.aws.secret-key", "my-secret-key");
+        properties.put("coordinator.aws.agent.ami", "ami-0123abcd");
+        properties.put("coordinator.aws.agent.keypair", "keypair");
+        properties.put("coordinator.aws.agent.security-group", "default");
+        properties.put("coordinator.aws.agent.default-instance-type", "t1.micro");
+        properties.put("coordinator.expected-state.dir", expectedStateDir.getAbsolutePath());
+        properties.put("coordinator.artifact-cache.dir", artifactCacheDir.getAbsolutePath());
+        for (Entry<Object, Object> entry : System.getProperties().entrySet()) {
+            String name = entry.getKey().toString();
+            if (name.startsWith("coordinator.")) {
+                properties.put(name, entry.getValue().toString());
+            }
+        }
+        properties.put("coordinator.agent-uri", Joiner.on(',').join(agentUris));
+
+        return Guice.createInjector(new TestingHttpServerModule(),
+                new NodeModule(),
+                new JsonModule(),
+                new JaxrsModule(),
+                new CoordinatorMainModule(),
+                Modules.override(new LocalProvisionerModule()).with(new Module()
+                {
+                    @Override
+                    public void configure(Binder binder)
+                    {
+                        binder.bind(StateManager.class).to(InMemoryStateManager.class).in(SINGLETON);
+                        binder.bind(HttpClient.class).annotatedWith(Global.class).toInstance(provisionerClient);
+                    }
+                }),
+                new ConfigurationModule(new ConfigurationFactory(properties)));
+    }
+
+    private long[] measureEndpoint(String uri)
+            throws Exception
+    {
+        long[] millis = new long[Math.max(requests, 1)];
+        for (int request = 0; request < millis.length; request++) {
+            long start = System.nanoTime();
+            Response response = client.prepareGet(uri).execute().get();
+            response.getResponseBody();
+            millis[request] = (System.nanoTime() - start) / 1000000;
+            assertEquals(response.getStatusCode(), Status.OK.getStatusCode(), uri);
+        }
+        return millis;
+    }
+
+    private static Installation createInstallation(String shortName, Assignment assignment)
+    {
+        return new Installation(shortName,
+                assignment,
+                MOCK_REPO.binaryToHttpUri(assignment.getBinary()),
+                MOCK_REPO.configToHttpUri(assignment.getConfig()),
+                ImmutableMap.of("memory", 512));
+    }
+
+    private static long percentile(long[] values, double percentile)
+    {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private static List<Integer> parseCounts(String counts)
+    {
+        ImmutableList.Builder<Integer> builder = ImmutableList.builder();
+        for (String count : Splitter.on(',').trimResults().omitEmptyStrings().split(counts)) {
+            builder.add(Integer.parseInt(count));
+        }
+        return builder.build();
+    }
+
+    private static class SimulationResult
+    {
+        private final int agents;
+        private final int slots;
+        private final long cycleMillis;
+        private final long maxCycleMillis;
+        private final List<long[]> endpointMillis;
+        private final long heapBytes;
+        private final int threads;
+        private final long agentRequests;
+
+        private SimulationResult(int agents, int slots, long cycleMillis, long maxCycleMillis, List<long[]> endpointMillis, long heapBytes, int threads, long agentRequests)
+        {
+            this.agents = agents;
+            this.slots = slots;
+            this.cycleMillis = cycleMillis;
+            this.maxCycleMillis = maxCycleMillis;
+            this.endpointMillis = endpointMillis;
+            this.heapBytes = heapBytes;
+            this.threads = threads;
+            this.agentRequests = agentRequests;
+        }
+
+        @Override
+        public String toString()
+        {
+            StringBuilder line = new StringBuilder();
+            line.append(String.format("%8d %8d %10dms %10dms", agents, slots, cycleMillis, maxCycleMillis));
+            for (long[] millis : endpointMillis) {
+                line.append(String.format(" %24s", String.format("%d/%d/%dms", percentile(millis, 0.5), percentile(millis, 0.9), percentile(millis, 0.99))));
+            }
+            line.append(String.format(" %10d %8d %10d", heapBytes / (1024 * 1024), threads, agentRequests));
+            return line.toString();
+        }
+    }
+}
@@ -45,6 +45,7 @@ import com.proofpoint.jaxrs.JaxrsModule;
 import com.proofpoint.json.JsonCodec;
 import com.proofpoint.json.JsonModule;
 import com.proofpoint.node.testing.TestingNodeModule;
+import com.proofpoint.units.Duration;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.BeforeMethod;
@@ -54,6 +55,7 @@ import java.io.File;
 import java.net.URI;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 import static com.proofpoint.galaxy.shared.AssignmentHelper.APPLE_ASSIGNMENT;
 import static com.proofpoint.galaxy.shared.AssignmentHelper.BANANA_ASSIGNMENT;
@@ -98,6 +100,7 @@ public class TestRemoteSlot
                 .put("agent.id", UUID.randomUUID().toString())
                 .put("agent.coordinator-uri", "http://localhost:9999/")
                 .put("agent.slots-dir", tempDir.getAbsolutePath())
+                .put("agent.binary-cache-dir", new File(tempDir, "binary-cache").getAbsolutePath())
                 .build();
 
         Injector injector = Guice.createInjector(new TestingHttpServerModule(),
@@ -124,6 +127,8 @@ public class TestRemoteSlot
                 agent.getAgentStatus(),
                 "test",
                 client,
+                new Duration(10, TimeUnit.SECONDS),
+                new Duration(0, TimeUnit.SECONDS),
                 JsonCodec.jsonCodec(InstallationRepresentation.class),
                 JsonCodec.jsonCodec(AgentStatusRepresentation.class),
                 JsonCodec.jsonCodec(SlotStatusRepresentation.class),
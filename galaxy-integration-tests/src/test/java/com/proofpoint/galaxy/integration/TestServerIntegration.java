@@ -103,6 +103,7 @@ public class TestServerIntegration
 
     private File binaryRepoDir;
     private File localBinaryRepoDir;
+    private File artifactCacheDir;
     private Repository repository;
 
     private int prefixSize;
@@ -126,6 +127,7 @@ public class TestServerIntegration
         }
 
         localBinaryRepoDir = createTempDir("localBinaryRepoDir");
+        artifactCacheDir = createTempDir("artifact-cache");
 
         Map<String, String> coordinatorProperties = ImmutableMap.<String, String>builder()
                 .put("node.environment", "prod")
@@ -133,6 +135,7 @@ public class TestServerIntegration
                 .put("coordinator.binary-repo", binaryRepoDir.toURI().toString())
                 .put("coordinator.default-group-id", "prod")
                 .put("coordinator.binary-repo.local", localBinaryRepoDir.toString())
+                .put("coordinator.artifact-cache.dir", artifactCacheDir.getAbsolutePath())
                 .put("coordinator.status.expiration", "100d")
                 .put("coordinator.agent.default-config", "@agent.config")
                 .put("coordinator.aws.access-key", "my-access-key")
@@ -176,6 +179,7 @@ public class TestServerIntegration
                 .put("agent.id", UUID.randomUUID().toString())
                 .put("agent.coordinator-uri", coordinatorServer.getBaseUrl().toString())
                 .put("agent.slots-dir", new File(tempDir, "slots").getAbsolutePath())
+                .put("agent.binary-cache-dir", new File(tempDir, "binary-cache").getAbsolutePath())
                 .put("agent.resources-file", resourcesFile.getAbsolutePath())
                 .put("discovery.uri", "fake://server")
                 .build();
@@ -277,6 +281,9 @@ public class TestServerIntegration
         if (localBinaryRepoDir != null) {
             deleteRecursively(localBinaryRepoDir);
         }
+        if (artifactCacheDir != null) {
+            deleteRecursively(artifactCacheDir);
+        }
     }
 
     @Test
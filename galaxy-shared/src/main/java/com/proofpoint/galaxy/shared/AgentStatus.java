@@ -8,7 +8,7 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
 
 import javax.annotation.Nullable;
-import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
 import java.net.URI;
 import java.util.List;
 import java.util.Map;
@@ -17,8 +17,9 @@ import java.util.UUID;
 import static com.google.common.collect.Iterables.transform;
 import static com.google.common.collect.Maps.newHashMap;
 import static com.proofpoint.galaxy.shared.SlotLifecycleState.TERMINATED;
+import static com.proofpoint.galaxy.shared.Strings.lowerCaseHost;
 
-@Immutable
+@ThreadSafe
 public class AgentStatus
 {
     private final String agentId;
@@ -26,11 +27,17 @@ public class AgentStatus
     private final String instanceId;
     private final URI internalUri;
     private final URI externalUri;
+    private final String internalHost;
+    private final String externalHost;
     private final Map<UUID, SlotStatus> slots;
     private final String location;
     private final String instanceType;
     private final Map<String, Integer> resources;
-    private final String version;
+
+    // computed lazily, since most statuses are never asked for their version; like String.hashCode
+    // this is a benign race: every thread computes the same value, and a String is safely published
+    // without synchronization, so the worst case is computing the version more than once
+    private String version;
 
     public AgentStatus(String agentId,
             AgentLifecycleState state,
@@ -50,6 +57,8 @@ public class AgentStatus
         this.instanceId = instanceId;
         this.internalUri = internalUri;
         this.externalUri = externalUri;
+        this.internalHost = lowerCaseHost(internalUri);
+        this.externalHost = lowerCaseHost(externalUri);
         this.location = location;
         this.instanceType = instanceType;
 
@@ -66,7 +75,6 @@ public class AgentStatus
         this.slots = Maps.uniqueIndex(slots, SlotStatus.uuidGetter());
 
         this.resources = ImmutableMap.copyOf(resources);
-        this.version = VersionsUtil.createAgentVersion(agentId, state, slots, resources);
     }
 
     public String getAgentId()
@@ -125,6 +133,22 @@ public class AgentStatus
         return externalUri;
     }
 
+    /**
+     * Gets the host of the internal uri in lower case, or null if there is no host.
+     */
+    public String getInternalHost()
+    {
+        return internalHost;
+    }
+
+    /**
+     * Gets the host of the external uri in lower case, or null if there is no host.
+     */
+    public String getExternalHost()
+    {
+        return externalHost;
+    }
+
     public String getLocation()
     {
         return location;
@@ -152,6 +176,11 @@ public class AgentStatus
 
     public String getVersion()
     {
+        String version = this.version;
+        if (version == null) {
+            version = VersionsUtil.createAgentVersion(agentId, state, slots.values(), resources);
+            this.version = version;
+        }
         return version;
     }
 
@@ -192,7 +221,7 @@ public class AgentStatus
         sb.append(", externalUri=").append(externalUri);
         sb.append(", slots=").append(slots.values());
         sb.append(", resources=").append(resources);
-        sb.append(", version=").append(version);
+        sb.append(", version=").append(getVersion());
         sb.append('}');
         return sb.toString();
     }
@@ -218,4 +247,15 @@ public class AgentStatus
             }
         };
     }
+
+    public static Function<AgentStatus, List<SlotStatus>> slotStatusesGetter()
+    {
+        return new Function<AgentStatus, List<SlotStatus>>()
+        {
+            public List<SlotStatus> apply(AgentStatus input)
+            {
+                return input.getSlotStatuses();
+            }
+        };
+    }
 }
@@ -9,6 +9,7 @@ import org.codehaus.jackson.annotate.JsonCreator;
 import org.codehaus.jackson.annotate.JsonMethod;
 import org.codehaus.jackson.annotate.JsonProperty;
 
+import javax.annotation.Nullable;
 import javax.validation.constraints.NotNull;
 import java.net.InetAddress;
 import java.net.URI;
@@ -19,6 +20,8 @@ import java.util.Map;
 import static com.google.common.collect.Lists.transform;
 import static com.proofpoint.galaxy.shared.AgentStatus.idGetter;
 import static com.proofpoint.galaxy.shared.AgentStatus.locationGetter;
+import static com.proofpoint.galaxy.shared.InternUtils.intern;
+import static com.proofpoint.galaxy.shared.InternUtils.internResources;
 import static com.proofpoint.galaxy.shared.Strings.commonPrefixSegments;
 import static com.proofpoint.galaxy.shared.Strings.safeTruncate;
 import static com.proofpoint.galaxy.shared.Strings.shortestUniquePrefix;
@@ -254,12 +257,43 @@ public class AgentStatusRepresentation
     }
 
     public AgentStatus toAgentStatus(String instanceId, String instanceType)
+    {
+        return toAgentStatus(instanceId, instanceType, null);
+    }
+
+    /**
+     * Converts this representation to an agent status, reusing the slot statuses of the
+     * previous status of the agent that have not changed, so unchanged slots keep their
+     * identity across polls.
+     */
+    public AgentStatus toAgentStatus(String instanceId, String instanceType, @Nullable AgentStatus previousStatus)
     {
         Builder<SlotStatus> builder = ImmutableList.builder();
         for (SlotStatusRepresentation slot : slots) {
-            builder.add(slot.toSlotStatus(instanceId));
+            SlotStatus previousSlotStatus = null;
+            if (previousStatus != null && slot.getId() != null) {
+                previousSlotStatus = previousStatus.getSlotStatus(slot.getId());
+            }
+            builder.add(slot.toSlotStatus(instanceId, previousSlotStatus));
+        }
+
+        // the resources of an agent rarely change, so keep the previous map instead of interning a copy
+        Map<String, Integer> agentResources;
+        if (previousStatus != null && previousStatus.getResources().equals(resources)) {
+            agentResources = previousStatus.getResources();
+        }
+        else {
+            agentResources = internResources(resources);
         }
-        return new AgentStatus(agentId, AgentLifecycleState.ONLINE, instanceId, self, externalUri, location, instanceType, builder.build(), resources);
+        return new AgentStatus(agentId,
+                AgentLifecycleState.ONLINE,
+                instanceId,
+                intern(self),
+                intern(externalUri),
+                intern(location),
+                intern(instanceType),
+                builder.build(),
+                agentResources);
     }
 
     @Override
@@ -0,0 +1,325 @@
+package com.proofpoint.galaxy.shared;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+import com.google.common.io.InputSupplier;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.proofpoint.galaxy.shared.FileUtils.listFiles;
+
+/**
+ * Local store of downloaded config bundles.  A bundle is stored once under the digest of its
+ * contents, and entries are read through the zip central directory instead of streaming the
+ * bundle up to the entry.  The location a bundle was downloaded from is remembered on disk, so
+ * a restarted process reuses the bundles of the previous one.
+ * <p/>
+ * A bundle with SNAPSHOT in its file name can change in place, so it is downloaded on every
+ * use.  Bundles on the local file system are read where they are.
+ * <p/>
+ * The cache directory is only accessible by its owner, and a bundle left by an earlier process
+ * is only used if its contents still match its digest.  When the bundles grow past the maximum
+ * size, the least recently used ones are deleted.
+ */
+public class ConfigBundleCache
+{
+    private static final String BUNDLE_SUFFIX = ".config";
+
+    private final File cacheDir;
+    private final File bundleDir;
+    private final File locationDir;
+    private final long maxSize;
+    private final ConcurrentMap<URI, FutureTask<File>> bundles = new ConcurrentHashMap<URI, FutureTask<File>>();
+
+    public ConfigBundleCache(File cacheDir, long maxSize)
+    {
+        Preconditions.checkNotNull(cacheDir, "cacheDir is null");
+        Preconditions.checkArgument(maxSize >= 0, "maxSize is negative");
+
+        this.cacheDir = cacheDir;
+        this.bundleDir = new File(cacheDir, "bundles");
+        this.locationDir = new File(cacheDir, "locations");
+        this.maxSize = maxSize;
+    }
+
+    public InputSupplier<InputStream> newConfigEntrySupplier(final URI configBundle, final String entryName)
+    {
+        Preconditions.checkNotNull(configBundle, "configBundle is null");
+        Preconditions.checkNotNull(entryName, "entryName is null");
+
+        return new InputSupplier<InputStream>()
+        {
+            @Override
+            public InputStream getInput()
+                    throws IOException
+            {
+                final ZipFile zipFile = new ZipFile(getConfigBundle(configBundle));
+                boolean success = false;
+                try {
+                    ZipEntry zipEntry = zipFile.getEntry(entryName);
+                    if (zipEntry == null) {
+                        throw new FileNotFoundException(entryName);
+                    }
+
+                    InputStream in = new FilterInputStream(zipFile.getInputStream(zipEntry))
+                    {
+                        @Override
+                        public void close()
+                                throws IOException
+                        {
+                            try {
+                                super.close();
+                            }
+                            finally {
+                                zipFile.close();
+                            }
+                        }
+                    };
+
+                    success = true;
+                    return in;
+                }
+                finally {
+                    if (!success) {
+                        zipFile.close();
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Gets a local copy of the config bundle, downloading it if necessary.  Concurrent callers
+     * for the same bundle share a single download.
+     */
+    public File getConfigBundle(final URI configBundle)
+            throws IOException
+    {
+        Preconditions.checkNotNull(configBundle, "configBundle is null");
+
+        if ("file".equals(configBundle.getScheme())) {
+            return new File(configBundle);
+        }
+
+        if (configBundle.getPath() == null || configBundle.getPath().substring(configBundle.getPath().lastIndexOf('/') + 1).contains("SNAPSHOT")) {
+            return download(configBundle);
+        }
+
+        FutureTask<File> task = bundles.get(configBundle);
+        if (task == null) {
+            FutureTask<File> newTask = new FutureTask<File>(new Callable<File>()
+            {
+                @Override
+                public File call()
+                        throws IOException
+                {
+                    return load(configBundle);
+                }
+            });
+            task = bundles.putIfAbsent(configBundle, newTask);
+            if (task == null) {
+                task = newTask;
+                task.run();
+            }
+        }
+
+        try {
+            File bundle = task.get();
+            if (bundle.isFile()) {
+                // the modification time orders the bundles for eviction
+                bundle.setLastModified(System.currentTimeMillis());
+                return bundle;
+            }
+
+            // the bundle was removed from the cache directory, so download it again
+            bundles.remove(configBundle, task);
+            return getConfigBundle(configBundle);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while downloading config bundle " + configBundle);
+        }
+        catch (ExecutionException e) {
+            // do not cache the failure
+            bundles.remove(configBundle, task);
+            Throwables.propagateIfInstanceOf(e.getCause(), IOException.class);
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    private File load(URI configBundle)
+            throws IOException
+    {
+        // check for a bundle downloaded by an earlier process
+        createPrivateDirectory(locationDir);
+        File locationFile = new File(locationDir, DigestUtils.md5Hex(configBundle.toString()));
+        if (locationFile.canRead()) {
+            File bundle = new File(bundleDir, Files.toString(locationFile, Charsets.UTF_8).trim());
+            if (bundle.isFile() && isIntact(bundle)) {
+                return bundle;
+            }
+        }
+
+        File bundle = download(configBundle);
+
+        File tempFile = File.createTempFile("location", ".tmp", locationDir);
+        try {
+            Files.write(bundle.getName(), tempFile, Charsets.UTF_8);
+            if (!tempFile.renameTo(locationFile)) {
+                throw new IOException("Unable to save location of config bundle " + configBundle);
+            }
+        }
+        finally {
+            tempFile.delete();
+        }
+        return bundle;
+    }
+
+    private File download(URI configBundle)
+            throws IOException
+    {
+        createPrivateDirectory(bundleDir);
+        File tempFile = File.createTempFile("download", ".tmp", bundleDir);
+        try {
+            MessageDigest digest = newDigest();
+            InputStream in = new DigestInputStream(ConfigUtils.newConfigBundleSupplier(configBundle).getInput(), digest);
+            try {
+                OutputStream out = new FileOutputStream(tempFile);
+                try {
+                    ByteStreams.copy(in, out);
+                }
+                finally {
+                    out.close();
+                }
+            }
+            finally {
+                in.close();
+            }
+
+            // identical bundles share a file, and a file with the digest name is always complete
+            File bundle = new File(bundleDir, DigestUtils.toHex(digest.digest()) + BUNDLE_SUFFIX);
+            if (!bundle.isFile() && !tempFile.renameTo(bundle) && !bundle.isFile()) {
+                throw new IOException("Unable to save config bundle " + configBundle + " to " + bundle);
+            }
+            bundle.setLastModified(System.currentTimeMillis());
+            evict(bundle);
+            return bundle;
+        }
+        finally {
+            tempFile.delete();
+        }
+    }
+
+    /**
+     * Checks that the contents of a bundle still match the digest in its name.
+     */
+    private static boolean isIntact(File bundle)
+            throws IOException
+    {
+        MessageDigest digest = newDigest();
+        InputStream in = new DigestInputStream(new FileInputStream(bundle), digest);
+        try {
+            ByteStreams.copy(in, ByteStreams.nullOutputStream());
+        }
+        finally {
+            in.close();
+        }
+
+        if (bundle.getName().equals(DigestUtils.toHex(digest.digest()) + BUNDLE_SUFFIX)) {
+            return true;
+        }
+        // changed outside of the cache, so download it again
+        bundle.delete();
+        return false;
+    }
+
+    /**
+     * Deletes the least recently used bundles until the cache fits in the maximum size.  The
+     * newest bundle is always kept, so a bundle larger than the cache can still be used.  A
+     * bundle that is being read stays readable after it is deleted.
+     */
+    private synchronized void evict(File newestBundle)
+    {
+        List<File> files = newArrayList(listFiles(bundleDir));
+        Collections.sort(files, new Comparator<File>()
+        {
+            @Override
+            public int compare(File file1, File file2)
+            {
+                return Long.valueOf(file1.lastModified()).compareTo(file2.lastModified());
+            }
+        });
+
+        long size = 0;
+        for (File file : files) {
+            size += file.length();
+        }
+        for (File file : files) {
+            if (size <= maxSize) {
+                break;
+            }
+            long length = file.length();
+            if (!file.equals(newestBundle) && file.getName().endsWith(BUNDLE_SUFFIX) && file.delete()) {
+                size -= length;
+            }
+        }
+    }
+
+    /**
+     * Creates a directory that only the owner can read or write, since the cache directory
+     * decides which bundles are installed.
+     */
+    private void createPrivateDirectory(File dir)
+            throws IOException
+    {
+        for (File file : new File[] {cacheDir, dir}) {
+            file.mkdirs();
+            if (!file.isDirectory()) {
+                throw new IOException("Unable to create config bundle cache directory " + file.getAbsolutePath());
+            }
+            // java 6 can only change the owner and everyone permissions, so clear both and add the owner back
+            boolean restricted = file.setReadable(false, false) && file.setReadable(true, true) &&
+                    file.setWritable(false, false) && file.setWritable(true, true) &&
+                    file.setExecutable(false, false) && file.setExecutable(true, true);
+            if (!restricted) {
+                throw new IOException("Unable to restrict permissions of config bundle cache directory " + file.getAbsolutePath());
+            }
+        }
+    }
+
+    private static MessageDigest newDigest()
+    {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+}
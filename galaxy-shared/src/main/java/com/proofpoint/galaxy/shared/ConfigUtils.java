@@ -5,18 +5,14 @@ import com.google.common.collect.Lists;
 import com.google.common.io.ByteStreams;
 import com.google.common.io.Files;
 import com.google.common.io.InputSupplier;
-import com.google.common.io.Resources;
 import com.proofpoint.configuration.ConfigurationFactory;
 
-import java.io.BufferedInputStream;
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.HttpURLConnection;
-import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URL;
 import java.net.URLConnection;
@@ -31,9 +27,13 @@ import java.util.zip.ZipOutputStream;
 
 import static com.google.common.base.Objects.firstNonNull;
 import static com.google.common.collect.Maps.newLinkedHashMap;
+import static com.proofpoint.galaxy.shared.FileUtils.createTempDir;
+import static com.proofpoint.galaxy.shared.FileUtils.deleteRecursively;
 
 public class ConfigUtils
 {
+    private static final long DEFAULT_CONFIG_BUNDLE_CACHE_MAX_SIZE = 256L * 1024 * 1024;
+
     public static void packConfig(File outputFile, String rootPath, File... inputDirs)
             throws IOException
     {
@@ -104,6 +104,18 @@ public class ConfigUtils
         }
     }
 
+    public static void unpackConfig(URI configBundle, File outputDir)
+            throws IOException
+    {
+        unpackConfig(DefaultConfigBundleCache.INSTANCE, configBundle, outputDir);
+    }
+
+    public static void unpackConfig(ConfigBundleCache configBundleCache, URI configBundle, File outputDir)
+            throws IOException
+    {
+        unpackConfig(Files.newInputStreamSupplier(configBundleCache.getConfigBundle(configBundle)), outputDir);
+    }
+
     public static void unpackConfig(InputSupplier<? extends InputStream> inputSupplier, File outputDir)
             throws IOException
     {
@@ -117,6 +129,8 @@ public class ConfigUtils
                 }
                 else {
                     file.getParentFile().mkdirs();
+                    // replace instead of overwriting, since the file may be a hard link to a shared copy
+                    file.delete();
                     ByteStreams.copy(in, Files.newOutputStreamSupplier(file));
                     file.setLastModified(zipEntry.getTime());
                 }
@@ -133,21 +147,17 @@ public class ConfigUtils
         if (uri == null) {
             return null;
         }
+        return newConfigEntrySupplier(uri, entryName);
+    }
 
-        URL configUrl;
-        try {
-            configUrl = uri.toURL();
-        }
-        catch (MalformedURLException e) {
-            throw new RuntimeException("Invalid config bundle location " + uri);
-        }
-
-        return ConfigUtils.newConfigEntrySupplier(Resources.newInputStreamSupplier(configUrl), entryName);
+    public static InputSupplier<InputStream> newConfigEntrySupplier(URI configBundle, String entryName)
+    {
+        return DefaultConfigBundleCache.INSTANCE.newConfigEntrySupplier(configBundle, entryName);
     }
 
-    public static InputSupplier<InputStream> newConfigEntrySupplier(final URI configBundle, String entryName)
+    static InputSupplier<InputStream> newConfigBundleSupplier(final URI configBundle)
     {
-        InputSupplier<InputStream> configBundleInput = new InputSupplier<InputStream>()
+        return new InputSupplier<InputStream>()
         {
             @Override
             public InputStream getInput()
@@ -164,41 +174,6 @@ public class ConfigUtils
                 return in;
             }
         };
-        return newConfigEntrySupplier(configBundleInput, entryName);
-    }
-
-    private static InputSupplier<InputStream> newConfigEntrySupplier(final InputSupplier<? extends InputStream> configBundle, final String entryName)
-    {
-        return new InputSupplier<InputStream>()
-        {
-            @Override
-            public InputStream getInput()
-                    throws IOException
-            {
-                boolean success = false;
-                ZipInputStream in = new ZipInputStream(configBundle.getInput());
-                try {
-                    ZipEntry zipEntry = in.getNextEntry();
-                    while (zipEntry != null && !zipEntry.getName().equals(entryName)) {
-                        zipEntry = in.getNextEntry();
-                    }
-                    if (zipEntry == null) {
-                        throw new FileNotFoundException(entryName);
-                    }
-
-                    // wrap with buffer to make it difficult to mess with the zip stream
-                    BufferedInputStream stream = new BufferedInputStream(in);
-
-                    success = true;
-                    return stream;
-                }
-                finally {
-                    if (!success) {
-                        in.close();
-                    }
-                }
-            }
-        };
     }
 
     public static ConfigurationFactory createConfigurationFactory(Repository repository, String config)
@@ -227,4 +202,26 @@ public class ConfigUtils
 
         return new ConfigurationFactory((Map<String,String>) (Object) properties);
     }
+
+    /**
+     * The cache used by processes that do not configure their own.  It lives in a new directory
+     * that is private to this process, and is deleted when the process exits.
+     */
+    private static class DefaultConfigBundleCache
+    {
+        private static final ConfigBundleCache INSTANCE;
+
+        static {
+            final File cacheDir = createTempDir("galaxy-config-bundles");
+            Runtime.getRuntime().addShutdownHook(new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    deleteRecursively(cacheDir);
+                }
+            });
+            INSTANCE = new ConfigBundleCache(cacheDir, DEFAULT_CONFIG_BUNDLE_CACHE_MAX_SIZE);
+        }
+    }
 }
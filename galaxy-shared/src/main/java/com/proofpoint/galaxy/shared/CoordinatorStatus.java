@@ -5,6 +5,8 @@ import com.google.common.base.Function;
 import javax.annotation.concurrent.Immutable;
 import java.net.URI;
 
+import static com.proofpoint.galaxy.shared.Strings.lowerCaseHost;
+
 @Immutable
 public class CoordinatorStatus
 {
@@ -13,6 +15,8 @@ public class CoordinatorStatus
     private final String instanceId;
     private final URI internalUri;
     private final URI externalUri;
+    private final String internalHost;
+    private final String externalHost;
     private final String location;
     private final String instanceType;
     private final String version;
@@ -21,6 +25,8 @@ public class CoordinatorStatus
     {
         this.internalUri = internalUri;
         this.externalUri = externalUri;
+        this.internalHost = lowerCaseHost(internalUri);
+        this.externalHost = lowerCaseHost(externalUri);
         this.instanceId = instanceId;
         this.state = state;
         this.coordinatorId = coordinatorId;
@@ -59,6 +65,22 @@ public class CoordinatorStatus
         return externalUri;
     }
 
+    /**
+     * Gets the host of the internal uri in lower case, or null if there is no host.
+     */
+    public String getInternalHost()
+    {
+        return internalHost;
+    }
+
+    /**
+     * Gets the host of the external uri in lower case, or null if there is no host.
+     */
+    public String getExternalHost()
+    {
+        return externalHost;
+    }
+
     public String getLocation()
     {
         return location;
@@ -2,7 +2,6 @@ package com.proofpoint.galaxy.shared;
 
 import com.google.common.base.Charsets;
 import com.google.common.base.Throwables;
-import com.google.common.io.ByteStreams;
 
 import java.security.MessageDigest;
 
@@ -13,7 +12,7 @@ public class DigestUtils
     public static String md5Hex(String data)
     {
         try {
-            byte[] digest = ByteStreams.getDigest(ByteStreams.newInputStreamSupplier(data.getBytes(Charsets.UTF_8)), MessageDigest.getInstance("MD5"));
+            byte[] digest = MessageDigest.getInstance("MD5").digest(data.getBytes(Charsets.UTF_8));
             return toHex(digest);
         }
         catch (Exception e) {
@@ -7,8 +7,12 @@ import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.proofpoint.units.Duration;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.FilenameFilter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -19,28 +23,83 @@ public class FileUtils
     private static final Executor executor = Executors.newCachedThreadPool(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("tar-command-%s").build());
 
     public static void createTar(File sourceDirectory, File tarFile)
-            throws CommandFailedException
+            throws IOException
     {
         Preconditions.checkNotNull(sourceDirectory, "sourceDirectory is null");
         Preconditions.checkArgument(sourceDirectory.isDirectory(), "sourceDirectory is not a directory: " + sourceDirectory.getAbsolutePath());
         Preconditions.checkNotNull(tarFile, "tarFile is null");
 
         tarFile.getParentFile().mkdirs();
-        new Command("tar", "zcf", tarFile.getAbsolutePath(), sourceDirectory.getName())
-                .setDirectory(sourceDirectory.getParent())
-                .setTimeLimit(5, TimeUnit.MINUTES)
-                .execute(executor);
+        OutputStream out = new FileOutputStream(tarFile);
+        try {
+            TarUtils.create(sourceDirectory, out, executor);
+        }
+        finally {
+            out.close();
+        }
     }
 
-    public static void extractTar(File tarFile, File targetDirectory, Duration timeLimit)
-            throws CommandFailedException
+    public static void extractTar(File tarFile, File targetDirectory)
+            throws IOException
     {
         Preconditions.checkNotNull(tarFile, "tarFile is null");
+
+        InputStream in = new FileInputStream(tarFile);
+        try {
+            extractTar(in, targetDirectory);
+        }
+        finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Extracts a gzipped tar as it is read, so an archive can be extracted while it downloads.
+     * The stream is not closed.
+     */
+    public static void extractTar(InputStream tarStream, File targetDirectory)
+            throws IOException
+    {
+        Preconditions.checkNotNull(tarStream, "tarStream is null");
         Preconditions.checkNotNull(targetDirectory, "targetDirectory is null");
         Preconditions.checkArgument(targetDirectory.isDirectory(), "targetDirectory is not a directory: " + targetDirectory.getAbsolutePath());
 
-        new Command("tar", "zxf", tarFile.getAbsolutePath())
-                .setDirectory(targetDirectory)
+        TarUtils.extract(tarStream, targetDirectory, executor);
+    }
+
+    /**
+     * Copies the directory tree, preserving permissions and symbolic links.
+     */
+    public static void copyTree(File sourceDirectory, File targetDirectory, Duration timeLimit)
+            throws CommandFailedException
+    {
+        Preconditions.checkNotNull(sourceDirectory, "sourceDirectory is null");
+        Preconditions.checkArgument(sourceDirectory.isDirectory(), "sourceDirectory is not a directory: " + sourceDirectory.getAbsolutePath());
+        Preconditions.checkNotNull(targetDirectory, "targetDirectory is null");
+        Preconditions.checkArgument(!targetDirectory.exists(), "targetDirectory already exists: " + targetDirectory.getAbsolutePath());
+
+        targetDirectory.getParentFile().mkdirs();
+        new Command("cp", "-a", sourceDirectory.getAbsolutePath(), targetDirectory.getAbsolutePath())
+                .setTimeLimit(timeLimit)
+                .execute(executor);
+    }
+
+    /**
+     * Copies the directory tree with hard links instead of copying file contents, so the copy
+     * shares the files of the source.  The directories of the copy are new.  Changing the
+     * contents or permissions of a file in the copy also changes the source and every other
+     * copy, so a file must be replaced rather than modified.
+     */
+    public static void linkTree(File sourceDirectory, File targetDirectory, Duration timeLimit)
+            throws CommandFailedException
+    {
+        Preconditions.checkNotNull(sourceDirectory, "sourceDirectory is null");
+        Preconditions.checkArgument(sourceDirectory.isDirectory(), "sourceDirectory is not a directory: " + sourceDirectory.getAbsolutePath());
+        Preconditions.checkNotNull(targetDirectory, "targetDirectory is null");
+        Preconditions.checkArgument(!targetDirectory.exists(), "targetDirectory already exists: " + targetDirectory.getAbsolutePath());
+
+        targetDirectory.getParentFile().mkdirs();
+        new Command("cp", "-al", sourceDirectory.getAbsolutePath(), targetDirectory.getAbsolutePath())
                 .setTimeLimit(timeLimit)
                 .execute(executor);
     }
@@ -0,0 +1,57 @@
+package com.proofpoint.galaxy.shared;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+import java.net.URI;
+import java.util.Map;
+
+/**
+ * Weak interning pools for the values that repeat across slot and agent statuses, such as
+ * binary and config specs, locations and resource maps.  A value stays in its pool only
+ * while some status still refers to it.
+ */
+public final class InternUtils
+{
+    private static final Interner<String> STRINGS = Interners.newWeakInterner();
+    private static final Interner<URI> URIS = Interners.newWeakInterner();
+    private static final Interner<Assignment> ASSIGNMENTS = Interners.newWeakInterner();
+    private static final Interner<Map<String, Integer>> RESOURCES = Interners.newWeakInterner();
+
+    private InternUtils()
+    {
+    }
+
+    public static String intern(String value)
+    {
+        if (value == null) {
+            return null;
+        }
+        return STRINGS.intern(value);
+    }
+
+    public static URI intern(URI uri)
+    {
+        if (uri == null) {
+            return null;
+        }
+        return URIS.intern(uri);
+    }
+
+    public static Assignment internAssignment(String binary, String config)
+    {
+        if (binary == null) {
+            return null;
+        }
+        return ASSIGNMENTS.intern(new Assignment(intern(binary), intern(config)));
+    }
+
+    public static Map<String, Integer> internResources(Map<String, Integer> resources)
+    {
+        if (resources == null) {
+            return null;
+        }
+        return RESOURCES.intern(ImmutableMap.copyOf(resources));
+    }
+}
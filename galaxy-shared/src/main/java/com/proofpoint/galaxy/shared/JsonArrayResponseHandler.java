@@ -0,0 +1,103 @@
+package com.proofpoint.galaxy.shared;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.proofpoint.galaxy.shared.FullJsonResponseHandler.JsonResponse;
+import com.proofpoint.http.client.Request;
+import com.proofpoint.http.client.Response;
+import com.proofpoint.http.client.ResponseHandler;
+import com.proofpoint.json.JsonCodec;
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.ConnectException;
+import java.net.URI;
+import java.util.List;
+
+/**
+ * Decodes a JSON array response one element at a time as it is read from the server, so
+ * neither the response body nor a parsed tree of the whole array is held in memory.
+ */
+public class JsonArrayResponseHandler<T> implements ResponseHandler<JsonResponse<List<T>>, RuntimeException>
+{
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    public static <T> JsonArrayResponseHandler<T> create(JsonCodec<T> elementCodec)
+    {
+        return new JsonArrayResponseHandler<T>(elementCodec);
+    }
+
+    private final JsonCodec<T> elementCodec;
+
+    public JsonArrayResponseHandler(JsonCodec<T> elementCodec)
+    {
+        this.elementCodec = elementCodec;
+    }
+
+    @Override
+    public RuntimeException handleException(Request request, Exception exception)
+    {
+        if (exception instanceof ConnectException) {
+            URI uri = request.getUri();
+            try {
+                uri = new URI(uri.getScheme(), null, uri.getHost(), uri.getPort(), "/", null, null);
+            }
+            catch (Exception e) {
+            }
+            return new RuntimeException("Coordinator refused connection: " + uri);
+        }
+        return Throwables.propagate(exception);
+    }
+
+    @Override
+    public JsonResponse<List<T>> handle(Request request, Response response)
+    {
+        if (response.getStatusCode() / 100 != 2) {
+            throw new RuntimeException(response.getStatusMessage());
+        }
+        String contentType = response.getHeader("Content-Type");
+        if (!"application/json".equals(contentType)) {
+            throw new RuntimeException("Expected application/json response from server but got " + contentType);
+        }
+        try {
+            List<T> value = readArray(response);
+            return new JsonResponse<List<T>>(value, response.getStatusCode(), response.getStatusMessage(), response.getHeaders());
+        }
+        catch (IOException e) {
+            throw new RuntimeException("Error reading response from server");
+        }
+    }
+
+    private List<T> readArray(Response response)
+            throws IOException
+    {
+        JsonParser parser = JSON_FACTORY.createJsonParser(response.getInputStream());
+        try {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new RuntimeException("Expected a JSON array from server");
+            }
+
+            ImmutableList.Builder<T> elements = ImmutableList.builder();
+            for (JsonToken token = parser.nextToken(); token != JsonToken.END_ARRAY; token = parser.nextToken()) {
+                if (token == null) {
+                    throw new IOException("Response ended before the end of the JSON array");
+                }
+
+                // copy one element out of the stream and decode it with the codec, which owns the mapper configuration
+                StringWriter element = new StringWriter();
+                JsonGenerator generator = JSON_FACTORY.createJsonGenerator(element);
+                generator.copyCurrentStructure(parser);
+                generator.close();
+                elements.add(elementCodec.fromJson(element.toString()));
+            }
+            return elements.build();
+        }
+        finally {
+            parser.close();
+        }
+    }
+}
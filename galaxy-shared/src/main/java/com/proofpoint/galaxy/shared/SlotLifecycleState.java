@@ -21,11 +21,14 @@ import java.util.Map;
 
 public enum SlotLifecycleState
 {
-    STOPPED("s"),
-    RUNNING("r"),
-    RESTARTING(null),
-    TERMINATED(null),
-    UNKNOWN("u");
+    STOPPED("s", false),
+    RUNNING("r", false),
+    RESTARTING(null, true),
+    STARTING("st", true),
+    STOPPING("sp", true),
+    INSTALLING("i", true),
+    TERMINATED(null, false),
+    UNKNOWN("u", false);
 
     private static Map<String, SlotLifecycleState> byName;
 
@@ -46,11 +49,25 @@ public enum SlotLifecycleState
     }
 
     private final String shortName;
+    private final boolean transitional;
 
-    SlotLifecycleState(String shortName)
+    SlotLifecycleState(String shortName, boolean transitional)
     {
         this.shortName = shortName;
+        this.transitional = transitional;
     }
 
+    public String getShortName()
+    {
+        return shortName;
+    }
 
+    /**
+     * Checks if a slot in this state is still moving to another state, and will soon be
+     * {@link #RUNNING} or {@link #STOPPED}.
+     */
+    public boolean isTransitional()
+    {
+        return transitional;
+    }
 }
@@ -0,0 +1,73 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.proofpoint.galaxy.shared;
+
+import com.google.common.base.Preconditions;
+import org.codehaus.jackson.annotate.JsonAutoDetect;
+import org.codehaus.jackson.annotate.JsonCreator;
+import org.codehaus.jackson.annotate.JsonMethod;
+import org.codehaus.jackson.annotate.JsonProperty;
+
+/**
+ * One element of a streamed slot operation response: either the status of a slot whose
+ * operation completed, or the error that ended the operation.
+ */
+@JsonAutoDetect(JsonMethod.NONE)
+public class SlotOperationResultRepresentation
+{
+    private final SlotStatusRepresentation slot;
+    private final String error;
+
+    public static SlotOperationResultRepresentation completed(SlotStatusRepresentation slot)
+    {
+        Preconditions.checkNotNull(slot, "slot is null");
+        return new SlotOperationResultRepresentation(slot, null);
+    }
+
+    public static SlotOperationResultRepresentation failed(String error)
+    {
+        Preconditions.checkNotNull(error, "error is null");
+        return new SlotOperationResultRepresentation(null, error);
+    }
+
+    @JsonCreator
+    public SlotOperationResultRepresentation(@JsonProperty("slot") SlotStatusRepresentation slot, @JsonProperty("error") String error)
+    {
+        this.slot = slot;
+        this.error = error;
+    }
+
+    @JsonProperty
+    public SlotStatusRepresentation getSlot()
+    {
+        return slot;
+    }
+
+    @JsonProperty
+    public String getError()
+    {
+        return error;
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("SlotOperationResultRepresentation");
+        sb.append("{slot=").append(slot);
+        sb.append(", error='").append(error).append('\'');
+        sb.append('}');
+        return sb.toString();
+    }
+}
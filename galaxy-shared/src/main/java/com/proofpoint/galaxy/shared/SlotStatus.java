@@ -17,15 +17,16 @@ import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableMap;
 
-import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
 import java.net.URI;
 import java.util.Map;
 import java.util.UUID;
 
 import static com.proofpoint.galaxy.shared.SlotLifecycleState.TERMINATED;
 import static com.proofpoint.galaxy.shared.SlotLifecycleState.UNKNOWN;
+import static com.proofpoint.galaxy.shared.Strings.lowerCaseHost;
 
-@Immutable
+@ThreadSafe
 public class SlotStatus
 {
     public static SlotStatus createSlotStatus(UUID id,
@@ -63,11 +64,17 @@ public class SlotStatus
     private final String name;
     private final URI self;
     private final URI externalUri;
+    private final String internalHost;
+    private final String externalHost;
     private final String instanceId;
     private final String location;
     private final Assignment assignment;
     private final SlotLifecycleState state;
-    private final String version;
+
+    // computed lazily, since most statuses are never asked for their version; like String.hashCode
+    // this is a benign race: every thread computes the same value, and a String is safely published
+    // without synchronization, so the worst case is computing the version more than once
+    private String version;
 
     private final SlotLifecycleState expectedState;
     private final Assignment expectedAssignment;
@@ -105,11 +112,12 @@ public class SlotStatus
         this.name = name;
         this.self = self;
         this.externalUri = externalUri;
+        this.internalHost = lowerCaseHost(self);
+        this.externalHost = lowerCaseHost(externalUri);
         this.instanceId = instanceId;
         this.location = location;
         this.assignment = assignment;
         this.state = state;
-        this.version = VersionsUtil.createSlotVersion(id, state, assignment);
         this.installPath = installPath;
         this.expectedState = expectedState;
         this.expectedAssignment = expectedAssignment;
@@ -138,6 +146,22 @@ public class SlotStatus
         return externalUri;
     }
 
+    /**
+     * Gets the host of the self uri in lower case, or null if there is no host.
+     */
+    public String getInternalHost()
+    {
+        return internalHost;
+    }
+
+    /**
+     * Gets the host of the external uri in lower case, or null if there is no host.
+     */
+    public String getExternalHost()
+    {
+        return externalHost;
+    }
+
     public String getInstanceId()
     {
         return instanceId;
@@ -160,6 +184,11 @@ public class SlotStatus
 
     public String getVersion()
     {
+        String version = this.version;
+        if (version == null) {
+            version = VersionsUtil.createSlotVersion(id, state, assignment);
+            this.version = version;
+        }
         return version;
     }
 
@@ -312,9 +341,6 @@ public class SlotStatus
         if (state != that.state) {
             return false;
         }
-        if (!version.equals(that.version)) {
-            return false;
-        }
         if (!resources.equals(that.resources)) {
             return false;
         }
@@ -339,7 +365,6 @@ public class SlotStatus
         result = 31 * result + location.hashCode();
         result = 31 * result + (assignment != null ? assignment.hashCode() : 0);
         result = 31 * result + state.hashCode();
-        result = 31 * result + version.hashCode();
         result = 31 * result + (installPath != null ? installPath.hashCode() : 0);
         result = 31 * result + resources.hashCode();
         result = 31 * result + (expectedState != null ? expectedState.hashCode() : 0);
@@ -360,7 +385,7 @@ public class SlotStatus
         sb.append(", location='").append(location).append('\'');
         sb.append(", assignment=").append(assignment);
         sb.append(", state=").append(state);
-        sb.append(", version='").append(version).append('\'');
+        sb.append(", version='").append(getVersion()).append('\'');
         sb.append(", expectedState=").append(expectedState);
         sb.append(", expectedAssignment=").append(expectedAssignment);
         sb.append(", statusMessage='").append(statusMessage).append('\'');
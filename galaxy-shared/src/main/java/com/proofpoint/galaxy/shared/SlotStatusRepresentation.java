@@ -20,6 +20,7 @@ import org.codehaus.jackson.annotate.JsonCreator;
 import org.codehaus.jackson.annotate.JsonMethod;
 import org.codehaus.jackson.annotate.JsonProperty;
 
+import javax.annotation.Nullable;
 import javax.validation.constraints.NotNull;
 import java.net.InetAddress;
 import java.net.URI;
@@ -29,6 +30,9 @@ import java.util.Map;
 import java.util.UUID;
 
 import static com.google.common.collect.Lists.transform;
+import static com.proofpoint.galaxy.shared.InternUtils.intern;
+import static com.proofpoint.galaxy.shared.InternUtils.internAssignment;
+import static com.proofpoint.galaxy.shared.InternUtils.internResources;
 import static com.proofpoint.galaxy.shared.SlotStatus.idGetter;
 import static com.proofpoint.galaxy.shared.SlotStatus.locationGetter;
 import static com.proofpoint.galaxy.shared.Strings.commonPrefixSegments;
@@ -390,33 +394,92 @@ public class SlotStatusRepresentation
 
     public SlotStatus toSlotStatus(String instanceId)
     {
+        return toSlotStatus(instanceId, null);
+    }
+
+    /**
+     * Converts this representation to a slot status.  If nothing changed since the previous
+     * status of the slot, the previous status is returned without decoding this representation,
+     * so unchanged slots keep their identity across polls.
+     */
+    public SlotStatus toSlotStatus(String instanceId, @Nullable SlotStatus previousStatus)
+    {
+        if (previousStatus != null && matches(instanceId, previousStatus)) {
+            return previousStatus;
+        }
+
+        // the same specs, locations and resources are decoded for every slot on every poll
         Assignment assignment = null;
         if (binary != null) {
-            assignment = new Assignment(binary, config);
+            assignment = internAssignment(binary, config);
         }
         Assignment expectedAssignment = null;
         if (expectedBinary != null) {
-            assignment = new Assignment(expectedBinary, expectedConfig);
+            expectedAssignment = internAssignment(expectedBinary, expectedConfig);
         }
         SlotLifecycleState expectedState = null;
         if (expectedStatus != null) {
-            expectedState = SlotLifecycleState.valueOf(expectedStatus);
+            expectedState = decodeState(expectedStatus);
         }
         return SlotStatus.createSlotStatusWithExpectedState(id,
-                name,
-                self,
-                externalUri,
+                intern(name),
+                intern(self),
+                intern(externalUri),
                 instanceId,
-                location,
-                SlotLifecycleState.valueOf(status),
+                intern(location),
+                decodeState(status),
                 assignment,
-                installPath,
-                resources,
+                intern(installPath),
+                previousStatus != null && previousStatus.getResources().equals(resources) ? previousStatus.getResources() : internResources(resources),
                 expectedState,
                 expectedAssignment,
                 statusMessage);
     }
 
+    private boolean matches(String instanceId, SlotStatus slotStatus)
+    {
+        return Objects.equal(id, slotStatus.getId()) &&
+                Objects.equal(name, slotStatus.getName()) &&
+                Objects.equal(self, slotStatus.getSelf()) &&
+                Objects.equal(externalUri, slotStatus.getExternalUri()) &&
+                Objects.equal(instanceId, slotStatus.getInstanceId()) &&
+                Objects.equal(location, slotStatus.getLocation()) &&
+                matches(binary, config, slotStatus.getAssignment()) &&
+                matches(status, slotStatus.getState()) &&
+                Objects.equal(installPath, slotStatus.getInstallPath()) &&
+                Objects.equal(resources, slotStatus.getResources()) &&
+                matches(expectedBinary, expectedConfig, slotStatus.getExpectedAssignment()) &&
+                matches(expectedStatus, slotStatus.getExpectedState()) &&
+                Objects.equal(statusMessage, slotStatus.getStatusMessage());
+    }
+
+    private static boolean matches(String binary, String config, Assignment assignment)
+    {
+        if (binary == null || assignment == null) {
+            return binary == null && assignment == null;
+        }
+        return binary.equals(assignment.getBinary()) && Objects.equal(config, assignment.getConfig());
+    }
+
+    private static boolean matches(String status, SlotLifecycleState state)
+    {
+        if (status == null || state == null) {
+            return status == null && state == null;
+        }
+        // states are sent by name, so only an unusual spelling needs a lookup
+        return status.equals(state.name()) || decodeState(status) == state;
+    }
+
+    /**
+     * Decodes a state sent by a peer, which may be running a newer version with states this
+     * version does not know.  An unknown state is reported as {@link SlotLifecycleState#UNKNOWN}
+     * instead of failing the status of the whole agent.
+     */
+    static SlotLifecycleState decodeState(String state)
+    {
+        return Objects.firstNonNull(SlotLifecycleState.lookup(state), SlotLifecycleState.UNKNOWN);
+    }
+
     public String getExternalHost() {
         if (externalUri == null) {
             return null;
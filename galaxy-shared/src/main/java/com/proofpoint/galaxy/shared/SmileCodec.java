@@ -0,0 +1,81 @@
+package com.proofpoint.galaxy.shared;
+
+import com.google.common.base.Preconditions;
+import com.proofpoint.json.ObjectMapperProvider;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.smile.SmileFactory;
+import org.codehaus.jackson.smile.SmileGenerator;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Encodes representations with Smile, a binary form of JSON.  Repeated field names and short
+ * string values, such as the binary and config of every slot on an agent, are written once
+ * per document and referenced after that, and the decoder returns the same String instance
+ * for each reference.
+ */
+public class SmileCodec<T>
+{
+    public static final String APPLICATION_SMILE = "application/x-jackson-smile";
+
+    static final ObjectMapper SMILE_MAPPER;
+
+    static {
+        SmileFactory smileFactory = new SmileFactory();
+        smileFactory.configure(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES, true);
+        smileFactory.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+        smileFactory.configure(JsonParser.Feature.AUTO_CLOSE_SOURCE, false);
+
+        // use the configuration of the mappers behind JsonCodec, so dates, unknown properties
+        // and property annotations are handled the same way in both encodings
+        ObjectMapper jsonMapper = new ObjectMapperProvider().get();
+        SMILE_MAPPER = new ObjectMapper(smileFactory, null, null, jsonMapper.getSerializationConfig(), jsonMapper.getDeserializationConfig());
+    }
+
+    public static <T> SmileCodec<T> smileCodec(Class<T> type)
+    {
+        return new SmileCodec<T>(type);
+    }
+
+    public static boolean isSmile(String contentType)
+    {
+        return contentType != null && contentType.startsWith(APPLICATION_SMILE);
+    }
+
+    private final Class<T> type;
+
+    private SmileCodec(Class<T> type)
+    {
+        Preconditions.checkNotNull(type, "type is null");
+        this.type = type;
+    }
+
+    public byte[] toSmile(T instance)
+    {
+        try {
+            return SMILE_MAPPER.writeValueAsBytes(instance);
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException(String.format("%s could not be converted to Smile", instance.getClass().getName()), e);
+        }
+    }
+
+    public T fromSmile(byte[] smile)
+    {
+        try {
+            return SMILE_MAPPER.readValue(smile, 0, smile.length, type);
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException(String.format("Invalid Smile for %s", type.getName()), e);
+        }
+    }
+
+    public T fromSmile(InputStream smile)
+            throws IOException
+    {
+        return SMILE_MAPPER.readValue(smile, type);
+    }
+}
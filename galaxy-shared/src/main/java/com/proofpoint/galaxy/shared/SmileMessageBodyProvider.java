@@ -0,0 +1,76 @@
+package com.proofpoint.galaxy.shared;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyReader;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import static com.proofpoint.galaxy.shared.SmileCodec.APPLICATION_SMILE;
+import static com.proofpoint.galaxy.shared.SmileCodec.SMILE_MAPPER;
+
+/**
+ * Reads and writes entities as Smile for clients that ask for it.  Resources list Smile after
+ * JSON in their media types, so clients that do not ask for Smile still get JSON.
+ */
+@Provider
+@Consumes(APPLICATION_SMILE)
+@Produces(APPLICATION_SMILE)
+public class SmileMessageBodyProvider implements MessageBodyReader<Object>, MessageBodyWriter<Object>
+{
+    @Override
+    public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType)
+    {
+        return isSmile(mediaType);
+    }
+
+    @Override
+    public Object readFrom(Class<Object> type,
+            Type genericType,
+            Annotation[] annotations,
+            MediaType mediaType,
+            MultivaluedMap<String, String> httpHeaders,
+            InputStream entityStream)
+            throws IOException, WebApplicationException
+    {
+        return SMILE_MAPPER.readValue(entityStream, SMILE_MAPPER.getTypeFactory().constructType(genericType));
+    }
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType)
+    {
+        return isSmile(mediaType);
+    }
+
+    @Override
+    public long getSize(Object value, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType)
+    {
+        return -1;
+    }
+
+    @Override
+    public void writeTo(Object value,
+            Class<?> type,
+            Type genericType,
+            Annotation[] annotations,
+            MediaType mediaType,
+            MultivaluedMap<String, Object> httpHeaders,
+            OutputStream entityStream)
+            throws IOException, WebApplicationException
+    {
+        SMILE_MAPPER.writeValue(entityStream, value);
+    }
+
+    private static boolean isSmile(MediaType mediaType)
+    {
+        return mediaType != null && SmileCodec.isSmile(mediaType.getType() + "/" + mediaType.getSubtype());
+    }
+}
@@ -7,6 +7,7 @@ import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Sets;
 
+import java.net.URI;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -177,6 +178,17 @@ public class Strings
         return string.substring(0, length);
     }
 
+    /**
+     * Gets the lower case host of the uri, or null if the uri does not have a host.
+     */
+    public static String lowerCaseHost(URI uri)
+    {
+        if (uri == null || uri.getHost() == null) {
+            return null;
+        }
+        return uri.getHost().toLowerCase();
+    }
+
     private static Function<String, Integer> lengthGetter()
     {
         return new Function<String, Integer>()
@@ -0,0 +1,659 @@
+package com.proofpoint.galaxy.shared;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Ordering;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Maps.newHashMap;
+import static com.google.common.collect.Maps.newTreeMap;
+
+/**
+ * Reads and writes gzipped tar archives in process.  Archives are written in the ustar format,
+ * with GNU long name entries for paths over 100 bytes, and the reader also accepts pax path
+ * headers.
+ * <p/>
+ * Java 6 can not read or create symbolic links, and can only set a permission for the owner
+ * or for everyone.  Symbolic links are read and created with a single shell command, and
+ * modes that can not be set in process, such as group permissions that differ from those of
+ * everyone else or the setuid, setgid and sticky bits, are applied with a single chmod per mode.
+ * <p/>
+ * As with tar, symbolic links are created with the link text of the archive, even if they point
+ * outside of the target directory.  Entries and hard links are rejected if their path leaves the
+ * target directory, including through a symbolic link.  Archives created here do not carry the
+ * setuid, setgid and sticky bits, since Java 6 can not read them.
+ */
+class TarUtils
+{
+    private static final int BLOCK_SIZE = 512;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String LONG_LINK_NAME = "././@LongLink";
+    private static final int MAX_ARGS_PER_COMMAND = 1000;
+
+    // creates a symbolic link for each pair of target and link arguments
+    private static final List<String> SYMBOLIC_LINK_COMMAND = ImmutableList.of("sh", "-c", "while [ $# -gt 1 ]; do ln -s -- \"$1\" \"$2\" || exit 1; shift 2; done", "sh");
+    // writes the text of each link argument to the file named by the first argument, each followed by a NUL
+    private static final List<String> READ_SYMBOLIC_LINK_COMMAND = ImmutableList.of("sh", "-c", "out=$1; shift; for link; do target=$(readlink -- \"$link\") || exit 1; printf '%s\\000' \"$target\"; done > \"$out\"", "sh");
+
+    private static final char TYPE_FILE = '0';
+    private static final char TYPE_OLD_FILE = '\0';
+    private static final char TYPE_CONTIGUOUS_FILE = '7';
+    private static final char TYPE_HARD_LINK = '1';
+    private static final char TYPE_SYMBOLIC_LINK = '2';
+    private static final char TYPE_DIRECTORY = '5';
+    private static final char TYPE_GNU_LONG_NAME = 'L';
+    private static final char TYPE_GNU_LONG_LINK_NAME = 'K';
+    private static final char TYPE_PAX_HEADER = 'x';
+
+    private TarUtils()
+    {
+    }
+
+    public static void extract(InputStream gzippedTar, File targetDirectory, Executor executor)
+            throws IOException
+    {
+        File root = targetDirectory.getCanonicalFile();
+        InputStream in = new BufferedInputStream(new GZIPInputStream(gzippedTar, BUFFER_SIZE), BUFFER_SIZE);
+
+        // directory modes and times are applied last, so the directories can be filled first
+        List<TarEntry> directories = newArrayList();
+        // links are created last, so the link targets exist
+        List<TarEntry> links = newArrayList();
+        // files whose mode can not be set in process
+        Map<Integer, List<File>> pendingModes = newTreeMap();
+
+        byte[] header = new byte[BLOCK_SIZE];
+        String longName = null;
+        String longLinkName = null;
+        while (readHeader(in, header)) {
+            char type = (char) header[156];
+            long size = parseNumber(header, 124, 12);
+
+            if (type == TYPE_GNU_LONG_NAME) {
+                longName = parseString(readData(in, size), 0, (int) size);
+                continue;
+            }
+            if (type == TYPE_GNU_LONG_LINK_NAME) {
+                longLinkName = parseString(readData(in, size), 0, (int) size);
+                continue;
+            }
+            if (type == TYPE_PAX_HEADER) {
+                Map<String, String> headers = parsePaxHeaders(readData(in, size));
+                if (headers.containsKey("path")) {
+                    longName = headers.get("path");
+                }
+                if (headers.containsKey("linkpath")) {
+                    longLinkName = headers.get("linkpath");
+                }
+                continue;
+            }
+
+            String name = longName != null ? longName : parseName(header);
+            String linkName = longLinkName != null ? longLinkName : parseString(header, 157, 100);
+            longName = null;
+            longLinkName = null;
+
+            TarEntry entry = new TarEntry(resolve(root, name), type, (int) parseNumber(header, 100, 8), parseNumber(header, 136, 12) * 1000, linkName);
+            if (type == TYPE_FILE || type == TYPE_OLD_FILE || type == TYPE_CONTIGUOUS_FILE) {
+                entry.file.getParentFile().mkdirs();
+                // replace instead of overwriting, since an existing file may be a hard link
+                entry.file.delete();
+                OutputStream out = new FileOutputStream(entry.file);
+                try {
+                    copy(in, out, size);
+                }
+                finally {
+                    out.close();
+                }
+                skipPadding(in, size);
+                setMode(entry.file, entry.mode, pendingModes);
+                entry.file.setLastModified(entry.lastModified);
+            }
+            else if (type == TYPE_DIRECTORY) {
+                entry.file.mkdirs();
+                directories.add(entry);
+                skip(in, size);
+            }
+            else if (type == TYPE_SYMBOLIC_LINK || type == TYPE_HARD_LINK) {
+                links.add(entry);
+                skip(in, size);
+            }
+            else {
+                // devices, fifos and unknown types are not used in deployments
+                skip(in, size);
+            }
+        }
+
+        // symbolic links first, since a hard link may be reached through one
+        List<TarEntry> symbolicLinks = newArrayList();
+        List<String> symbolicLinkArgs = newArrayList();
+        for (TarEntry link : links) {
+            if (link.type == TYPE_SYMBOLIC_LINK) {
+                link.file.getParentFile().mkdirs();
+                link.file.delete();
+                symbolicLinks.add(link);
+                symbolicLinkArgs.add(link.linkName);
+                symbolicLinkArgs.add(link.file.getAbsolutePath());
+            }
+        }
+        executeBatched(executor, SYMBOLIC_LINK_COMMAND, symbolicLinkArgs, "Unable to create symbolic links");
+
+        // a link may be created through a link created earlier, so check where each link ended up
+        for (TarEntry link : symbolicLinks) {
+            File parent = link.file.getParentFile().getCanonicalFile();
+            if (!isWithin(root, parent)) {
+                link.file.delete();
+                throw new IOException("Tar entry is outside of the target directory: " + link.file.getPath());
+            }
+        }
+
+        for (TarEntry link : links) {
+            if (link.type == TYPE_HARD_LINK) {
+                // hard link names are relative to the archive root, and the whole path is resolved
+                // since any part of it may be a symbolic link
+                File source = new File(root, link.linkName).getCanonicalFile();
+                checkWithin(root, link, source);
+                checkWithin(root, link, link.file.getParentFile().getCanonicalFile());
+                if (!source.isFile()) {
+                    throw new IOException("Tar hard link target is not a file: " + link.linkName);
+                }
+                link.file.getParentFile().mkdirs();
+                link.file.delete();
+                Files.copy(source, link.file);
+                setMode(link.file, link.mode, pendingModes);
+                link.file.setLastModified(link.lastModified);
+            }
+        }
+
+        // apply the deepest directories first, so setting a time is not undone by a child
+        for (TarEntry directory : Ordering.natural().reverse().onResultOf(TarEntry.pathFunction()).sortedCopy(directories)) {
+            // the directory may have been replaced by a symbolic link
+            checkWithin(root, directory.file);
+            setMode(directory.file, directory.mode, pendingModes);
+            directory.file.setLastModified(directory.lastModified);
+        }
+
+        // changing the mode does not change the modification time
+        for (Entry<Integer, List<File>> entry : pendingModes.entrySet()) {
+            List<String> paths = newArrayList();
+            for (File file : entry.getValue()) {
+                checkWithin(root, file);
+                paths.add(file.getAbsolutePath());
+            }
+            executeBatched(executor, ImmutableList.of("chmod", Integer.toOctalString(entry.getKey())), paths, "Unable to set file modes");
+        }
+    }
+
+    private static void checkWithin(File root, TarEntry link, File target)
+            throws IOException
+    {
+        if (!isWithin(root, target)) {
+            throw new IOException("Tar link " + link.file.getPath() + " points outside of the target directory: " + link.linkName);
+        }
+    }
+
+    private static void checkWithin(File root, File file)
+            throws IOException
+    {
+        if (!isWithin(root, file.getCanonicalFile())) {
+            throw new IOException("Tar entry is outside of the target directory: " + file.getPath());
+        }
+    }
+
+    /**
+     * Runs the command with as many of the arguments as fit, so a whole archive only takes a
+     * few processes.
+     */
+    private static void executeBatched(Executor executor, List<String> command, List<String> args, String message)
+            throws IOException
+    {
+        for (int start = 0; start < args.size(); start += MAX_ARGS_PER_COMMAND) {
+            List<String> batch = args.subList(start, Math.min(args.size(), start + MAX_ARGS_PER_COMMAND));
+            try {
+                new Command(command.toArray(new String[command.size()]))
+                        .addArgs(batch)
+                        .setTimeLimit(5, TimeUnit.MINUTES)
+                        .execute(executor);
+            }
+            catch (CommandFailedException e) {
+                throw new IOException(message + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    public static void create(File sourceDirectory, OutputStream out, Executor executor)
+            throws IOException
+    {
+        GZIPOutputStream gzip = new GZIPOutputStream(out, BUFFER_SIZE);
+        List<File> symbolicLinks = newArrayList();
+        findSymbolicLinks(sourceDirectory, symbolicLinks);
+        Map<File, String> linkNames = readSymbolicLinks(symbolicLinks, executor);
+        writeDirectory(gzip, linkNames, sourceDirectory, sourceDirectory.getName());
+
+        // end of archive
+        gzip.write(new byte[BLOCK_SIZE * 2]);
+        gzip.finish();
+    }
+
+    private static void findSymbolicLinks(File directory, List<File> symbolicLinks)
+    {
+        for (File child : FileUtils.listFiles(directory)) {
+            if (FileUtils.isSymbolicLink(child)) {
+                symbolicLinks.add(child);
+            }
+            else if (child.isDirectory()) {
+                findSymbolicLinks(child, symbolicLinks);
+            }
+        }
+    }
+
+    /**
+     * Reads the text of the symbolic links, as written when each link was created, with as
+     * few processes as possible.
+     */
+    private static Map<File, String> readSymbolicLinks(List<File> symbolicLinks, Executor executor)
+            throws IOException
+    {
+        Map<File, String> linkNames = newHashMap();
+        for (int start = 0; start < symbolicLinks.size(); start += MAX_ARGS_PER_COMMAND) {
+            List<File> batch = symbolicLinks.subList(start, Math.min(symbolicLinks.size(), start + MAX_ARGS_PER_COMMAND));
+            List<String> paths = newArrayList();
+            for (File link : batch) {
+                paths.add(link.getAbsolutePath());
+            }
+
+            File output = File.createTempFile("links", ".txt");
+            try {
+                new Command(READ_SYMBOLIC_LINK_COMMAND.toArray(new String[READ_SYMBOLIC_LINK_COMMAND.size()]))
+                        .addArgs(output.getAbsolutePath())
+                        .addArgs(paths)
+                        .setTimeLimit(5, TimeUnit.MINUTES)
+                        .execute(executor);
+
+                byte[] data = Files.toByteArray(output);
+                int offset = 0;
+                for (File link : batch) {
+                    int end = offset;
+                    while (end < data.length && data[end] != 0) {
+                        end++;
+                    }
+                    if (end >= data.length) {
+                        throw new IOException("Unable to read symbolic link: " + link.getPath());
+                    }
+                    linkNames.put(link, new String(data, offset, end - offset, Charsets.UTF_8));
+                    offset = end + 1;
+                }
+            }
+            catch (CommandFailedException e) {
+                throw new IOException("Unable to read symbolic links: " + e.getMessage(), e);
+            }
+            finally {
+                output.delete();
+            }
+        }
+        return linkNames;
+    }
+
+    private static void writeEntry(OutputStream out, Map<File, String> linkNames, File file, String path)
+            throws IOException
+    {
+        String linkName = linkNames.get(file);
+        if (linkName != null) {
+            writeHeader(out, path, TYPE_SYMBOLIC_LINK, 0777, 0, file.lastModified(), linkName);
+        }
+        else if (file.isDirectory()) {
+            writeDirectory(out, linkNames, file, path);
+        }
+        else {
+            long size = file.length();
+            writeHeader(out, path, TYPE_FILE, getMode(file), size, file.lastModified(), "");
+            InputStream in = new FileInputStream(file);
+            try {
+                copy(in, out, size);
+            }
+            finally {
+                in.close();
+            }
+            int padding = (int) ((BLOCK_SIZE - size % BLOCK_SIZE) % BLOCK_SIZE);
+            out.write(new byte[padding]);
+        }
+    }
+
+    private static void writeDirectory(OutputStream out, Map<File, String> linkNames, File directory, String path)
+            throws IOException
+    {
+        writeHeader(out, path + "/", TYPE_DIRECTORY, getMode(directory), 0, directory.lastModified(), "");
+        for (File child : Ordering.natural().sortedCopy(FileUtils.listFiles(directory))) {
+            writeEntry(out, linkNames, child, path + "/" + child.getName());
+        }
+    }
+
+    private static void writeHeader(OutputStream out, String name, char type, int mode, long size, long lastModified, String linkName)
+            throws IOException
+    {
+        byte[] nameBytes = name.getBytes(Charsets.UTF_8);
+        if (nameBytes.length > 100) {
+            writeLongName(out, TYPE_GNU_LONG_NAME, nameBytes);
+        }
+        byte[] linkNameBytes = linkName.getBytes(Charsets.UTF_8);
+        if (linkNameBytes.length > 100) {
+            writeLongName(out, TYPE_GNU_LONG_LINK_NAME, linkNameBytes);
+        }
+
+        byte[] header = new byte[BLOCK_SIZE];
+        System.arraycopy(nameBytes, 0, header, 0, Math.min(nameBytes.length, 100));
+        putOctal(header, 100, 8, mode);
+        putOctal(header, 108, 8, 0);
+        putOctal(header, 116, 8, 0);
+        putOctal(header, 124, 12, size);
+        putOctal(header, 136, 12, lastModified / 1000);
+        header[156] = (byte) type;
+        System.arraycopy(linkNameBytes, 0, header, 157, Math.min(linkNameBytes.length, 100));
+        System.arraycopy("ustar".getBytes(Charsets.US_ASCII), 0, header, 257, 5);
+        header[263] = '0';
+        header[264] = '0';
+
+        // the checksum is computed with the checksum field set to spaces
+        Arrays.fill(header, 148, 156, (byte) ' ');
+        putOctal(header, 148, 7, checksum(header));
+        out.write(header);
+    }
+
+    private static void writeLongName(OutputStream out, char type, byte[] name)
+            throws IOException
+    {
+        writeHeader(out, LONG_LINK_NAME, type, 0, name.length + 1, 0, "");
+        out.write(name);
+        out.write(new byte[BLOCK_SIZE - name.length % BLOCK_SIZE]);
+    }
+
+    private static boolean readHeader(InputStream in, byte[] header)
+            throws IOException
+    {
+        int first = in.read();
+        if (first < 0) {
+            // archive without the end of archive blocks
+            return false;
+        }
+        header[0] = (byte) first;
+        ByteStreams.readFully(in, header, 1, BLOCK_SIZE - 1);
+
+        boolean empty = true;
+        for (byte b : header) {
+            if (b != 0) {
+                empty = false;
+                break;
+            }
+        }
+        if (empty) {
+            return false;
+        }
+
+        long expected = parseNumber(header, 148, 8);
+        Arrays.fill(header, 148, 156, (byte) ' ');
+        if (checksum(header) != expected) {
+            throw new IOException("Invalid tar header checksum");
+        }
+        return true;
+    }
+
+    private static byte[] readData(InputStream in, long size)
+            throws IOException
+    {
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Tar header entry too large: " + size);
+        }
+        byte[] data = new byte[(int) size];
+        ByteStreams.readFully(in, data);
+        skipPadding(in, size);
+        return data;
+    }
+
+    private static void copy(InputStream in, OutputStream out, long size)
+            throws IOException
+    {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long remaining = size;
+        while (remaining > 0) {
+            int count = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (count < 0) {
+                throw new EOFException("Unexpected end of tar archive");
+            }
+            out.write(buffer, 0, count);
+            remaining -= count;
+        }
+    }
+
+    private static void skip(InputStream in, long size)
+            throws IOException
+    {
+        ByteStreams.skipFully(in, size);
+        skipPadding(in, size);
+    }
+
+    private static void skipPadding(InputStream in, long size)
+            throws IOException
+    {
+        ByteStreams.skipFully(in, (BLOCK_SIZE - size % BLOCK_SIZE) % BLOCK_SIZE);
+    }
+
+    private static File resolve(File root, String name)
+            throws IOException
+    {
+        // the file itself may be a symbolic link, so only the parent is resolved
+        File file = new File(root, name).getAbsoluteFile();
+        File parent = file.getParentFile().getCanonicalFile();
+        if (!isWithin(root, parent)) {
+            throw new IOException("Tar entry is outside of the target directory: " + name);
+        }
+        return new File(parent, file.getName());
+    }
+
+    private static boolean isWithin(File root, File file)
+    {
+        for (File parent = file; parent != null; parent = parent.getParentFile()) {
+            if (parent.equals(root)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int getMode(File file)
+    {
+        int mode = 0444;
+        if (file.canWrite()) {
+            mode |= 0200;
+        }
+        if (file.canExecute()) {
+            mode |= 0111;
+        }
+        return mode;
+    }
+
+    /**
+     * Sets the permissions of the file.  Java 6 can only set a permission for the owner or for
+     * everyone, so if the group and everyone else have different permissions, a permission is
+     * not granted to the owner, or the setuid, setgid or sticky bit is set, the mode is added
+     * to the pending modes for chmod.
+     */
+    private static void setMode(File file, int mode, Map<Integer, List<File>> pendingModes)
+    {
+        mode &= 07777;
+        int group = (mode >> 3) & 07;
+        int other = mode & 07;
+        int owner = (mode >> 6) & 07;
+        if ((mode & 07000) != 0 || group != other || (other & ~owner) != 0) {
+            List<File> files = pendingModes.get(mode);
+            if (files == null) {
+                files = newArrayList();
+                pendingModes.put(mode, files);
+            }
+            files.add(file);
+        }
+
+        file.setReadable(false, false);
+        if ((mode & 0444) != 0) {
+            file.setReadable(true, (mode & 0044) == 0);
+        }
+        file.setExecutable(false, false);
+        if ((mode & 0111) != 0) {
+            file.setExecutable(true, (mode & 0011) == 0);
+        }
+        file.setWritable(false, false);
+        if ((mode & 0222) != 0) {
+            file.setWritable(true, (mode & 0022) == 0);
+        }
+    }
+
+    private static String parseName(byte[] header)
+    {
+        String name = parseString(header, 0, 100);
+        if (parseString(header, 257, 6).startsWith("ustar")) {
+            String prefix = parseString(header, 345, 155);
+            if (!prefix.isEmpty()) {
+                return prefix + "/" + name;
+            }
+        }
+        return name;
+    }
+
+    private static String parseString(byte[] data, int offset, int length)
+    {
+        int end = offset;
+        while (end < offset + length && data[end] != 0) {
+            end++;
+        }
+        return new String(data, offset, end - offset, Charsets.UTF_8);
+    }
+
+    private static long parseNumber(byte[] header, int offset, int length)
+    {
+        // large values are stored in big endian binary with the high bit set
+        if ((header[offset] & 0x80) != 0) {
+            long value = header[offset] & 0x7F;
+            for (int i = offset + 1; i < offset + length; i++) {
+                value = (value << 8) | (header[i] & 0xFF);
+            }
+            return value;
+        }
+
+        long value = 0;
+        int i = offset;
+        while (i < offset + length && (header[i] == ' ' || header[i] == 0)) {
+            i++;
+        }
+        while (i < offset + length && header[i] >= '0' && header[i] <= '7') {
+            value = (value << 3) + (header[i] - '0');
+            i++;
+        }
+        return value;
+    }
+
+    private static Map<String, String> parsePaxHeaders(byte[] data)
+            throws IOException
+    {
+        // each record is "<length> <key>=<value>\n" where length counts the whole record in bytes
+        Map<String, String> headers = newHashMap();
+        int offset = 0;
+        while (offset < data.length) {
+            int space = offset;
+            while (space < data.length && data[space] != ' ') {
+                space++;
+            }
+            int length;
+            try {
+                length = Integer.parseInt(new String(data, offset, space - offset, Charsets.US_ASCII));
+            }
+            catch (NumberFormatException e) {
+                throw new IOException("Invalid pax header");
+            }
+            if (length <= 0 || offset + length > data.length) {
+                throw new IOException("Invalid pax header");
+            }
+            String record = new String(data, space + 1, offset + length - space - 2, Charsets.UTF_8);
+            int equals = record.indexOf('=');
+            if (equals > 0) {
+                headers.put(record.substring(0, equals), record.substring(equals + 1));
+            }
+            offset += length;
+        }
+        return headers;
+    }
+
+    private static void putOctal(byte[] header, int offset, int length, long value)
+            throws IOException
+    {
+        String octal = Long.toOctalString(value);
+        if (octal.length() > length - 1) {
+            throw new IOException("Value too large for tar header: " + value);
+        }
+        int padding = length - 1 - octal.length();
+        for (int i = 0; i < padding; i++) {
+            header[offset + i] = '0';
+        }
+        for (int i = 0; i < octal.length(); i++) {
+            header[offset + padding + i] = (byte) octal.charAt(i);
+        }
+        header[offset + length - 1] = 0;
+    }
+
+    private static long checksum(byte[] header)
+    {
+        long sum = 0;
+        for (byte b : header) {
+            sum += b & 0xFF;
+        }
+        return sum;
+    }
+
+    private static class TarEntry
+    {
+        private final File file;
+        private final char type;
+        private final int mode;
+        private final long lastModified;
+        private final String linkName;
+
+        private TarEntry(File file, char type, int mode, long lastModified, String linkName)
+        {
+            this.file = file;
+            this.type = type;
+            this.mode = mode;
+            this.lastModified = lastModified;
+            this.linkName = linkName;
+        }
+
+        public static Function<TarEntry, String> pathFunction()
+        {
+            return new Function<TarEntry, String>()
+            {
+                @Override
+                public String apply(TarEntry entry)
+                {
+                    return entry.file.getPath();
+                }
+            };
+        }
+    }
+}
@@ -1,12 +1,20 @@
 package com.proofpoint.galaxy.shared;
 
-import com.google.common.base.Joiner;
+import com.google.common.base.Charsets;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Iterables;
 
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.TreeMap;
 import java.util.UUID;
 
@@ -18,6 +26,8 @@ public class VersionsUtil
     public static final String GALAXY_AGENTS_VERSION_HEADER = "x-galaxy-agents-version";
     public static final String GALAXY_AGENT_VERSION_HEADER = "x-galaxy-agent-version";
 
+    public static final String GALAXY_SERVICE_INVENTORY_VERSION_HEADER = "x-galaxy-service-inventory-version";
+
     private VersionsUtil()
     {
     }
@@ -44,7 +54,7 @@ public class VersionsUtil
         }
 
         String actualSlotsVersion = createSlotsVersion(slotStatuses);
-        if (!expectedSlotsVersion.equals(actualSlotsVersion)) {
+        if (!expectedSlotsVersion.equals(actualSlotsVersion) && !expectedSlotsVersion.equals(createLegacySlotsVersion(slotStatuses))) {
             throw new VersionConflictException(GALAXY_SLOTS_VERSION_HEADER, actualSlotsVersion);
         }
     }
@@ -71,54 +81,108 @@ public class VersionsUtil
         }
 
         String actualAgentsVersion = createAgentsVersion(agentStatuses);
-        if (!expectedAgentsVersion.equals(actualAgentsVersion)) {
+        if (!expectedAgentsVersion.equals(actualAgentsVersion) && !expectedAgentsVersion.equals(createLegacyAgentsVersion(agentStatuses))) {
             throw new VersionConflictException(GALAXY_AGENTS_VERSION_HEADER, actualAgentsVersion);
         }
     }
 
     public static String createSlotVersion(UUID id, SlotLifecycleState state, Assignment assignment)
     {
-        String data = Joiner.on("||").useForNull("--NULL--").join(id, state, assignment);
-        return DigestUtils.md5Hex(data);
+        return VERSION_HASHER.get().reset()
+                .add(id)
+                .add(state)
+                .add(assignment)
+                .hash();
     }
 
+    /**
+     * Creates a version for a set of slots.  Like a map, the last slot with an id wins.  The
+     * slot versions are combined with an order independent sum, so the slots do not need to
+     * be sorted first.
+     * <p/>
+     * This is not the MD5 of the sorted slot versions computed by older releases.  For one
+     * release, {@link #checkSlotsVersion} also accepts the old version, so clients that were
+     * not upgraded yet can still make conditional requests.
+     */
     public static String createSlotsVersion(Iterable<SlotStatus> slots)
     {
         Preconditions.checkNotNull(slots, "slots is null");
 
-        // canonicalize slot order
-        Map<UUID, String> slotVersions = new TreeMap<UUID, String>();
+        Map<UUID, String> slotVersions = new HashMap<UUID, String>();
         for (SlotStatus slot : slots) {
             slotVersions.put(slot.getId(), slot.getVersion());
         }
-        return DigestUtils.md5Hex(slotVersions.values().toString());
+        return combineVersions(slotVersions.values());
     }
 
     public static String createAgentVersion(String agentId, AgentLifecycleState state, Iterable<SlotStatus> slots, Map<String, Integer> resources)
     {
-        List<Object> parts = new ArrayList<Object>();
-        parts.add(agentId);
-        parts.add(state);
+        // canonicalize slot order; slot versions are computed before the hasher is reset
+        // because they are computed lazily with the same hasher
+        SlotStatus[] sortedSlots = Iterables.toArray(slots, SlotStatus.class);
+        Arrays.sort(sortedSlots, SLOT_ID_ORDER);
+        List<String> slotVersions = new ArrayList<String>(sortedSlots.length);
+        for (int i = 0; i < sortedSlots.length; i++) {
+            // like a map, the last slot with an id wins
+            if (i + 1 < sortedSlots.length && sortedSlots[i].getId().equals(sortedSlots[i + 1].getId())) {
+                continue;
+            }
+            slotVersions.add(sortedSlots[i].getVersion());
+        }
 
-        // canonicalize slot order
-        Map<UUID, String> slotVersions = new TreeMap<UUID, String>();
-        for (SlotStatus slot : slots) {
-            slotVersions.put(slot.getId(), slot.getVersion());
+        VersionHasher hasher = VERSION_HASHER.get().reset()
+                .add(agentId)
+                .add(state);
+        for (String slotVersion : slotVersions) {
+            hasher.add(slotVersion);
         }
-        parts.addAll(slotVersions.values());
 
         // canonicalize resources
-        parts.add(Joiner.on("--").withKeyValueSeparator("=").join(ImmutableSortedMap.copyOf(resources)));
+        hasher.separator();
+        boolean first = true;
+        for (Entry<String, Integer> entry : ImmutableSortedMap.copyOf(resources).entrySet()) {
+            if (!first) {
+                hasher.append("--");
+            }
+            hasher.append(entry.getKey()).append("=").append(String.valueOf(entry.getValue()));
+            first = false;
+        }
 
-        String data = Joiner.on("||").useForNull("--NULL--").join(parts);
-        return DigestUtils.md5Hex(data);
+        return hasher.hash();
     }
-    
+
+    /**
+     * Creates a version for a set of agents.  Like a map, the last agent with an id wins.  The
+     * agent versions are combined with an order independent sum, so the agents do not need to
+     * be sorted first.
+     * <p/>
+     * This is not the MD5 of the sorted agent versions computed by older releases.  For one
+     * release, {@link #checkAgentsVersion} also accepts the old version, so clients that were
+     * not upgraded yet can still make conditional requests.
+     */
     public static String createAgentsVersion(Iterable<AgentStatus> agents)
     {
         Preconditions.checkNotNull(agents, "agents is null");
 
-        // canonicalize agent order
+        Map<String, String> agentVersions = new HashMap<String, String>();
+        for (AgentStatus agent : agents) {
+            agentVersions.put(agent.getAgentId(), agent.getVersion());
+        }
+        return combineVersions(agentVersions.values());
+    }
+
+    // todo remove the legacy versions once no client from before the order independent versions is in use
+    static String createLegacySlotsVersion(Iterable<SlotStatus> slots)
+    {
+        Map<UUID, String> slotVersions = new TreeMap<UUID, String>();
+        for (SlotStatus slot : slots) {
+            slotVersions.put(slot.getId(), slot.getVersion());
+        }
+        return DigestUtils.md5Hex(slotVersions.values().toString());
+    }
+
+    static String createLegacyAgentsVersion(Iterable<AgentStatus> agents)
+    {
         Map<String, String> agentVersions = new TreeMap<String, String>();
         for (AgentStatus agent : agents) {
             agentVersions.put(agent.getAgentId(), agent.getVersion());
@@ -128,11 +192,220 @@ public class VersionsUtil
 
     public static String createVersion(String coordinatorId, CoordinatorLifecycleState state)
     {
-        List<Object> parts = new ArrayList<Object>();
-        parts.add(coordinatorId);
-        parts.add(state);
+        return VERSION_HASHER.get().reset()
+                .add(coordinatorId)
+                .add(state)
+                .hash();
+    }
+
+    private static String combineVersions(Iterable<String> versions)
+    {
+        VersionCombiner combiner = new VersionCombiner();
+        for (String version : versions) {
+            combiner.add(version);
+        }
+        return combiner.toString();
+    }
+
+    private static final Comparator<SlotStatus> SLOT_ID_ORDER = new Comparator<SlotStatus>()
+    {
+        @Override
+        public int compare(SlotStatus slot1, SlotStatus slot2)
+        {
+            return slot1.getId().compareTo(slot2.getId());
+        }
+    };
+
+    private static final ThreadLocal<VersionHasher> VERSION_HASHER = new ThreadLocal<VersionHasher>()
+    {
+        @Override
+        protected VersionHasher initialValue()
+        {
+            return new VersionHasher();
+        }
+    };
+
+    /**
+     * Computes the MD5 of the parts joined with "||", with nulls written as "--NULL--".  The
+     * parts are encoded directly into a reusable buffer instead of being joined into a string
+     * first.  The digests must not change, because agents and coordinators compare versions
+     * computed on both sides.
+     */
+    private static class VersionHasher
+    {
+        private static final byte[] SEPARATOR = {'|', '|'};
+        private static final String NULL = "--NULL--";
 
-        String data = Joiner.on("||").useForNull("--NULL--").join(parts);
-        return DigestUtils.md5Hex(data);
+        private final MessageDigest digest;
+        private final byte[] buffer = new byte[512];
+        private int position;
+        private boolean empty;
+
+        private VersionHasher()
+        {
+            try {
+                digest = MessageDigest.getInstance("MD5");
+            }
+            catch (NoSuchAlgorithmException e) {
+                throw Throwables.propagate(e);
+            }
+        }
+
+        public VersionHasher reset()
+        {
+            digest.reset();
+            position = 0;
+            empty = true;
+            return this;
+        }
+
+        public VersionHasher add(UUID uuid)
+        {
+            if (uuid == null) {
+                return add((Object) null);
+            }
+
+            // same as UUID.toString() without creating the string
+            separator();
+            long mostSignificantBits = uuid.getMostSignificantBits();
+            long leastSignificantBits = uuid.getLeastSignificantBits();
+            appendHex(mostSignificantBits >>> 32, 8);
+            appendByte('-');
+            appendHex(mostSignificantBits >>> 16, 4);
+            appendByte('-');
+            appendHex(mostSignificantBits, 4);
+            appendByte('-');
+            appendHex(leastSignificantBits >>> 48, 4);
+            appendByte('-');
+            appendHex(leastSignificantBits, 12);
+            return this;
+        }
+
+        public VersionHasher add(Object part)
+        {
+            separator();
+            return append(part == null ? NULL : part.toString());
+        }
+
+        public VersionHasher separator()
+        {
+            if (!empty) {
+                append(SEPARATOR, 0, SEPARATOR.length);
+            }
+            empty = false;
+            return this;
+        }
+
+        public VersionHasher append(String value)
+        {
+            int length = value.length();
+            for (int i = 0; i < length; i++) {
+                char c = value.charAt(i);
+                if (c >= 0x80) {
+                    // rare; encode the rest of the string properly
+                    byte[] bytes = value.substring(i).getBytes(Charsets.UTF_8);
+                    return append(bytes, 0, bytes.length);
+                }
+                appendByte(c);
+            }
+            return this;
+        }
+
+        private void appendHex(long value, int digits)
+        {
+            for (int shift = (digits - 1) * 4; shift >= 0; shift -= 4) {
+                appendByte(DigestUtils.HEX[(int) ((value >>> shift) & 0xF)]);
+            }
+        }
+
+        private void appendByte(char c)
+        {
+            if (position == buffer.length) {
+                flush();
+            }
+            buffer[position++] = (byte) c;
+        }
+
+        private VersionHasher append(byte[] bytes, int offset, int length)
+        {
+            flush();
+            digest.update(bytes, offset, length);
+            return this;
+        }
+
+        public String hash()
+        {
+            flush();
+            return DigestUtils.toHex(digest.digest());
+        }
+
+        private void flush()
+        {
+            digest.update(buffer, 0, position);
+            position = 0;
+        }
+    }
+
+    /**
+     * Combines versions into a single version by adding the two halves of each version, so the
+     * result does not depend on the order of the versions.  Unlike XOR, a version that is added
+     * twice does not cancel itself out.
+     */
+    private static class VersionCombiner
+    {
+        private long high;
+        private long low;
+        private long count;
+
+        public void add(String version)
+        {
+            if (!isHexDigest(version)) {
+                version = DigestUtils.md5Hex(version);
+            }
+            high += parseHex(version, 0);
+            low += parseHex(version, 16);
+            count++;
+        }
+
+        @Override
+        public String toString()
+        {
+            // mix in the count, so sets of different sizes whose versions happen to sum to the same value still differ
+            long mixedLow = low ^ (count * 0x9E3779B97F4A7C15L);
+            char[] chars = new char[32];
+            toHex(high, chars, 0);
+            toHex(mixedLow, chars, 16);
+            return new String(chars);
+        }
+
+        private static boolean isHexDigest(String version)
+        {
+            if (version.length() != 32) {
+                return false;
+            }
+            for (int i = 0; i < version.length(); i++) {
+                if (Character.digit(version.charAt(i), 16) < 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static long parseHex(String version, int offset)
+        {
+            long value = 0;
+            for (int i = offset; i < offset + 16; i++) {
+                value = (value << 4) | Character.digit(version.charAt(i), 16);
+            }
+            return value;
+        }
+
+        private static void toHex(long value, char[] chars, int offset)
+        {
+            for (int i = offset + 15; i >= offset; i--) {
+                chars[i] = DigestUtils.HEX[(int) (value & 0xF)];
+                value >>>= 4;
+            }
+        }
     }
 }
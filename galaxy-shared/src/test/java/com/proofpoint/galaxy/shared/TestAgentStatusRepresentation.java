@@ -18,6 +18,8 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.io.Resources;
 import com.proofpoint.json.JsonCodec;
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
 import org.testng.annotations.Test;
 
 import java.net.URI;
@@ -28,7 +30,11 @@ import static com.proofpoint.json.JsonCodec.jsonCodec;
 import static com.proofpoint.galaxy.shared.AssignmentHelper.APPLE_ASSIGNMENT;
 import static com.proofpoint.galaxy.shared.AssignmentHelper.BANANA_ASSIGNMENT;
 import static com.proofpoint.galaxy.shared.SlotLifecycleState.STOPPED;
+import static com.proofpoint.galaxy.shared.SlotLifecycleState.UNKNOWN;
+import static com.proofpoint.galaxy.shared.SmileCodec.smileCodec;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
 
 public class TestAgentStatusRepresentation
 {
@@ -97,6 +103,60 @@ public class TestAgentStatusRepresentation
         assertEquals(actual, expected);
     }
 
+    @Test
+    public void testSmileRoundTrip()
+    {
+        SmileCodec<AgentStatusRepresentation> smileCodec = smileCodec(AgentStatusRepresentation.class);
+        byte[] smile = smileCodec.toSmile(expected);
+        AgentStatusRepresentation actual = smileCodec.fromSmile(smile);
+        assertEquals(actual, expected);
+        assertTrue(smile.length < codec.toJson(expected).getBytes(Charsets.UTF_8).length);
+
+        // repeated values decode to a single string
+        assertSame(actual.getSlots().get(0).getInstanceId(), actual.getSlots().get(1).getInstanceId());
+    }
+
+    @Test
+    public void testSmileMatchesJson()
+            throws Exception
+    {
+        // both encodings write the same properties, including omitted nulls
+        byte[] smile = smileCodec(AgentStatusRepresentation.class).toSmile(expected);
+        JsonNode smileTree = SmileCodec.SMILE_MAPPER.readTree(smile);
+        JsonNode jsonTree = new ObjectMapper().readTree(codec.toJson(expected));
+        assertEquals(smileTree, jsonTree);
+    }
+
+    @Test
+    public void testToAgentStatusSharesValues()
+    {
+        UUID appleId = UUID.fromString("aaaaaaaa-aaaa-aaaa-aaaa-aaaaaaaaaaaa");
+        AgentStatus first = codec.fromJson(codec.toJson(expected)).toAgentStatus("instanceId", "instance.type");
+        AgentStatus second = codec.fromJson(codec.toJson(expected)).toAgentStatus("instanceId", "instance.type");
+
+        // separately decoded statuses share their values
+        assertEquals(second, first);
+        assertSame(second.getSlotStatus(appleId).getAssignment(), first.getSlotStatus(appleId).getAssignment());
+        assertSame(second.getLocation(), first.getLocation());
+        assertSame(second.getResources(), first.getResources());
+
+        // unchanged slots keep the previous instance
+        AgentStatus next = codec.fromJson(codec.toJson(expected)).toAgentStatus("instanceId", "instance.type", first);
+        assertSame(next.getSlotStatus(appleId), first.getSlotStatus(appleId));
+    }
+
+    @Test
+    public void testToAgentStatusUnknownSlotState()
+    {
+        // a newer agent may send a slot state this version does not know
+        String json = codec.toJson(expected).replaceFirst("\"STOPPED\"", "\"HIBERNATING\"");
+        AgentStatus agentStatus = codec.fromJson(json).toAgentStatus("instanceId", "instance.type");
+
+        assertEquals(agentStatus.getState(), ONLINE);
+        assertEquals(agentStatus.getSlotStatus(UUID.fromString("aaaaaaaa-aaaa-aaaa-aaaa-aaaaaaaaaaaa")).getState(), UNKNOWN);
+        assertEquals(agentStatus.getSlotStatus(UUID.fromString("bbbbbbbb-bbbb-bbbb-bbbb-bbbbbbbbbbbb")).getState(), STOPPED);
+    }
+
     @Test
     public void testJsonDecode()
             throws Exception
@@ -0,0 +1,180 @@
+package com.proofpoint.galaxy.shared;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CharStreams;
+import com.google.common.io.Files;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static com.proofpoint.galaxy.shared.FileUtils.createTempDir;
+import static com.proofpoint.galaxy.shared.FileUtils.deleteRecursively;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class TestConfigBundleCache
+{
+    private static final long MAX_SIZE = 1024 * 1024;
+
+    private final AtomicInteger requests = new AtomicInteger();
+    private HttpServer server;
+    private File cacheDir;
+    private ConfigBundleCache cache;
+
+    @BeforeMethod
+    public void setUp()
+            throws Exception
+    {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler()
+        {
+            @Override
+            public void handle(HttpExchange exchange)
+                    throws IOException
+            {
+                requests.incrementAndGet();
+
+                // each version has different contents
+                byte[] bundle = createBundle(exchange.getRequestURI().getPath().contains("2.0"));
+                exchange.sendResponseHeaders(200, bundle.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(bundle);
+                out.close();
+            }
+        });
+        server.start();
+
+        requests.set(0);
+        cacheDir = createTempDir("config-bundle-cache");
+        cache = new ConfigBundleCache(cacheDir, MAX_SIZE);
+    }
+
+    @AfterMethod
+    public void tearDown()
+    {
+        server.stop(0);
+        deleteRecursively(cacheDir);
+    }
+
+    @Test
+    public void testEntriesShareDownload()
+            throws Exception
+    {
+        URI bundle = bundleUri("apple-1.0.config");
+        assertEquals(readEntry(cache, bundle, "etc/config.properties"), "config=apple");
+        assertEquals(readEntry(cache, bundle, "galaxy-resources.properties"), "memory=512");
+        assertEquals(requests.get(), 1);
+
+        // a new cache in the same directory reuses the bundle
+        assertEquals(readEntry(new ConfigBundleCache(cacheDir, MAX_SIZE), bundle, "etc/config.properties"), "config=apple");
+        assertEquals(requests.get(), 1);
+    }
+
+    @Test
+    public void testSnapshotDownloadedEveryTime()
+            throws Exception
+    {
+        URI bundle = bundleUri("apple-2.0-SNAPSHOT.config");
+        File first = cache.getConfigBundle(bundle);
+        File second = cache.getConfigBundle(bundle);
+        assertEquals(requests.get(), 2);
+
+        // identical contents are stored once
+        assertEquals(second, first);
+    }
+
+    @Test
+    public void testChangedBundleDownloadedAgain()
+            throws Exception
+    {
+        URI bundle = bundleUri("apple-1.0.config");
+        File file = cache.getConfigBundle(bundle);
+        Files.write(createBundle(true), file);
+
+        // a restarted process checks the digest of the bundle it finds
+        assertEquals(readEntry(new ConfigBundleCache(cacheDir, MAX_SIZE), bundle, "etc/config.properties"), "config=apple");
+        assertEquals(requests.get(), 2);
+    }
+
+    @Test
+    public void testEviction()
+            throws Exception
+    {
+        ConfigBundleCache cache = new ConfigBundleCache(cacheDir, 0);
+        URI apple1 = bundleUri("apple-1.0.config");
+        URI apple2 = bundleUri("apple-2.0.config");
+
+        // the newest bundle is kept even though it does not fit
+        File file1 = cache.getConfigBundle(apple1);
+        assertTrue(file1.isFile());
+
+        File file2 = cache.getConfigBundle(apple2);
+        assertTrue(file2.isFile());
+        assertFalse(file1.exists());
+
+        // the evicted bundle is downloaded again
+        assertEquals(readEntry(cache, apple1, "etc/config.properties"), "config=apple");
+        assertEquals(requests.get(), 3);
+    }
+
+    @Test
+    public void testMissingEntry()
+            throws Exception
+    {
+        try {
+            readEntry(cache, bundleUri("apple-1.0.config"), "unknown");
+            fail("expected FileNotFoundException");
+        }
+        catch (FileNotFoundException expected) {
+        }
+    }
+
+    private URI bundleUri(String name)
+    {
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/prod/apple/" + name);
+    }
+
+    private static String readEntry(ConfigBundleCache cache, URI bundle, String entryName)
+            throws IOException
+    {
+        return CharStreams.toString(CharStreams.newReaderSupplier(cache.newConfigEntrySupplier(bundle, entryName), UTF_8));
+    }
+
+    private static byte[] createBundle(boolean largeMemory)
+            throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ZipOutputStream out = new ZipOutputStream(bytes);
+        // fixed times, so the same bundle always has the same contents
+        out.putNextEntry(newZipEntry("etc/config.properties"));
+        out.write("config=apple".getBytes(UTF_8));
+        out.putNextEntry(newZipEntry("galaxy-resources.properties"));
+        out.write((largeMemory ? "memory=1024" : "memory=512").getBytes(UTF_8));
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    private static ZipEntry newZipEntry(String name)
+    {
+        ZipEntry entry = new ZipEntry(name);
+        entry.setTime(0);
+        return entry;
+    }
+}
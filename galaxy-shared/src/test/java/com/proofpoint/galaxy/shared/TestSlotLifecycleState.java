@@ -0,0 +1,54 @@
+package com.proofpoint.galaxy.shared;
+
+import org.testng.annotations.Test;
+
+import static com.proofpoint.galaxy.shared.SlotLifecycleState.INSTALLING;
+import static com.proofpoint.galaxy.shared.SlotLifecycleState.RESTARTING;
+import static com.proofpoint.galaxy.shared.SlotLifecycleState.RUNNING;
+import static com.proofpoint.galaxy.shared.SlotLifecycleState.STARTING;
+import static com.proofpoint.galaxy.shared.SlotLifecycleState.STOPPED;
+import static com.proofpoint.galaxy.shared.SlotLifecycleState.STOPPING;
+import static com.proofpoint.galaxy.shared.SlotLifecycleState.TERMINATED;
+import static com.proofpoint.galaxy.shared.SlotLifecycleState.UNKNOWN;
+import static com.proofpoint.galaxy.shared.SlotLifecycleState.lookup;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class TestSlotLifecycleState
+{
+    @Test
+    public void testLookup()
+    {
+        for (SlotLifecycleState state : SlotLifecycleState.values()) {
+            assertEquals(lookup(state.name()), state);
+            assertEquals(lookup(state.name().toLowerCase()), state);
+            if (state.getShortName() != null) {
+                assertEquals(lookup(state.getShortName()), state);
+            }
+        }
+
+        assertEquals(lookup("r"), RUNNING);
+        assertEquals(lookup("s"), STOPPED);
+        assertEquals(lookup("st"), STARTING);
+        assertEquals(lookup("sp"), STOPPING);
+        assertEquals(lookup("i"), INSTALLING);
+        assertEquals(lookup("u"), UNKNOWN);
+        assertNull(lookup("foo"));
+    }
+
+    @Test
+    public void testTransitional()
+    {
+        assertTrue(STARTING.isTransitional());
+        assertTrue(STOPPING.isTransitional());
+        assertTrue(RESTARTING.isTransitional());
+        assertTrue(INSTALLING.isTransitional());
+
+        assertFalse(RUNNING.isTransitional());
+        assertFalse(STOPPED.isTransitional());
+        assertFalse(TERMINATED.isTransitional());
+        assertFalse(UNKNOWN.isTransitional());
+    }
+}
@@ -10,8 +10,14 @@ import java.net.URI;
 import java.util.UUID;
 
 import static com.proofpoint.json.JsonCodec.jsonCodec;
+import static com.proofpoint.galaxy.shared.AssignmentHelper.APPLE_ASSIGNMENT;
+import static com.proofpoint.galaxy.shared.AssignmentHelper.BANANA_ASSIGNMENT;
+import static com.proofpoint.galaxy.shared.SlotLifecycleState.RUNNING;
 import static com.proofpoint.galaxy.shared.SlotLifecycleState.STOPPED;
+import static com.proofpoint.galaxy.shared.SlotLifecycleState.UNKNOWN;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
 
 public class TestSlotStatusRepresentation
 {
@@ -55,4 +61,106 @@ public class TestSlotStatusRepresentation
 
         assertEquals(actual, expected);
     }
+
+    @Test
+    public void testToSlotStatus()
+    {
+        SlotStatusRepresentation representation = new SlotStatusRepresentation(UUID.fromString("aaaaaaaa-aaaa-aaaa-aaaa-aaaaaaaaaaaa"),
+                "aaaaa",
+                "slot1",
+                URI.create("internal://apple"),
+                URI.create("external://apple"),
+                "instance",
+                "/test/location/apple",
+                "/location/apple",
+                APPLE_ASSIGNMENT.getBinary(),
+                APPLE_ASSIGNMENT.getBinary(),
+                APPLE_ASSIGNMENT.getConfig(),
+                APPLE_ASSIGNMENT.getConfig(),
+                STOPPED.toString(),
+                "abc",
+                null,
+                "/apple",
+                ImmutableMap.of("memory", 512),
+                BANANA_ASSIGNMENT.getBinary(),
+                BANANA_ASSIGNMENT.getConfig(),
+                RUNNING.toString());
+
+        SlotStatus slotStatus = representation.toSlotStatus("instance");
+        assertEquals(slotStatus.getState(), STOPPED);
+        assertEquals(slotStatus.getAssignment(), APPLE_ASSIGNMENT);
+        assertEquals(slotStatus.getExpectedState(), RUNNING);
+        assertEquals(slotStatus.getExpectedAssignment(), BANANA_ASSIGNMENT);
+    }
+
+    @Test
+    public void testToSlotStatusReusesPreviousStatus()
+    {
+        SlotStatus previous = expected.toSlotStatus("instance");
+
+        // nothing changed, so the previous status is returned as is
+        assertSame(codec.fromJson(codec.toJson(expected)).toSlotStatus("instance", previous), previous);
+
+        // a changed state is decoded, but the unchanged resources are shared
+        SlotStatusRepresentation running = codec.fromJson(codec.toJson(expected).replace("\"STOPPED\"", "\"RUNNING\""));
+        SlotStatus changed = running.toSlotStatus("instance", previous);
+        assertNotSame(changed, previous);
+        assertEquals(changed.getState(), RUNNING);
+        assertSame(changed.getResources(), previous.getResources());
+
+        // a changed status message is not ignored
+        SlotStatusRepresentation failed = new SlotStatusRepresentation(expected.getId(),
+                expected.getShortId(),
+                expected.getName(),
+                expected.getSelf(),
+                expected.getExternalUri(),
+                expected.getInstanceId(),
+                expected.getLocation(),
+                expected.getShortLocation(),
+                expected.getBinary(),
+                expected.getShortBinary(),
+                expected.getConfig(),
+                expected.getShortConfig(),
+                expected.getStatus(),
+                expected.getVersion(),
+                "failed",
+                expected.getInstallPath(),
+                expected.getResources(),
+                expected.getExpectedBinary(),
+                expected.getExpectedConfig(),
+                expected.getExpectedStatus());
+        assertEquals(failed.toSlotStatus("instance", previous).getStatusMessage(), "failed");
+    }
+
+    @Test
+    public void testToSlotStatusUnknownState()
+    {
+        // a newer agent may send a state this version does not know
+        SlotStatusRepresentation representation = new SlotStatusRepresentation(UUID.fromString("aaaaaaaa-aaaa-aaaa-aaaa-aaaaaaaaaaaa"),
+                "aaaaa",
+                "slot1",
+                URI.create("internal://apple"),
+                URI.create("external://apple"),
+                "instance",
+                "/test/location/apple",
+                "/location/apple",
+                APPLE_ASSIGNMENT.getBinary(),
+                APPLE_ASSIGNMENT.getBinary(),
+                APPLE_ASSIGNMENT.getConfig(),
+                APPLE_ASSIGNMENT.getConfig(),
+                "HIBERNATING",
+                "abc",
+                null,
+                "/apple",
+                ImmutableMap.of("memory", 512),
+                APPLE_ASSIGNMENT.getBinary(),
+                APPLE_ASSIGNMENT.getConfig(),
+                "HIBERNATING");
+
+        SlotStatus slotStatus = representation.toSlotStatus("instance");
+        assertEquals(slotStatus.getId(), UUID.fromString("aaaaaaaa-aaaa-aaaa-aaaa-aaaaaaaaaaaa"));
+        assertEquals(slotStatus.getState(), UNKNOWN);
+        assertEquals(slotStatus.getAssignment(), APPLE_ASSIGNMENT);
+        assertEquals(slotStatus.getExpectedState(), UNKNOWN);
+    }
 }
@@ -0,0 +1,250 @@
+package com.proofpoint.galaxy.shared;
+
+import com.google.common.io.Files;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static com.proofpoint.galaxy.shared.FileUtils.createTar;
+import static com.proofpoint.galaxy.shared.FileUtils.createTempDir;
+import static com.proofpoint.galaxy.shared.FileUtils.deleteRecursively;
+import static com.proofpoint.galaxy.shared.FileUtils.extractTar;
+import static com.proofpoint.galaxy.shared.FileUtils.isSymbolicLink;
+import static com.proofpoint.galaxy.shared.FileUtils.newFile;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class TestTarUtils
+{
+    // together longer than the 100 bytes of a tar header name
+    private static final String LONG_DIR_1 = "xxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxx";
+    private static final String LONG_DIR_2 = "yyyyyyyyyyyyyyyyyyyyyyyyyyyyyyyyyyyyyyyyyyyyyyyyyyyyyyyyyyyy";
+
+    private File tempDir;
+
+    @BeforeMethod
+    public void setUp()
+    {
+        tempDir = createTempDir("tar");
+    }
+
+    @AfterMethod
+    public void tearDown()
+    {
+        deleteRecursively(tempDir);
+    }
+
+    @Test
+    public void testRoundTrip()
+            throws Exception
+    {
+        File sourceDir = newFile(tempDir, "source", "apple-1.0");
+        File launcher = newFile(sourceDir, "bin", "launcher");
+        launcher.getParentFile().mkdirs();
+        Files.write("launcher", launcher, UTF_8);
+        launcher.setExecutable(true, false);
+
+        File longFile = newFile(sourceDir, "lib", LONG_DIR_1, LONG_DIR_2, "file.txt");
+        longFile.getParentFile().mkdirs();
+        Files.write("long", longFile, UTF_8);
+
+        execute("ln", "-s", "../bin/launcher", newFile(sourceDir, "lib", "link").getAbsolutePath());
+
+        File tarFile = new File(tempDir, "apple-1.0.tar.gz");
+        createTar(sourceDir, tarFile);
+
+        File targetDir = new File(tempDir, "target");
+        targetDir.mkdirs();
+        extractTar(tarFile, targetDir);
+
+        File extractedLauncher = newFile(targetDir, "apple-1.0", "bin", "launcher");
+        assertEquals(Files.toString(extractedLauncher, UTF_8), "launcher");
+        assertTrue(extractedLauncher.canExecute());
+        assertFalse(newFile(targetDir, "apple-1.0", "lib", LONG_DIR_1, LONG_DIR_2, "file.txt").canExecute());
+        assertEquals(Files.toString(newFile(targetDir, "apple-1.0", "lib", LONG_DIR_1, LONG_DIR_2, "file.txt"), UTF_8), "long");
+
+        // relative links point into the extracted tree
+        File link = newFile(targetDir, "apple-1.0", "lib", "link");
+        assertTrue(isSymbolicLink(link));
+        assertEquals(link.getCanonicalFile(), extractedLauncher.getCanonicalFile());
+    }
+
+    @Test
+    public void testExtractArchiveFromTar()
+            throws Exception
+    {
+        File sourceDir = newFile(tempDir, "source", "apple-1.0");
+        File launcher = newFile(sourceDir, "bin", "launcher");
+        launcher.getParentFile().mkdirs();
+        Files.write("launcher", launcher, UTF_8);
+        launcher.setExecutable(true, false);
+
+        File tarFile = new File(tempDir, "apple-1.0.tar.gz");
+        new Command("tar", "zcf", tarFile.getAbsolutePath(), "apple-1.0")
+                .setDirectory(sourceDir.getParentFile())
+                .setTimeLimit(1, TimeUnit.MINUTES)
+                .execute(Executors.newCachedThreadPool());
+
+        File targetDir = new File(tempDir, "target");
+        targetDir.mkdirs();
+        extractTar(tarFile, targetDir);
+
+        File extractedLauncher = newFile(targetDir, "apple-1.0", "bin", "launcher");
+        assertEquals(Files.toString(extractedLauncher, UTF_8), "launcher");
+        assertTrue(extractedLauncher.canExecute());
+    }
+
+    @Test
+    public void testGroupPermissionsPreserved()
+            throws Exception
+    {
+        File sourceDir = newFile(tempDir, "source", "apple-1.0");
+        File launcher = newFile(sourceDir, "bin", "launcher");
+        launcher.getParentFile().mkdirs();
+        Files.write("launcher", launcher, UTF_8);
+        execute("chmod", "750", launcher.getAbsolutePath());
+
+        // Java 6 can not read group permissions, so the archive is created with tar
+        File tarFile = new File(tempDir, "apple-1.0.tar.gz");
+        new Command("tar", "zcf", tarFile.getAbsolutePath(), "apple-1.0")
+                .setDirectory(sourceDir.getParentFile())
+                .setTimeLimit(1, TimeUnit.MINUTES)
+                .execute(Executors.newCachedThreadPool());
+
+        File targetDir = new File(tempDir, "target");
+        targetDir.mkdirs();
+        extractTar(tarFile, targetDir);
+
+        // fails if the mode is not exactly 750
+        File extractedLauncher = newFile(targetDir, "apple-1.0", "bin", "launcher");
+        execute("sh", "-c", "test -n \"$(find \"$0\" -perm 0750)\"", extractedLauncher.getAbsolutePath());
+    }
+
+    @Test
+    public void testSetuidPreserved()
+            throws Exception
+    {
+        File sourceDir = newFile(tempDir, "source", "apple-1.0");
+        File launcher = newFile(sourceDir, "bin", "launcher");
+        launcher.getParentFile().mkdirs();
+        Files.write("launcher", launcher, UTF_8);
+        execute("chmod", "4755", launcher.getAbsolutePath());
+
+        // Java 6 can not read the setuid bit, so the archive is created with tar
+        File tarFile = new File(tempDir, "apple-1.0.tar.gz");
+        new Command("tar", "zcf", tarFile.getAbsolutePath(), "apple-1.0")
+                .setDirectory(sourceDir.getParentFile())
+                .setTimeLimit(1, TimeUnit.MINUTES)
+                .execute(Executors.newCachedThreadPool());
+
+        File targetDir = new File(tempDir, "target");
+        targetDir.mkdirs();
+        extractTar(tarFile, targetDir);
+
+        // fails if the mode is not exactly 4755
+        File extractedLauncher = newFile(targetDir, "apple-1.0", "bin", "launcher");
+        execute("sh", "-c", "test -n \"$(find \"$0\" -perm 4755)\"", extractedLauncher.getAbsolutePath());
+    }
+
+    @Test
+    public void testSymbolicLinkTextPreserved()
+            throws Exception
+    {
+        File sourceDir = newFile(tempDir, "source", "apple-1.0");
+        File launcher = newFile(sourceDir, "bin", "launcher");
+        launcher.getParentFile().mkdirs();
+        Files.write("launcher", launcher, UTF_8);
+        File libDir = new File(sourceDir, "lib");
+        libDir.mkdirs();
+        execute("ln", "-s", "../bin/./launcher", new File(libDir, "relative").getAbsolutePath());
+        execute("ln", "-s", "/usr/lib", new File(libDir, "absolute").getAbsolutePath());
+
+        File tarFile = new File(tempDir, "apple-1.0.tar.gz");
+        createTar(sourceDir, tarFile);
+
+        File targetDir = new File(tempDir, "target");
+        targetDir.mkdirs();
+        extractTar(tarFile, targetDir);
+
+        // links keep the text they were created with, not the resolved path
+        assertLinkText(newFile(targetDir, "apple-1.0", "lib", "relative"), "../bin/./launcher");
+        assertLinkText(newFile(targetDir, "apple-1.0", "lib", "absolute"), "/usr/lib");
+    }
+
+    @Test
+    public void testSymbolicLinkOutsideTargetExtracted()
+            throws Exception
+    {
+        File outside = new File(tempDir, "outside.txt");
+        Files.write("outside", outside, UTF_8);
+
+        File sourceDir = newFile(tempDir, "source", "apple-1.0");
+        sourceDir.mkdirs();
+        execute("ln", "-s", outside.getAbsolutePath(), new File(sourceDir, "escape").getAbsolutePath());
+        execute("ln", "-s", "../../outside.txt", new File(sourceDir, "relative-escape").getAbsolutePath());
+
+        File tarFile = new File(tempDir, "apple-1.0.tar.gz");
+        new Command("tar", "zcf", tarFile.getAbsolutePath(), "apple-1.0")
+                .setDirectory(sourceDir.getParentFile())
+                .setTimeLimit(1, TimeUnit.MINUTES)
+                .execute(Executors.newCachedThreadPool());
+
+        // as with tar, symbolic links may point anywhere
+        File targetDir = new File(tempDir, "target");
+        targetDir.mkdirs();
+        extractTar(tarFile, targetDir);
+
+        assertLinkText(newFile(targetDir, "apple-1.0", "escape"), outside.getAbsolutePath());
+        assertLinkText(newFile(targetDir, "apple-1.0", "relative-escape"), "../../outside.txt");
+        assertEquals(newFile(targetDir, "apple-1.0", "relative-escape").getCanonicalFile(), outside.getCanonicalFile());
+    }
+
+    @Test
+    public void testFileOutsideTargetRejected()
+            throws Exception
+    {
+        File sourceDir = newFile(tempDir, "source", "apple-1.0");
+        sourceDir.mkdirs();
+        Files.write("outside", new File(tempDir, "outside.txt"), UTF_8);
+
+        // keep the leading ../ in the entry name
+        File tarFile = new File(tempDir, "apple-1.0.tar.gz");
+        new Command("tar", "zcPf", tarFile.getAbsolutePath(), "../../outside.txt")
+                .setDirectory(sourceDir)
+                .setTimeLimit(1, TimeUnit.MINUTES)
+                .execute(Executors.newCachedThreadPool());
+
+        File targetDir = newFile(tempDir, "target", "apple-1.0");
+        targetDir.mkdirs();
+        try {
+            extractTar(tarFile, targetDir);
+            fail("expected IOException");
+        }
+        catch (IOException expected) {
+        }
+        assertEquals(Files.toString(new File(tempDir, "outside.txt"), UTF_8), "outside");
+    }
+
+    private static void assertLinkText(File link, String expected)
+            throws CommandFailedException
+    {
+        assertTrue(isSymbolicLink(link));
+        execute("sh", "-c", "test \"$(readlink \"$0\")\" = \"$1\"", link.getAbsolutePath(), expected);
+    }
+
+    private static void execute(String... command)
+            throws CommandFailedException
+    {
+        new Command(command)
+                .setTimeLimit(1, TimeUnit.MINUTES)
+                .execute(Executors.newCachedThreadPool());
+    }
+}
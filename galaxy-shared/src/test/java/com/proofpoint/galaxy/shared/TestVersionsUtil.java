@@ -0,0 +1,172 @@
+package com.proofpoint.galaxy.shared;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Lists;
+import org.testng.annotations.Test;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import static com.proofpoint.galaxy.shared.AssignmentHelper.APPLE_ASSIGNMENT;
+import static com.proofpoint.galaxy.shared.AssignmentHelper.BANANA_ASSIGNMENT;
+import static com.proofpoint.galaxy.shared.SlotLifecycleState.RUNNING;
+import static com.proofpoint.galaxy.shared.SlotLifecycleState.STOPPED;
+import static com.proofpoint.galaxy.shared.SlotLifecycleState.TERMINATED;
+import static com.proofpoint.galaxy.shared.SlotStatus.createSlotStatus;
+import static com.proofpoint.galaxy.shared.VersionsUtil.checkAgentsVersion;
+import static com.proofpoint.galaxy.shared.VersionsUtil.checkSlotsVersion;
+import static com.proofpoint.galaxy.shared.VersionsUtil.createAgentVersion;
+import static com.proofpoint.galaxy.shared.VersionsUtil.createAgentsVersion;
+import static com.proofpoint.galaxy.shared.VersionsUtil.createSlotVersion;
+import static com.proofpoint.galaxy.shared.VersionsUtil.createSlotsVersion;
+import static com.proofpoint.galaxy.shared.VersionsUtil.createVersion;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+
+public class TestVersionsUtil
+{
+    private final SlotStatus apple = createSlot(RUNNING, APPLE_ASSIGNMENT);
+    private final SlotStatus banana = createSlot(STOPPED, BANANA_ASSIGNMENT);
+    private final SlotStatus terminated = createSlot(TERMINATED, null);
+
+    @Test
+    public void testSlotVersionIsCompatible()
+    {
+        for (SlotStatus slot : ImmutableList.of(apple, banana, terminated)) {
+            String expected = DigestUtils.md5Hex(Joiner.on("||").useForNull("--NULL--").join(slot.getId(), slot.getState(), slot.getAssignment()));
+            assertEquals(createSlotVersion(slot.getId(), slot.getState(), slot.getAssignment()), expected);
+            assertEquals(slot.getVersion(), expected);
+        }
+    }
+
+    @Test
+    public void testAgentVersionIsCompatible()
+    {
+        List<SlotStatus> slots = ImmutableList.of(apple, banana, terminated);
+        Map<String, Integer> resources = ImmutableMap.of("memory", 1024, "cpu", 8);
+
+        assertEquals(createAgentVersion("agent", AgentLifecycleState.ONLINE, slots, resources),
+                legacyAgentVersion("agent", AgentLifecycleState.ONLINE, slots, resources));
+        assertEquals(createAgentVersion("agent", AgentLifecycleState.ONLINE, Lists.reverse(slots), resources),
+                legacyAgentVersion("agent", AgentLifecycleState.ONLINE, slots, resources));
+
+        // nulls, no slots, no resources and non ascii characters
+        assertEquals(createAgentVersion(null, null, ImmutableList.<SlotStatus>of(), ImmutableMap.<String, Integer>of()),
+                legacyAgentVersion(null, null, ImmutableList.<SlotStatus>of(), ImmutableMap.<String, Integer>of()));
+        assertEquals(createAgentVersion("agent-\u00e9\u4e2d", AgentLifecycleState.OFFLINE, slots, ImmutableMap.of("m\u00e9moire", 1)),
+                legacyAgentVersion("agent-\u00e9\u4e2d", AgentLifecycleState.OFFLINE, slots, ImmutableMap.of("m\u00e9moire", 1)));
+
+        assertEquals(createVersion("coordinator", CoordinatorLifecycleState.ONLINE),
+                DigestUtils.md5Hex(Joiner.on("||").join("coordinator", CoordinatorLifecycleState.ONLINE)));
+    }
+
+    @Test
+    public void testSlotsVersion()
+    {
+        String version = createSlotsVersion(ImmutableList.of(apple, banana, terminated));
+        assertEquals(version.length(), 32);
+
+        // order does not matter
+        assertEquals(createSlotsVersion(ImmutableList.of(terminated, apple, banana)), version);
+
+        // any change does
+        assertFalse(version.equals(createSlotsVersion(ImmutableList.of(apple, banana))));
+        assertFalse(version.equals(createSlotsVersion(ImmutableList.of(apple.changeState(STOPPED), banana, terminated))));
+        assertFalse(createSlotsVersion(ImmutableList.<SlotStatus>of()).equals(createSlotsVersion(ImmutableList.of(apple))));
+    }
+
+    @Test
+    public void testSlotsVersionWithDuplicateId()
+    {
+        // a duplicated slot is only counted once, and does not cancel itself out
+        String version = createSlotsVersion(ImmutableList.of(apple, banana));
+        assertEquals(createSlotsVersion(ImmutableList.of(apple, banana, apple)), version);
+        assertFalse(createSlotsVersion(ImmutableList.of(apple, apple)).equals(createSlotsVersion(ImmutableList.<SlotStatus>of())));
+
+        // the last slot with an id wins
+        assertEquals(createSlotsVersion(ImmutableList.of(apple, banana, apple.changeState(STOPPED))),
+                createSlotsVersion(ImmutableList.of(apple.changeState(STOPPED), banana)));
+    }
+
+    @Test
+    public void testAgentsVersion()
+    {
+        AgentStatus agent1 = createAgent("agent-1", ImmutableList.of(apple));
+        AgentStatus agent2 = createAgent("agent-2", ImmutableList.of(banana));
+
+        String version = createAgentsVersion(ImmutableList.of(agent1, agent2));
+        assertEquals(createAgentsVersion(ImmutableList.of(agent2, agent1)), version);
+        assertFalse(version.equals(createAgentsVersion(ImmutableList.of(agent1, agent2.changeState(AgentLifecycleState.OFFLINE)))));
+        assertFalse(version.equals(createAgentsVersion(ImmutableList.of(agent1))));
+
+        // a duplicated agent is only counted once, and the last agent with an id wins
+        assertEquals(createAgentsVersion(ImmutableList.of(agent1, agent2, agent1)), version);
+        assertFalse(createAgentsVersion(ImmutableList.of(agent1, agent1)).equals(createAgentsVersion(ImmutableList.<AgentStatus>of())));
+        assertEquals(createAgentsVersion(ImmutableList.of(agent1, agent2, agent2.changeState(AgentLifecycleState.OFFLINE))),
+                createAgentsVersion(ImmutableList.of(agent1, agent2.changeState(AgentLifecycleState.OFFLINE))));
+    }
+
+    @Test
+    public void testLegacyVersionsAccepted()
+    {
+        List<SlotStatus> slots = ImmutableList.of(apple, banana, terminated);
+        List<AgentStatus> agents = ImmutableList.of(createAgent("agent-1", ImmutableList.of(apple)), createAgent("agent-2", ImmutableList.of(banana)));
+
+        // versions from clients of the previous release
+        Map<UUID, String> slotVersions = new TreeMap<UUID, String>();
+        for (SlotStatus slot : slots) {
+            slotVersions.put(slot.getId(), slot.getVersion());
+        }
+        checkSlotsVersion(DigestUtils.md5Hex(slotVersions.values().toString()), slots);
+
+        Map<String, String> agentVersions = new TreeMap<String, String>();
+        for (AgentStatus agent : agents) {
+            agentVersions.put(agent.getAgentId(), agent.getVersion());
+        }
+        checkAgentsVersion(DigestUtils.md5Hex(agentVersions.values().toString()), agents);
+
+        // and from this release
+        checkSlotsVersion(createSlotsVersion(slots), slots);
+        checkAgentsVersion(createAgentsVersion(agents), agents);
+    }
+
+    @Test(expectedExceptions = VersionConflictException.class)
+    public void testStaleLegacySlotsVersionRejected()
+    {
+        checkSlotsVersion(DigestUtils.md5Hex(ImmutableList.of(apple.getVersion()).toString()), ImmutableList.of(apple.changeState(STOPPED)));
+    }
+
+    private static SlotStatus createSlot(SlotLifecycleState state, Assignment assignment)
+    {
+        URI uri = URI.create("fake://slot");
+        return createSlotStatus(UUID.randomUUID(), "slot", uri, uri, "instance", "/location", state, assignment, "/slot", ImmutableMap.<String, Integer>of());
+    }
+
+    private static AgentStatus createAgent(String agentId, List<SlotStatus> slots)
+    {
+        URI uri = URI.create("fake://" + agentId);
+        return new AgentStatus(agentId, AgentLifecycleState.ONLINE, "instance", uri, uri, "/location", "instance.type", slots, ImmutableMap.of("cpu", 8));
+    }
+
+    private static String legacyAgentVersion(String agentId, AgentLifecycleState state, Iterable<SlotStatus> slots, Map<String, Integer> resources)
+    {
+        List<Object> parts = Lists.newArrayList();
+        parts.add(agentId);
+        parts.add(state);
+
+        Map<UUID, String> slotVersions = new TreeMap<UUID, String>();
+        for (SlotStatus slot : slots) {
+            slotVersions.put(slot.getId(), slot.getVersion());
+        }
+        parts.addAll(slotVersions.values());
+        parts.add(Joiner.on("--").withKeyValueSeparator("=").join(ImmutableSortedMap.copyOf(resources)));
+
+        return DigestUtils.md5Hex(Joiner.on("||").useForNull("--NULL--").join(parts));
+    }
+}